@@ -180,6 +180,9 @@ class App {
         // Routes to Rerun the job for given timestamp in minutes
         post("/Rerun/:id/:timestamp", Routes::rerunJob);
 
+        // Routes to view connection pool metrics
+        get("/Status/Pools", Routes::getPoolStatus);
+
         // Enable debug routes only in debug mode
         if (CLISettings.DEBUG_MODE) {
             // Routes to get the database as a JSON dump
@@ -32,8 +32,11 @@ import com.yahoo.sherlock.query.QueryBuilder;
 import com.yahoo.sherlock.scheduler.JobExecutionService;
 import com.yahoo.sherlock.scheduler.SchedulerService;
 import com.yahoo.sherlock.service.DetectorService;
+import com.yahoo.sherlock.service.DruidDatasourceCache;
+import com.yahoo.sherlock.service.DruidQueryCache;
 import com.yahoo.sherlock.service.DruidQueryService;
 import com.yahoo.sherlock.service.EmailService;
+import com.yahoo.sherlock.service.HttpService;
 import com.yahoo.sherlock.service.ServiceFactory;
 import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.settings.Constants;
@@ -44,6 +47,8 @@ import com.yahoo.sherlock.store.DruidClusterAccessor;
 import com.yahoo.sherlock.store.JobMetadataAccessor;
 import com.yahoo.sherlock.store.JsonDumper;
 import com.yahoo.sherlock.store.Store;
+import com.yahoo.sherlock.store.core.Client;
+import com.yahoo.sherlock.store.core.LuaScript;
 import com.yahoo.sherlock.utils.NumberUtils;
 import com.yahoo.sherlock.utils.TimeUtils;
 import com.yahoo.sherlock.utils.Utils;
@@ -331,6 +336,7 @@ public class Routes {
         try {
             schedulerService.stopJob(jobId);
             jobAccessor.deleteJobMetadata(jobId);
+            DetectorService.invalidateJob(jobId);
             return Constants.SUCCESS;
         } catch (IOException | JobNotFoundException | SchedulerException e) {
             response.status(500);
@@ -463,6 +469,8 @@ public class Routes {
             if (!emailService.validateEmail(userQuery.getOwnerEmail(), emailService.getValidDomainsFromSettings())) {
                 throw new SherlockException("Invalid owner email passed");
             }
+            // Write held job state first so that it does not overwrite the update
+            schedulerService.flushExecutedJobs();
             JobMetadata currentJob = jobAccessor.getJobMetadata(jobId);
             // Validate query change if any
             Query query = null;
@@ -483,6 +491,7 @@ public class Routes {
                 schedulerService.scheduleJob(currentJob);
             }
             jobAccessor.putJobMetadata(currentJob);
+            DetectorService.invalidateJob(currentJob.getJobId());
             response.status(200);
             return Constants.SUCCESS;
         } catch (Exception e) {
@@ -543,6 +552,7 @@ public class Routes {
             // change the job status to stopped
             jobMetadata.setJobStatus(JobStatus.STOPPED.getValue());
             jobAccessor.putJobMetadata(jobMetadata);
+            DetectorService.invalidateJob(jobMetadata.getJobId());
             response.status(200);
             // return
             return Constants.SUCCESS;
@@ -621,16 +631,27 @@ public class Routes {
         // Get the job id
         String jobId = request.params(Constants.ID);
         String frequency = request.params(Constants.FREQUENCY_PARAM);
-        // Get the json timeline data from database
+        // Get the json timeline data from database, by default
+        // for as long as reports of the frequency are kept
         try {
-            List<AnomalyReport> report = reportAccessor.getAnomalyReportsForJob(jobId, frequency);
+            int end = NumberUtils.parseInt(request.queryParams(Constants.END), (int) TimeUtils.getTimestampMinutes());
+            int retention = (int) (Utils.getReportRetentionSeconds(frequency) / Constants.SECONDS_IN_MINUTE);
+            int start = NumberUtils.parseInt(request.queryParams(Constants.START), end - retention);
+            List<AnomalyReport> report = reportAccessor.getAnomalyReportsForJobInRange(
+                    jobId,
+                    frequency,
+                    start,
+                    end,
+                    0,
+                    CLISettings.REPORT_TIMELINE_LIMIT
+            );
             JsonTimeline jsonTimeline = Utils.getAnomalyReportsAsTimeline(report);
             String jsonTimelinePoints = new Gson().toJson(jsonTimeline.getTimelinePoints());
             JobMetadata jobMetadata = jobAccessor.getJobMetadata(jobId);
             // populate params for visualization
             params.put(Constants.JOB_ID, jobId);
             params.put(Constants.FREQUENCY, frequency);
-            params.put(Constants.HOURS_OF_LAG, jobAccessor.getJobMetadata(jobId).getHoursOfLag());
+            params.put(Constants.HOURS_OF_LAG, jobMetadata.getHoursOfLag());
             params.put(Constants.TIMELINE_POINTS, jsonTimelinePoints);
             params.put(Constants.TITLE, jobMetadata.getTestName());
         } catch (Exception e) {
@@ -668,7 +689,7 @@ public class Routes {
                 if (!errorDescription.isPresent() && report.getErrorDescription() != null) {
                     errorDescription = Optional.of(report.getErrorDescription());
                 }
-                if (report.getAnomalyTimestamps() != null && !report.getAnomalyTimestamps().isEmpty()) {
+                if (report.getAnomalyCount() > 0) {
                     anomalousReports.add(report);
                 }
             }
@@ -784,6 +805,8 @@ public class Routes {
                 return String.format("Cannot delete cluster with %d associated jobs", associatedJobs.size());
             }
             clusterAccessor.deleteDruidCluster(clusterId);
+            HttpService.closeClusterPool(clusterId);
+            invalidateClusterCaches(clusterId);
             response.status(200);
             return Constants.SUCCESS;
         } catch (IOException | ClusterNotFoundException e) {
@@ -813,6 +836,7 @@ public class Routes {
             existingCluster.update(updatedCluster);
             // Put updated cluster in DB
             clusterAccessor.putDruidCluster(existingCluster);
+            invalidateClusterCaches(clusterId);
             if (requireReschedule) {
                 log.info("Hours of lag has changed, rescheduling jobs for cluster");
                 List<JobMetadata> rescheduleJobs = jobAccessor
@@ -833,6 +857,41 @@ public class Routes {
         }
     }
 
+    /**
+     * Drop the cached datasources and query results of a
+     * Druid cluster which has been updated or deleted.
+     *
+     * @param clusterId ID of the cluster
+     */
+    private static void invalidateClusterCaches(String clusterId) {
+        DruidDatasourceCache.getInstance().invalidate(clusterId);
+        DruidQueryCache.getInstance().invalidate(clusterId);
+    }
+
+    /**
+     * Report the state of the shared connection and worker pools as JSON.
+     *
+     * @param request  HTTP request
+     * @param response HTTP response
+     * @return pool metrics as a JSON string
+     */
+    public static String getPoolStatus(Request request, Response response) {
+        Map<String, Object> status = new HashMap<>();
+        status.put(Constants.REDIS, Client.get().getConnectionPoolStats());
+        status.put(Constants.SCRIPTS, LuaScript.getAllStats());
+        if (schedulerService != null) {
+            status.put(Constants.SCHEDULER, schedulerService.getWorkerPoolStats());
+        }
+        status.put(Constants.BACKFILL, JobExecutionService.getBackfillPoolStats());
+        status.put(Constants.DRUID, HttpService.getClusterPoolStats());
+        status.put(Constants.DRUID_QUERY_CACHE, DruidQueryCache.getInstance().getStats());
+        if (jobAccessor != null) {
+            status.put(Constants.JOB_CACHE, jobAccessor.getCacheStats());
+        }
+        response.type("application/json");
+        return new Gson().toJson(status);
+    }
+
     /**
      * This method will get the entire backend database as a JSON
      * string and return it to the caller.
@@ -18,7 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringJoiner;
 
@@ -72,10 +72,17 @@ public class AnomalyReport implements Serializable {
     private String groupByFilters;
 
     /**
-     * Comma separated anomaly timestamps. This field is not
-     * annotated with {@code Attribute} because it is set manually.
-     * */
-    private String anomalyTimestamps;
+     * Start times of the anomaly intervals in hours or minutes since
+     * epoch. The intervals are not annotated with {@code Attribute}
+     * because they are stored manually.
+     */
+    private int[] anomalyStarts;
+
+    /** End times of the anomaly intervals, or zero for a single point. */
+    private int[] anomalyEnds;
+
+    /** Percentage deviations of the anomaly intervals, or {@code NaN} if unknown. */
+    private float[] anomalyDeviations;
 
     /** Url of superset query. */
     @Attribute
@@ -105,10 +112,6 @@ public class AnomalyReport implements Serializable {
     @Attribute
     private String modelParam;
 
-    /** String to represent deviation comma separated. */
-    @Attribute
-    private String deviationString;
-
     /** Anomaly test name associated with this report. **/
     @Attribute
     private String testName;
@@ -159,7 +162,7 @@ public class AnomalyReport implements Serializable {
         this.uniqueId = uniqueId;
         this.metricName = metricName;
         this.groupByFilters = groupByFilters;
-        this.anomalyTimestamps = anomalyTimestamps;
+        setAnomalyTimestamps(anomalyTimestamps);
         this.queryURL = queryURL;
         this.reportQueryEndTime = reportQueryEndTime;
         this.jobId = jobId;
@@ -177,36 +180,31 @@ public class AnomalyReport implements Serializable {
      * @return readable timestamps separated by new lines
      */
     public String getFormattedAnomalyTimestamps() {
-        if (anomalyTimestamps == null) {
-            return "";
-        }
-        String[] anomalyTimes = anomalyTimestamps.split(Constants.COMMA_DELIMITER);
         StringJoiner joiner = new StringJoiner(Constants.NEWLINE_DELIMITER);
-        for (String anomalyTime : anomalyTimes) {
-            String[] timeAndValueSplit = anomalyTime.split(Constants.AT_DELIMITER);
-            String[] interval = timeAndValueSplit[0].split(Constants.COLON_DELIMITER);
-            String intervalStart = interval[0];
-            String intervalEnd = interval.length > 1 ? interval[1] : null;
-            if (!NumberUtils.isInteger(intervalStart)) {
-                continue;
-            }
-            long startSeconds = jobFrequency.equals(Triggers.MINUTE.toString())
-                                ? TimeUtils.getTimestampInSecondsFromMinutes(Long.parseLong(intervalStart))
-                                : TimeUtils.getTimestampInSecondsFromHours(Long.parseLong(intervalStart));
-            String startTime = TimeUtils.getTimeFromSeconds(startSeconds, Constants.TIMESTAMP_FORMAT);
-            if (intervalEnd == null) {
+        boolean minutes = Triggers.MINUTE.toString().equals(jobFrequency);
+        for (int i = 0; i < getAnomalyCount(); i++) {
+            String startTime = formatTime(anomalyStarts[i], minutes);
+            if (anomalyEnds[i] == 0) {
                 joiner.add(startTime);
-            } else if (NumberUtils.isInteger(intervalEnd)) {
-                long endSeconds = jobFrequency.equals(Triggers.MINUTE.toString())
-                                  ? TimeUtils.getTimestampInSecondsFromMinutes(Long.parseLong(intervalEnd))
-                                  : TimeUtils.getTimestampInSecondsFromHours(Long.parseLong(intervalEnd));
-                String endTime = TimeUtils.getTimeFromSeconds(endSeconds, Constants.TIMESTAMP_FORMAT);
-                joiner.add(String.format("%s to %s", startTime, endTime));
+            } else {
+                joiner.add(String.format("%s to %s", startTime, formatTime(anomalyEnds[i], minutes)));
             }
         }
         return joiner.toString();
     }
 
+    /**
+     * @param time    time in hours or minutes since epoch
+     * @param minutes whether the time is in minutes
+     * @return the readable time
+     */
+    private static String formatTime(long time, boolean minutes) {
+        long seconds = minutes
+                       ? TimeUtils.getTimestampInSecondsFromMinutes(time)
+                       : TimeUtils.getTimestampInSecondsFromHours(time);
+        return TimeUtils.getTimeFromSeconds(seconds, Constants.TIMESTAMP_FORMAT);
+    }
+
     /**
      * The report generation time as a readable,
      * formatted string for use on the front end.
@@ -217,83 +215,181 @@ public class AnomalyReport implements Serializable {
     }
 
     /**
-     * Get a list of anomaly timestamps as their range
-     * as a list of Long pairs. If there is no end time,
-     * i.e. the end time is the same as the start time,
-     * then the returned pair second value is zero.
+     * @return the number of anomaly intervals
+     */
+    public int getAnomalyCount() {
+        return anomalyStarts == null ? 0 : anomalyStarts.length;
+    }
+
+    /**
+     * Set the anomaly intervals. The arrays must have the same length.
      *
-     * @return a list of timestamp pairs
+     * @param starts     interval start times in hours or minutes since epoch
+     * @param ends       interval end times, or zero for a single point
+     * @param deviations percentage deviations, or {@code NaN} if unknown
      */
-    public List<int[]> getAnomalyTimestampsHours() {
+    public void setAnomalyIntervals(int[] starts, int[] ends, float[] deviations) {
+        this.anomalyStarts = starts;
+        this.anomalyEnds = ends;
+        this.anomalyDeviations = deviations;
+    }
+
+    /**
+     * Get the anomaly intervals as a comma separated list of
+     * {@code start[:end][@deviation]}, which is the form in
+     * which they were entered and stored before.
+     *
+     * @return the anomaly timestamps, or null if there are none
+     */
+    public String getAnomalyTimestamps() {
+        if (anomalyStarts == null) {
+            return null;
+        }
+        StringBuilder str = new StringBuilder(12 * anomalyStarts.length);
+        for (int i = 0; i < anomalyStarts.length; i++) {
+            if (i > 0) {
+                str.append(Constants.COMMA_DELIMITER);
+            }
+            str.append(anomalyStarts[i]);
+            if (anomalyEnds[i] != 0) {
+                str.append(Constants.COLON_DELIMITER).append(anomalyEnds[i]);
+            }
+            if (!Float.isNaN(anomalyDeviations[i])) {
+                str.append(Constants.AT_DELIMITER).append((int) anomalyDeviations[i]);
+            }
+        }
+        return str.toString();
+    }
+
+    /**
+     * Set the anomaly intervals from a comma separated list of
+     * {@code start[:end][@deviation]}. Entries without an integer
+     * start time are skipped, and an end time equal to the
+     * start time is dropped.
+     *
+     * @param anomalyTimestamps the anomaly timestamps, which may be null
+     */
+    public void setAnomalyTimestamps(String anomalyTimestamps) {
         if (anomalyTimestamps == null) {
-            return Collections.emptyList();
+            setAnomalyIntervals(null, null, null);
+            return;
         }
         String[] anomalyTimes = anomalyTimestamps.split(Constants.COMMA_DELIMITER);
-        StringJoiner joiner = new StringJoiner(Constants.COMMA_DELIMITER);
-        List<int[]> timestamps = new ArrayList<>(anomalyTimes.length * 2);
+        int[] starts = new int[anomalyTimes.length];
+        int[] ends = new int[anomalyTimes.length];
+        float[] deviations = new float[anomalyTimes.length];
+        int count = 0;
         for (String anomalyTime : anomalyTimes) {
-            String[] timeAndValueSplit = anomalyTime.split(Constants.AT_DELIMITER);
-            String[] intervalStr = timeAndValueSplit[0].split(Constants.COLON_DELIMITER);
-            if (!NumberUtils.isInteger(intervalStr[0])) {
+            int at = anomalyTime.indexOf(Constants.AT_DELIMITER);
+            String interval = at < 0 ? anomalyTime : anomalyTime.substring(0, at);
+            int colon = interval.indexOf(Constants.COLON_DELIMITER);
+            Integer start = parseTime(colon < 0 ? interval : interval.substring(0, colon));
+            if (start == null) {
                 continue;
             }
-            int[] interval = {Integer.parseInt(intervalStr[0]), 0};
-            if (intervalStr.length > 1 && NumberUtils.isInteger(intervalStr[1])) {
-                interval[1] = Integer.parseInt(intervalStr[1]);
-            }
-            if (timeAndValueSplit.length < 2) {
-                joiner.add(null);
-            } else {
-                joiner.add(timeAndValueSplit[1]);
-            }
-            timestamps.add(interval);
+            Integer end = colon < 0 ? null : parseTime(interval.substring(colon + 1));
+            starts[count] = start;
+            ends[count] = end == null || end.equals(start) ? 0 : end;
+            deviations[count] = at < 0 ? Float.NaN : parseDeviation(anomalyTime.substring(at + 1));
+            count++;
+        }
+        setAnomalyIntervals(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), Arrays.copyOf(deviations, count));
+    }
+
+    /**
+     * Get the deviations of the anomaly intervals as whole
+     * percentages separated by commas, with {@code null}
+     * where a deviation is unknown.
+     *
+     * @return the deviations, or null if there are no intervals
+     */
+    public String getDeviationString() {
+        if (anomalyDeviations == null) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(Constants.COMMA_DELIMITER);
+        for (float deviation : anomalyDeviations) {
+            joiner.add(Float.isNaN(deviation) ? null : String.valueOf((int) deviation));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Set the deviations of the anomaly intervals from a
+     * comma separated string, before the intervals are set
+     * with {@link #setAnomalyTimestampsFromBytes(byte[][], byte[][])}.
+     *
+     * @param deviationString the deviations, which may be null
+     */
+    public void setDeviationString(String deviationString) {
+        if (deviationString == null) {
+            anomalyDeviations = null;
+            return;
+        }
+        String[] deviations = deviationString.split(Constants.COMMA_DELIMITER);
+        anomalyDeviations = new float[deviations.length];
+        for (int i = 0; i < deviations.length; i++) {
+            anomalyDeviations[i] = parseDeviation(deviations[i]);
+        }
+    }
+
+    /**
+     * Get a list of anomaly timestamps as their range
+     * as a list of Long pairs. If there is no end time,
+     * i.e. the end time is the same as the start time,
+     * then the returned pair second value is zero.
+     *
+     * @return a list of timestamp pairs
+     */
+    public List<int[]> getAnomalyTimestampsHours() {
+        List<int[]> timestamps = new ArrayList<>(getAnomalyCount());
+        for (int i = 0; i < getAnomalyCount(); i++) {
+            timestamps.add(new int[] {anomalyStarts[i], anomalyEnds[i]});
         }
-        this.deviationString = joiner.toString();
         return timestamps;
     }
 
     /**
-     * Sets the anomaly timestamps string from an interval
-     * that describes the start and end time in seconds since epoch.
-     * This method will set the timestamp string as a comma
-     * delimited list of hours/minutes since epoch.
+     * Sets the anomaly intervals from EGADs intervals
+     * that describe the start and end time in seconds since epoch,
+     * as hours or minutes since epoch depending on the job frequency.
      * @param intervals the intervals to set
      */
     public void setAnomalyTimestampsFromInterval(Anomaly.IntervalSequence intervals) {
-        StringJoiner joiner = new StringJoiner(Constants.COMMA_DELIMITER);
-        for (Anomaly.Interval interval : intervals) {
-            long startHours = jobFrequency.equals(Triggers.MINUTE.toString()) ? TimeUtils.getTimestampInMinutesFromSeconds(interval.startTime) : TimeUtils.getTimestampInHoursFromSeconds(interval.startTime);
+        boolean minutes = jobFrequency.equals(Triggers.MINUTE.toString());
+        int[] starts = new int[intervals.size()];
+        int[] ends = new int[intervals.size()];
+        float[] deviations = new float[intervals.size()];
+        for (int i = 0; i < intervals.size(); i++) {
+            Anomaly.Interval interval = intervals.get(i);
+            long startHours = minutes ? TimeUtils.getTimestampInMinutesFromSeconds(interval.startTime) : TimeUtils.getTimestampInHoursFromSeconds(interval.startTime);
             long endHours = 0;
             if (interval.endTime != null && interval.endTime != 0) {
-                endHours = jobFrequency.equals(Triggers.MINUTE.toString()) ? TimeUtils.getTimestampInMinutesFromSeconds(interval.endTime) : TimeUtils.getTimestampInHoursFromSeconds(interval.endTime);
-            }
-            String intervalStr;
-            if (endHours == 0 || startHours == endHours) {
-                intervalStr = String.valueOf(startHours);
-            } else {
-                intervalStr = String.format("%d:%d", startHours, endHours);
+                endHours = minutes ? TimeUtils.getTimestampInMinutesFromSeconds(interval.endTime) : TimeUtils.getTimestampInHoursFromSeconds(interval.endTime);
             }
-            int percentageDeviation = (int) (((interval.actualVal - interval.expectedVal) / interval.expectedVal) * 100);
-            intervalStr += Constants.AT_DELIMITER + String.valueOf(percentageDeviation);
-            joiner.add(intervalStr);
+            starts[i] = (int) startHours;
+            ends[i] = endHours == startHours ? 0 : (int) endHours;
+            // Whole percentages, so a zero expected value gives 0% or the
+            // largest int rather than a NaN or infinite deviation
+            deviations[i] = (int) (((interval.actualVal - interval.expectedVal) / interval.expectedVal) * 100);
         }
-        anomalyTimestamps = joiner.toString();
+        setAnomalyIntervals(starts, ends, deviations);
     }
 
     /**
-     * Given start bytes and end bytes from Redis, set the anomaly timestamps.
+     * Given start bytes and end bytes from Redis, set the anomaly
+     * intervals. Deviations are those previously set with
+     * {@link #setDeviationString(String)}.
      *
      * @param startBytes bytes representing the starting times
      * @param endBytes bytes representing the ending times
      */
     public void setAnomalyTimestampsFromBytes(byte[][] startBytes, byte[][] endBytes) {
-        StringJoiner joiner = new StringJoiner(Constants.COMMA_DELIMITER);
-        String[] deviations;
-        if (deviationString == null) {
-            deviations = new String[startBytes.length];
-        } else {
-            deviations = deviationString.split(Constants.COMMA_DELIMITER);
-        }
+        float[] previous = anomalyDeviations == null ? new float[0] : anomalyDeviations;
+        int[] starts = new int[startBytes.length];
+        int[] ends = new int[startBytes.length];
+        float[] deviations = new float[startBytes.length];
+        int count = 0;
         for (int i = 0; i < startBytes.length; i++) {
             if (startBytes[i] == null || startBytes[i].length == 0) {
                 log.error("Missing start time {} for report {}", i, getUniqueId());
@@ -309,13 +405,42 @@ public class AnomalyReport implements Serializable {
             if (endBytes[i] != null && endBytes[i].length > 0) {
                 hrsEnd = NumberUtils.decodeBytes(endBytes[i]);
             }
-            if (hrsEnd != 0 && hrsEnd != hrsStart) {
-                joiner.add(String.format("%d:%d", hrsStart, hrsEnd) + Constants.AT_DELIMITER + deviations[i]);
-            } else {
-                joiner.add(String.valueOf(hrsStart) + Constants.AT_DELIMITER + deviations[i]);
-            }
+            starts[count] = hrsStart;
+            ends[count] = hrsEnd == hrsStart ? 0 : hrsEnd;
+            deviations[count] = i < previous.length ? previous[i] : Float.NaN;
+            count++;
+        }
+        setAnomalyIntervals(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), Arrays.copyOf(deviations, count));
+    }
+
+    /**
+     * @param value time string
+     * @return the time, or null if the string is not an integer
+     */
+    private static Integer parseTime(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return NumberUtils.parseInt(value);
+        }
+    }
+
+    /**
+     * @param value deviation string
+     * @return the deviation, or {@code NaN} if the string is not a number
+     */
+    private static float parseDeviation(String value) {
+        if (value.isEmpty() || "null".equals(value)) {
+            return Float.NaN;
+        }
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
         }
-        setAnomalyTimestamps(joiner.toString());
     }
 
     /**
@@ -347,21 +472,16 @@ public class AnomalyReport implements Serializable {
      * @return html string with deviation values
      */
     public String getFormattedDeviation() {
-        if (anomalyTimestamps == null) {
-            return "";
-        }
-        String[] anomalyTimes = anomalyTimestamps.split(Constants.COMMA_DELIMITER);
         StringJoiner joiner = new StringJoiner(Constants.HTML_LINEBREAK_DELIMITER);
-        for (String anomalyTime : anomalyTimes) {
-            String[] timeAndValueSplit = anomalyTime.split(Constants.AT_DELIMITER);
-            if (timeAndValueSplit.length < 2 || !NumberUtils.isInteger(timeAndValueSplit[1])) {
+        for (int i = 0; i < getAnomalyCount(); i++) {
+            if (Float.isNaN(anomalyDeviations[i])) {
                 continue;
             }
-            int deviation = Integer.valueOf(timeAndValueSplit[1]);
+            int deviation = (int) anomalyDeviations[i];
             if (deviation < 0) {
-                joiner.add("<span style=\"color: rgba(240,0,0,0.8)\" class=\"glyphicon glyphicon-triangle-bottom\"></span><span style=\"color: rgba(240,0,0,0.8)\">" + timeAndValueSplit[1] + "%</span>");
+                joiner.add("<span style=\"color: rgba(240,0,0,0.8)\" class=\"glyphicon glyphicon-triangle-bottom\"></span><span style=\"color: rgba(240,0,0,0.8)\">" + deviation + "%</span>");
             } else {
-                joiner.add("<span style=\"color: rgba(0,200,0,0.8)\" class=\"glyphicon glyphicon-triangle-top\"></span><span style=\"color: rgba(0,200,0,0.8)\">" + timeAndValueSplit[1] + "%</span>");
+                joiner.add("<span style=\"color: rgba(0,200,0,0.8)\" class=\"glyphicon glyphicon-triangle-top\"></span><span style=\"color: rgba(0,200,0,0.8)\">" + deviation + "%</span>");
             }
         }
         return joiner.toString();
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.model;
+
+import com.yahoo.egads.data.MetricMeta;
+import com.yahoo.egads.data.TimeSeries;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A time series held as growable columns of point times and values,
+ * which takes 12 bytes per point instead of an EGADS entry object and
+ * its reference. Series are kept in this form from parsing through
+ * filling, aggregation and windowing, and are converted with
+ * {@link #toTimeSeries()} when they are handed to EGADS. A series
+ * can also be a view of a range of the points of another, sharing
+ * its columns until the view is modified.
+ */
+public class ColumnarTimeSeries {
+
+    /**
+     * Capacity of a series created without one.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Metadata of the series.
+     */
+    private MetricMeta meta;
+
+    /**
+     * Point times in seconds.
+     */
+    private long[] times;
+
+    /**
+     * Point values.
+     */
+    private float[] values;
+
+    /**
+     * Index in the columns of the first point.
+     */
+    private int offset;
+
+    /**
+     * Number of points.
+     */
+    private int size;
+
+    /**
+     * Whether the columns may be shared with another series,
+     * in which case they are copied before they are modified.
+     */
+    private boolean shared;
+
+    /**
+     * Create an empty series.
+     *
+     * @param meta metadata of the series
+     */
+    public ColumnarTimeSeries(MetricMeta meta) {
+        this(meta, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty series with room for a number of points.
+     *
+     * @param meta     metadata of the series
+     * @param capacity number of points to make room for
+     */
+    public ColumnarTimeSeries(MetricMeta meta, int capacity) {
+        this.meta = meta;
+        this.times = new long[capacity];
+        this.values = new float[capacity];
+    }
+
+    /**
+     * Copy the points of an EGADS time series. The metadata is shared.
+     *
+     * @param timeSeries the time series to copy
+     * @return the columns of the time series
+     */
+    public static ColumnarTimeSeries of(TimeSeries timeSeries) {
+        ColumnarTimeSeries columns = new ColumnarTimeSeries(timeSeries.meta, timeSeries.data.size());
+        for (TimeSeries.Entry entry : timeSeries.data) {
+            columns.times[columns.size] = entry.time;
+            columns.values[columns.size++] = entry.value;
+        }
+        return columns;
+    }
+
+    /**
+     * @return metadata of the series
+     */
+    public MetricMeta getMeta() {
+        return meta;
+    }
+
+    /**
+     * @param meta metadata of the series
+     */
+    public void setMeta(MetricMeta meta) {
+        this.meta = meta;
+    }
+
+    /**
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i index of a point
+     * @return the time in seconds of the point
+     */
+    public long time(int i) {
+        return times[offset + i];
+    }
+
+    /**
+     * @param i index of a point
+     * @return the value of the point
+     */
+    public float value(int i) {
+        return values[offset + i];
+    }
+
+    /**
+     * Add a point after the last point.
+     *
+     * @param time  time in seconds of the point
+     * @param value value of the point
+     */
+    public void append(long time, float value) {
+        if (shared || offset + size == times.length) {
+            reallocate(Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+        }
+        times[offset + size] = time;
+        values[offset + size++] = value;
+    }
+
+    /**
+     * Move the points to new columns of their own.
+     *
+     * @param capacity number of points to make room for
+     */
+    private void reallocate(int capacity) {
+        long[] newTimes = new long[capacity];
+        float[] newValues = new float[capacity];
+        System.arraycopy(times, offset, newTimes, 0, size);
+        System.arraycopy(values, offset, newValues, 0, size);
+        times = newTimes;
+        values = newValues;
+        offset = 0;
+        shared = false;
+    }
+
+    /**
+     * Drop the points before a time. The points must be sorted.
+     * The space of the dropped points is reclaimed when the
+     * columns next grow.
+     *
+     * @param startTime time in seconds of the first point to keep
+     */
+    public void dropBefore(long startTime) {
+        int from = indexAfter(startTime - 1);
+        offset += from;
+        size -= from;
+    }
+
+    /**
+     * Sort the points by time, keeping the order of points with equal times.
+     */
+    public void sort() {
+        boolean sorted = true;
+        for (int i = offset + 1; i < offset + size && sorted; i++) {
+            sorted = times[i - 1] <= times[i];
+        }
+        if (sorted) {
+            return;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = offset + i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+        long[] sortedTimes = new long[size];
+        float[] sortedValues = new float[size];
+        for (int i = 0; i < size; i++) {
+            sortedTimes[i] = times[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        times = sortedTimes;
+        values = sortedValues;
+        offset = 0;
+        shared = false;
+    }
+
+    /**
+     * Find the first point after a time. The points must be sorted.
+     *
+     * @param time time in seconds
+     * @return the index of the first point later than the time,
+     * or the number of points if there is none
+     */
+    public int indexAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[offset + mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copy a range of the points.
+     *
+     * @param meta metadata of the copy
+     * @param from index of the first point to copy
+     * @param to   index after the last point to copy
+     * @return a series of the points in the range
+     */
+    public ColumnarTimeSeries copyRange(MetricMeta meta, int from, int to) {
+        ColumnarTimeSeries copy = new ColumnarTimeSeries(meta, Math.max(0, to - from));
+        System.arraycopy(times, offset + from, copy.times, 0, copy.times.length);
+        System.arraycopy(values, offset + from, copy.values, 0, copy.values.length);
+        copy.size = copy.times.length;
+        return copy;
+    }
+
+    /**
+     * Get a view of a range of the points, which shares the columns
+     * of this series. The view copies the points before it is
+     * modified. Points appended to this series are not in the view.
+     *
+     * @param meta metadata of the view
+     * @param from index of the first point of the view
+     * @param to   index after the last point of the view
+     * @return a series of the points in the range
+     */
+    public ColumnarTimeSeries view(MetricMeta meta, int from, int to) {
+        ColumnarTimeSeries view = new ColumnarTimeSeries(meta, 0);
+        view.times = times;
+        view.values = values;
+        view.offset = offset + from;
+        view.size = Math.max(0, to - from);
+        view.shared = true;
+        return view;
+    }
+
+    /**
+     * @return the smallest time between consecutive points, or 0 if
+     * there are fewer than two points
+     */
+    public long minimumPeriod() {
+        long minimum = 0;
+        for (int i = 1; i < size; i++) {
+            long period = time(i) - time(i - 1);
+            if (i == 1 || period < minimum) {
+                minimum = period;
+            }
+        }
+        return minimum;
+    }
+
+    /**
+     * @return the most frequent time between consecutive points, the
+     * first seen on ties, or 0 if there are fewer than two points
+     */
+    public long mostFrequentPeriod() {
+        Map<Long, Integer> counts = new HashMap<>();
+        long mostFrequent = 0;
+        int mostCount = 0;
+        for (int i = 1; i < size; i++) {
+            long period = time(i) - time(i - 1);
+            int count = counts.merge(period, 1, Integer::sum);
+            if (count > mostCount) {
+                mostCount = count;
+                mostFrequent = period;
+            }
+        }
+        return mostFrequent;
+    }
+
+    /**
+     * @return an EGADS time series of the points, sharing the metadata
+     */
+    public TimeSeries toTimeSeries() {
+        TimeSeries timeSeries = new TimeSeries();
+        timeSeries.meta = meta;
+        timeSeries.data.ensureCapacity(size);
+        for (int i = offset; i < offset + size; i++) {
+            timeSeries.data.add(new TimeSeries.Entry(times[i], values[i]));
+        }
+        return timeSeries;
+    }
+
+}
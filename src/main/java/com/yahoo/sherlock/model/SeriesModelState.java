@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * The state of a trained model for one time series of a job, which
+ * lets a scheduled run score only the points which arrived since the
+ * previous run. It holds the values which the model forecast for the
+ * points after the training window, and running statistics of the
+ * residuals between the actual and the forecast values.
+ */
+@Data
+public class SeriesModelState implements Serializable {
+
+    /** Serialization id for uniformity across platform. */
+    private static final long serialVersionUID = 1L;
+
+    /** Time in seconds of the last point which was scored. */
+    private long lastTime;
+
+    /** Time in seconds between points. */
+    private long period;
+
+    /** Time in seconds of the first forecast value. */
+    private long forecastStart;
+
+    /** Forecast values of the points after the training window. */
+    private float[] forecast;
+
+    /** Number of residuals seen. */
+    private long residualCount;
+
+    /** Mean of the residuals. */
+    private double residualMean;
+
+    /** Sum of squared differences of the residuals from their mean. */
+    private double residualSquares;
+
+    /** Number of incremental runs since the model was trained. */
+    private int runsSinceTraining;
+
+    /** Number of consecutive anomalous points seen incrementally. */
+    private int consecutiveAnomalies;
+
+    /**
+     * Get the forecast value of a point.
+     *
+     * @param time point time in seconds
+     * @return the forecast value, or null if the time
+     * is not covered by the forecast
+     */
+    public Float expectedAt(long time) {
+        if (forecast == null || period <= 0 || time < forecastStart || (time - forecastStart) % period != 0) {
+            return null;
+        }
+        long index = (time - forecastStart) / period;
+        if (index >= forecast.length || Float.isNaN(forecast[(int) index])) {
+            return null;
+        }
+        return forecast[(int) index];
+    }
+
+    /**
+     * Add a residual to the running statistics.
+     *
+     * @param residual actual value less the forecast value
+     */
+    public void addResidual(double residual) {
+        residualCount++;
+        double delta = residual - residualMean;
+        residualMean += delta / residualCount;
+        residualSquares += delta * (residual - residualMean);
+    }
+
+    /**
+     * @return the standard deviation of the residuals
+     */
+    public double getResidualDeviation() {
+        return residualCount < 2 ? 0.0 : Math.sqrt(residualSquares / (residualCount - 1));
+    }
+
+}
@@ -11,16 +11,26 @@ import com.yahoo.sherlock.utils.Utils;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class contains EGADS configuration parameters.
@@ -128,13 +138,50 @@ public class EgadsConfig {
     }
 
     /**
-     * Set all parameters of a config object to {@code null}.
-     * @param emptyConfig the config object to set
+     * The EGADS parameter fields, looked up once.
      */
-    private static void setAllNull(EgadsConfig emptyConfig) {
+    private static final Field[] PARAM_FIELDS = findParamFields();
+
+    /**
+     * Maximum number of distinct configs whose properties are cached.
+     */
+    private static final int MAX_SHARED_PROPERTIES = 64;
+
+    /**
+     * Properties of recently used configs in access order,
+     * keyed on a private copy of the config.
+     */
+    private static final Map<EgadsConfig, Properties> SHARED_PROPERTIES =
+        new LinkedHashMap<EgadsConfig, Properties>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<EgadsConfig, Properties> eldest) {
+                return size() > MAX_SHARED_PROPERTIES;
+            }
+        };
+
+    /**
+     * The parsed config file. Its config is never handed out,
+     * callers of {@link #fromFile()} receive copies.
+     */
+    private static volatile ConfigFile configFile;
+
+    /**
+     * @return the EGADS parameter fields, made accessible
+     */
+    private static Field[] findParamFields() {
         Field[] configFields = Utils.findFields(EgadsConfig.class, EgadsParam.class);
         for (Field configField : configFields) {
             configField.setAccessible(true);
+        }
+        return configFields;
+    }
+
+    /**
+     * Set all parameters of a config object to {@code null}.
+     * @param emptyConfig the config object to set
+     */
+    private static void setAllNull(EgadsConfig emptyConfig) {
+        for (Field configField : PARAM_FIELDS) {
             try {
                 configField.set(emptyConfig, null);
             } catch (IllegalAccessException e) {
@@ -152,10 +199,8 @@ public class EgadsConfig {
      * @param setAll whether all fields should be set
      */
     private static void setToDefault(EgadsConfig config, boolean setAll) {
-        Field[] configFields = Utils.findFields(EgadsConfig.class, EgadsParam.class);
-        for (Field configField : configFields) {
+        for (Field configField : PARAM_FIELDS) {
             String defaultVal = configField.getAnnotation(EgadsParam.class).def();
-            configField.setAccessible(true);
             try {
                 if (configField.get(config) == null || setAll) {
                     configField.set(config, defaultVal);
@@ -884,10 +929,8 @@ public class EgadsConfig {
      * @return EGADS properties
      */
     public Properties asProperties() {
-        Field[] configFields = Utils.findFields(EgadsConfig.class, EgadsParam.class);
         Properties properties = new Properties();
-        for (Field configField : configFields) {
-            configField.setAccessible(true);
+        for (Field configField : PARAM_FIELDS) {
             String paramName = configField.getAnnotation(EgadsParam.class).name();
             try {
                 if (configField.get(this) == null) {
@@ -902,6 +945,23 @@ public class EgadsConfig {
         return properties;
     }
 
+    /**
+     * Create a copy of this EGADS config so that it can be
+     * modified without affecting other users of this config.
+     * @return a new config with the same parameters
+     */
+    public EgadsConfig copy() {
+        EgadsConfig config = new EgadsConfig();
+        for (Field configField : PARAM_FIELDS) {
+            try {
+                configField.set(config, configField.get(this));
+            } catch (IllegalAccessException e) {
+                log.error("Failed to copy field [{}]!", configField.getName(), e);
+            }
+        }
+        return config;
+    }
+
     /**
      * Set an egads config from a properties. This method
      * ignores property values that are invalid.
@@ -918,17 +978,95 @@ public class EgadsConfig {
         return config;
     }
 
+    /**
+     * Get the EGADS properties of this config, shared with
+     * every config holding the same parameters. The properties
+     * of each distinct config are built once; the returned
+     * object layers over them, so values set on it are not
+     * seen by other callers.
+     * @return EGADS properties
+     */
+    public Properties asSharedProperties() {
+        Properties shared;
+        synchronized (SHARED_PROPERTIES) {
+            shared = SHARED_PROPERTIES.get(this);
+            if (shared == null) {
+                EgadsConfig key = copy();
+                shared = key.asProperties();
+                SHARED_PROPERTIES.put(key, shared);
+            }
+        }
+        return new Properties(shared);
+    }
+
+    /**
+     * Get the config defined in the EGADS config file. The
+     * file is parsed once and parsed again when it changes
+     * on disk or when the configured file name changes.
+     * Each call returns a new copy which the caller may modify.
+     * If the file cannot be read, the default configuration
+     * is returned.
+     * @return a copy of the file configuration
+     */
+    public static EgadsConfig fromFile() {
+        String filename = CLISettings.EGADS_CONFIG_FILENAME;
+        ConfigFile current = configFile;
+        if (current == null || !Objects.equals(current.filename, filename)) {
+            current = load(filename);
+        }
+        return current.config.copy();
+    }
+
+    /**
+     * Parse a config file and make it the current one,
+     * watching it for changes if it was not the current
+     * file already.
+     * @param filename the config file name
+     * @return the parsed file
+     */
+    private static synchronized ConfigFile load(String filename) {
+        ConfigFile current = configFile;
+        if (current != null && Objects.equals(current.filename, filename)) {
+            return current;
+        }
+        current = new ConfigFile(filename, parse(filename));
+        configFile = current;
+        watch(filename);
+        return current;
+    }
+
+    /**
+     * Parse the config file again if it is still the current one.
+     * @param filename the config file name
+     */
+    private static synchronized void reload(String filename) {
+        if (isCurrent(filename)) {
+            log.info("EGADS configuration file [{}] changed, reloading", filename);
+            configFile = new ConfigFile(filename, parse(filename));
+        }
+    }
+
+    /**
+     * @param filename a config file name
+     * @return whether the file is the current config file
+     */
+    private static boolean isCurrent(String filename) {
+        ConfigFile current = configFile;
+        return current != null && Objects.equals(current.filename, filename);
+    }
+
     /**
      * Set an egads config from a file. This method
      * ignores property values that are invalid.
      * If configuration fails, then default configuration will be loaded.
+     * @param filename the config file name
+     * @return the parsed config
      */
-    public static EgadsConfig fromFile() {
+    private static EgadsConfig parse(String filename) {
         EgadsConfig config = new EgadsConfig();
-        try {
+        // use the egads config file if available
+        try (InputStream inputStream = Files.newInputStream(Paths.get(filename))) {
             EgadsConfig.Builder builder = new EgadsConfig.Builder(config);
-            // use the egads config file if available
-            InputStream inputStream = new FileInputStream(CLISettings.EGADS_CONFIG_FILENAME);
             Properties properties = new Properties();
             properties.load(inputStream);
             for (String key : properties.stringPropertyNames()) {
@@ -941,4 +1079,71 @@ public class EgadsConfig {
         return config;
     }
 
+    /**
+     * Start a daemon thread which reloads the config file when
+     * it is created or modified. The thread stops once another
+     * file becomes the current config file.
+     * @param filename the config file name
+     */
+    private static void watch(String filename) {
+        if (filename == null) {
+            return;
+        }
+        Path file;
+        WatchService watcher;
+        try {
+            file = Paths.get(filename).toAbsolutePath();
+            Path dir = file.getParent();
+            if (dir == null || !Files.isDirectory(dir)) {
+                log.warn("Not watching EGADS configuration file [{}], its directory does not exist", filename);
+                return;
+            }
+            watcher = dir.getFileSystem().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not watch EGADS configuration file [{}] for changes", filename, e);
+            return;
+        }
+        Path name = file.getFileName();
+        Utils.namedThreadFactory("egads-config-watcher").newThread(() -> {
+            try (WatchService service = watcher) {
+                while (isCurrent(filename)) {
+                    WatchKey key = service.poll(1, TimeUnit.SECONDS);
+                    if (key == null) {
+                        continue;
+                    }
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= name.equals(event.context());
+                    }
+                    key.reset();
+                    if (changed) {
+                        reload(filename);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                log.warn("Stopped watching EGADS configuration file [{}]", filename, e);
+            }
+        }).start();
+    }
+
+    /**
+     * A parsed config file.
+     */
+    private static class ConfigFile {
+        private final String filename;
+        private final EgadsConfig config;
+
+        /**
+         * @param filename the config file name
+         * @param config   the parsed config, which must not be modified
+         */
+        ConfigFile(String filename, EgadsConfig config) {
+            this.filename = filename;
+            this.config = config;
+        }
+    }
+
 }
@@ -9,32 +9,50 @@ package com.yahoo.sherlock.query;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.yahoo.egads.data.TimeSeries;
-import com.yahoo.sherlock.exception.LambdaException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.yahoo.egads.data.MetricMeta;
 import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.JsonDataPoint;
+import com.yahoo.sherlock.utils.Utils;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Month;
+import java.time.Year;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 /**
- * Deserializer class for Druid response {@code JsonArray}.
+ * Deserializer class for Druid response {@code JsonArray}. A response
+ * can also be parsed straight from a stream with {@link #parse(Reader)}.
  */
 @Slf4j
 public class JsonTimeSeries {
@@ -61,20 +79,144 @@ public class JsonTimeSeries {
     private Set<String> metrics;
 
     /**
-     * Map to store Unique-timeseries-name to UUID mapping.
+     * Names of the groupby dimensions, in query order.
      */
-    private Map<String, UUID> uniqueIDMap;
+    private String[] dimensionNames;
 
     /**
-     * Map to store UUID to Unique-timeseries mapping.
+     * Names of the metrics, in query order.
      */
-    private Map<UUID, TimeSeries> uniqueTimeSeriesMap;
+    private String[] metricNames;
+
+    /**
+     * Dictionary of the values of each groupby dimension. Values for
+     * which no timeseries is kept are mapped to {@link #SKIPPED_VALUE}.
+     */
+    private List<Map<String, Integer>> dimensionValueIds;
+
+    /**
+     * Next dictionary ID of each groupby dimension.
+     */
+    private AtomicInteger[] nextDimensionValueIds;
+
+    /**
+     * Map to store the timeseries of each metric, keyed on the groupby dimension values.
+     */
+    private Map<DimensionKey, ColumnarTimeSeries[]> keyTimeSeriesMap;
+
+    /**
+     * Map to store UUID to the columns of each unique timeseries, in
+     * the order in which the timeseries first appear in the response.
+     */
+    private Map<UUID, ColumnarTimeSeries> uniqueColumnsMap;
+
+    /**
+     * The last timestamp parsed.
+     */
+    private volatile ParsedTimeStamp lastTimeStamp;
 
     /**
      * Dateformat of Druid response timestamp.
      */
     private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
 
+    /**
+     * Length of a Druid response timestamp without the zone, 'yyyy-MM-ddTHH:mm:ss.SSS'.
+     */
+    private static final int ISO_TIMESTAMP_LENGTH = 23;
+
+    /**
+     * Name of the 'timestamp' field of a datapoint.
+     */
+    private static final String TIMESTAMP = "timestamp";
+
+    /**
+     * Name of the 'result' field of a datapoint.
+     */
+    private static final String RESULT = "result";
+
+    /**
+     * Name of the 'event' field of a datapoint.
+     */
+    private static final String EVENT = "event";
+
+    /**
+     * Parser used to read single JSON blobs from a stream.
+     */
+    private static final JsonParser BLOB_PARSER = new JsonParser();
+
+    /**
+     * Dictionary ID of a dimension value for which no timeseries is kept.
+     */
+    private static final int SKIPPED_VALUE = -1;
+
+    /**
+     * Number of blobs of a 'result' array read by each parallel task.
+     * The first chunk is read by the calling thread, so smaller
+     * arrays are read sequentially.
+     */
+    private static final int BLOB_CHUNK_SIZE = 512;
+
+    /**
+     * Threads which read the chunks of large 'result' arrays. A dedicated
+     * pool is used rather than the common fork-join pool of parallel
+     * streams, which is shared with the rest of the process.
+     */
+    private static final ExecutorService BLOB_READERS = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), Utils.namedThreadFactory("sherlock-blob-reader"));
+
+    /**
+     * A Druid timestamp along with its value in seconds.
+     */
+    private static final class ParsedTimeStamp {
+        private final String timestamp;
+        private final Long seconds;
+
+        private ParsedTimeStamp(String timestamp, Long seconds) {
+            this.timestamp = timestamp;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * The dictionary IDs of the groupby dimension values of a JSON blob.
+     */
+    private static final class DimensionKey {
+        private final int[] valueIds;
+        private final int hash;
+
+        private DimensionKey(int[] valueIds) {
+            this.valueIds = valueIds;
+            this.hash = Arrays.hashCode(valueIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof DimensionKey && Arrays.equals(valueIds, ((DimensionKey) o).valueIds);
+        }
+    }
+
+    /**
+     * The metric values read from a JSON blob, waiting
+     * to be appended to their timeseries.
+     */
+    private static final class BlobValues {
+        private final DimensionKey key;
+        private final JsonElement blob;
+        private final float[] values;
+
+        private BlobValues(DimensionKey key, JsonElement blob, float[] values) {
+            this.key = key;
+            this.blob = blob;
+            this.values = values;
+        }
+    }
+
     /**
      * Getter for JSON data sequence.
      *
@@ -85,12 +227,14 @@ public class JsonTimeSeries {
     }
 
     /**
-     * Getter for unique timeseries map.
+     * Getter for unique timeseries map. The timeseries are the
+     * parsed columns, which are converted to EGADS time series
+     * only when they are handed to EGADS.
      *
-     * @return uniqueTimeSeriesMap
+     * @return uniqueColumnsMap
      */
-    public Map<UUID, TimeSeries> getUniqueTimeSeriesMap() {
-        return uniqueTimeSeriesMap;
+    public Map<UUID, ColumnarTimeSeries> getUniqueTimeSeriesMap() {
+        return uniqueColumnsMap;
     }
 
     /**
@@ -103,38 +247,80 @@ public class JsonTimeSeries {
         this.metrics = query.getMetricNames();
         this.dimensions = query.getGroupByDimensions();
         this.jsonDataSequence = new Gson().fromJson(jsonArray, JsonTimeSeries.JsonDataSequence.class);
-        this.uniqueIDMap = new HashMap<>();
-        this.uniqueTimeSeriesMap = new HashMap<>();
+        initSeriesMaps();
+    }
+
+    /**
+     * Constructor for a response which is read from a stream with {@link #parse(Reader)}.
+     *
+     * @param query associated query
+     */
+    public JsonTimeSeries(Query query) {
+        this.metrics = query.getMetricNames();
+        this.dimensions = query.getGroupByDimensions();
+        this.jsonDataSequence = new JsonDataSequence();
+        initSeriesMaps();
     }
 
     /**
-     * Method to generate new UUID for new timeseries.
+     * Method to initialize the timeseries maps and the dimension dictionaries.
+     */
+    private void initSeriesMaps() {
+        this.dimensionNames = dimensions.toArray(new String[0]);
+        this.metricNames = metrics.stream().filter(Objects::nonNull).toArray(String[]::new);
+        this.dimensionValueIds = new ArrayList<>(dimensionNames.length);
+        this.nextDimensionValueIds = new AtomicInteger[dimensionNames.length];
+        for (int i = 0; i < dimensionNames.length; i++) {
+            dimensionValueIds.add(new ConcurrentHashMap<>());
+            nextDimensionValueIds[i] = new AtomicInteger();
+        }
+        // Series are not kept when a dimension name reads as 'null'
+        if (Arrays.stream(dimensionNames).anyMatch(name -> name.contains("null"))) {
+            this.metricNames = new String[0];
+        }
+        this.keyTimeSeriesMap = new HashMap<>();
+        this.uniqueColumnsMap = new LinkedHashMap<>();
+    }
+
+    /**
+     * Method to initialize the timeseries of each metric for a new
+     * set of groupby dimension values.
      *
-     * @param uniqueTimeSeriesName new timeseries name
-     * @return UUID
+     * @param blob Json of the first datapoint with the dimension values
+     * @return the new timeseries, in metric order
      */
-    private UUID getNewUUID(String uniqueTimeSeriesName) {
-        UUID uuid = UUID.randomUUID();
-        uniqueIDMap.put(uniqueTimeSeriesName, uuid);
-        return uuid;
+    private ColumnarTimeSeries[] getNewTimeSeries(JsonElement blob) {
+        String dimensionValues = (dimensionNames.length == 0) ? "" : getGroupByDimensionValues(blob);
+        ColumnarTimeSeries[] series = new ColumnarTimeSeries[metricNames.length];
+        for (int i = 0; i < metricNames.length; i++) {
+            UUID uuid = UUID.randomUUID();
+            MetricMeta meta = new MetricMeta();
+            meta.name = metricNames[i];
+            meta.id = uuid.toString();
+            meta.source = dimensionValues;
+            meta.fileName = metricNames[i];
+            series[i] = new ColumnarTimeSeries(meta);
+            uniqueColumnsMap.put(uuid, series[i]);
+        }
+        return series;
     }
 
     /**
-     * Method to initialize and return new timeseries.
+     * Method to get the dictionary ID of a dimension value.
      *
-     * @param uuid            uuid to be used as an unique id for new timeseries
-     * @param metricName      metric name associated with the new timeseries
-     * @param dimensionValues group by dimensions involved in new timeseries data
-     * @return a new time series with the given parameters
+     * @param dimension index of the dimension
+     * @param value     value of the dimension
+     * @return the ID of the value, or {@link #SKIPPED_VALUE}
      */
-    private TimeSeries getNewTimeSeries(UUID uuid, String metricName, String dimensionValues) {
-        TimeSeries timeSeries = new TimeSeries();
-        timeSeries.meta.name = metricName;
-        timeSeries.meta.id = uuid.toString();
-        timeSeries.meta.source = dimensionValues;
-        timeSeries.meta.fileName = metricName;
-        uniqueTimeSeriesMap.put(uuid, timeSeries);
-        return timeSeries;
+    private int getDimensionValueId(int dimension, String value) {
+        Map<String, Integer> ids = dimensionValueIds.get(dimension);
+        Integer id = ids.get(value);
+        if (id == null) {
+            // Values reading as 'null' are skipped, as are null values
+            AtomicInteger nextId = nextDimensionValueIds[dimension];
+            id = ids.computeIfAbsent(value, key -> key.contains("null") ? SKIPPED_VALUE : nextId.getAndIncrement());
+        }
+        return id;
     }
 
     /**
@@ -175,31 +361,106 @@ public class JsonTimeSeries {
     }
 
     /**
-     * Method to parse Druid timestamp.
+     * Method to parse Druid timestamp. Datapoints of a response usually
+     * share their timestamps, so the last parsed timestamp is kept.
      *
      * @param timestamp input format 'yyyy-MM-ddTHH:mm:ss.SSSZ'
      * @return timestamp in seconds
      */
     private Long parseTimeStamp(String timestamp) throws SherlockException {
         if (timestamp != null) {
-            timestamp = timestamp.replace("T", " ").replace("Z", "");
-            DateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            df.setTimeZone(TimeZone.getTimeZone("UTC"));
-            Date parsedDate;
-            try {
-                parsedDate = df.parse(timestamp);
-            } catch (ParseException e) {
-                log.error("Druid timestamp parsing error!", e);
-                throw new SherlockException(e.getMessage(), e);
+            ParsedTimeStamp last = lastTimeStamp;
+            if (last != null && last.timestamp.equals(timestamp)) {
+                return last.seconds;
+            }
+            Long seconds = parseIsoTimeStamp(timestamp);
+            if (seconds == null) {
+                seconds = parseTimeStampWithFormat(timestamp);
             }
-            Timestamp tp = new java.sql.Timestamp(parsedDate.getTime());
-            return (tp.getTime() / 1000);
+            lastTimeStamp = new ParsedTimeStamp(timestamp, seconds);
+            return seconds;
         } else {
             log.info("Found null timestamp in Druid response");
             throw new SherlockException("Null Timestamp in Druid response");
         }
     }
 
+    /**
+     * Method to parse a Druid timestamp with the date format,
+     * for timestamps which are not in the layout of {@link #parseIsoTimeStamp}.
+     *
+     * @param timestamp input format 'yyyy-MM-ddTHH:mm:ss.SSSZ'
+     * @return timestamp in seconds
+     * @throws SherlockException if the timestamp cannot be parsed
+     */
+    private static Long parseTimeStampWithFormat(String timestamp) throws SherlockException {
+        timestamp = timestamp.replace("T", " ").replace("Z", "");
+        DateFormat df = new SimpleDateFormat(DATE_FORMAT);
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date parsedDate;
+        try {
+            parsedDate = df.parse(timestamp);
+        } catch (ParseException e) {
+            log.error("Druid timestamp parsing error!", e);
+            throw new SherlockException(e.getMessage(), e);
+        }
+        Timestamp tp = new java.sql.Timestamp(parsedDate.getTime());
+        return (tp.getTime() / 1000);
+    }
+
+    /**
+     * Method to parse a UTC timestamp in the layout 'yyyy-MM-ddTHH:mm:ss.SSS',
+     * optionally followed by 'Z', without allocating.
+     *
+     * @param timestamp input timestamp
+     * @return timestamp in seconds, or null if it is not in the layout
+     */
+    protected static Long parseIsoTimeStamp(String timestamp) {
+        int length = timestamp.length();
+        if ((length != ISO_TIMESTAMP_LENGTH && !(length == ISO_TIMESTAMP_LENGTH + 1 && timestamp.charAt(length - 1) == 'Z'))
+            || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-' || timestamp.charAt(10) != 'T'
+            || timestamp.charAt(13) != ':' || timestamp.charAt(16) != ':' || timestamp.charAt(19) != '.'
+            || parseDigits(timestamp, 20, 23) < 0) {
+            return null;
+        }
+        int year = parseDigits(timestamp, 0, 4);
+        int month = parseDigits(timestamp, 5, 7);
+        int day = parseDigits(timestamp, 8, 10);
+        int hour = parseDigits(timestamp, 11, 13);
+        int minute = parseDigits(timestamp, 14, 16);
+        int second = parseDigits(timestamp, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+            || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        // Days since the epoch of the civil date, counting years from March
+        long marchYear = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(marchYear, 400);
+        long yearOfEra = marchYear - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long epochDay = era * 146097 + dayOfEra - 719468;
+        return epochDay * 86400 + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * @param text  text to read
+     * @param start index of the first digit
+     * @param end   index after the last digit
+     * @return the decimal value of the digits, or -1 if a character is not a digit
+     */
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
     /**
      * Method to generate unique name for timeseries based
      * on values of groupby dimensions.
@@ -223,29 +484,123 @@ public class JsonTimeSeries {
      * @param blob            Json containing datapoint info
      */
     private void processJsonBlob(Long parsedTimeStamp, JsonElement blob) throws SherlockException {
-        // Get the groupby dimension values comma(,) separated
-        String dimensionValues = (dimensions.size() == 0) ? "" : getGroupByDimensionValues(blob);
-        // Check for 'null' as a dimesional value
-        if (!dimensionValues.contains("null")) {
-            for (String metricName : metrics) {
-                if (metricName == null) {
-                    continue;
+        List<BlobValues> values = new ArrayList<>(1);
+        readJsonBlob(blob, values);
+        appendValues(parsedTimeStamp, values);
+    }
+
+    /**
+     * Method to read the dimension and metric values of a JSON datapoint
+     * without touching the timeseries, so that blobs can be read in parallel.
+     *
+     * @param blob   Json containing datapoint info
+     * @param values list to which the values are added
+     * @throws SherlockException if a dimension or metric value cannot be read
+     */
+    private void readJsonBlob(JsonElement blob, List<BlobValues> values) throws SherlockException {
+        if (metricNames.length == 0) {
+            return;
+        }
+        try {
+            JsonObject object = blob.getAsJsonObject();
+            int[] valueIds = new int[dimensionNames.length];
+            for (int i = 0; i < dimensionNames.length; i++) {
+                JsonElement value = object.get(dimensionNames[i]);
+                valueIds[i] = value.isJsonNull() ? SKIPPED_VALUE : getDimensionValueId(i, value.getAsString());
+                // Check for 'null' as a dimesional value
+                if (valueIds[i] == SKIPPED_VALUE) {
+                    return;
                 }
-                String uniqueTimeSeriesName = metricName + "|" + dimensionValues;
-                UUID uuid = uniqueIDMap.containsKey(uniqueTimeSeriesName)
-                        ? uniqueIDMap.get(uniqueTimeSeriesName)
-                        : getNewUUID(uniqueTimeSeriesName);
-                TimeSeries timeSeries = uniqueTimeSeriesMap.containsKey(uuid)
-                        ? uniqueTimeSeriesMap.get(uuid)
-                        : getNewTimeSeries(uuid, metricName, dimensionValues);
-                try {
-                    timeSeries.append(parsedTimeStamp, blob.getAsJsonObject().get(metricName).getAsFloat());
-                } catch (Exception e) {
-                    log.error("Error while populating the time series!", e);
-                    throw new SherlockException(e.getMessage(), e);
+            }
+            float[] metricValues = new float[metricNames.length];
+            for (int i = 0; i < metricNames.length; i++) {
+                metricValues[i] = object.get(metricNames[i]).getAsFloat();
+            }
+            values.add(new BlobValues(new DimensionKey(valueIds), blob, metricValues));
+        } catch (Exception e) {
+            log.error("Error while populating the time series!", e);
+            throw new SherlockException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Method to append metric values to their timeseries, creating
+     * the timeseries which have not been seen yet.
+     *
+     * @param parsedTimeStamp parsed timestamp in seconds format
+     * @param values          metric values to append
+     */
+    private void appendValues(Long parsedTimeStamp, List<BlobValues> values) {
+        for (BlobValues blobValues : values) {
+            ColumnarTimeSeries[] series = keyTimeSeriesMap.get(blobValues.key);
+            if (series == null) {
+                series = getNewTimeSeries(blobValues.blob);
+                keyTimeSeriesMap.put(blobValues.key, series);
+            }
+            for (int i = 0; i < series.length; i++) {
+                series[i].append(parsedTimeStamp, blobValues.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Method to read the metric values of a range of blobs of a 'result' array.
+     *
+     * @param blobs   blobs of the array
+     * @param from    index of the first blob to read
+     * @param to      index after the last blob to read
+     * @param quietly whether to log and skip blobs which cannot be read
+     * @return the metric values of the blobs, in order
+     * @throws SherlockException if a metric value cannot be read and not quietly
+     */
+    private List<BlobValues> readJsonBlobs(List<JsonElement> blobs, int from, int to, boolean quietly)
+        throws SherlockException {
+        List<BlobValues> values = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            try {
+                readJsonBlob(blobs.get(i), values);
+            } catch (SherlockException | RuntimeException e) {
+                if (!quietly) {
+                    throw e;
                 }
+                log.error("Error while processing data point!", e);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Method to read the metric values of the blobs of a 'result' array
+     * in chunks of {@link #BLOB_CHUNK_SIZE}. All chunks but the first are
+     * read by {@link #BLOB_READERS}.
+     *
+     * @param blobs   blobs of the array
+     * @param quietly whether to log and skip blobs which cannot be read
+     * @return the metric values of each chunk, in array order
+     * @throws SherlockException if a metric value cannot be read and not quietly
+     */
+    private List<List<BlobValues>> readJsonBlobChunks(List<JsonElement> blobs, boolean quietly)
+        throws SherlockException {
+        int chunks = (blobs.size() + BLOB_CHUNK_SIZE - 1) / BLOB_CHUNK_SIZE;
+        List<Future<List<BlobValues>>> futures = new ArrayList<>(chunks);
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            int from = chunk * BLOB_CHUNK_SIZE;
+            int to = Math.min(blobs.size(), from + BLOB_CHUNK_SIZE);
+            futures.add(BLOB_READERS.submit(() -> readJsonBlobs(blobs, from, to, quietly)));
+        }
+        List<List<BlobValues>> chunkValues = new ArrayList<>(chunks);
+        chunkValues.add(readJsonBlobs(blobs, 0, Math.min(blobs.size(), BLOB_CHUNK_SIZE), quietly));
+        try {
+            for (Future<List<BlobValues>> future : futures) {
+                chunkValues.add(future.get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SherlockException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new SherlockException(e.getCause().getMessage(), e.getCause());
         }
+        return chunkValues;
     }
 
     /**
@@ -261,10 +616,14 @@ public class JsonTimeSeries {
         JsonElement result = jsonDataPoint.getResult();
         // If result is an array
         if (result != null && result.isJsonArray() && result.getAsJsonArray().size() > 0) {
-            try (Stream<JsonElement> eventStream = StreamSupport.stream(result.getAsJsonArray().spliterator(), true)) {
-                // For each JSON blob in the array call processJsonBlob method
-                eventStream.forEach(
-                    LambdaException.consumerExceptionHandler(blob -> processJsonBlob(parsedTimeStamp, blob)));
+            List<JsonElement> blobs = new ArrayList<>(result.getAsJsonArray().size());
+            result.getAsJsonArray().forEach(blobs::add);
+            try {
+                // Read chunks of blobs in parallel, then append their values
+                // in array order so that the timeseries are deterministic
+                for (List<BlobValues> values : readJsonBlobChunks(blobs, false)) {
+                    appendValues(parsedTimeStamp, values);
+                }
             } catch (Exception e) {
                 log.error("Exception caught while iterating though JSON blob array!", e);
                 throw new SherlockException(e.getMessage(), e);
@@ -314,4 +673,119 @@ public class JsonTimeSeries {
             throw new SherlockException("Null datapoint in Druid response");
         }
     }
+
+    /**
+     * Parse a Druid response from a stream directly into timeseries,
+     * without building the response tree or the JSON data sequence.
+     * Only the JSON blobs of the datapoint being processed are held in
+     * memory, so that a large 'result' array can be read in parallel
+     * chunks. Invalid datapoints are logged and skipped, as with
+     * {@link #processJsonDataPoint}.
+     *
+     * @param reader reader over the Druid response
+     * @throws SherlockException if the response is not a JSON array
+     */
+    public void parse(Reader reader) throws SherlockException {
+        try {
+            JsonReader in = new JsonReader(reader);
+            in.beginArray();
+            while (in.hasNext()) {
+                readDataPoint(in);
+            }
+            in.endArray();
+        } catch (IOException | IllegalStateException | JsonParseException e) {
+            log.error("Error while reading druid response!", e);
+            throw new SherlockException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read a single datapoint and add its values to the timeseries
+     * once all of its blobs and its timestamp have been read.
+     *
+     * @param in reader positioned at a datapoint
+     * @throws IOException if the datapoint cannot be read
+     */
+    private void readDataPoint(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return;
+        }
+        in.beginObject();
+        Long parsedTimeStamp = null;
+        boolean timestampRead = false;
+        List<JsonElement> blobs = new ArrayList<>(0);
+        while (in.hasNext()) {
+            String name = in.nextName();
+            JsonToken token = in.peek();
+            if (TIMESTAMP.equals(name) && token == JsonToken.STRING) {
+                timestampRead = true;
+                parsedTimeStamp = parseTimeStampQuietly(in.nextString());
+            } else if ((RESULT.equals(name) || EVENT.equals(name)) && !(timestampRead && parsedTimeStamp == null)) {
+                if (token == JsonToken.BEGIN_ARRAY) {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        readBlob(in, blobs);
+                    }
+                    in.endArray();
+                } else if (token == JsonToken.BEGIN_OBJECT) {
+                    readBlob(in, blobs);
+                } else {
+                    in.skipValue();
+                }
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (parsedTimeStamp != null && !blobs.isEmpty()) {
+            processJsonBlobsQuietly(parsedTimeStamp, blobs);
+        }
+    }
+
+    /**
+     * Read one JSON blob of a datapoint, skipping empty blobs.
+     *
+     * @param in    reader positioned at a blob
+     * @param blobs blobs of the datapoint
+     */
+    private void readBlob(JsonReader in, List<JsonElement> blobs) {
+        JsonElement blob = BLOB_PARSER.parse(in);
+        if (!blob.isJsonObject() || blob.getAsJsonObject().size() == 0) {
+            log.error("Error in parsing, result is empty!");
+        } else {
+            blobs.add(blob);
+        }
+    }
+
+    /**
+     * Process the JSON blobs of a datapoint in parallel chunks,
+     * logging instead of throwing any error.
+     *
+     * @param parsedTimeStamp parsed timestamp in seconds format
+     * @param blobs           blobs of the datapoint
+     */
+    private void processJsonBlobsQuietly(Long parsedTimeStamp, List<JsonElement> blobs) {
+        try {
+            for (List<BlobValues> values : readJsonBlobChunks(blobs, true)) {
+                appendValues(parsedTimeStamp, values);
+            }
+        } catch (SherlockException | RuntimeException e) {
+            log.error("Error while processing data point!", e);
+        }
+    }
+
+    /**
+     * Parse a Druid timestamp, logging instead of throwing any error.
+     *
+     * @param timestamp input format 'yyyy-MM-ddTHH:mm:ss.SSSZ'
+     * @return timestamp in seconds, or null if it cannot be parsed
+     */
+    private Long parseTimeStampQuietly(String timestamp) {
+        try {
+            return parseTimeStamp(timestamp);
+        } catch (SherlockException e) {
+            return null;
+        }
+    }
 }
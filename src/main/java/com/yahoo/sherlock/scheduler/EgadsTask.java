@@ -7,9 +7,9 @@
 package com.yahoo.sherlock.scheduler;
 
 import com.yahoo.egads.data.Anomaly;
-import com.yahoo.egads.data.TimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.model.AnomalyReport;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.JobMetadata;
 import com.yahoo.sherlock.service.DetectorService;
 import lombok.extern.slf4j.Slf4j;
@@ -36,7 +36,7 @@ public class EgadsTask implements Runnable {
     /**
      * The list of time series as the data.
      */
-    private List<TimeSeries> timeSeriesList;
+    private List<ColumnarTimeSeries> timeSeriesList;
     /**
      * Instance of {@code DetectorService}.
      */
@@ -63,7 +63,7 @@ public class EgadsTask implements Runnable {
     public EgadsTask(
         JobMetadata job,
         Integer effectiveQueryEndTime,
-        List<TimeSeries> timeSeriesList,
+        List<ColumnarTimeSeries> timeSeriesList,
         DetectorService detectorService,
         JobExecutionService executionService
     ) {
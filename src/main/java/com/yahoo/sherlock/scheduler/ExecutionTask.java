@@ -9,23 +9,38 @@ import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.enums.JobStatus;
 import com.yahoo.sherlock.exception.SchedulerException;
 import com.yahoo.sherlock.model.JobMetadata;
+import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.settings.Constants;
 import com.yahoo.sherlock.store.JobMetadataAccessor;
 import com.yahoo.sherlock.store.JobScheduler;
 import com.yahoo.sherlock.utils.TimeUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.IOException;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Timer task which polls the backend task queue for
+ * Scheduled task which polls the backend task queue for
  * any pending tasks that need to be ran and then
- * forwards them to the job execution service.
+ * forwards them to the job execution service. Jobs
+ * are run on a {@code JobWorkerPool} if one is given,
+ * otherwise on the calling thread. The state and next
+ * run of executed jobs are written to the backend in
+ * batches, after which the jobs leave the pending queue.
+ * Until then the task holds the jobs, skipping them if
+ * they are popped again, and {@link #refreshHeldJobs()}
+ * keeps the backend from returning them to the job queue.
  */
 @Slf4j
-public class ExecutionTask extends TimerTask {
+public class ExecutionTask implements Runnable {
 
     /**
      * Job execution service instance, which
@@ -47,9 +62,57 @@ public class ExecutionTask extends TimerTask {
      * that have been ran.
      */
     private final JobMetadataAccessor jobMetadataAccessor;
+    /**
+     * Worker pool on which jobs are executed, or
+     * null to execute them on the calling thread.
+     */
+    private final JobWorkerPool workerPool;
+    /**
+     * Executed jobs whose state is not yet written, guarded by itself.
+     */
+    private final List<JobMetadata> executedJobs;
+    /**
+     * Queue entries of the next runs of the executed jobs,
+     * guarded by {@code executedJobs}.
+     */
+    private final List<Pair<Integer, String>> executedQueue;
+    /**
+     * Time in milliseconds at which the oldest unwritten job
+     * was executed, guarded by {@code executedJobs}.
+     */
+    private long executedSince;
+    /**
+     * Number of dispatching ticks and submitted jobs in progress.
+     * The executed jobs are written when it drops to zero.
+     */
+    private final AtomicInteger inProgress;
+    /**
+     * IDs of popped jobs which are running or whose state is not yet written.
+     */
+    private final Set<String> heldJobs;
+    /**
+     * IDs of running jobs which were stopped or deleted, and whose
+     * state must not be written, guarded by {@code executedJobs}.
+     */
+    private final Set<String> forgottenJobs;
 
     /**
-     * Create a new execution task.
+     * Interval in milliseconds at which {@link #refreshHeldJobs()}
+     * should be called, well below the time after which the backend
+     * returns a job left in the pending queue to the job queue.
+     */
+    public static final long REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Longest time in milliseconds for which the state of an executed
+     * job is held, well below the time after which the backend returns
+     * a job left in the pending queue to the job queue.
+     */
+    private static final long MAX_UNWRITTEN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Create a new execution task which runs
+     * jobs on the calling thread.
      *
      * @param jobExecutionService job execution service instance to use
      * @param schedulerService    scheduler service to use
@@ -61,11 +124,37 @@ public class ExecutionTask extends TimerTask {
         SchedulerService schedulerService,
         JobScheduler jobScheduler,
         JobMetadataAccessor jobMetadataAccessor
+    ) {
+        this(jobExecutionService, schedulerService, jobScheduler, jobMetadataAccessor, null);
+    }
+
+    /**
+     * Create a new execution task which runs
+     * jobs on a worker pool.
+     *
+     * @param jobExecutionService job execution service instance to use
+     * @param schedulerService    scheduler service to use
+     * @param jobScheduler        job scheduler to use
+     * @param jobMetadataAccessor job accessor instance to use
+     * @param workerPool          worker pool to run jobs on
+     */
+    public ExecutionTask(
+        JobExecutionService jobExecutionService,
+        SchedulerService schedulerService,
+        JobScheduler jobScheduler,
+        JobMetadataAccessor jobMetadataAccessor,
+        JobWorkerPool workerPool
     ) {
         this.jobExecutionService = jobExecutionService;
         this.schedulerService = schedulerService;
         this.jobScheduler = jobScheduler;
         this.jobMetadataAccessor = jobMetadataAccessor;
+        this.workerPool = workerPool;
+        this.executedJobs = new ArrayList<>();
+        this.executedQueue = new ArrayList<>();
+        this.inProgress = new AtomicInteger();
+        this.heldJobs = ConcurrentHashMap.newKeySet();
+        this.forgottenJobs = new HashSet<>();
     }
 
     /**
@@ -79,6 +168,12 @@ public class ExecutionTask extends TimerTask {
             consumeAndExecuteTasks(minutes);
         } catch (IOException | SchedulerException e) {
             log.error("Error while running job", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while dispatching jobs");
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive for the next ping
+            log.error("Unexpected error while consuming jobs", e);
         }
     }
 
@@ -104,46 +199,305 @@ public class ExecutionTask extends TimerTask {
 
     /**
      * Given the current time in minutes, pop tasks from the
-     * queue and execute them, then reschedule them.
+     * queue and execute them, then reschedule them. When a
+     * worker pool is used, jobs are popped in batches sized to
+     * the free capacity of the pool, and this method blocks while
+     * the pool is full so that jobs not yet handled stay in the queue.
      *
      * @param timestampMinutes the current time in minutes
-     * @throws IOException        if an error retrieving the job occurs
-     * @throws SchedulerException if an error rescheduling the job occurs
+     * @throws IOException          if an error retrieving the job occurs
+     * @throws SchedulerException   if an error rescheduling the job occurs
+     * @throws InterruptedException if interrupted while waiting for a worker
      */
-    private void consumeAndExecuteTasks(long timestampMinutes) throws IOException, SchedulerException {
-        JobMetadata jobMetadata;
+    private void consumeAndExecuteTasks(long timestampMinutes) throws IOException, SchedulerException, InterruptedException {
         // CRITICAL REGION: please verify very carefully if you make change to this part
         log.info("Execution task ping for time " + TimeUtils.getTimeFromSeconds(timestampMinutes * 60L, Constants.TIMESTAMP_FORMAT_NO_SECONDS));
-        while ((jobMetadata = jobScheduler.popQueue(timestampMinutes)) != null) {
-            if (isLaggingJob(jobMetadata, timestampMinutes)) {
-                // Perform a backfill instead and schedule for next start time
-                jobExecutionService.backfillJobFromIntervalEnd(jobMetadata);
-                // The run time that the job would have had if it was executed normally
-                Pair<Integer, Integer> nextTimes = schedulerService.jobScheduleTime(jobMetadata);
-                Integer nextQueryTime = nextTimes.getLeft();
-                Integer nextRunTime = nextTimes.getRight();
-                if (nextRunTime <= timestampMinutes) {
-                    int offset = Granularity.getValue(jobMetadata.getFrequency()).getMinutes();
-                    nextQueryTime += offset;
-                    nextRunTime += offset;
+        if (workerPool == null) {
+            JobMetadata jobMetadata;
+            while ((jobMetadata = jobScheduler.popQueue(timestampMinutes)) != null) {
+                if (holdJob(jobMetadata)) {
+                    executeJob(jobMetadata, timestampMinutes);
                 }
-                // If the next runtime still less than current time
-                // Terminate the job as "ZOMBIE" job
-                if (nextRunTime <= timestampMinutes) {
-                    jobMetadata.setJobStatus(JobStatus.ZOMBIE.getValue());
-                } else {
-                    jobMetadata.setEffectiveQueryTime(nextQueryTime);
-                    jobMetadata.setEffectiveRunTime(nextRunTime);
-                    jobScheduler.pushQueue(nextRunTime, jobMetadata.getJobId().toString());
+            }
+            writeExecutedJobs();
+            return;
+        }
+        inProgress.incrementAndGet();
+        try {
+            // Pop until the queue is drained, since a short batch may
+            // only mean that some popped jobs no longer exist
+            List<JobMetadata> jobs;
+            do {
+                int batchSize = Math.max(1, workerPool.getAvailable());
+                jobs = jobScheduler.popQueue(timestampMinutes, batchSize);
+                for (JobMetadata job : jobs) {
+                    if (!holdJob(job)) {
+                        continue;
+                    }
+                    inProgress.incrementAndGet();
+                    try {
+                        workerPool.submit(job.getClusterId(), () -> executeJobSafely(job, timestampMinutes));
+                    } catch (InterruptedException | RuntimeException e) {
+                        inProgress.decrementAndGet();
+                        heldJobs.remove(job.getJobId().toString());
+                        throw e;
+                    }
                 }
+            } while (!jobs.isEmpty());
+        } finally {
+            finishInProgress();
+        }
+    }
+
+    /**
+     * Hold a popped job until its state is written.
+     *
+     * @param jobMetadata the popped job
+     * @return false if the job is already held, in which case it
+     * was popped again while running or waiting to be written
+     */
+    private boolean holdJob(JobMetadata jobMetadata) {
+        if (heldJobs.add(jobMetadata.getJobId().toString())) {
+            return true;
+        }
+        log.info("Job [{}] is already running, skipping it", jobMetadata.getJobId());
+        return false;
+    }
+
+    /**
+     * Write the executed jobs if they have been held for too long,
+     * then mark the jobs still held as being handled in the pending
+     * queue, so that the backend does not return jobs which run for
+     * a long time, or whose state is not yet written, to the job queue.
+     * Executed jobs are otherwise only written when a job is executed
+     * or nothing is in progress, which may not happen for a long time.
+     */
+    public void refreshHeldJobs() {
+        try {
+            writeExecutedJobsOlderThan(MAX_UNWRITTEN_MILLIS);
+            jobScheduler.touchPending(new ArrayList<>(heldJobs), TimeUtils.getTimestampMinutes());
+        } catch (IOException e) {
+            log.error("Error while refreshing held jobs", e);
+        } catch (RuntimeException e) {
+            // Keep the scheduled refresh alive
+            log.error("Unexpected error while refreshing held jobs", e);
+        }
+    }
+
+    /**
+     * Execute a job on a worker thread. Errors are logged and
+     * leave the job in the pending queue, as in {@code executeJob}.
+     *
+     * @param jobMetadata      the job to execute
+     * @param timestampMinutes the time of the ping in minutes
+     */
+    private void executeJobSafely(JobMetadata jobMetadata, long timestampMinutes) {
+        try {
+            executeJob(jobMetadata, timestampMinutes);
+        } catch (IOException | SchedulerException e) {
+            log.error("Error while running job [{}]", jobMetadata.getJobId(), e);
+        } finally {
+            finishInProgress();
+        }
+    }
+
+    /**
+     * Mark a tick or job as finished, and write the executed
+     * jobs if nothing else is in progress.
+     */
+    private void finishInProgress() {
+        if (inProgress.decrementAndGet() > 0) {
+            return;
+        }
+        try {
+            writeExecutedJobs();
+        } catch (IOException e) {
+            log.error("Error while writing executed jobs", e);
+        }
+    }
+
+    /**
+     * Execute or backfill a popped job and reschedule it. The job
+     * stays in the pending queue until its state is written with
+     * the next batch of executed jobs. If an error occurs the
+     * job is released and left in the pending queue.
+     *
+     * @param jobMetadata      the job to execute
+     * @param timestampMinutes the time of the ping in minutes
+     * @throws IOException        if an error writing executed jobs occurs
+     * @throws SchedulerException if an error rescheduling the job occurs
+     */
+    private void executeJob(JobMetadata jobMetadata, long timestampMinutes) throws IOException, SchedulerException {
+        Pair<Integer, String> queueEntry;
+        try {
+            queueEntry = executeOrBackfill(jobMetadata, timestampMinutes);
+        } catch (IOException | SchedulerException | RuntimeException e) {
+            String jobId = jobMetadata.getJobId().toString();
+            synchronized (executedJobs) {
+                forgottenJobs.remove(jobId);
+            }
+            heldJobs.remove(jobId);
+            throw e;
+        }
+        addExecutedJob(jobMetadata, queueEntry);
+    }
+
+    /**
+     * Execute a job, or backfill it if it is lagging.
+     *
+     * @param jobMetadata      the job to execute
+     * @param timestampMinutes the time of the ping in minutes
+     * @return the next run time and ID of the job, or null
+     * if the job is not run again
+     * @throws IOException        if an error running the job occurs
+     * @throws SchedulerException if an error rescheduling the job occurs
+     */
+    private Pair<Integer, String> executeOrBackfill(JobMetadata jobMetadata, long timestampMinutes) throws IOException, SchedulerException {
+        Pair<Integer, String> queueEntry = null;
+        if (isLaggingJob(jobMetadata, timestampMinutes)) {
+            // Perform a backfill instead and schedule for next start time
+            jobExecutionService.backfillJobFromIntervalEnd(jobMetadata);
+            // The run time that the job would have had if it was executed normally
+            Pair<Integer, Integer> nextTimes = schedulerService.jobScheduleTime(jobMetadata);
+            Integer nextQueryTime = nextTimes.getLeft();
+            Integer nextRunTime = nextTimes.getRight();
+            if (nextRunTime <= timestampMinutes) {
+                int offset = Granularity.getValue(jobMetadata.getFrequency()).getMinutes();
+                nextQueryTime += offset;
+                nextRunTime += offset;
+            }
+            // If the next runtime still less than current time
+            // Terminate the job as "ZOMBIE" job
+            if (nextRunTime <= timestampMinutes) {
+                jobMetadata.setJobStatus(JobStatus.ZOMBIE.getValue());
             } else {
-                // Perform regular job execution and schedule for next time
-                jobExecutionService.execute(jobMetadata);
-                schedulerService.rescheduleJob(jobMetadata);
+                jobMetadata.setEffectiveQueryTime(nextQueryTime);
+                jobMetadata.setEffectiveRunTime(nextRunTime);
+                queueEntry = new ImmutablePair<>(nextRunTime, jobMetadata.getJobId().toString());
+            }
+        } else {
+            // Perform regular job execution and schedule for next time
+            jobExecutionService.execute(jobMetadata);
+            queueEntry = schedulerService.nextQueueEntry(jobMetadata);
+        }
+        return queueEntry;
+    }
+
+    /**
+     * Hold the state of an executed job until the next batch is written.
+     * The batch is written once it is full or its oldest job has been
+     * held for too long.
+     *
+     * @param jobMetadata the executed job
+     * @param queueEntry  the next run time and ID of the job, or null
+     * @throws IOException if an error writing executed jobs occurs
+     */
+    private void addExecutedJob(JobMetadata jobMetadata, Pair<Integer, String> queueEntry) throws IOException {
+        boolean write;
+        synchronized (executedJobs) {
+            String jobId = jobMetadata.getJobId().toString();
+            if (forgottenJobs.remove(jobId)) {
+                log.info("Dropping state of stopped job [{}]", jobId);
+                heldJobs.remove(jobId);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (executedJobs.isEmpty()) {
+                executedSince = now;
+            }
+            executedJobs.add(jobMetadata);
+            if (queueEntry != null) {
+                executedQueue.add(queueEntry);
+            }
+            write = executedJobs.size() >= CLISettings.EXECUTION_STATE_BATCH_SIZE || now - executedSince >= MAX_UNWRITTEN_MILLIS;
+        }
+        if (write) {
+            writeExecutedJobs();
+        }
+    }
+
+    /**
+     * Drop the unwritten state of a job which is stopped, deleted or
+     * rescheduled, so that it does not overwrite the change. If the
+     * job is still running its state is dropped when it finishes.
+     *
+     * @param jobId ID of the job to forget
+     */
+    public void forget(String jobId) {
+        synchronized (executedJobs) {
+            boolean batched = executedJobs.removeIf(job -> jobId.equals(job.getJobId().toString()));
+            executedQueue.removeIf(entry -> jobId.equals(entry.getRight()));
+            if (batched) {
+                heldJobs.remove(jobId);
+            } else if (heldJobs.contains(jobId)) {
+                forgottenJobs.add(jobId);
+            }
+        }
+    }
+
+    /**
+     * Write the state of the executed jobs now, so that
+     * a job read afterwards is not overwritten by its held state.
+     *
+     * @throws IOException if an error writing the jobs occurs
+     */
+    public void flushExecutedJobs() throws IOException {
+        writeExecutedJobs();
+    }
+
+    /**
+     * Write the executed jobs if the oldest has been held for a time.
+     *
+     * @param maxAgeMillis time in milliseconds for which jobs may be held
+     * @throws IOException if an error writing the jobs occurs
+     */
+    private void writeExecutedJobsOlderThan(long maxAgeMillis) throws IOException {
+        boolean write;
+        synchronized (executedJobs) {
+            write = !executedJobs.isEmpty() && System.currentTimeMillis() - executedSince >= maxAgeMillis;
+        }
+        if (write) {
+            writeExecutedJobs();
+        }
+    }
+
+    /**
+     * Write the state and next runs of the executed jobs, then remove
+     * the jobs from the pending queue and release them. If writing
+     * fails the jobs are released and left in the pending queue,
+     * from which the backend returns them to the job queue.
+     *
+     * @throws IOException if an error writing the jobs occurs
+     */
+    private void writeExecutedJobs() throws IOException {
+        List<JobMetadata> jobs;
+        List<Pair<Integer, String>> queue;
+        synchronized (executedJobs) {
+            if (executedJobs.isEmpty()) {
+                return;
+            }
+            jobs = new ArrayList<>(executedJobs);
+            queue = new ArrayList<>(executedQueue);
+            executedJobs.clear();
+            executedQueue.clear();
+        }
+        List<String> jobIds = new ArrayList<>(jobs.size());
+        for (JobMetadata job : jobs) {
+            jobIds.add(job.getJobId().toString());
+        }
+        try {
+            jobMetadataAccessor.putJobMetadata(jobs);
+            if (!queue.isEmpty()) {
+                jobScheduler.pushQueue(queue);
+            }
+            jobScheduler.removePending(jobIds);
+        } finally {
+            synchronized (executedJobs) {
+                forgottenJobs.removeAll(jobIds);
             }
-            jobMetadataAccessor.putJobMetadata(jobMetadata);
-            jobScheduler.removePending(jobMetadata.getJobId());
+            heldJobs.removeAll(jobIds);
         }
+        log.info("Wrote state of [{}] executed jobs", jobs.size());
     }
 
 }
@@ -7,9 +7,7 @@
 package com.yahoo.sherlock.scheduler;
 
 import com.beust.jcommander.internal.Lists;
-import com.google.gson.JsonArray;
 import com.yahoo.egads.data.Anomaly;
-import com.yahoo.egads.data.TimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.enums.JobStatus;
 import com.yahoo.sherlock.exception.ClusterNotFoundException;
@@ -17,6 +15,7 @@ import com.yahoo.sherlock.exception.DruidException;
 import com.yahoo.sherlock.exception.SchedulerException;
 import com.yahoo.sherlock.exception.SherlockException;
 import com.yahoo.sherlock.model.AnomalyReport;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.DruidCluster;
 import com.yahoo.sherlock.model.JobMetadata;
 import com.yahoo.sherlock.query.Query;
@@ -41,8 +40,11 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Service class for job execution.
@@ -51,6 +53,11 @@ import java.util.UUID;
 @Data
 public class JobExecutionService {
 
+    /**
+     * Worker pool shared by all backfills, created on first use.
+     */
+    private static JobWorkerPool backfillPool;
+
     /**
      * Class service factory instance.
      */
@@ -232,35 +239,93 @@ public class JobExecutionService {
         log.info("Job granularity is [{}]", granularity.toString());
         DetectorService detectorService = serviceFactory.newDetectorServiceInstance();
         TimeSeriesParserService parserService = serviceFactory.newTimeSeriesParserServiceInstance();
-        JsonArray druidResponse = detectorService.queryDruid(query, cluster);
-        List<TimeSeries> sourceSeries = parserService.parseTimeSeries(druidResponse, query);
-        List<TimeSeries>[] fillSeriesList = parserService.subseries(sourceSeries, start, end, granularity, query.getGranularityRange(), intervals);
-        List<Thread> threads = new ArrayList<>(fillSeriesList.length);
-        List<EgadsTask> tasks = new ArrayList<>(fillSeriesList.length);
+        List<ColumnarTimeSeries> sourceSeries = detectorService.queryTimeSeries(query, cluster);
+        List<List<ColumnarTimeSeries>> fillSeriesList = parserService.subseriesWindows(
+            sourceSeries, start, end, granularity, query.getGranularityRange(), intervals);
+        JobWorkerPool pool = getBackfillPool();
+        BlockingQueue<EgadsTask> finished = new LinkedBlockingQueue<>();
+        List<AnomalyReport> reports = new ArrayList<>();
+        int batchSize = Math.max(1, CLISettings.BACKFILL_REPORT_BATCH_SIZE);
+        int pending = 0;
         Integer singleInterval = granularity.getMinutes();
         Integer subEnd = start + singleInterval;
-        for (List<TimeSeries> fillSeries : fillSeriesList) {
+        for (List<ColumnarTimeSeries> fillSeries : fillSeriesList) {
             EgadsTask task = createTask(
                 job,
                 subEnd,
                 fillSeries,
                 detectorService
             );
-            tasks.add(task);
-            Thread thread = new Thread(task);
-            thread.start();
-            threads.add(thread);
+            // Blocks while the pool is full
+            pool.submit(null, () -> {
+                try {
+                    task.run();
+                } finally {
+                    finished.add(task);
+                }
+            });
+            pending++;
             subEnd += singleInterval;
+            EgadsTask done;
+            while ((done = finished.poll()) != null) {
+                pending--;
+                collectReports(done, reports, batchSize);
+            }
         }
-        List<AnomalyReport> reports = new ArrayList<>();
-        for (int i = 0; i < threads.size(); i++) {
-            threads.get(i).join();
-            reports.addAll(tasks.get(i).getReports());
+        for (; pending > 0; pending--) {
+            collectReports(finished.take(), reports, batchSize);
+        }
+        if (!reports.isEmpty()) {
+            anomalyReportAccessor.putAnomalyReports(reports);
         }
-        anomalyReportAccessor.putAnomalyReports(reports);
         log.info("Backfill is complete");
     }
 
+    /**
+     * Add the reports of a finished task to the current batch
+     * and write the batch once it reaches the batch size.
+     *
+     * @param task      the finished task
+     * @param reports   the current batch of reports
+     * @param batchSize number of reports to write at once
+     * @throws IOException if an error occurs while writing the reports
+     */
+    private void collectReports(EgadsTask task, List<AnomalyReport> reports, int batchSize) throws IOException {
+        if (task.getReports() != null) {
+            reports.addAll(task.getReports());
+        }
+        if (reports.size() >= batchSize) {
+            anomalyReportAccessor.putAnomalyReports(reports);
+            reports.clear();
+        }
+    }
+
+    /**
+     * Get the worker pool shared by all backfills,
+     * creating it if it does not yet exist.
+     *
+     * @return the backfill worker pool
+     */
+    protected static synchronized JobWorkerPool getBackfillPool() {
+        if (backfillPool == null) {
+            backfillPool = new JobWorkerPool(
+                "sherlock-backfill-worker",
+                CLISettings.BACKFILL_THREADS,
+                CLISettings.BACKFILL_QUEUE_DEPTH,
+                0
+            );
+        }
+        return backfillPool;
+    }
+
+    /**
+     * @return the backfill worker pool metrics, or
+     * null if no backfill has been run yet
+     */
+    public static synchronized Map<String, Object> getBackfillPoolStats() {
+        return backfillPool == null ? null : backfillPool.getStats();
+    }
+
     /**
      * Create a new egads task.
      *
@@ -273,7 +338,7 @@ public class JobExecutionService {
     protected EgadsTask createTask(
         JobMetadata job,
         Integer effectiveQueryEndTime,
-        List<TimeSeries> series,
+        List<ColumnarTimeSeries> series,
         DetectorService detectorService
     ) {
         return new EgadsTask(job, effectiveQueryEndTime, series, detectorService, this);
@@ -338,6 +403,8 @@ public class JobExecutionService {
             jobMetadataAccessor.putJobMetadata(job);
         } catch (SchedulerException | IOException e) {
             log.error("Error while unscheduling failed job!", e);
+        } finally {
+            DetectorService.invalidateJob(job.getJobId());
         }
     }
 
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.scheduler;
+
+import com.yahoo.sherlock.utils.Utils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded worker pool used by the {@code ExecutionTask} to run due
+ * jobs concurrently, and by backfills to run {@code EgadsTask} instances.
+ * At most {@code threads + queueDepth} jobs are accepted at once; further
+ * submissions block the caller so that jobs which cannot be handled yet
+ * stay in the backend queue. Jobs against the same Druid cluster can
+ * additionally be capped to avoid flooding a single broker when many
+ * jobs come due together. Jobs over the cap of their cluster wait in a
+ * queue of the cluster without taking a thread, and are run by the
+ * thread of a finishing job of the same cluster, so that a saturated
+ * cluster does not hold up jobs against other clusters.
+ */
+@Slf4j
+public class JobWorkerPool {
+
+    /**
+     * Name of the pool, used for threads and metrics.
+     */
+    private final String name;
+    /**
+     * Thread pool which runs the jobs.
+     */
+    private final ExecutorService executor;
+    /**
+     * Permits for jobs which are running or queued.
+     */
+    private final Semaphore capacity;
+    /**
+     * Running and waiting jobs of each cluster, created lazily.
+     */
+    private final Map<Integer, ClusterLane> clusterLanes;
+    /**
+     * Maximum number of concurrent jobs per cluster, or 0 if unlimited.
+     */
+    private final int clusterConcurrency;
+    /**
+     * Number of threads in the pool.
+     */
+    private final int threads;
+    /**
+     * Maximum number of jobs waiting for a thread.
+     */
+    private final int queueDepth;
+    /**
+     * Number of jobs which have completed.
+     */
+    private final AtomicLong completed;
+
+    /**
+     * Create a worker pool.
+     *
+     * @param name               name of the pool
+     * @param threads            number of worker threads
+     * @param queueDepth         number of jobs that may wait for a thread
+     * @param clusterConcurrency maximum jobs running against one cluster, 0 for no limit
+     */
+    public JobWorkerPool(String name, int threads, int queueDepth, int clusterConcurrency) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.queueDepth = Math.max(0, queueDepth);
+        this.clusterConcurrency = Math.max(0, clusterConcurrency);
+        this.capacity = new Semaphore(this.threads + this.queueDepth, true);
+        this.clusterLanes = new ConcurrentHashMap<>();
+        this.completed = new AtomicLong();
+        this.executor = new ThreadPoolExecutor(
+                this.threads,
+                this.threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                Utils.namedThreadFactory(name)
+        );
+    }
+
+    /**
+     * Submit a job to the pool, blocking while the pool is full.
+     * If its cluster is at its cap the job waits in the queue
+     * of the cluster instead of taking a thread.
+     *
+     * @param clusterId ID of the Druid cluster the job queries, may be null
+     * @param job       the job to run
+     * @throws InterruptedException if interrupted while waiting for capacity
+     */
+    public void submit(Integer clusterId, Runnable job) throws InterruptedException {
+        capacity.acquire();
+        ClusterLane lane = getClusterLane(clusterId);
+        if (lane != null && !lane.startOrWait(job)) {
+            return;
+        }
+        try {
+            executor.execute(() -> runJobs(lane, job));
+        } catch (RuntimeException e) {
+            if (lane != null) {
+                lane.cancelStart();
+            }
+            capacity.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Run a job, then the jobs which wait for its cluster
+     * in turn until none is left.
+     *
+     * @param lane the job's cluster lane, or null if unlimited
+     * @param job  the job to run
+     */
+    private void runJobs(ClusterLane lane, Runnable job) {
+        Runnable next = job;
+        while (next != null) {
+            runJob(next);
+            next = lane == null ? null : lane.finish();
+        }
+    }
+
+    /**
+     * Run a job and release its capacity.
+     *
+     * @param job the job to run
+     */
+    private void runJob(Runnable job) {
+        try {
+            job.run();
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while running job", e);
+        } finally {
+            completed.incrementAndGet();
+            capacity.release();
+        }
+    }
+
+    /**
+     * @param clusterId cluster ID
+     * @return the lane of the cluster, or null if unlimited
+     */
+    private ClusterLane getClusterLane(Integer clusterId) {
+        if (clusterConcurrency == 0 || clusterId == null) {
+            return null;
+        }
+        return clusterLanes.computeIfAbsent(clusterId, id -> new ClusterLane());
+    }
+
+    /**
+     * @return the number of jobs running or waiting to run
+     */
+    public int getPending() {
+        return threads + queueDepth - capacity.availablePermits();
+    }
+
+    /**
+     * @return the number of jobs which can be submitted without blocking
+     */
+    public int getAvailable() {
+        return capacity.availablePermits();
+    }
+
+    /**
+     * @return the number of jobs waiting for their cluster
+     */
+    public int getClusterWaiting() {
+        int waiting = 0;
+        for (ClusterLane lane : clusterLanes.values()) {
+            waiting += lane.getWaiting();
+        }
+        return waiting;
+    }
+
+    /**
+     * @return a snapshot of the pool metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("threads", threads);
+        stats.put("queueDepth", queueDepth);
+        stats.put("clusterConcurrency", clusterConcurrency);
+        stats.put("pending", getPending());
+        stats.put("clusterWaiting", getClusterWaiting());
+        stats.put("completed", completed.get());
+        return stats;
+    }
+
+    /**
+     * Stop accepting jobs and wait for running jobs to finish.
+     *
+     * @param timeoutMillis time to wait for jobs to complete
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Workers of [{}] did not finish within {} ms, {} jobs remain pending", name, timeoutMillis, getPending());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Jobs of one cluster which are running or waiting to run.
+     */
+    private class ClusterLane {
+
+        /**
+         * Number of running jobs.
+         */
+        private int running;
+        /**
+         * Jobs waiting for a running job to finish.
+         */
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+        /**
+         * Start a job if the cluster is below its cap,
+         * otherwise add it to the waiting jobs.
+         *
+         * @param job the job to start
+         * @return true if the job may start
+         */
+        private synchronized boolean startOrWait(Runnable job) {
+            if (running < clusterConcurrency) {
+                running++;
+                return true;
+            }
+            waiting.add(job);
+            return false;
+        }
+
+        /**
+         * Undo a start of a job which could not be run.
+         */
+        private synchronized void cancelStart() {
+            running--;
+        }
+
+        /**
+         * Finish a running job.
+         *
+         * @return the next waiting job, which takes the place
+         * of the finished job, or null if none is waiting
+         */
+        private synchronized Runnable finish() {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                running--;
+            }
+            return next;
+        }
+
+        /**
+         * @return the number of waiting jobs
+         */
+        private synchronized int getWaiting() {
+            return waiting.size();
+        }
+    }
+
+}
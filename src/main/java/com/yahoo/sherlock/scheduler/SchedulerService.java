@@ -17,6 +17,7 @@ import com.yahoo.sherlock.settings.Constants;
 import com.yahoo.sherlock.store.JobScheduler;
 import com.yahoo.sherlock.store.Store;
 import com.yahoo.sherlock.utils.TimeUtils;
+import com.yahoo.sherlock.utils.Utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -27,7 +28,11 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is responsible for handling the scheduling, rescheduling,
@@ -50,9 +55,21 @@ public class SchedulerService {
     private JobExecutionService jobExecutionService;
 
     /**
-     * Class timer instance for pinging the backend priority queue.
+     * Time to wait for running jobs when the scheduler is destroyed.
      */
-    private Timer timer;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 60000L;
+
+    /**
+     * Class executor instance for pinging the backend priority queue
+     * and refreshing the jobs held by the execution task, which has
+     * a thread for each so that a blocked ping does not delay a refresh.
+     */
+    private ScheduledExecutorService timer;
+
+    /**
+     * Class worker pool instance which executes due jobs.
+     */
+    private JobWorkerPool workerPool;
 
     /**
      * Class job scheduler instance that communicates with the
@@ -65,6 +82,16 @@ public class SchedulerService {
      */
     private ExecutionTask executionTask;
 
+    /**
+     * Handle of the scheduled execution task.
+     */
+    private ScheduledFuture<?> executionFuture;
+
+    /**
+     * Handle of the scheduled refresh of held jobs.
+     */
+    private ScheduledFuture<?> refreshFuture;
+
     /**
      * Private singleton constructor.
      */
@@ -72,7 +99,10 @@ public class SchedulerService {
         jobExecutionService = new JobExecutionService();
         jobScheduler = Store.getJobScheduler();
         timer = null;
+        workerPool = null;
         executionTask = null;
+        executionFuture = null;
+        refreshFuture = null;
     }
 
     /**
@@ -88,7 +118,7 @@ public class SchedulerService {
     }
 
     /**
-     * Create the timer instance.
+     * Create the timer and the job worker pool.
      */
     public void instantiateMasterScheduler() {
         log.info("Instantiating timer instance");
@@ -96,7 +126,13 @@ public class SchedulerService {
             log.info("Timer is already instantiated");
             return;
         }
-        timer = new Timer();
+        timer = Executors.newScheduledThreadPool(2, Utils.namedThreadFactory("sherlock-scheduler"));
+        workerPool = new JobWorkerPool(
+                "sherlock-job-worker",
+                CLISettings.EXECUTION_THREADS,
+                CLISettings.EXECUTION_QUEUE_DEPTH,
+                CLISettings.EXECUTION_CLUSTER_CONCURRENCY
+        );
     }
 
     /**
@@ -115,10 +151,17 @@ public class SchedulerService {
                 jobExecutionService,
                 this,
                 jobScheduler,
-                Store.getJobMetadataAccessor()
+                Store.getJobMetadataAccessor(),
+                workerPool
+        );
+        long delay = CLISettings.EXECUTION_DELAY * 1000L;
+        executionFuture = timer.scheduleAtFixedRate(executionTask, 0, delay, TimeUnit.MILLISECONDS);
+        refreshFuture = timer.scheduleAtFixedRate(
+                executionTask::refreshHeldJobs,
+                ExecutionTask.REFRESH_MILLIS,
+                ExecutionTask.REFRESH_MILLIS,
+                TimeUnit.MILLISECONDS
         );
-        int delay = CLISettings.EXECUTION_DELAY * 1000;
-        timer.scheduleAtFixedRate(executionTask, 0, delay);
     }
 
     /**
@@ -129,23 +172,41 @@ public class SchedulerService {
             log.info("Execution task already stopped");
             return;
         }
-        executionTask.cancel();
+        executionFuture.cancel(false);
+        executionFuture = null;
+        refreshFuture.cancel(false);
+        refreshFuture = null;
         executionTask = null;
-        timer.purge();
     }
 
     /**
-     * Destroy the execution task and the timer.
+     * Destroy the execution task, the timer and the worker
+     * pool, waiting for jobs which are already running.
      */
     public void destroyMasterScheduler() {
         if (executionTask != null) {
-            executionTask.cancel();
+            executionFuture.cancel(false);
+            executionFuture = null;
+            refreshFuture.cancel(false);
+            refreshFuture = null;
             executionTask = null;
         }
         if (timer != null) {
-            timer.cancel();
+            timer.shutdown();
             timer = null;
         }
+        if (workerPool != null) {
+            workerPool.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+            workerPool = null;
+        }
+    }
+
+    /**
+     * @return the job worker pool metrics, or null
+     * if the master scheduler is not instantiated
+     */
+    public Map<String, Object> getWorkerPoolStats() {
+        return workerPool == null ? null : workerPool.getStats();
     }
 
     /**
@@ -177,14 +238,10 @@ public class SchedulerService {
      * @throws SchedulerException if an error occurs while scheduling the job
      */
     public void rescheduleJob(JobMetadata jobMetadata) throws SchedulerException {
-        if (!jobMetadata.getJobStatus().equals(JobStatus.ERROR.getValue())) {
-            Pair<Integer, Integer> nextTimes = jobRescheduleTime(jobMetadata);
-            Integer nextQueryTime = nextTimes.getLeft();
-            Integer nextRunTime = nextTimes.getRight();
-            jobMetadata.setEffectiveQueryTime(nextQueryTime);
-            jobMetadata.setEffectiveRunTime(nextRunTime);
+        Pair<Integer, String> queueEntry = nextQueueEntry(jobMetadata);
+        if (queueEntry != null) {
             try {
-                jobScheduler.pushQueue(nextRunTime, jobMetadata.getJobId().toString());
+                jobScheduler.pushQueue(queueEntry.getLeft(), queueEntry.getRight());
             } catch (IOException e) {
                 log.error("Error while adding job to queue", e);
                 throw new SchedulerException(e.getMessage(), e);
@@ -192,6 +249,25 @@ public class SchedulerService {
         }
     }
 
+    /**
+     * Assign the next run time of a job as {@link #rescheduleJob(JobMetadata)}
+     * does, without pushing it to the queue, so that the caller can push
+     * several jobs at once.
+     *
+     * @param jobMetadata job to reschedule
+     * @return the next run time and ID of the job to push to the queue,
+     * or null if the job is not rescheduled
+     */
+    public Pair<Integer, String> nextQueueEntry(JobMetadata jobMetadata) {
+        if (jobMetadata.getJobStatus().equals(JobStatus.ERROR.getValue())) {
+            return null;
+        }
+        Pair<Integer, Integer> nextTimes = jobRescheduleTime(jobMetadata);
+        jobMetadata.setEffectiveQueryTime(nextTimes.getLeft());
+        jobMetadata.setEffectiveRunTime(nextTimes.getRight());
+        return new ImmutablePair<>(nextTimes.getRight(), jobMetadata.getJobId().toString());
+    }
+
     /**
      * Stop a running job. This method will call the job scheduler
      * to remove the job from the task queue.
@@ -200,6 +276,9 @@ public class SchedulerService {
      * @throws SchedulerException if an error occurs while unscheduling the job
      */
     public void stopJob(Integer jobId) throws SchedulerException {
+        if (executionTask != null) {
+            executionTask.forget(jobId.toString());
+        }
         try {
             jobScheduler.removeQueue(jobId);
             jobScheduler.removePending(jobId);
@@ -209,6 +288,18 @@ public class SchedulerService {
         }
     }
 
+    /**
+     * Write the held state of executed jobs, so that a
+     * job read afterwards is not overwritten by it.
+     *
+     * @throws IOException if an error writing the jobs occurs
+     */
+    public void flushExecutedJobs() throws IOException {
+        if (executionTask != null) {
+            executionTask.flushExecutedJobs();
+        }
+    }
+
     /**
      * Unschedule all jobs in a list and reschedule them with new times.
      *
@@ -222,6 +313,9 @@ public class SchedulerService {
         List<Pair<Integer, String>> jobsAndTimes = new ArrayList<>(jobs.size());
         for (JobMetadata job : jobs) {
             jobIds.add(job.getJobId().toString());
+            if (executionTask != null) {
+                executionTask.forget(job.getJobId().toString());
+            }
             Pair<Integer, Integer> nextTimes = jobScheduleTime(job);
             Integer nextQueryTime = nextTimes.getLeft();
             Integer nextRunTime = nextTimes.getRight();
@@ -11,20 +11,29 @@ import com.google.gson.JsonElement;
 import com.yahoo.sherlock.enums.JobStatus;
 import com.yahoo.sherlock.exception.DruidException;
 import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.EgadsResult;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.model.DruidCluster;
 import com.yahoo.sherlock.model.JobMetadata;
+import com.yahoo.sherlock.model.SeriesModelState;
 import com.yahoo.sherlock.query.EgadsConfig;
 import com.yahoo.sherlock.query.Query;
+import com.yahoo.sherlock.settings.CLISettings;
+import com.yahoo.sherlock.utils.NumberUtils;
+import com.yahoo.sherlock.utils.Utils;
 import com.yahoo.egads.data.Anomaly;
-import com.yahoo.egads.data.TimeSeries;
 
 import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Service class for anomaly detection.
@@ -32,6 +41,12 @@ import java.util.List;
 @Slf4j
 public class DetectorService {
 
+    /**
+     * Thread pool shared by all detector services to score
+     * the time series of a query, created on first use.
+     */
+    private static ExecutorService detectionPool;
+
     /**
      * Class service factory instance.
      */
@@ -47,6 +62,26 @@ public class DetectorService {
      */
     private HttpService httpService = serviceFactory.newHttpServiceInstance();
 
+    /**
+     * Shared cache of the datasources of each Druid cluster.
+     */
+    private DruidDatasourceCache datasourceCache = DruidDatasourceCache.getInstance();
+
+    /**
+     * Cache of recent Druid query results.
+     */
+    private DruidQueryCache queryCache = DruidQueryCache.getInstance();
+
+    /**
+     * Shared cache of the model states of each job.
+     */
+    private ModelStateCache modelStateCache = ModelStateCache.getInstance();
+
+    /**
+     * Shared cache of the time series window of each job.
+     */
+    private SeriesWindowCache windowCache = SeriesWindowCache.getInstance();
+
     /**
      * Class time series parser service instance.
      */
@@ -63,6 +98,17 @@ public class DetectorService {
     public DetectorService() {
     }
 
+    /**
+     * Drop the cached model states and series window of a job,
+     * which is called when the job is deleted, updated or stopped.
+     *
+     * @param jobId ID of the job
+     */
+    public static void invalidateJob(Integer jobId) {
+        ModelStateCache.getInstance().invalidate(jobId);
+        SeriesWindowCache.getInstance().invalidate(jobId);
+    }
+
     /**
      * Method to detect anomalies.
      * This method handles the control/data flow between the components of detection system.
@@ -78,9 +124,219 @@ public class DetectorService {
         JobMetadata jobMetadata
     ) throws SherlockException, DruidException {
         Granularity granularity = Granularity.getValue(jobMetadata.getGranularity());
+        boolean incremental = CLISettings.INCREMENTAL_DETECTION && jobMetadata.getJobId() != null && granularity != Granularity.MONTH;
+        if (incremental) {
+            List<Anomaly> anomalies = detectIncrementally(cluster, jobMetadata, granularity);
+            if (anomalies != null) {
+                return anomalies;
+            }
+        }
         Query query = queryService.build(jobMetadata.getQuery(), granularity, jobMetadata.getGranularityRange(), jobMetadata.getEffectiveQueryTime(), jobMetadata.getTimeseriesRange());
         log.info("Query generation successful.");
-        return detect(query, cluster, jobMetadata);
+        List<ColumnarTimeSeries> timeSeriesList = queryWindow(query, cluster, jobMetadata, granularity);
+        if (!incremental) {
+            return runDetection(timeSeriesList, query, jobMetadata);
+        }
+        // Run in full and train the model states for the next runs
+        Integer expectedEnd = getExpectedEnd(query, jobMetadata);
+        int step = granularity.getMinutes() * jobMetadata.getGranularityRange();
+        int pointsPerRun = Math.max(1, Granularity.getValue(jobMetadata.getFrequency()).getMinutes() / step);
+        ModelStateCache.JobState jobState = new ModelStateCache.JobState(getModelSignature(jobMetadata), expectedEnd);
+        List<Anomaly> anomalies = runDetection(
+            timeSeriesList,
+            jobMetadata,
+            expectedEnd,
+            granularity,
+            jobState,
+            pointsPerRun * (CLISettings.MODEL_RETRAIN_RUNS + 1)
+        );
+        log.info("Generated anomaly list with {} anomalies", anomalies.size());
+        if (jobState.getSeries().isEmpty()) {
+            modelStateCache.invalidate(jobMetadata.getJobId());
+        } else {
+            modelStateCache.put(jobMetadata.getJobId(), jobState);
+        }
+        return anomalies;
+    }
+
+    /**
+     * Score only the points of a job which arrived since its previous run,
+     * using the model states trained by an earlier full run. The points are
+     * fetched with a query covering just the new intervals.
+     *
+     * @param cluster     the Druid cluster to query
+     * @param jobMetadata job metadata
+     * @param granularity the job granularity
+     * @return list of anomalies, or null if the job must be run in full
+     * because it has no usable model state or its models need retraining
+     * @throws SherlockException if an error occurs during detection
+     * @throws DruidException    if an error occurs while contacting Druid
+     */
+    private List<Anomaly> detectIncrementally(
+        DruidCluster cluster,
+        JobMetadata jobMetadata,
+        Granularity granularity
+    ) throws SherlockException, DruidException {
+        ModelStateCache.JobState jobState = modelStateCache.get(jobMetadata.getJobId());
+        if (jobState == null
+            || !jobState.getSignature().equals(getModelSignature(jobMetadata))
+            || jobState.needsTraining(CLISettings.MODEL_RETRAIN_RUNS, CLISettings.MODEL_DRIFT_POINTS)) {
+            return null;
+        }
+        int step = granularity.getMinutes() * jobMetadata.getGranularityRange();
+        int newEnd = jobMetadata.getEffectiveQueryTime() - step;
+        int elapsed = newEnd - jobState.getLastEnd();
+        if (elapsed <= 0 || elapsed % step != 0) {
+            return null;
+        }
+        int points = elapsed / step;
+        Query query = queryService.build(jobMetadata.getQuery(), granularity, jobMetadata.getGranularityRange(), jobMetadata.getEffectiveQueryTime(), points * jobMetadata.getGranularityRange());
+        checkDatasource(query, cluster);
+        List<ColumnarTimeSeries> timeSeriesList = queryTimeSeries(query, cluster);
+        appendWindow(jobMetadata, granularity, timeSeriesList, jobState.getLastEnd(), newEnd);
+        EgadsService egadsService = newEgadsService(jobMetadata, granularity);
+        List<Anomaly> anomalies = new ArrayList<>(timeSeriesList.size());
+        int scored = 0;
+        for (ColumnarTimeSeries timeSeries : timeSeriesList) {
+            SeriesModelState state = jobState.getSeries().get(TimeSeriesParserService.getUniqueName(timeSeries));
+            if (state == null) {
+                log.info("Time series [{}] of job [{}] has no model state, retraining", timeSeries.getMeta().id, jobMetadata.getJobId());
+                modelStateCache.invalidate(jobMetadata.getJobId());
+                return null;
+            }
+            scored++;
+            if (timeSeries.size() == 0 || timeSeries.time(timeSeries.size() - 1) != newEnd * 60L) {
+                anomalies.add(getNoDataAnomaly(timeSeries, egadsService.getIncrementalModelName()));
+                continue;
+            }
+            Anomaly anomaly = egadsService.scoreIncrementally(timeSeries, state, jobMetadata.getSigmaThreshold());
+            if (anomaly == null) {
+                log.info("Model of time series [{}] of job [{}] does not cover new points, retraining", timeSeries.getMeta().id, jobMetadata.getJobId());
+                modelStateCache.invalidate(jobMetadata.getJobId());
+                return null;
+            }
+            anomalies.add(anomaly);
+        }
+        if (scored < jobState.getSeries().size()) {
+            log.info("Job [{}] is missing time series with model states, retraining", jobMetadata.getJobId());
+            modelStateCache.invalidate(jobMetadata.getJobId());
+            return null;
+        }
+        jobState.setLastEnd(newEnd);
+        log.info("Scored {} new points of {} time series incrementally", points, scored);
+        return anomalies;
+    }
+
+    /**
+     * Get the time series of the full query window of a job. If the window
+     * of the job is cached, only the intervals since the end of the cached
+     * window are queried and appended to it. The full window is queried if
+     * the job has no cached window, its query changed, or it has not run
+     * for longer than the window.
+     *
+     * @param query       the full query of the job
+     * @param cluster     the Druid cluster to query
+     * @param jobMetadata job metadata
+     * @param granularity the job granularity
+     * @return the time series of the window
+     * @throws SherlockException if the query of the new intervals cannot be built
+     * @throws DruidException    if an error occurs while contacting Druid
+     */
+    private List<ColumnarTimeSeries> queryWindow(
+        Query query,
+        DruidCluster cluster,
+        JobMetadata jobMetadata,
+        Granularity granularity
+    ) throws SherlockException, DruidException {
+        checkDatasource(query, cluster);
+        if (!isWindowCached(jobMetadata, granularity)) {
+            return queryTimeSeries(query, cluster);
+        }
+        int end = getExpectedEnd(query, jobMetadata);
+        String signature = getWindowSignature(jobMetadata);
+        SeriesWindowCache.JobWindow window = windowCache.get(jobMetadata.getJobId());
+        if (window != null && window.getSignature().equals(signature) && query.getStartTime() / 60 <= window.getLastEnd()) {
+            int step = granularity.getMinutes() * jobMetadata.getGranularityRange();
+            int elapsed = end - window.getLastEnd();
+            if (elapsed > 0 && elapsed % step == 0) {
+                Query tail = queryService.build(jobMetadata.getQuery(), granularity, jobMetadata.getGranularityRange(), jobMetadata.getEffectiveQueryTime(), elapsed / step * jobMetadata.getGranularityRange());
+                if (window.append(queryTimeSeries(tail, cluster), end)) {
+                    log.info("Appended {} intervals to the window of job [{}]", elapsed / step, jobMetadata.getJobId());
+                    List<ColumnarTimeSeries> snapshot = window.snapshot(query.getStartTime());
+                    windowCache.put(jobMetadata.getJobId(), window);
+                    return snapshot;
+                }
+            } else if (elapsed == 0) {
+                return window.snapshot(query.getStartTime());
+            }
+        }
+        List<ColumnarTimeSeries> timeSeriesList = queryTimeSeries(query, cluster);
+        windowCache.put(jobMetadata.getJobId(), new SeriesWindowCache.JobWindow(signature, end, timeSeriesList));
+        return timeSeriesList;
+    }
+
+    /**
+     * Append the series of a query of the intervals after the cached
+     * window of a job to the window, if it has one. The window is dropped
+     * if the query does not continue it.
+     *
+     * @param jobMetadata job metadata
+     * @param granularity the job granularity
+     * @param tail        time series of the queried intervals
+     * @param tailFrom    time in minutes after which the intervals were queried
+     * @param tailEnd     time in minutes of the last queried interval
+     */
+    private void appendWindow(JobMetadata jobMetadata, Granularity granularity, List<ColumnarTimeSeries> tail, int tailFrom, int tailEnd) {
+        SeriesWindowCache.JobWindow window = isWindowCached(jobMetadata, granularity) ? windowCache.get(jobMetadata.getJobId()) : null;
+        if (window == null) {
+            return;
+        }
+        if (!window.getSignature().equals(getWindowSignature(jobMetadata))
+            || window.getLastEnd() < tailFrom
+            || !window.append(tail, tailEnd)) {
+            windowCache.invalidate(jobMetadata.getJobId());
+        } else {
+            windowCache.put(jobMetadata.getJobId(), window);
+        }
+    }
+
+    /**
+     * @param jobMetadata job metadata
+     * @param granularity the job granularity
+     * @return whether the time series window of the job is cached
+     */
+    private static boolean isWindowCached(JobMetadata jobMetadata, Granularity granularity) {
+        return CLISettings.DRUID_WINDOW_CACHE && jobMetadata.getJobId() != null && granularity != Granularity.MONTH;
+    }
+
+    /**
+     * @param jobMetadata job metadata
+     * @return the query configuration of the job, which must
+     * match that of the run which fetched its cached window
+     */
+    private static String getWindowSignature(JobMetadata jobMetadata) {
+        return String.join("|",
+            String.valueOf(jobMetadata.getQuery()),
+            String.valueOf(jobMetadata.getGranularity()),
+            String.valueOf(jobMetadata.getGranularityRange())
+        );
+    }
+
+    /**
+     * @param jobMetadata job metadata
+     * @return the query and model configuration of the job, which
+     * must match that of the run which trained its model states
+     */
+    private static String getModelSignature(JobMetadata jobMetadata) {
+        return String.join("|",
+            String.valueOf(jobMetadata.getQuery()),
+            String.valueOf(jobMetadata.getGranularity()),
+            String.valueOf(jobMetadata.getGranularityRange()),
+            String.valueOf(jobMetadata.getTimeseriesRange()),
+            String.valueOf(jobMetadata.getTimeseriesModel()),
+            String.valueOf(jobMetadata.getAnomalyDetectionModel()),
+            String.valueOf(jobMetadata.getSigmaThreshold())
+        );
     }
 
     /**
@@ -100,13 +356,14 @@ public class DetectorService {
         JobMetadata job
     ) throws SherlockException, DruidException {
         checkDatasource(query, cluster);
-        JsonArray druidResponse = queryDruid(query, cluster);
-        return runDetection(druidResponse, query, job);
+        List<ColumnarTimeSeries> timeSeriesList = queryTimeSeries(query, cluster);
+        return runDetection(timeSeriesList, query, job);
     }
 
     /**
      * Check to ensure that the datasource in the query exists
-     * in the specified cluster.
+     * in the specified cluster. The datasources of each cluster
+     * are cached, and refreshed once if the datasource is not found.
      *
      * @param query   the query to check
      * @param cluster the druid cluster to check
@@ -114,8 +371,7 @@ public class DetectorService {
      */
     public void checkDatasource(Query query, DruidCluster cluster) throws DruidException {
         JsonElement datasource = query.getDatasource();
-        JsonArray druidDatasources = httpService.queryDruidDatasources(cluster);
-        if (!druidDatasources.contains(datasource)) {
+        if (!datasourceCache.contains(cluster, datasource, httpService::queryDruidDatasources)) {
             log.error("Druid datasource {} does not exist!", datasource);
             throw new DruidException("Querying unknown datasource: " + datasource);
         }
@@ -140,6 +396,29 @@ public class DetectorService {
         return druidResponse;
     }
 
+    /**
+     * Send the query to druid and parse the response into time
+     * series while it is read, without holding the JSON response.
+     * Recent results of identical queries are served from a cache.
+     *
+     * @param query   the query to execute
+     * @param cluster the cluster to query
+     * @return the parsed time series
+     * @throws DruidException if an error occurs while calling druid or parsing the response
+     */
+    public List<ColumnarTimeSeries> queryTimeSeries(Query query, DruidCluster cluster) throws DruidException {
+        List<ColumnarTimeSeries> timeSeriesList = queryCache.get(cluster, query, () -> httpService.queryDruid(
+            cluster,
+            query.getQueryJsonObject(),
+            reader -> parserService.readTimeSeries(reader, query)
+        ));
+        log.info("Druid response parsed into {} time series", timeSeriesList.size());
+        if (timeSeriesList.isEmpty()) {
+            log.error("Query to Druid returned no valid time series!");
+        }
+        return timeSeriesList;
+    }
+
     /**
      * Run detection with a provided EGADS configuration and
      * Druid query.
@@ -155,17 +434,41 @@ public class DetectorService {
             Query query,
             JobMetadata jobMetadata
     ) throws SherlockException {
-        List<TimeSeries> timeSeriesList = parserService.parseTimeSeries(druidResponse, query);
-        // The value of the last timestamp expected to be returned by Druid
-        Integer granularityRange = jobMetadata.getGranularityRange();
-        Integer expectedEnd = (query.getRunTime() / 60) - (query.getGranularity().getMinutes() * granularityRange);
-        List<Anomaly> anomalies = runDetection(timeSeriesList, jobMetadata, expectedEnd, query.getGranularity());
+        return runDetection(parserService.parseTimeSeries(druidResponse, query), query, jobMetadata);
+    }
+
+    /**
+     * Run detection on the time series of a Druid query.
+     *
+     * @param timeSeriesList   time series parsed from the Druid response
+     * @param query            the Druid query
+     * @param jobMetadata      the job meta data
+     * @return anomalies from detection
+     * @throws SherlockException if an error occurs during analysis
+     */
+    private List<Anomaly> runDetection(
+            List<ColumnarTimeSeries> timeSeriesList,
+            Query query,
+            JobMetadata jobMetadata
+    ) throws SherlockException {
+        List<Anomaly> anomalies = runDetection(timeSeriesList, jobMetadata, getExpectedEnd(query, jobMetadata), query.getGranularity());
         log.info("Generated anomaly list with {} anomalies", anomalies.size());
         return anomalies;
     }
 
     /**
-     * Run detection on a list of time series.
+     * @param query       the Druid query
+     * @param jobMetadata the job meta data
+     * @return the value of the last timestamp expected to be returned by Druid
+     */
+    private static Integer getExpectedEnd(Query query, JobMetadata jobMetadata) {
+        return (query.getRunTime() / 60) - (query.getGranularity().getMinutes() * jobMetadata.getGranularityRange());
+    }
+
+    /**
+     * Run detection on a list of time series. Each call works on its own
+     * copy of the EGADS configuration, so calls may run concurrently, and
+     * the time series are scored in parallel on the shared detection pool.
      *
      * @param timeSeriesList   time series to analyze
      * @param jobMetadata      job meta data
@@ -174,45 +477,181 @@ public class DetectorService {
      * @return list of anomalies from the detection job
      * @throws SherlockException if an error occurs during analysis
      */
-    public synchronized List<Anomaly> runDetection(
-            List<TimeSeries> timeSeriesList,
+    public List<Anomaly> runDetection(
+            List<ColumnarTimeSeries> timeSeriesList,
             JobMetadata jobMetadata,
             Integer endTimeMinutes,
             Granularity granularity
     ) throws SherlockException {
-        Integer granularityRange = jobMetadata.getGranularityRange();
+        return runDetection(timeSeriesList, jobMetadata, endTimeMinutes, granularity, null, 0);
+    }
+
+    /**
+     * Run detection on a list of time series, training the model
+     * state of each time series into a job state if one is given.
+     *
+     * @param timeSeriesList   time series to analyze
+     * @param jobMetadata      job meta data
+     * @param endTimeMinutes   the expected last data point time in minutes
+     * @param granularity      the granularity
+     * @param jobState         job state to train, or null
+     * @param horizon          number of points to forecast for the job state
+     * @return list of anomalies from the detection job
+     * @throws SherlockException if an error occurs during analysis
+     */
+    private List<Anomaly> runDetection(
+            List<ColumnarTimeSeries> timeSeriesList,
+            JobMetadata jobMetadata,
+            Integer endTimeMinutes,
+            Granularity granularity,
+            ModelStateCache.JobState jobState,
+            int horizon
+    ) throws SherlockException {
         Double sigmaThreshold = jobMetadata.getSigmaThreshold();
-        String frequency = jobMetadata.getFrequency();
+        EgadsService egadsService = newEgadsService(jobMetadata, granularity);
+        // Configure the detection window for anomaly detection
+        egadsService.configureDetectionWindow(endTimeMinutes, jobMetadata.getFrequency(), jobMetadata.getGranularityRange());
+        // Aggregated time series are forecast at a coarser period than the job
+        ModelStateCache.JobState trained = isAggregated(egadsService.getP()) ? null : jobState;
+
+        List<Callable<List<Anomaly>>> detections = new ArrayList<>(timeSeriesList.size());
+        for (ColumnarTimeSeries timeSeries : timeSeriesList) {
+            detections.add(() -> runDetection(egadsService, timeSeries, endTimeMinutes, sigmaThreshold, trained, horizon));
+        }
+        List<Anomaly> anomalies = new ArrayList<>(timeSeriesList.size());
+        if (detections.size() < 2 || getParallelism() < 2) {
+            for (Callable<List<Anomaly>> detection : detections) {
+                anomalies.addAll(callDetection(detection));
+            }
+            return anomalies;
+        }
+        try {
+            for (Future<List<Anomaly>> future : getDetectionPool().invokeAll(detections)) {
+                anomalies.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SherlockException("Interrupted during anomaly detection", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SherlockException) {
+                throw (SherlockException) e.getCause();
+            }
+            throw new SherlockException(e.getCause().getMessage(), e.getCause());
+        }
+        return anomalies;
+    }
 
+    /**
+     * Create an EGADS service with its own copy of the EGADS
+     * configuration, set up for a job.
+     *
+     * @param jobMetadata job meta data
+     * @param granularity the granularity
+     * @return the configured EGADS service
+     */
+    private EgadsService newEgadsService(JobMetadata jobMetadata, Granularity granularity) {
         EgadsService egadsService = serviceFactory.newEgadsServiceInstance();
-        egadsService.configureWith(egadsConfig);
+        egadsService.configureWith(egadsConfig.copy());
         egadsService.getP().setTsModel(jobMetadata.getTimeseriesModel());
         egadsService.getP().setAdModel(jobMetadata.getAnomalyDetectionModel());
-        egadsService.preRunConfigure(sigmaThreshold, granularity, granularityRange);
-        // Configure the detection window for anomaly detection
-        egadsService.configureDetectionWindow(endTimeMinutes, frequency, granularityRange);
+        egadsService.preRunConfigure(jobMetadata.getSigmaThreshold(), granularity, jobMetadata.getGranularityRange());
+        return egadsService;
+    }
 
-        List<Anomaly> anomalies = new ArrayList<>(timeSeriesList.size());
-        for (TimeSeries timeSeries : timeSeriesList) {
-            if (timeSeries.data.isEmpty() ||
-                timeSeries.data.get(timeSeries.data.size() - 1).time != endTimeMinutes * 60L) {
-                anomalies.add(getNoDataAnomaly(timeSeries, egadsService.getP().getAdModel()));
-            } else {
-                anomalies.addAll(egadsService.runEGADS(timeSeries, sigmaThreshold));
-            }
+    /**
+     * @param config EGADS configuration
+     * @return whether the configuration aggregates time series points
+     */
+    private static boolean isAggregated(EgadsConfig config) {
+        return config != null && NumberUtils.isNonNegativeInt(config.getAggregation()) && Integer.parseInt(config.getAggregation()) > 1;
+    }
+
+    /**
+     * Run detection on a single time series with a configured
+     * EGADS service. The EGADS configuration is only read.
+     *
+     * @param egadsService   configured EGADS service
+     * @param timeSeries     time series to analyze
+     * @param endTimeMinutes the expected last data point time in minutes
+     * @param sigmaThreshold the sigma threshold
+     * @param jobState       job state in which to train the model state of the series, or null
+     * @param horizon        number of points to forecast for the model state
+     * @return anomalies of the time series
+     * @throws SherlockException if an error occurs during analysis
+     */
+    private List<Anomaly> runDetection(
+            EgadsService egadsService,
+            ColumnarTimeSeries timeSeries,
+            Integer endTimeMinutes,
+            Double sigmaThreshold,
+            ModelStateCache.JobState jobState,
+            int horizon
+    ) throws SherlockException {
+        if (timeSeries.size() == 0 ||
+            timeSeries.time(timeSeries.size() - 1) != endTimeMinutes * 60L) {
+            List<Anomaly> noData = new ArrayList<>(1);
+            noData.add(getNoDataAnomaly(timeSeries, egadsService.getP().getAdModel()));
+            return noData;
+        }
+        if (jobState == null) {
+            return egadsService.runEGADS(timeSeries, sigmaThreshold);
+        }
+        SeriesModelState state = new SeriesModelState();
+        List<Anomaly> anomalies = egadsService.runEGADSAndTrain(timeSeries, state, horizon);
+        if (state.getForecast() != null) {
+            jobState.getSeries().put(TimeSeriesParserService.getUniqueName(timeSeries), state);
         }
         return anomalies;
     }
 
+    /**
+     * Run a detection on the calling thread.
+     *
+     * @param detection the detection to run
+     * @return anomalies of the detection
+     * @throws SherlockException if an error occurs during analysis
+     */
+    private static List<Anomaly> callDetection(Callable<List<Anomaly>> detection) throws SherlockException {
+        try {
+            return detection.call();
+        } catch (SherlockException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SherlockException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the configured detection parallelism
+     */
+    private static int getParallelism() {
+        return CLISettings.DETECTION_PARALLELISM > 0
+               ? CLISettings.DETECTION_PARALLELISM
+               : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Get the thread pool shared by all detector services,
+     * creating it if it does not yet exist.
+     *
+     * @return the detection thread pool
+     */
+    private static synchronized ExecutorService getDetectionPool() {
+        if (detectionPool == null) {
+            detectionPool = Executors.newFixedThreadPool(getParallelism(), Utils.namedThreadFactory("sherlock-detection"));
+        }
+        return detectionPool;
+    }
+
     /**
      * @param timeSeries time series for which to generate empty anomaly
      * @return an anomaly that represents no data
      */
-    private Anomaly getNoDataAnomaly(TimeSeries timeSeries, String modelName) {
+    private Anomaly getNoDataAnomaly(ColumnarTimeSeries timeSeries, String modelName) {
         Anomaly anomaly = new Anomaly();
         anomaly.metricMetaData.name = JobStatus.NODATA.getValue();
-        anomaly.metricMetaData.source = timeSeries.meta.source;
-        anomaly.id = timeSeries.meta.id;
+        anomaly.metricMetaData.source = timeSeries.getMeta().source;
+        anomaly.id = timeSeries.getMeta().id;
         anomaly.intervals = new Anomaly.IntervalSequence();
         anomaly.modelName = modelName;
         return anomaly;
@@ -240,8 +679,7 @@ public class DetectorService {
             @Nullable EgadsConfig config
     ) throws SherlockException, DruidException {
         checkDatasource(query, cluster);
-        JsonArray druidResponse = queryDruid(query, cluster);
-        List<TimeSeries> timeSeriesList = parserService.parseTimeSeries(druidResponse, query);
+        List<ColumnarTimeSeries> timeSeriesList = queryTimeSeries(query, cluster);
         List<EgadsResult> results = new ArrayList<>(timeSeriesList.size());
 
         final EgadsService egadsService = serviceFactory.newEgadsServiceInstance();
@@ -251,7 +689,7 @@ public class DetectorService {
             egadsService.configureDetectionWindow(query.getRunTime() / 60, query.getGranularity().toString(), detectionWindow + 1);
         }
 
-        for (TimeSeries timeSeries : timeSeriesList) {
+        for (ColumnarTimeSeries timeSeries : timeSeriesList) {
             results.add(egadsService.detectAnomaliesResult(timeSeries));
         }
         return results;
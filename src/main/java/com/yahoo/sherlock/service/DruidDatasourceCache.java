@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.yahoo.sherlock.exception.DruidException;
+import com.yahoo.sherlock.model.DruidCluster;
+import com.yahoo.sherlock.settings.CLISettings;
+import com.yahoo.sherlock.utils.Utils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-cluster cache of the datasources available on each
+ * Druid cluster, so that a detection query does not need a
+ * round-trip to the broker's datasources endpoint. Entries expire
+ * after a TTL and are refreshed in the background shortly before
+ * they expire. A datasource missing from a cached list triggers
+ * one forced refresh before it is reported as unknown.
+ */
+@Slf4j
+public class DruidDatasourceCache {
+
+    /**
+     * Fetches the datasource list of a cluster.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param cluster the cluster to query
+         * @return the cluster's datasources
+         * @throws DruidException if the datasources cannot be retrieved
+         */
+        JsonArray load(DruidCluster cluster) throws DruidException;
+    }
+
+    /**
+     * Fraction of the TTL after which an entry is refreshed ahead of expiry.
+     */
+    private static final double REFRESH_AHEAD_FACTOR = 0.8;
+
+    /**
+     * The singleton instance of this class.
+     */
+    private static final DruidDatasourceCache INSTANCE = new DruidDatasourceCache();
+
+    /**
+     * Cached entries keyed on cluster ID.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Executor which refreshes entries ahead of expiry.
+     */
+    private final ExecutorService refresher;
+
+    /**
+     * Create an empty cache.
+     */
+    protected DruidDatasourceCache() {
+        entries = new ConcurrentHashMap<>();
+        refresher = Executors.newSingleThreadExecutor(Utils.namedThreadFactory("sherlock-datasource-refresh"));
+    }
+
+    /**
+     * @return the shared datasource cache
+     */
+    public static DruidDatasourceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check whether a datasource exists on a cluster. Clusters
+     * without an ID, or a disabled cache, always query Druid.
+     *
+     * @param cluster    the cluster to check
+     * @param datasource the datasource to look for
+     * @param loader     fetches the cluster's datasources
+     * @return true if the datasource exists on the cluster
+     * @throws DruidException if the datasources cannot be retrieved
+     */
+    public boolean contains(DruidCluster cluster, JsonElement datasource, Loader loader) throws DruidException {
+        long ttlMillis = CLISettings.DRUID_DATASOURCE_CACHE_TTL * 1000L;
+        if (cluster.getClusterId() == null || ttlMillis <= 0) {
+            return loader.load(cluster).contains(datasource);
+        }
+        Entry entry = entries.computeIfAbsent(cluster.getClusterId().toString(), id -> new Entry());
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = entry.snapshot;
+        if (snapshot == null || now - snapshot.loadedAt > ttlMillis) {
+            return entry.load(cluster, loader, now).datasources.contains(datasource);
+        }
+        if (now - snapshot.loadedAt > ttlMillis * REFRESH_AHEAD_FACTOR) {
+            refreshAhead(cluster, entry, loader);
+        }
+        if (snapshot.datasources.contains(datasource)) {
+            return true;
+        }
+        log.info("Datasource {} not in cached list of cluster [{}], refreshing", datasource, cluster.getClusterId());
+        return entry.load(cluster, loader, snapshot.loadedAt + 1).datasources.contains(datasource);
+    }
+
+    /**
+     * Drop the cached datasources of a cluster, for
+     * instance after the cluster has been updated.
+     *
+     * @param clusterId ID of the cluster
+     */
+    public void invalidate(String clusterId) {
+        if (clusterId != null) {
+            entries.remove(clusterId);
+        }
+    }
+
+    /**
+     * Drop all cached datasources.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Reload an entry in the background if no refresh is running.
+     *
+     * @param cluster the cluster of the entry
+     * @param entry   the entry to refresh
+     * @param loader  fetches the cluster's datasources
+     */
+    private void refreshAhead(DruidCluster cluster, Entry entry, Loader loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                entry.load(cluster, loader, Long.MAX_VALUE);
+            } catch (DruidException | RuntimeException e) {
+                log.warn("Could not refresh datasources of cluster [{}]", cluster.getClusterId(), e);
+            } finally {
+                entry.refreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Datasources of a cluster and the time they were loaded.
+     */
+    private static class Snapshot {
+        private final Set<JsonElement> datasources;
+        private final long loadedAt;
+
+        /**
+         * @param datasources the datasources
+         * @param loadedAt    load time in milliseconds
+         */
+        Snapshot(Set<JsonElement> datasources, long loadedAt) {
+            this.datasources = datasources;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Cached datasources of one cluster.
+     */
+    private static class Entry {
+        private volatile Snapshot snapshot;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        /**
+         * Load the datasources unless another thread has already
+         * loaded them since the given time.
+         *
+         * @param cluster     the cluster to query
+         * @param loader      fetches the cluster's datasources
+         * @param staleBefore snapshots loaded before this time are reloaded
+         * @return the loaded datasources
+         * @throws DruidException if the datasources cannot be retrieved
+         */
+        synchronized Snapshot load(DruidCluster cluster, Loader loader, long staleBefore) throws DruidException {
+            Snapshot current = snapshot;
+            if (current != null && current.loadedAt >= staleBefore) {
+                return current;
+            }
+            JsonArray loaded = loader.load(cluster);
+            Set<JsonElement> datasources = new HashSet<>(loaded.size() * 2);
+            for (JsonElement element : loaded) {
+                datasources.add(element);
+            }
+            snapshot = new Snapshot(datasources, System.currentTimeMillis());
+            return snapshot;
+        }
+    }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.yahoo.egads.data.MetricMeta;
+import com.yahoo.sherlock.exception.DruidException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
+import com.yahoo.sherlock.model.DruidCluster;
+import com.yahoo.sherlock.query.Query;
+import com.yahoo.sherlock.settings.CLISettings;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of the time series returned by Druid queries,
+ * keyed on the cluster, the canonical query JSON and the query
+ * interval. Jobs sharing a query, repeated instant queries and
+ * reruns hit the broker once per TTL. Concurrent identical queries
+ * which miss the cache are collapsed into a single Druid request.
+ * Callers always receive their own copy of the cached series,
+ * with new series IDs. The cache is bounded by the number of
+ * cached points and, optionally, the number of cached results.
+ */
+@Slf4j
+public class DruidQueryCache {
+
+    /**
+     * Fetches the time series of a query from Druid.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return the parsed time series
+         * @throws DruidException if the query fails
+         */
+        List<ColumnarTimeSeries> load() throws DruidException;
+    }
+
+    /**
+     * The singleton instance of this class.
+     */
+    private static final DruidQueryCache INSTANCE = new DruidQueryCache();
+
+    /**
+     * Cached results in access order, guarded by the map itself.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Number of points in the cached results, guarded by the entries.
+     */
+    private long points;
+
+    /**
+     * Number of times the results of each cluster have been
+     * invalidated, guarded by the entries. Results loaded
+     * before an invalidation are not cached.
+     */
+    private final Map<String, Long> generations;
+
+    /**
+     * Requests to Druid in progress, keyed like the cached results.
+     */
+    private final Map<String, CompletableFuture<List<ColumnarTimeSeries>>> inFlight;
+
+    /**
+     * Number of queries answered from the cache.
+     */
+    private final AtomicLong hits;
+
+    /**
+     * Number of queries which were sent to Druid.
+     */
+    private final AtomicLong misses;
+
+    /**
+     * Number of queries which waited on an identical request in progress.
+     */
+    private final AtomicLong joined;
+
+    /**
+     * Create an empty cache.
+     */
+    protected DruidQueryCache() {
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        generations = new HashMap<>();
+        inFlight = new ConcurrentHashMap<>();
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        joined = new AtomicLong();
+    }
+
+    /**
+     * @return the shared query cache
+     */
+    public static DruidQueryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the time series of a query, from the cache if a recent
+     * result exists, otherwise from Druid. Clusters without an ID,
+     * or a disabled cache, always query Druid.
+     *
+     * @param cluster the cluster to query
+     * @param query   the query
+     * @param loader  fetches the time series from Druid
+     * @return a copy of the time series of the query
+     * @throws DruidException if the query fails
+     */
+    public List<ColumnarTimeSeries> get(DruidCluster cluster, Query query, Loader loader) throws DruidException {
+        long ttlMillis = CLISettings.DRUID_QUERY_CACHE_TTL * 1000L;
+        if (cluster.getClusterId() == null || ttlMillis <= 0 || CLISettings.DRUID_QUERY_CACHE_POINTS <= 0) {
+            return loader.load();
+        }
+        String clusterId = cluster.getClusterId().toString();
+        String key = key(cluster, query);
+        List<ColumnarTimeSeries> cached = lookup(key, System.currentTimeMillis() - ttlMillis);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return copy(cached);
+        }
+        CompletableFuture<List<ColumnarTimeSeries>> flight = new CompletableFuture<>();
+        CompletableFuture<List<ColumnarTimeSeries>> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            joined.incrementAndGet();
+            return copy(await(existing));
+        }
+        misses.incrementAndGet();
+        long generation = generation(clusterId);
+        try {
+            List<ColumnarTimeSeries> loaded = loader.load();
+            store(key, clusterId, generation, loaded);
+            flight.complete(loaded);
+            return copy(loaded);
+        } catch (DruidException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Drop the cached results of a cluster, for
+     * instance after the cluster has been updated.
+     * Requests in progress are not cached and later
+     * queries do not wait on them.
+     *
+     * @param clusterId ID of the cluster
+     */
+    public void invalidate(String clusterId) {
+        if (clusterId == null) {
+            return;
+        }
+        String prefix = clusterId + "|";
+        synchronized (entries) {
+            generations.merge(clusterId, 1L, Long::sum);
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    points -= entry.getValue().points;
+                    it.remove();
+                }
+            }
+        }
+        inFlight.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Drop all cached results.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            points = 0;
+        }
+    }
+
+    /**
+     * @return a snapshot of the cache metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+            stats.put("points", points);
+        }
+        stats.put("maxSize", CLISettings.DRUID_QUERY_CACHE_SIZE);
+        stats.put("maxPoints", CLISettings.DRUID_QUERY_CACHE_POINTS);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("joined", joined.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    /**
+     * Build the cache key of a query. Object members are sorted
+     * so that equivalent queries share a key.
+     *
+     * @param cluster the cluster to query
+     * @param query   the query
+     * @return the cache key
+     */
+    protected static String key(DruidCluster cluster, Query query) {
+        StringBuilder key = new StringBuilder();
+        key.append(cluster.getClusterId()).append('|')
+           .append(query.getStartTime()).append('|')
+           .append(query.getRunTime()).append('|')
+           .append(query.getGranularity()).append('|')
+           .append(query.getGranularityRange()).append('|');
+        appendCanonical(key, query.getQueryJsonObject());
+        return key.toString();
+    }
+
+    /**
+     * Append a JSON element with object members in name order.
+     *
+     * @param out     the builder to append to
+     * @param element the element to write
+     */
+    private static void appendCanonical(StringBuilder out, JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.append("null");
+        } else if (element.isJsonObject()) {
+            Map<String, JsonElement> members = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> member : ((JsonObject) element).entrySet()) {
+                members.put(member.getKey(), member.getValue());
+            }
+            out.append('{');
+            String separator = "";
+            for (Map.Entry<String, JsonElement> member : members.entrySet()) {
+                out.append(separator).append('"').append(member.getKey()).append("\":");
+                appendCanonical(out, member.getValue());
+                separator = ",";
+            }
+            out.append('}');
+        } else if (element.isJsonArray()) {
+            out.append('[');
+            String separator = "";
+            for (JsonElement item : (JsonArray) element) {
+                out.append(separator);
+                appendCanonical(out, item);
+                separator = ",";
+            }
+            out.append(']');
+        } else {
+            out.append(element.toString());
+        }
+    }
+
+    /**
+     * @param key         the cache key
+     * @param loadedAfter oldest acceptable load time
+     * @return the cached series, or null if absent or expired
+     */
+    private List<ColumnarTimeSeries> lookup(String key, long loadedAfter) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.loadedAt < loadedAfter) {
+                entries.remove(key);
+                points -= entry.points;
+                return null;
+            }
+            return entry.series;
+        }
+    }
+
+    /**
+     * @param clusterId ID of the cluster
+     * @return the number of times the results of the cluster were invalidated
+     */
+    private long generation(String clusterId) {
+        synchronized (entries) {
+            return generations.getOrDefault(clusterId, 0L);
+        }
+    }
+
+    /**
+     * Cache a result, evicting the least recently used entries
+     * while the cache is full. Results larger than the cache, or
+     * loaded before the cluster was invalidated, are not cached.
+     *
+     * @param key        the cache key
+     * @param clusterId  ID of the queried cluster
+     * @param generation generation of the cluster when the query was sent
+     * @param series     the series to cache
+     */
+    private void store(String key, String clusterId, long generation, List<ColumnarTimeSeries> series) {
+        Entry entry = new Entry(series, System.currentTimeMillis());
+        if (entry.points > CLISettings.DRUID_QUERY_CACHE_POINTS) {
+            return;
+        }
+        synchronized (entries) {
+            if (generations.getOrDefault(clusterId, 0L) != generation) {
+                return;
+            }
+            Entry previous = entries.put(key, entry);
+            points += entry.points - (previous == null ? 0 : previous.points);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (eldest.hasNext() && (points > CLISettings.DRUID_QUERY_CACHE_POINTS
+                || (CLISettings.DRUID_QUERY_CACHE_SIZE > 0 && entries.size() > CLISettings.DRUID_QUERY_CACHE_SIZE))) {
+                points -= eldest.next().points;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Wait for an identical request in progress.
+     *
+     * @param flight the request in progress
+     * @return the series it loaded
+     * @throws DruidException if the request failed or the wait was interrupted
+     */
+    private static List<ColumnarTimeSeries> await(CompletableFuture<List<ColumnarTimeSeries>> flight) throws DruidException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DruidException("Interrupted while waiting for Druid query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DruidException) {
+                throw (DruidException) cause;
+            }
+            throw new DruidException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Get views of time series, which callers can modify freely since
+     * views copy their points before they are modified. Each view gets
+     * new metadata with a new ID, since the ID of a series becomes the
+     * ID of its anomaly report and must not be shared between jobs.
+     *
+     * @param series the series to copy
+     * @return views of the series
+     */
+    private static List<ColumnarTimeSeries> copy(List<ColumnarTimeSeries> series) {
+        List<ColumnarTimeSeries> copies = new ArrayList<>(series.size());
+        for (ColumnarTimeSeries source : series) {
+            copies.add(source.view(copyMeta(source.getMeta()), 0, source.size()));
+        }
+        return copies;
+    }
+
+    /**
+     * @param source the metadata to copy
+     * @return a copy of the metadata, with a new ID
+     */
+    private static MetricMeta copyMeta(MetricMeta source) {
+        MetricMeta copy = new MetricMeta();
+        copy.id = UUID.randomUUID().toString();
+        copy.name = source.name;
+        copy.source = source.source;
+        copy.fileName = source.fileName;
+        return copy;
+    }
+
+    /**
+     * Cached time series, held in columns, and the time they were loaded.
+     */
+    private static class Entry {
+        private final List<ColumnarTimeSeries> series;
+        private final long loadedAt;
+        private final long points;
+
+        /**
+         * @param series   the series
+         * @param loadedAt load time in milliseconds
+         */
+        Entry(List<ColumnarTimeSeries> series, long loadedAt) {
+            this.series = series;
+            this.loadedAt = loadedAt;
+            this.points = series.stream().mapToLong(ColumnarTimeSeries::size).sum();
+        }
+    }
+
+}
@@ -13,7 +13,9 @@ import com.yahoo.egads.data.Anomaly;
 import com.yahoo.egads.data.TimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.EgadsResult;
+import com.yahoo.sherlock.model.SeriesModelState;
 import com.yahoo.sherlock.query.EgadsConfig;
 import com.yahoo.sherlock.settings.Constants;
 import com.yahoo.sherlock.utils.EgadsUtils;
@@ -21,6 +23,7 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -30,6 +33,12 @@ import java.util.List;
 @Data
 public class EgadsService {
 
+    /**
+     * Name of the model which scores points incrementally, reported
+     * with the name of the time series model which made the forecast.
+     */
+    public static final String INCREMENTAL_MODEL = "IncrementalResidualModel";
+
     /**
      * To store the egads config.
      */
@@ -85,10 +94,10 @@ public class EgadsService {
      * @throws SherlockException exception in egads API
      */
     @SuppressWarnings("unchecked")
-    public List<Anomaly> runEGADS(TimeSeries timeseries, Double sigmaThreshold) throws SherlockException {
+    public List<Anomaly> runEGADS(ColumnarTimeSeries timeseries, Double sigmaThreshold) throws SherlockException {
         // list to store anomalies
         List<Anomaly> anomalies;
-        log.debug("Call to egads API for sigma [{}] and timeseries [{}]", sigmaThreshold, timeseries.meta.id);
+        log.debug("Call to egads API for sigma [{}] and timeseries [{}]", sigmaThreshold, timeseries.getMeta().id);
         try {
             // detect anomalies
             anomalies = detectAnomalies(timeseries);
@@ -152,7 +161,7 @@ public class EgadsService {
      * @throws SherlockException exception
      */
     @SuppressWarnings("unchecked")
-    protected List<Anomaly> detectAnomalies(TimeSeries timeseries) throws SherlockException {
+    protected List<Anomaly> detectAnomalies(ColumnarTimeSeries timeseries) throws SherlockException {
         List<Anomaly> anomalies = new ArrayList<>();
         try {
             ProcessableObject processableObject = getEgadsProcessableObject(timeseries);
@@ -165,6 +174,141 @@ public class EgadsService {
         return anomalies;
     }
 
+    /**
+     * Run EGADS on a time series as {@link #runEGADS(ColumnarTimeSeries, Double)}
+     * does, and train a model state for incremental detection. The state
+     * records the residuals of the model forecast over the time series
+     * and the forecast of the given number of points after it.
+     *
+     * @param timeseries input timeseries
+     * @param state      model state to train
+     * @param horizon    number of points after the time series to forecast
+     * @return list of detected anomalies
+     * @throws SherlockException exception in egads API
+     */
+    @SuppressWarnings("unchecked")
+    public List<Anomaly> runEGADSAndTrain(ColumnarTimeSeries timeseries, SeriesModelState state, int horizon) throws SherlockException {
+        List<Anomaly> anomalies = new ArrayList<>();
+        try {
+            ProcessableObject processableObject = getEgadsProcessableObject(timeseries);
+            processableObject.process();
+            anomalies.addAll((ArrayList<Anomaly>) processableObject.result());
+            ModelAdapter modelAdapter = EgadsUtils.getModelAdapter(processableObject);
+            if (modelAdapter != null && timeseries.size() > 1) {
+                long period = timeseries.mostFrequentPeriod();
+                long lastTime = timeseries.time(timeseries.size() - 1);
+                List<TimeSeries.DataSequence> forecast = modelAdapter.forecast(timeseries.time(0), lastTime + horizon * period);
+                if (!forecast.isEmpty()) {
+                    trainState(timeseries, forecast.get(0), period, horizon, state);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Exception from EGADS!", e);
+            throw new SherlockException(e.getMessage());
+        }
+        return anomalies;
+    }
+
+    /**
+     * Fill a model state from the forecast of a time series.
+     *
+     * @param timeseries the training time series
+     * @param forecast   the forecast over the time series and the points after it
+     * @param period     time in seconds between points
+     * @param horizon    number of points after the time series which were forecast
+     * @param state      model state to fill
+     */
+    protected static void trainState(
+            ColumnarTimeSeries timeseries,
+            TimeSeries.DataSequence forecast,
+            long period,
+            int horizon,
+            SeriesModelState state
+    ) {
+        long lastTime = timeseries.time(timeseries.size() - 1);
+        float[] future = new float[horizon];
+        Arrays.fill(future, Float.NaN);
+        int i = 0;
+        for (TimeSeries.Entry expected : forecast) {
+            if (expected.time > lastTime) {
+                long index = (expected.time - lastTime) / period - 1;
+                if ((expected.time - lastTime) % period == 0 && index < horizon) {
+                    future[(int) index] = expected.value;
+                }
+                continue;
+            }
+            while (i < timeseries.size() && timeseries.time(i) < expected.time) {
+                i++;
+            }
+            if (i < timeseries.size() && timeseries.time(i) == expected.time && !Float.isNaN(expected.value)) {
+                state.addResidual(timeseries.value(i) - expected.value);
+            }
+        }
+        state.setLastTime(lastTime);
+        state.setPeriod(period);
+        state.setForecastStart(lastTime + period);
+        state.setForecast(future);
+    }
+
+    /**
+     * @return the model name reported for anomalies scored incrementally,
+     * such as {@code IncrementalResidualModel(OlympicModel)}
+     */
+    public String getIncrementalModelName() {
+        return String.format("%s(%s)", INCREMENTAL_MODEL, p.getTsModel());
+    }
+
+    /**
+     * Score the points of a time series which are newer than the last point
+     * of a model state. A point is anomalous if its residual from the model
+     * forecast differs from the mean residual by more than the sigma threshold
+     * times the residual deviation. The state is updated with the points.
+     * The configured anomaly detection model is not run, so the anomaly
+     * is labelled with {@link #getIncrementalModelName()}.
+     *
+     * @param timeseries     time series ending with the new points
+     * @param state          model state of the time series
+     * @param sigmaThreshold threshold for standard deviation
+     * @return the anomaly of the time series, or null if a new point
+     * is not covered by the forecast of the state
+     */
+    public Anomaly scoreIncrementally(ColumnarTimeSeries timeseries, SeriesModelState state, Double sigmaThreshold) {
+        Anomaly anomaly = new Anomaly();
+        anomaly.id = timeseries.getMeta().id;
+        anomaly.metricMetaData = timeseries.getMeta();
+        anomaly.modelName = getIncrementalModelName();
+        anomaly.intervals = new Anomaly.IntervalSequence();
+        double deviation = state.getResidualDeviation();
+        for (int i = 0; i < timeseries.size(); i++) {
+            long time = timeseries.time(i);
+            float value = timeseries.value(i);
+            if (time <= state.getLastTime()) {
+                continue;
+            }
+            Float expected = state.expectedAt(time);
+            if (expected == null) {
+                return null;
+            }
+            double residual = value - expected;
+            if (deviation > 0 && Math.abs(residual - state.getResidualMean()) > sigmaThreshold * deviation) {
+                Anomaly.Interval interval = new Anomaly.Interval();
+                interval.startTime = time;
+                interval.utc = time;
+                interval.actualVal = value;
+                interval.expectedVal = expected;
+                interval.isAnomaly = true;
+                anomaly.intervals.add(interval);
+                state.setConsecutiveAnomalies(state.getConsecutiveAnomalies() + 1);
+            } else {
+                state.setConsecutiveAnomalies(0);
+            }
+            state.addResidual(residual);
+            state.setLastTime(time);
+        }
+        state.setRunsSinceTraining(state.getRunsSinceTraining() + 1);
+        return anomaly;
+    }
+
     /**
      * Run an anomaly detection job, returning the list of
      * anomalies and the forecasted sequence through
@@ -175,7 +319,7 @@ public class EgadsService {
      * @throws SherlockException if an error occurs during detection
      */
     @SuppressWarnings("unchecked")
-    public EgadsResult detectAnomaliesResult(TimeSeries timeseries) throws SherlockException {
+    public EgadsResult detectAnomaliesResult(ColumnarTimeSeries timeseries) throws SherlockException {
         try {
             // For now, instant query will show all anomalies on the graph
             p.setMaxAnomalyTimeAgo("99999999");
@@ -183,8 +327,10 @@ public class EgadsService {
             processableObject.process();
             List<Anomaly> anomalies = (List<Anomaly>) processableObject.result();
             ModelAdapter modelAdapter = EgadsUtils.getModelAdapter(processableObject);
-            List<TimeSeries.DataSequence> expected = EgadsUtils.getModelForecast(timeseries, modelAdapter);
-            return new EgadsResult(anomalies, timeseries, expected.get(0));
+            // The result plots the series as it was queried, before filling
+            TimeSeries queried = timeseries.toTimeSeries();
+            List<TimeSeries.DataSequence> expected = EgadsUtils.getModelForecast(queried, modelAdapter);
+            return new EgadsResult(anomalies, queried, expected.get(0));
         } catch (Exception e) {
             log.error("Error in EGADS!", e);
             throw new SherlockException(e.getMessage(), e);
@@ -192,13 +338,14 @@ public class EgadsService {
     }
 
     /**
-     * Mehtod to get processable object from egads.
+     * Mehtod to get processable object from egads. The time series
+     * is filled in its columns and converted to an EGADS time series once.
      *
      * @param timeseries input timeseries
      * @return ProcessableObject instance
      */
-    protected ProcessableObject getEgadsProcessableObject(TimeSeries timeseries) {
-        return ProcessableObjectFactory.create(EgadsUtils.fillMissingData(timeseries, p), p.asProperties());
+    protected ProcessableObject getEgadsProcessableObject(ColumnarTimeSeries timeseries) {
+        return ProcessableObjectFactory.create(EgadsUtils.fillMissingData(timeseries, p).toTimeSeries(), p.asSharedProperties());
     }
 
     /**
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep-alive HTTP connections to a single Druid cluster. All clients
+ * handed out by the pool share one {@code PoolingHttpClientConnectionManager},
+ * so requests to the broker reuse open connections instead of paying TCP
+ * and TLS setup every time. Idle and expired connections are evicted in the
+ * background, and gzip responses are decoded transparently.
+ */
+@Slf4j
+public class HttpClientPool {
+
+    /**
+     * Name of the pool, used in metrics.
+     */
+    private final String name;
+    /**
+     * Connection manager shared by the clients.
+     */
+    private final PoolingHttpClientConnectionManager manager;
+    /**
+     * Longest time a connection may be kept alive.
+     */
+    private final long keepAliveMillis;
+    /**
+     * Time after which an idle connection is closed.
+     */
+    private final long idleTimeoutMillis;
+    /**
+     * Clients over the shared manager, keyed on their timeout and retries.
+     */
+    private final Map<String, CloseableHttpClient> clients;
+
+    /**
+     * Create a connection pool.
+     *
+     * @param name              name of the pool
+     * @param maxPerRoute       maximum connections to one host
+     * @param maxTotal          maximum connections in the pool
+     * @param keepAliveMillis   longest time a connection is kept alive
+     * @param idleTimeoutMillis time after which idle connections are closed
+     */
+    public HttpClientPool(String name, int maxPerRoute, int maxTotal, long keepAliveMillis, long idleTimeoutMillis) {
+        this.name = name;
+        this.keepAliveMillis = keepAliveMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.manager = new PoolingHttpClientConnectionManager();
+        this.manager.setDefaultMaxPerRoute(Math.max(1, maxPerRoute));
+        this.manager.setMaxTotal(Math.max(maxPerRoute, maxTotal));
+        this.manager.setValidateAfterInactivity(1000);
+        this.clients = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get a client which uses the pooled connections.
+     *
+     * @param timeout the connection timeout
+     * @param retries the number of times the client should reattempt connections
+     * @return a pooled HTTP client
+     */
+    public CloseableHttpClient getClient(int timeout, int retries) {
+        return clients.computeIfAbsent(timeout + ":" + retries, key -> newClient(timeout, retries));
+    }
+
+    /**
+     * @param timeout the connection timeout
+     * @param retries the number of retries
+     * @return a new client over the shared connection manager
+     */
+    private CloseableHttpClient newClient(int timeout, int retries) {
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .build();
+        DefaultConnectionKeepAliveStrategy serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE;
+        return HttpClientBuilder.create()
+                .setConnectionManager(manager)
+                .setConnectionManagerShared(true)
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = serverKeepAlive.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(retries, false))
+                .setDefaultRequestConfig(config)
+                .build();
+    }
+
+    /**
+     * @return a snapshot of the pool metrics
+     */
+    public Map<String, Object> getStats() {
+        PoolStats total = manager.getTotalStats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("maxTotal", total.getMax());
+        stats.put("maxPerRoute", manager.getDefaultMaxPerRoute());
+        stats.put("leased", total.getLeased());
+        stats.put("available", total.getAvailable());
+        stats.put("pending", total.getPending());
+        stats.put("routes", manager.getRoutes().size());
+        return stats;
+    }
+
+    /**
+     * Close the clients and every pooled connection.
+     */
+    public void close() {
+        for (CloseableHttpClient client : clients.values()) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("Error while closing HTTP client of pool [{}]", name, e);
+            }
+        }
+        clients.clear();
+        manager.shutdown();
+    }
+
+}
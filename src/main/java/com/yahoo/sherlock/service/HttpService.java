@@ -12,6 +12,7 @@ import com.google.gson.JsonObject;
 import com.yahoo.sherlock.exception.DruidException;
 import com.yahoo.sherlock.exception.SherlockException;
 import com.yahoo.sherlock.model.DruidCluster;
+import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.settings.DruidConstants;
 
 import lombok.extern.slf4j.Slf4j;
@@ -19,17 +20,21 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service class for http rest calls.
@@ -38,31 +43,92 @@ import java.io.InputStreamReader;
 public class HttpService {
 
     /**
-     * Method to get new HttpClient.
+     * Keep-alive connection pools shared by all instances, one per
+     * Druid cluster and one for the other endpoints.
+     */
+    private static final Map<String, HttpClientPool> CLUSTER_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * Key of the connection pool for endpoints other than Druid clusters.
+     */
+    private static final String ENDPOINT_POOL = "endpoints";
+
+    /**
+     * @param clusterId ID of a Druid cluster, or null for an unsaved cluster
+     * @return the key of the cluster's connection pool
+     */
+    private static String poolKey(Object clusterId) {
+        return clusterId == null ? "druid-unsaved" : "druid-" + clusterId;
+    }
+
+    /**
+     * Get an HTTP client which reuses the keep-alive
+     * connections of the cluster's shared pool.
+     *
+     * @param cluster the Druid cluster to connect to
+     * @param timeout the connection timeout
+     * @param retries the number of times the client should reattempt connections
+     * @return HttpClient object
+     */
+    protected HttpClient newHttpClient(DruidCluster cluster, int timeout, int retries) {
+        return pooledClient(poolKey(cluster.getClusterId()), timeout, retries);
+    }
+
+    /**
+     * Get an HTTP client which reuses the keep-alive connections
+     * of the shared pool for endpoints other than Druid clusters.
      *
      * @param timeout the connection timeout
      * @param retries the number of times the client should reattempt connections
      * @return HttpClient object
      */
-    protected HttpClient newHttpClient(int timeout, int retries) {
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(timeout)
-                .setSocketTimeout(timeout)
-                .setConnectionRequestTimeout(timeout)
-                .build();
-        return HttpClientBuilder.create()
-                .setRetryHandler(new DefaultHttpRequestRetryHandler(retries, false))
-                .setDefaultRequestConfig(config)
-                .build();
+    protected HttpClient newEndpointClient(int timeout, int retries) {
+        return pooledClient(ENDPOINT_POOL, timeout, retries);
+    }
+
+    /**
+     * @param poolKey the key of the connection pool
+     * @param timeout the connection timeout
+     * @param retries the number of times the client should reattempt connections
+     * @return a client over the pool, which is created if needed
+     */
+    private static HttpClient pooledClient(String poolKey, int timeout, int retries) {
+        HttpClientPool pool = CLUSTER_POOLS.computeIfAbsent(
+                poolKey,
+                key -> new HttpClientPool(
+                        key,
+                        CLISettings.DRUID_MAX_CONNECTIONS,
+                        CLISettings.DRUID_MAX_CONNECTIONS * 2,
+                        CLISettings.DRUID_KEEP_ALIVE,
+                        CLISettings.DRUID_IDLE_TIMEOUT
+                )
+        );
+        return pool.getClient(timeout, retries);
     }
 
     /**
-     * Get a new {@code HttpClient} with a 20-second timeout.
+     * Close the connection pool of a Druid cluster, for instance
+     * when the cluster is deleted. A new pool is created on the
+     * next request to the cluster.
      *
-     * @return HttpClient
+     * @param clusterId ID of the Druid cluster
      */
-    protected HttpClient newHttpClient() {
-        return newHttpClient(20000, 3);
+    public static void closeClusterPool(String clusterId) {
+        HttpClientPool pool = CLUSTER_POOLS.remove(poolKey(clusterId));
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * @return the metrics of each Druid connection pool
+     */
+    public static List<Map<String, Object>> getClusterPoolStats() {
+        List<Map<String, Object>> stats = new ArrayList<>(CLUSTER_POOLS.size());
+        for (HttpClientPool pool : CLUSTER_POOLS.values()) {
+            stats.add(pool.getStats());
+        }
+        return stats;
     }
 
     /**
@@ -85,6 +151,21 @@ public class HttpService {
         return new HttpGet(url);
     }
 
+    /**
+     * Reads a Druid response body.
+     *
+     * @param <T> type of the value read from the response
+     */
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        /**
+         * @param reader reader over the response body
+         * @return the value read from the response
+         * @throws Exception if the response cannot be read
+         */
+        T read(Reader reader) throws Exception;
+    }
+
     /**
      * Service method to call druid.
      *
@@ -94,9 +175,40 @@ public class HttpService {
      * @throws DruidException http request exception while querying druid
      */
     public JsonArray queryDruid(DruidCluster cluster, JsonObject druidQuery) throws DruidException {
+        JsonArray jsonArray = executeQuery(cluster, druidQuery, reader -> new Gson().fromJson(reader, JsonArray.class));
+        log.info("Parsed druid response to json array.");
+        return jsonArray;
+    }
+
+    /**
+     * Service method to call druid and read the response as it
+     * arrives, without first parsing it into a JSON tree.
+     *
+     * @param cluster        the Druid cluster to issue the query
+     * @param druidQuery     druid query json object
+     * @param responseReader reads the response body
+     * @param <T>            type of the value read from the response
+     * @return the value read from the response
+     * @throws DruidException http request exception while querying druid
+     */
+    public <T> T queryDruid(DruidCluster cluster, JsonObject druidQuery, ResponseReader<T> responseReader) throws DruidException {
+        return executeQuery(cluster, druidQuery, responseReader);
+    }
+
+    /**
+     * Post a query to the broker and read the response.
+     *
+     * @param cluster        the Druid cluster to issue the query
+     * @param druidQuery     druid query json object
+     * @param responseReader reads the response body
+     * @param <T>            type of the value read from the response
+     * @return the value read from the response
+     * @throws DruidException http request exception while querying druid
+     */
+    private <T> T executeQuery(DruidCluster cluster, JsonObject druidQuery, ResponseReader<T> responseReader) throws DruidException {
         log.info("Calling druid broker.");
         String url = cluster.getBrokerUrl();
-        HttpClient client = newHttpClient();
+        HttpClient client = newHttpClient(cluster, 20000, 3);
         HttpPost httpPost = newHttpPost(url);
         try {
             HttpEntity httpEntity = new StringEntity(druidQuery.toString(), ContentType.APPLICATION_JSON);
@@ -110,11 +222,10 @@ public class HttpService {
             }
             // Read the response body.
             InputStream inputStream = response.getEntity().getContent();
-            Gson gson = new Gson();
-            // get the response as json array
-            JsonArray jsonArray = gson.fromJson(new InputStreamReader(inputStream), JsonArray.class);
-            log.info("Parsed druid response to json array.");
-            return jsonArray;
+            T result = responseReader.read(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            // Read to the end so the connection goes back to the pool
+            EntityUtils.consume(response.getEntity());
+            return result;
         } catch (Exception e) {
             log.error("Error while sending druid query!", e);
             throw new DruidException(e.getMessage(), e);
@@ -135,7 +246,7 @@ public class HttpService {
     public JsonArray queryDruidDatasources(DruidCluster cluster) throws DruidException {
         log.info("Calling Druid broker for datasource list.");
         String url = cluster.getBrokerUrl() + DruidConstants.DATASOURCES;
-        HttpClient client = newHttpClient(2000, 2);
+        HttpClient client = newHttpClient(cluster, 2000, 2);
         HttpGet httpGet = newHttpGet(url);
         try {
             HttpResponse response = client.execute(httpGet);
@@ -147,6 +258,7 @@ public class HttpService {
             // Read response body for datasources
             InputStream inputStream = response.getEntity().getContent();
             JsonArray responseArr = new Gson().fromJson(new InputStreamReader(inputStream), JsonArray.class);
+            EntityUtils.consume(response.getEntity());
             log.info("Parsed response from Druid and found {} datasources", responseArr.size());
             return responseArr;
         } catch (Exception e) {
@@ -168,9 +280,10 @@ public class HttpService {
         log.info("Calling Druid broker for status.");
         String url = cluster.getBaseUrl() + DruidConstants.STATUS;
         HttpGet httpGet = newHttpGet(url);
-        HttpClient client = newHttpClient(3000, 0);
+        HttpClient client = newHttpClient(cluster, 3000, 0);
         try {
             HttpResponse response = client.execute(httpGet);
+            EntityUtils.consume(response.getEntity());
             return response.getStatusLine().getStatusCode();
         } catch (IOException e) {
             throw new DruidException(e.getMessage(), e);
@@ -209,7 +322,7 @@ public class HttpService {
      * @throws SherlockException
      */
     public JsonObject getJson(String url) throws SherlockException {
-        HttpClient client = newHttpClient();
+        HttpClient client = newEndpointClient(20000, 3);
         HttpGet httpGet = newHttpGet(url);
         try {
             // Execute query to Druid
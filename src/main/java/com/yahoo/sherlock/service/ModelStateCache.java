@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.yahoo.sherlock.model.SeriesModelState;
+import com.yahoo.sherlock.settings.CLISettings;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Model state of the time series of each job, kept between scheduled
+ * runs for incremental detection. A job state is only used by runs
+ * with the same model configuration as the run which trained it.
+ * States are held in memory, so that the first run of each job after
+ * a restart trains its models on the full window. At most
+ * {@code --model-state-cache-size} jobs are kept, dropping the
+ * least recently used.
+ */
+public class ModelStateCache {
+
+    /**
+     * The singleton instance of this class.
+     */
+    private static final ModelStateCache INSTANCE = new ModelStateCache();
+
+    /**
+     * State of each job in access order, keyed on the
+     * job ID and guarded by the map itself.
+     */
+    private final LinkedHashMap<Integer, JobState> jobs;
+
+    /**
+     * Number of job states dropped to make room for others.
+     */
+    private final AtomicLong evictions;
+
+    /**
+     * Create an empty cache.
+     */
+    protected ModelStateCache() {
+        jobs = new LinkedHashMap<>(16, 0.75f, true);
+        evictions = new AtomicLong();
+    }
+
+    /**
+     * @return the shared model state cache
+     */
+    public static ModelStateCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param jobId ID of the job
+     * @return the state of the job, or null if it has none
+     */
+    public JobState get(Integer jobId) {
+        if (jobId == null) {
+            return null;
+        }
+        synchronized (jobs) {
+            return jobs.get(jobId);
+        }
+    }
+
+    /**
+     * Cache the state of a job, dropping the least recently
+     * used states while the cache is full.
+     *
+     * @param jobId ID of the job
+     * @param state the state of the job
+     */
+    public void put(Integer jobId, JobState state) {
+        if (jobId == null) {
+            return;
+        }
+        synchronized (jobs) {
+            jobs.put(jobId, state);
+            Iterator<Integer> eldest = jobs.keySet().iterator();
+            while (jobs.size() > CLISettings.MODEL_STATE_CACHE_SIZE && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drop the state of a job, so that its next run retrains.
+     *
+     * @param jobId ID of the job
+     */
+    public void invalidate(Integer jobId) {
+        if (jobId == null) {
+            return;
+        }
+        synchronized (jobs) {
+            jobs.remove(jobId);
+        }
+    }
+
+    /**
+     * Drop all job states.
+     */
+    public void clear() {
+        synchronized (jobs) {
+            jobs.clear();
+        }
+    }
+
+    /**
+     * @return a snapshot of the cache metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (jobs) {
+            stats.put("jobs", jobs.size());
+            stats.put("series", jobs.values().stream().mapToInt(job -> job.getSeries().size()).sum());
+        }
+        stats.put("maxJobs", CLISettings.MODEL_STATE_CACHE_SIZE);
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    /**
+     * Model states of the time series of one job.
+     */
+    public static class JobState {
+
+        private final String signature;
+        private final Map<String, SeriesModelState> series;
+        private volatile int lastEnd;
+
+        /**
+         * @param signature model configuration of the job
+         * @param lastEnd   time in minutes of the last point scored
+         */
+        public JobState(String signature, int lastEnd) {
+            this.signature = signature;
+            this.lastEnd = lastEnd;
+            this.series = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * @return the model configuration with which the states were trained
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * @return time in minutes of the last point scored
+         */
+        public int getLastEnd() {
+            return lastEnd;
+        }
+
+        /**
+         * @param lastEnd time in minutes of the last point scored
+         */
+        public void setLastEnd(int lastEnd) {
+            this.lastEnd = lastEnd;
+        }
+
+        /**
+         * @return the model state of each time series, keyed on its unique name
+         */
+        public Map<String, SeriesModelState> getSeries() {
+            return series;
+        }
+
+        /**
+         * Check whether the models of the job should be retrained,
+         * because they have been used for the given number of runs
+         * or a time series has drifted from its model.
+         *
+         * @param retrainRuns number of runs after which to retrain
+         * @param driftPoints number of consecutive anomalous points after which to retrain
+         * @return whether the job should be retrained
+         */
+        public boolean needsTraining(int retrainRuns, int driftPoints) {
+            for (SeriesModelState state : series.values()) {
+                if (state.getRunsSinceTraining() >= retrainRuns || state.getConsecutiveAnomalies() >= driftPoints) {
+                    return true;
+                }
+            }
+            return series.isEmpty();
+        }
+    }
+
+}
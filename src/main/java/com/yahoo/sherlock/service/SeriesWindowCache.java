@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.yahoo.egads.data.MetricMeta;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
+import com.yahoo.sherlock.settings.CLISettings;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolling windows of the time series fetched from Druid for each
+ * scheduled job. A run of a job whose window is cached only queries
+ * the intervals since the end of the window, appends them, and drops
+ * the points which fell out of the front of the window. Windows are
+ * held in memory, so that the first run of each job after a restart
+ * queries its full window. The windows hold at most
+ * {@code --druid-window-cache-points} points, dropping the least
+ * recently used windows.
+ */
+public class SeriesWindowCache {
+
+    /**
+     * The singleton instance of this class.
+     */
+    private static final SeriesWindowCache INSTANCE = new SeriesWindowCache();
+
+    /**
+     * Window of each job in access order, keyed on the
+     * job ID and guarded by the map itself.
+     */
+    private final LinkedHashMap<Integer, JobWindow> jobs;
+
+    /**
+     * Number of windows dropped to stay within the point budget.
+     */
+    private final AtomicLong evictions;
+
+    /**
+     * Create an empty cache.
+     */
+    protected SeriesWindowCache() {
+        jobs = new LinkedHashMap<>(16, 0.75f, true);
+        evictions = new AtomicLong();
+    }
+
+    /**
+     * @return the shared series window cache
+     */
+    public static SeriesWindowCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param jobId ID of the job
+     * @return the window of the job, or null if it has none
+     */
+    public JobWindow get(Integer jobId) {
+        if (jobId == null) {
+            return null;
+        }
+        synchronized (jobs) {
+            return jobs.get(jobId);
+        }
+    }
+
+    /**
+     * Cache the window of a job, dropping the least recently used
+     * windows while the windows hold more points than the budget.
+     * A window is put again after it has grown so that the budget
+     * is enforced.
+     *
+     * @param jobId  ID of the job
+     * @param window the window of the job
+     */
+    public void put(Integer jobId, JobWindow window) {
+        if (jobId == null) {
+            return;
+        }
+        synchronized (jobs) {
+            jobs.put(jobId, window);
+            long points = 0;
+            for (JobWindow cached : jobs.values()) {
+                points += cached.getPointCount();
+            }
+            Iterator<JobWindow> eldest = jobs.values().iterator();
+            while (points > CLISettings.DRUID_WINDOW_CACHE_POINTS && eldest.hasNext()) {
+                points -= eldest.next().getPointCount();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drop the window of a job, so that its next run queries in full.
+     *
+     * @param jobId ID of the job
+     */
+    public void invalidate(Integer jobId) {
+        if (jobId == null) {
+            return;
+        }
+        synchronized (jobs) {
+            jobs.remove(jobId);
+        }
+    }
+
+    /**
+     * Drop all job windows.
+     */
+    public void clear() {
+        synchronized (jobs) {
+            jobs.clear();
+        }
+    }
+
+    /**
+     * @return a snapshot of the cache metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (jobs) {
+            stats.put("jobs", jobs.size());
+            stats.put("points", jobs.values().stream().mapToLong(JobWindow::getPointCount).sum());
+        }
+        stats.put("maxPoints", CLISettings.DRUID_WINDOW_CACHE_POINTS);
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    /**
+     * The time series of one job over its query window.
+     */
+    public static class JobWindow {
+
+        private final String signature;
+        private final Map<String, ColumnarTimeSeries> series;
+        private int lastEnd;
+
+        /**
+         * Create a window holding copies of the series of a full query.
+         *
+         * @param signature query configuration of the job
+         * @param lastEnd   time in minutes of the last interval of the window
+         * @param series    time series of the window
+         */
+        public JobWindow(String signature, int lastEnd, List<ColumnarTimeSeries> series) {
+            this.signature = signature;
+            this.lastEnd = lastEnd;
+            this.series = new LinkedHashMap<>();
+            for (ColumnarTimeSeries timeSeries : series) {
+                ColumnarTimeSeries columns = timeSeries.view(timeSeries.getMeta(), 0, timeSeries.size());
+                columns.sort();
+                this.series.put(TimeSeriesParserService.getUniqueName(timeSeries), columns);
+            }
+        }
+
+        /**
+         * @return the query configuration with which the window was fetched
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * @return time in minutes of the last interval of the window
+         */
+        public synchronized int getLastEnd() {
+            return lastEnd;
+        }
+
+        /**
+         * @return the number of points held in the window
+         */
+        public synchronized long getPointCount() {
+            return series.values().stream().mapToLong(ColumnarTimeSeries::size).sum();
+        }
+
+        /**
+         * Append the series of a query covering the intervals after the
+         * window. Points at or before the end of the window are ignored.
+         *
+         * @param tail    time series of the new intervals
+         * @param tailEnd time in minutes of the last new interval
+         * @return false if a series of the tail is not in the window, in
+         * which case the window is unchanged and should be fetched in full
+         */
+        public synchronized boolean append(List<ColumnarTimeSeries> tail, int tailEnd) {
+            for (ColumnarTimeSeries timeSeries : tail) {
+                if (!series.containsKey(TimeSeriesParserService.getUniqueName(timeSeries))) {
+                    return false;
+                }
+            }
+            long after = lastEnd * 60L;
+            for (ColumnarTimeSeries timeSeries : tail) {
+                ColumnarTimeSeries columns = series.get(TimeSeriesParserService.getUniqueName(timeSeries));
+                for (int i = 0; i < timeSeries.size(); i++) {
+                    if (timeSeries.time(i) > after) {
+                        columns.append(timeSeries.time(i), timeSeries.value(i));
+                    }
+                }
+            }
+            lastEnd = Math.max(lastEnd, tailEnd);
+            return true;
+        }
+
+        /**
+         * Drop the points before the start of the window and
+         * return views of the remaining series, with new IDs
+         * as for a new query. Views copy their points before
+         * they are modified. Series with no remaining points
+         * are dropped.
+         *
+         * @param startTime time in seconds of the start of the window
+         * @return views of the time series of the window
+         */
+        public synchronized List<ColumnarTimeSeries> snapshot(long startTime) {
+            series.values().removeIf(columns -> {
+                columns.dropBefore(startTime);
+                return columns.size() == 0;
+            });
+            List<ColumnarTimeSeries> copies = new ArrayList<>(series.size());
+            for (ColumnarTimeSeries columns : series.values()) {
+                copies.add(columns.view(copyMeta(columns.getMeta()), 0, columns.size()));
+            }
+            return copies;
+        }
+
+        /**
+         * @param source the metadata to copy
+         * @return a copy of the metadata, with a new ID
+         */
+        private static MetricMeta copyMeta(MetricMeta source) {
+            MetricMeta copy = new MetricMeta();
+            copy.id = UUID.randomUUID().toString();
+            copy.name = source.name;
+            copy.source = source.source;
+            copy.fileName = source.fileName;
+            return copy;
+        }
+    }
+
+}
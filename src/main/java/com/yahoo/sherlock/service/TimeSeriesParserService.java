@@ -11,15 +11,16 @@ import com.yahoo.sherlock.query.JsonTimeSeries;
 import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.utils.EgadsUtils;
 import com.yahoo.egads.data.MetricMeta;
-import com.yahoo.egads.data.TimeSeries;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.SherlockException;
 import com.yahoo.sherlock.query.Query;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.Reader;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 import java.util.function.Predicate;
@@ -39,10 +40,10 @@ public class TimeSeriesParserService {
      * @return list of timeseries
      * @throws SherlockException exception in druid response parsing
      */
-    public List<TimeSeries> parseTimeSeries(JsonArray timeseriesJson, Query query) throws SherlockException {
+    public List<ColumnarTimeSeries> parseTimeSeries(JsonArray timeseriesJson, Query query) throws SherlockException {
         log.info("Parsing druid response.");
         // list to store parsed timeseries
-        List<TimeSeries> timeSeriesList = new ArrayList<>();
+        List<ColumnarTimeSeries> timeSeriesList = new ArrayList<>();
         // check for null jsonarray
         if (timeseriesJson == null) {
             log.error("Error in druid response.");
@@ -70,13 +71,33 @@ public class TimeSeriesParserService {
         return timeSeriesList;
     }
 
+    /**
+     * Method to generate timeseries from a druid response stream. The
+     * response is parsed as it is read, without an intermediate JSON tree.
+     *
+     * @param reader reader over the druid response
+     * @param query  associated query object
+     * @return list of timeseries
+     * @throws SherlockException exception in druid response parsing
+     */
+    public List<ColumnarTimeSeries> readTimeSeries(Reader reader, Query query) throws SherlockException {
+        log.info("Parsing druid response stream.");
+        JsonTimeSeries jsonTimeSeries = new JsonTimeSeries(query);
+        jsonTimeSeries.parse(reader);
+        return jsonTimeSeries.getUniqueTimeSeriesMap()
+            .values()
+            .stream()
+            .filter(isValidTimeSeries(query))
+            .collect(Collectors.toList());
+    }
+
     /**
      * Filter for bad timeseries.
      * @param query input Query for timeseries
      * @return true if valid timeseries else false
      */
-    public Predicate<TimeSeries> isValidTimeSeries(Query query) {
-        return timeSeries -> (timeSeries.startTime() == query.getStartTime()) && isCompleteEnough(timeSeries.size(), query);
+    public Predicate<ColumnarTimeSeries> isValidTimeSeries(Query query) {
+        return timeSeries -> timeSeries.size() > 0 && (timeSeries.time(0) == query.getStartTime()) && isCompleteEnough(timeSeries.size(), query);
     }
 
     /**
@@ -107,46 +128,90 @@ public class TimeSeriesParserService {
      * @param intervals        intervals to lookback
      * @return an array of time series lists
      */
-    public List<TimeSeries>[] subseries(List<TimeSeries> sources, long start, long end, Granularity granularity, Integer granularityRange, int intervals) {
-        long singleInterval = (long) (intervals - (intervals % granularityRange)) * granularity.getMinutes();
+    public List<ColumnarTimeSeries>[] subseries(
+        List<ColumnarTimeSeries> sources,
+        long start,
+        long end,
+        Granularity granularity,
+        Integer granularityRange,
+        int intervals
+    ) {
         int fillIntervals = (int) ((end - start) / granularity.getMinutes());
-        @SuppressWarnings("unchecked") List<TimeSeries>[] result = (List<TimeSeries>[]) new List[fillIntervals];
+        @SuppressWarnings("unchecked") List<ColumnarTimeSeries>[] result = (List<ColumnarTimeSeries>[]) new List[fillIntervals];
         if (sources.isEmpty()) {
             return result;
         }
-        // sort the datapoints
-        for (TimeSeries source : sources) {
-            source.data.sort(Comparator.comparingLong(a -> a.time));
-        }
+        return subseriesWindows(sources, start, end, granularity, granularityRange, intervals).toArray(result);
+    }
+
+    /**
+     * Partition time series into the sub series lists of each backfill
+     * period as {@link #subseries} does, lazily. The sources are sorted
+     * once, and the sub series of a period are views of their columns,
+     * found by binary search and filled when the period is read.
+     * Only the periods which are in use are held in memory.
+     *
+     * @param sources          the source time series
+     * @param start            start of backfill job window
+     * @param end              end of backfill job window
+     * @param granularity      the data granularity
+     * @param granularityRange granularity range to aggregate on
+     * @param intervals        intervals to lookback
+     * @return a list of the time series lists of each period
+     */
+    public List<List<ColumnarTimeSeries>> subseriesWindows(
+        List<ColumnarTimeSeries> sources,
+        long start,
+        long end,
+        Granularity granularity,
+        Integer granularityRange,
+        int intervals
+    ) {
+        long singleInterval = (long) (intervals - (intervals % granularityRange)) * granularity.getMinutes();
+        int fillIntervals = (int) ((end - start) / granularity.getMinutes());
         long queryWindowStart = start - singleInterval;
-        int intervalIndex = 0;
-        // collect all subtimeseries
-        for (long i = queryWindowStart ; intervalIndex < fillIntervals ; i += granularity.getMinutes()) {
-            final long localStart = i * 60;
-            final long localEnd = (i + singleInterval) * 60;
-            List<TimeSeries> subTimeseriesList;
-            subTimeseriesList = sources.stream().map(source -> {
-                    TimeSeries subTimeseries = new TimeSeries();
-                    // copy meta info
-                    subTimeseries.meta = copyMetricMeta(source.meta);
-                    // copy datapoints for sub timeseries
-                    source.data.stream()
-                        .filter(datapoint -> datapoint.time > localStart && datapoint.time <= localEnd)
-                        .forEach(datapoint -> {
-                                try {
-                                    subTimeseries.append(datapoint.time, datapoint.value);
-                                } catch (Exception e) {
-                                    log.error("Error while appending data to sub timeseries!");
-                                }
-                            });
-                    return subTimeseries;
-                })
-                .map(timeSeries ->  EgadsUtils.fillMissingData(timeSeries, granularityRange, 1))
-                .collect(Collectors.toList());
-            result[intervalIndex] = subTimeseriesList;
-            intervalIndex += 1;
+        // sort the datapoints once, leaving the sources as they are
+        List<ColumnarTimeSeries> columns = new ArrayList<>(sources.size());
+        for (ColumnarTimeSeries source : sources) {
+            ColumnarTimeSeries sourceColumns = source.view(source.getMeta(), 0, source.size());
+            sourceColumns.sort();
+            columns.add(sourceColumns);
         }
-        return result;
+        return new AbstractList<List<ColumnarTimeSeries>>() {
+            @Override
+            public List<ColumnarTimeSeries> get(int intervalIndex) {
+                if (intervalIndex < 0 || intervalIndex >= fillIntervals) {
+                    throw new IndexOutOfBoundsException("Interval " + intervalIndex + " of " + fillIntervals);
+                }
+                long localStart = (queryWindowStart + intervalIndex * (long) granularity.getMinutes()) * 60;
+                long localEnd = localStart + singleInterval * 60;
+                List<ColumnarTimeSeries> subTimeseriesList = new ArrayList<>(columns.size());
+                for (ColumnarTimeSeries source : columns) {
+                    // view the datapoints after the start up to the end, with new meta info
+                    ColumnarTimeSeries subTimeseries = source.view(
+                        copyMetricMeta(source.getMeta()), source.indexAfter(localStart), source.indexAfter(localEnd));
+                    subTimeseriesList.add(EgadsUtils.fillMissingData(subTimeseries, granularityRange, 1));
+                }
+                return subTimeseriesList;
+            }
+
+            @Override
+            public int size() {
+                return fillIntervals;
+            }
+        };
+    }
+
+    /**
+     * Get the name of a time series which is unique within the
+     * response to a query and stable across queries, from its metric
+     * and dimension values. Series IDs are new for every response.
+     *
+     * @param timeSeries the time series
+     * @return the unique name of the time series
+     */
+    public static String getUniqueName(ColumnarTimeSeries timeSeries) {
+        return timeSeries.getMeta().name + "|" + timeSeries.getMeta().source;
     }
 
     /**
@@ -137,6 +137,132 @@ public class CLISettings {
     @Parameter(names = "--execution-delay", description = "the number of seconds between each check(ping to redis) on jobs. (default 30)")
     public static int EXECUTION_DELAY = 30;
 
+    /**
+     * Number of threads which execute due jobs.
+     */
+    @Parameter(names = "--execution-threads", description = "Number of threads which execute scheduled jobs concurrently. (default 8)")
+    public static int EXECUTION_THREADS = 8;
+
+    /**
+     * Number of due jobs that may wait for an execution thread.
+     */
+    @Parameter(names = "--execution-queue-depth", description = "Number of popped jobs that may wait for an execution thread. (default 16)")
+    public static int EXECUTION_QUEUE_DEPTH = 16;
+
+    /**
+     * Maximum number of jobs executing against one Druid cluster.
+     */
+    @Parameter(names = "--execution-cluster-concurrency", description = "Maximum number of jobs executing against one Druid cluster at once, 0 for no limit. (default 4)")
+    public static int EXECUTION_CLUSTER_CONCURRENCY = 4;
+
+    /**
+     * Number of executed jobs whose state is written to the database at once.
+     */
+    @Parameter(names = "--execution-state-batch-size", description = "Number of executed jobs whose state and next run are written to the database at once. (default 100)")
+    public static int EXECUTION_STATE_BATCH_SIZE = 100;
+
+    /**
+     * Number of threads shared by all backfills.
+     */
+    @Parameter(names = "--backfill-threads", description = "Number of threads shared by backfills to run detection on each interval. (default 8)")
+    public static int BACKFILL_THREADS = 8;
+
+    /**
+     * Number of backfill intervals that may wait for a thread.
+     */
+    @Parameter(names = "--backfill-queue-depth", description = "Number of backfill intervals that may wait for a thread. (default 32)")
+    public static int BACKFILL_QUEUE_DEPTH = 32;
+
+    /**
+     * Number of anomaly reports written at once during a backfill.
+     */
+    @Parameter(names = "--backfill-report-batch-size", description = "Number of backfill anomaly reports written to the database at once. (default 500)")
+    public static int BACKFILL_REPORT_BATCH_SIZE = 500;
+
+    /**
+     * Number of time series of one query scored concurrently.
+     */
+    @Parameter(names = "--detection-parallelism", description = "Number of time series of a query on which anomaly detection is run concurrently, 0 to use the number of cores. (default 0)")
+    public static int DETECTION_PARALLELISM = 0;
+
+    /**
+     * Enable incremental detection on stored model state.
+     */
+    @Parameter(names = "--incremental-detection", description = "Score only the points which arrived since the previous run of a job against the model state stored by that run, instead of querying and retraining on the full window. Points are scored by their residual from the forecast of the time series model made at the last training, not by the anomaly detection model, and are reported as IncrementalResidualModel. (default false)")
+    public static boolean INCREMENTAL_DETECTION = false;
+
+    /**
+     * Number of incremental runs after which a job model is retrained.
+     */
+    @Parameter(names = "--model-retrain-runs", description = "Number of incremental runs of a job after which its models are retrained on the full window. (default 24)")
+    public static int MODEL_RETRAIN_RUNS = 24;
+
+    /**
+     * Number of consecutive anomalous points after which a model is retrained.
+     */
+    @Parameter(names = "--model-drift-points", description = "Number of consecutive anomalous points of a time series, scored incrementally, after which its job is retrained on the full window. (default 3)")
+    public static int MODEL_DRIFT_POINTS = 3;
+
+    /**
+     * Maximum number of jobs whose model states are cached.
+     */
+    @Parameter(names = "--model-state-cache-size", description = "Maximum number of jobs whose model states are kept for incremental detection, beyond which the least recently used are dropped. (default 1024)")
+    public static int MODEL_STATE_CACHE_SIZE = 1024;
+
+    /**
+     * Maximum number of pooled HTTP connections to a Druid broker.
+     */
+    @Parameter(names = "--druid-max-connections", description = "Maximum number of keep-alive HTTP connections to the broker of one Druid cluster. (default 20)")
+    public static int DRUID_MAX_CONNECTIONS = 20;
+
+    /**
+     * Longest time in milliseconds a Druid connection is kept alive.
+     */
+    @Parameter(names = "--druid-keep-alive", description = "Longest time in milliseconds an HTTP connection to a Druid broker is kept alive. (default 60000)")
+    public static int DRUID_KEEP_ALIVE = 60000;
+
+    /**
+     * Time in milliseconds after which an idle Druid connection is closed.
+     */
+    @Parameter(names = "--druid-idle-timeout", description = "Time in milliseconds after which an idle HTTP connection to a Druid broker is closed. (default 30000)")
+    public static int DRUID_IDLE_TIMEOUT = 30000;
+
+    /**
+     * Time in seconds for which the datasource list of a Druid cluster is cached.
+     */
+    @Parameter(names = "--druid-datasource-cache-ttl", description = "Time in seconds for which the datasources of a Druid cluster are cached, 0 to disable. (default 300)")
+    public static int DRUID_DATASOURCE_CACHE_TTL = 300;
+
+    /**
+     * Time in seconds for which the time series of a Druid query are cached.
+     */
+    @Parameter(names = "--druid-query-cache-ttl", description = "Time in seconds for which the results of a Druid query are cached, 0 to disable. (default 0)")
+    public static int DRUID_QUERY_CACHE_TTL = 0;
+
+    /**
+     * Maximum number of points held in the cached Druid query results.
+     */
+    @Parameter(names = "--druid-query-cache-points", description = "Maximum number of points held in the cached results of Druid queries, beyond which the least recently used results are dropped. (default 1000000)")
+    public static long DRUID_QUERY_CACHE_POINTS = 1000000L;
+
+    /**
+     * Maximum number of Druid query results which are cached.
+     */
+    @Parameter(names = "--druid-query-cache-size", description = "Maximum number of Druid query results to cache, 0 for no limit. (default 0)")
+    public static int DRUID_QUERY_CACHE_SIZE = 0;
+
+    /**
+     * Enable rolling windows of the time series of scheduled jobs.
+     */
+    @Parameter(names = "--druid-window-cache", description = "Keep the time series window of each scheduled job between runs and query Druid only for the intervals since the previous run. (default false)")
+    public static boolean DRUID_WINDOW_CACHE = false;
+
+    /**
+     * Maximum number of points held in the windows of scheduled jobs.
+     */
+    @Parameter(names = "--druid-window-cache-points", description = "Maximum number of points held in the time series windows of scheduled jobs, beyond which the least recently used windows are dropped. (default 10000000)")
+    public static long DRUID_WINDOW_CACHE_POINTS = 10000000L;
+
     /**
      * Comma-delimited list of valid email domains.
      */
@@ -181,6 +307,54 @@ public class CLISettings {
     @Parameter(names = "--redis-clustered", description = "Whether the Redis backend is a cluster")
     public static boolean REDIS_CLUSTERED = false;
 
+    /**
+     * Maximum number of pooled Redis connections per codec.
+     */
+    @Parameter(names = "--redis-pool-max-total", description = "Maximum number of pooled Redis connections shared by the accessors. (default 32)")
+    public static int REDIS_POOL_MAX_TOTAL = 32;
+
+    /**
+     * Maximum number of idle pooled Redis connections per codec.
+     */
+    @Parameter(names = "--redis-pool-max-idle", description = "Maximum number of idle Redis connections kept open in the pool. (default 8)")
+    public static int REDIS_POOL_MAX_IDLE = 8;
+
+    /**
+     * Time in milliseconds to wait for a pooled Redis connection.
+     */
+    @Parameter(names = "--redis-pool-borrow-timeout", description = "Time in milliseconds to wait for a free pooled Redis connection. (default 5000)")
+    public static int REDIS_POOL_BORROW_TIMEOUT = 5000;
+
+    /**
+     * Maximum number of jobs cached in memory.
+     */
+    @Parameter(names = "--job-cache-size", description = "Maximum number of jobs cached in memory in front of Redis, 0 to disable. (default 1024)")
+    public static int JOB_CACHE_SIZE = 1024;
+
+    /**
+     * Time in milliseconds between checks for job changes made by other instances.
+     */
+    @Parameter(names = "--job-cache-check-interval", description = "Time in milliseconds between checks for jobs changed by other instances sharing the Redis backend. (default 1000)")
+    public static int JOB_CACHE_CHECK_INTERVAL = 1000;
+
+    /**
+     * Maximum number of reports loaded for a job report timeline.
+     */
+    @Parameter(names = "--report-timeline-limit", description = "Maximum number of most recent anomaly reports loaded to render a job report timeline. (default 10000)")
+    public static int REPORT_TIMELINE_LIMIT = 10000;
+
+    /**
+     * Storage format of anomaly reports.
+     */
+    @Parameter(names = "--report-storage-format", description = "Storage format of anomaly reports: 'hash' writes a hash and timestamp sets per report, 'binary' writes one compact binary value per report, and 'dual' writes binary values while still reading reports stored as hashes. (default hash)")
+    public static String REPORT_STORAGE_FORMAT = "hash";
+
+    /**
+     * Index format of anomaly reports.
+     */
+    @Parameter(names = "--report-index-format", description = "Index format of anomaly reports: 'dual' writes the indices by time and frequency shared by all jobs alongside the indices of each job, and finds reports stored before the job indices existed, while 'tagged' writes and reads only the indices of each job. Switch to 'tagged' once the reports stored before the upgrade have expired. (default dual)")
+    public static String REPORT_INDEX_FORMAT = "dual";
+
     /**
      * Whether debug routes should be enabled.
      */
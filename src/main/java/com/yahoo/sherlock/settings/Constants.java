@@ -126,6 +126,16 @@ public final class Constants {
      */
     public static final String FREQUENCY_PARAM = ":frequency";
 
+    /**
+     * Constant for 'start' in request query.
+     */
+    public static final String START = "start";
+
+    /**
+     * Constant for 'end' in request query.
+     */
+    public static final String END = "end";
+
     /**
      * Constant for 'warning'.
      */
@@ -280,4 +290,59 @@ public final class Constants {
      * Constant for 'http'.
      */
     public static final String HTTP = "http";
+
+    /**
+     * Constant for 'redis'.
+     */
+    public static final String REDIS = "redis";
+
+    /**
+     * Constant for 'scheduler'.
+     */
+    public static final String SCHEDULER = "scheduler";
+
+    /**
+     * Constant for 'backfill'.
+     */
+    public static final String BACKFILL = "backfill";
+
+    /**
+     * Constant for 'druid'.
+     */
+    public static final String DRUID = "druid";
+
+    /**
+     * Constant for 'druidQueryCache'.
+     */
+    public static final String DRUID_QUERY_CACHE = "druidQueryCache";
+
+    /**
+     * Constant for 'jobCache'.
+     */
+    public static final String JOB_CACHE = "jobCache";
+
+    /**
+     * Constant for 'hash'.
+     */
+    public static final String REPORT_FORMAT_HASH = "hash";
+
+    /**
+     * Constant for 'binary'.
+     */
+    public static final String REPORT_FORMAT_BINARY = "binary";
+
+    /**
+     * Constant for 'dual'.
+     */
+    public static final String REPORT_FORMAT_DUAL = "dual";
+
+    /**
+     * Constant for 'tagged'.
+     */
+    public static final String REPORT_INDEX_TAGGED = "tagged";
+
+    /**
+     * Constant for 'scripts'.
+     */
+    public static final String SCRIPTS = "scripts";
 }
@@ -35,6 +35,26 @@ public class DatabaseConstants {
      * The name of the Redis timeout parameter.
      */
     public static final String REDIS_TIMEOUT = "redisTimeout";
+    /**
+     * The name of the Redis pool maximum connections parameter.
+     */
+    public static final String REDIS_POOL_MAX_TOTAL = "redisPoolMaxTotal";
+    /**
+     * The name of the Redis pool maximum idle connections parameter.
+     */
+    public static final String REDIS_POOL_MAX_IDLE = "redisPoolMaxIdle";
+    /**
+     * The name of the Redis pool borrow timeout parameter.
+     */
+    public static final String REDIS_POOL_BORROW_TIMEOUT = "redisPoolBorrowTimeout";
+    /**
+     * The name of the job metadata cache size parameter.
+     */
+    public static final String JOB_CACHE_SIZE = "jobCacheSize";
+    /**
+     * The name of the job metadata cache check interval parameter.
+     */
+    public static final String JOB_CACHE_CHECK_INTERVAL = "jobCacheCheckInterval";
     /**
      * The name and value of the report job ID index parameter.
      */
@@ -47,6 +67,11 @@ public class DatabaseConstants {
      * The name and value of the job frequency index.
      */
     public static final String INDEX_FREQUENCY = "frequencyIndex";
+    /**
+     * The name and value of the report timeline index, a sorted set
+     * of report IDs per job and frequency scored by report end time.
+     */
+    public static final String INDEX_REPORT_TIMELINE = "reportTimelineIndex";
     /**
      * The name and value of the deleted job ID index parameter.
      */
@@ -71,10 +96,26 @@ public class DatabaseConstants {
      * The name and value of the job status ID index parameter.
      */
     public static final String INDEX_JOB_STATUS = "jobStatusIndex";
+    /**
+     * The name of the anomaly report storage format parameter.
+     */
+    public static final String REPORT_FORMAT = "reportFormat";
+    /**
+     * The name of the anomaly report index format parameter.
+     */
+    public static final String REPORT_INDEX_FORMAT = "reportIndexFormat";
+    /**
+     * The key qualifier of anomaly reports stored as one binary value.
+     */
+    public static final String REPORT_RECORD = "record";
     /**
      * The name of the anomaly report field of anomaly timestamps.
      */
     public static final String ANOMALY_TIMESTAMP = "anomalyTimestamps";
+    /**
+     * The name of the anomaly report field of anomaly deviations.
+     */
+    public static final String DEVIATION_STRING = "deviationString";
     /**
      * The name of the job queue parameter.
      */
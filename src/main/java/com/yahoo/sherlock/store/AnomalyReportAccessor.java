@@ -44,6 +44,30 @@ public interface AnomalyReportAccessor {
     @NonNull
     List<AnomalyReport> getAnomalyReportsForJob(String jobId, String frequency) throws IOException;
 
+    /**
+     * Get a page of the anomaly reports of a job and frequency whose
+     * report end time lies in the given window, most recent first.
+     * This method should use an index ordered by report end time
+     * instead of loading every report of the job.
+     * @param jobId the job ID for which to find reports
+     * @param frequency frequency of the job
+     * @param start earliest report end time in minutes, inclusive
+     * @param end latest report end time in minutes, inclusive
+     * @param offset number of matching reports to skip
+     * @param limit maximum number of reports to return, or a negative value for all
+     * @return a list of matching reports, which may be empty
+     * @throws IOException if an error occurs
+     */
+    @NonNull
+    List<AnomalyReport> getAnomalyReportsForJobInRange(
+            String jobId,
+            String frequency,
+            int start,
+            int end,
+            int offset,
+            int limit
+    ) throws IOException;
+
     /**
      * Get a list of anomaly reports that have the specified job ID
      * and that occurred at the given time. This method should
@@ -12,7 +12,9 @@ import com.yahoo.sherlock.exception.JobNotFoundException;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -160,4 +162,12 @@ public interface JobMetadataAccessor {
      */
     void deleteJobs(Set<String> jobIds) throws IOException;
 
+    /**
+     * @return metrics of the in-process job cache, empty
+     * if this accessor does not cache jobs
+     */
+    default Map<String, Object> getCacheStats() {
+        return Collections.emptyMap();
+    }
+
 }
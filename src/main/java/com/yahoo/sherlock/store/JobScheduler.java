@@ -11,6 +11,7 @@ import com.yahoo.sherlock.exception.JobNotFoundException;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -123,6 +124,27 @@ public interface JobScheduler {
      */
     JobMetadata popQueue(long timestampMinutes) throws IOException;
 
+    /**
+     * Pop up to {@code maxJobs} jobs from the queue whose execution
+     * time is equal to or less than the provided time, in order of
+     * execution time. Like {@link #popQueue(long)}, popped jobs are
+     * added to the pending queue. This method returns an empty list
+     * only if there is no such job, so that callers may pop until then.
+     *
+     * @param timestampMinutes the current time in minutes
+     * @param maxJobs          the maximum number of jobs to pop
+     * @return the next jobs to execute
+     * @throws IOException if an error occurs while getting the next jobs
+     */
+    default List<JobMetadata> popQueue(long timestampMinutes, int maxJobs) throws IOException {
+        List<JobMetadata> jobs = new ArrayList<>(Math.max(0, maxJobs));
+        JobMetadata job;
+        while (jobs.size() < maxJobs && (job = popQueue(timestampMinutes)) != null) {
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
     /**
      * When jobs are popped from the job queue, they may be added
      * to a pending queue in case a job runner fails. This method
@@ -143,4 +165,26 @@ public interface JobScheduler {
     default void removePending(Integer jobId) throws IOException {
         removePending(jobId.toString());
     }
+
+    /**
+     * Remove a collection of completed jobs from
+     * the pending queue in one transaction.
+     *
+     * @param jobIds the ids of the jobs that have completed
+     * @throws IOException if an error removing from the queue occurs
+     */
+    void removePending(Collection<String> jobIds) throws IOException;
+
+    /**
+     * Mark jobs in the pending queue as still being handled at a time.
+     * A pending job is returned to the job queue only once it has
+     * not been popped or marked for a few minutes, so a runner marks
+     * the jobs it holds until it removes them. Jobs which are no
+     * longer in the pending queue are ignored.
+     *
+     * @param jobIds           the ids of the jobs being handled
+     * @param timestampMinutes the current time in minutes
+     * @throws IOException if an error updating the pending queue occurs
+     */
+    void touchPending(Collection<String> jobIds, long timestampMinutes) throws IOException;
 }
@@ -81,6 +81,13 @@ public class Store {
                 put(DatabaseConstants.REDIS_TIMEOUT, String.valueOf(CLISettings.REDIS_TIMEOUT));
                 put(DatabaseConstants.REDIS_PASSWORD, CLISettings.REDIS_PASSWORD);
                 put(DatabaseConstants.REDIS_CLUSTERED, CLISettings.REDIS_CLUSTERED ? "true" : null);
+                put(DatabaseConstants.REDIS_POOL_MAX_TOTAL, String.valueOf(CLISettings.REDIS_POOL_MAX_TOTAL));
+                put(DatabaseConstants.REDIS_POOL_MAX_IDLE, String.valueOf(CLISettings.REDIS_POOL_MAX_IDLE));
+                put(DatabaseConstants.REDIS_POOL_BORROW_TIMEOUT, String.valueOf(CLISettings.REDIS_POOL_BORROW_TIMEOUT));
+                put(DatabaseConstants.JOB_CACHE_SIZE, String.valueOf(CLISettings.JOB_CACHE_SIZE));
+                put(DatabaseConstants.JOB_CACHE_CHECK_INTERVAL, String.valueOf(CLISettings.JOB_CACHE_CHECK_INTERVAL));
+                put(DatabaseConstants.REPORT_FORMAT, CLISettings.REPORT_STORAGE_FORMAT);
+                put(DatabaseConstants.REPORT_INDEX_FORMAT, CLISettings.REPORT_INDEX_FORMAT);
                 put(DatabaseConstants.INDEX_REPORT_JOB_ID, DatabaseConstants.INDEX_REPORT_JOB_ID);
                 put(DatabaseConstants.INDEX_TIMESTAMP, DatabaseConstants.INDEX_TIMESTAMP);
                 put(DatabaseConstants.INDEX_DELETED_ID, DatabaseConstants.INDEX_DELETED_ID);
@@ -88,6 +95,7 @@ public class Store {
                 put(DatabaseConstants.INDEX_QUERY_ID, DatabaseConstants.INDEX_QUERY_ID);
                 put(DatabaseConstants.INDEX_JOB_ID, DatabaseConstants.INDEX_JOB_ID);
                 put(DatabaseConstants.INDEX_FREQUENCY, DatabaseConstants.INDEX_FREQUENCY);
+                put(DatabaseConstants.INDEX_REPORT_TIMELINE, DatabaseConstants.INDEX_REPORT_TIMELINE);
                 put(DatabaseConstants.INDEX_JOB_CLUSTER_ID, DatabaseConstants.INDEX_JOB_CLUSTER_ID);
                 put(DatabaseConstants.INDEX_JOB_STATUS, DatabaseConstants.INDEX_JOB_STATUS);
                 put(DatabaseConstants.QUEUE_JOB_SCHEDULE, DatabaseConstants.QUEUE_JOB_SCHEDULE);
@@ -1,5 +1,7 @@
 package com.yahoo.sherlock.store.core;
 
+import com.lambdaworks.redis.Limit;
+import com.lambdaworks.redis.Range;
 import com.lambdaworks.redis.RedisFuture;
 import com.lambdaworks.redis.ScoredValue;
 
@@ -40,6 +42,15 @@ public interface AsyncCommands<K> extends AutoCloseable {
      */
     RedisFuture<K> get(K key);
 
+    /**
+     * @param key     key to set
+     * @param seconds time to live in seconds
+     * @param value   value to set
+     * @return always 'OK'
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#setex(Object, long, Object)
+     */
+    RedisFuture<String> setex(K key, long seconds, K value);
+
     /**
      * @param key long key value to increment
      * @return value before increment
@@ -77,6 +88,21 @@ public interface AsyncCommands<K> extends AutoCloseable {
      */
     RedisFuture<Set<K>> smembers(K key);
 
+    /**
+     * @param keys set keys, which must hash to the same slot on a cluster
+     * @return members present in every set
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#sinter(Object[])
+     */
+    RedisFuture<Set<K>> sinter(K... keys);
+
+    /**
+     * @param key    set key
+     * @param member member to check
+     * @return whether the member is in the set
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#sismember(Object, Object)
+     */
+    RedisFuture<Boolean> sismember(K key, K member);
+
     /**
      * @param key hash key
      * @param h   hash map to use
@@ -100,6 +126,15 @@ public interface AsyncCommands<K> extends AutoCloseable {
      */
     RedisFuture<Long> zadd(K key, ScoredValue<K>... values);
 
+    /**
+     * @param key    sorted set key
+     * @param score  score of the member
+     * @param member member to add
+     * @return number of added elements
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#zadd(Object, double, Object)
+     */
+    RedisFuture<Long> zadd(K key, double score, K member);
+
     /**
      * @param key   sorted set key
      * @param start start index
@@ -109,6 +144,41 @@ public interface AsyncCommands<K> extends AutoCloseable {
      */
     RedisFuture<List<ScoredValue<K>>> zrangeWithScores(K key, long start, long end);
 
+    /**
+     * @param key    sorted set key
+     * @param values values to remove
+     * @return number of removed values
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#zrem(Object, Object[])
+     */
+    RedisFuture<Long> zrem(K key, K... values);
+
+    /**
+     * @param key    sorted set key
+     * @param member member to look up
+     * @return score of the member, or null if it is absent
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#zscore(Object, Object)
+     */
+    RedisFuture<Double> zscore(K key, K member);
+
+    /**
+     * @param key   sorted set key
+     * @param range score range
+     * @param limit offset and count of the values to return
+     * @param <N>   score type
+     * @return values in the range from highest to lowest score
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#zrevrangebyscore(Object, Range, Limit)
+     */
+    <N extends Number> RedisFuture<List<K>> zrevrangebyscore(K key, Range<N> range, Limit limit);
+
+    /**
+     * @param key   sorted set key
+     * @param range score range
+     * @param <N>   score type
+     * @return number of removed values
+     * @see com.lambdaworks.redis.api.async.RedisAsyncCommands#zremrangebyscore(Object, Range)
+     */
+    <N extends Number> RedisFuture<Long> zremrangebyscore(K key, Range<N> range);
+
     /**
      * @param key key name
      * @param seconds time in seconds
@@ -1,5 +1,7 @@
 package com.yahoo.sherlock.store.core;
 
+import com.lambdaworks.redis.Limit;
+import com.lambdaworks.redis.Range;
 import com.lambdaworks.redis.RedisFuture;
 import com.lambdaworks.redis.ScoredValue;
 import com.lambdaworks.redis.api.async.RedisAsyncCommands;
@@ -44,6 +46,11 @@ public class AsyncCommandsImpl<K> implements AsyncCommands<K> {
         return commands.get(key);
     }
 
+    @Override
+    public RedisFuture<String> setex(K key, long seconds, K value) {
+        return commands.setex(key, seconds, value);
+    }
+
     @Override
     public RedisFuture<Long> incr(K key) {
         return commands.incr(key);
@@ -69,6 +76,16 @@ public class AsyncCommandsImpl<K> implements AsyncCommands<K> {
         return commands.smembers(key);
     }
 
+    @Override
+    public RedisFuture<Set<K>> sinter(K... keys) {
+        return commands.sinter(keys);
+    }
+
+    @Override
+    public RedisFuture<Boolean> sismember(K key, K member) {
+        return commands.sismember(key, member);
+    }
+
     @Override
     public RedisFuture<String> hmset(K key, Map<K, K> h) {
         return commands.hmset(key, h);
@@ -84,11 +101,36 @@ public class AsyncCommandsImpl<K> implements AsyncCommands<K> {
         return commands.zadd(key, values);
     }
 
+    @Override
+    public RedisFuture<Long> zadd(K key, double score, K member) {
+        return commands.zadd(key, score, member);
+    }
+
     @Override
     public RedisFuture<List<ScoredValue<K>>> zrangeWithScores(K key, long start, long end) {
         return commands.zrangeWithScores(key, start, end);
     }
 
+    @Override
+    public RedisFuture<Long> zrem(K key, K... values) {
+        return commands.zrem(key, values);
+    }
+
+    @Override
+    public RedisFuture<Double> zscore(K key, K member) {
+        return commands.zscore(key, member);
+    }
+
+    @Override
+    public <N extends Number> RedisFuture<List<K>> zrevrangebyscore(K key, Range<N> range, Limit limit) {
+        return commands.zrevrangebyscore(key, range, limit);
+    }
+
+    @Override
+    public <N extends Number> RedisFuture<Long> zremrangebyscore(K key, Range<N> range) {
+        return commands.zremrangebyscore(key, range);
+    }
+
     @Override
     public RedisFuture<Boolean> expire(K key, long seconds) {
         return commands.expire(key, seconds);
@@ -2,8 +2,11 @@ package com.yahoo.sherlock.store.core;
 
 import com.lambdaworks.redis.codec.ByteArrayCodec;
 import com.lambdaworks.redis.codec.StringCodec;
+import com.yahoo.sherlock.exception.StoreException;
 import com.yahoo.sherlock.store.StoreParams;
 
+import java.io.IOException;
+
 /**
  * This abstract class manages a {@code ConnectionProducer} instance which
  * either creates cluster connections or regular connections.
@@ -22,16 +25,26 @@ public abstract class BaseAccessor {
 
     /**
      * @return a string connection
+     * @throws IOException if no pooled connection frees up in time
      */
-    public RedisConnection<String> connect() {
-        return producer.produce(new StringCodec());
+    public RedisConnection<String> connect() throws IOException {
+        try {
+            return producer.produce(new StringCodec());
+        } catch (StoreException e) {
+            throw new IOException(e.getMessage(), e);
+        }
     }
 
     /**
      * @return a binary connection
+     * @throws IOException if no pooled connection frees up in time
      */
-    public RedisConnection<byte[]> binary() {
-        return producer.produce(new ByteArrayCodec());
+    public RedisConnection<byte[]> binary() throws IOException {
+        try {
+            return producer.produce(new ByteArrayCodec());
+        } catch (StoreException e) {
+            throw new IOException(e.getMessage(), e);
+        }
     }
 
 }
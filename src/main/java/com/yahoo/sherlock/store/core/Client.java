@@ -9,12 +9,18 @@ import com.yahoo.sherlock.exception.StoreException;
 import com.yahoo.sherlock.settings.DatabaseConstants;
 import com.yahoo.sherlock.store.StoreParams;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * This single class manages a {@code RedisClient} and {@code RedisClusterClient}
  * instance, which are used to connect either to a standalone Redis instance or a cluster.
+ * It also owns the connection pools shared by every accessor.
  */
 public class Client {
 
@@ -30,8 +36,25 @@ public class Client {
         return client;
     }
 
+    /**
+     * Default maximum number of pooled connections per codec.
+     */
+    protected static final int DEFAULT_POOL_MAX_TOTAL = 32;
+    /**
+     * Default maximum number of idle pooled connections per codec.
+     */
+    protected static final int DEFAULT_POOL_MAX_IDLE = 8;
+    /**
+     * Default time in milliseconds to wait for a pooled connection.
+     */
+    protected static final int DEFAULT_POOL_BORROW_TIMEOUT = 5000;
+
     private RedisClient redisClient;
     private RedisClusterClient redisClusterClient;
+    private final Map<String, ConnectionPool<?>> pools = new ConcurrentHashMap<>();
+    private int poolMaxTotal = DEFAULT_POOL_MAX_TOTAL;
+    private int poolMaxIdle = DEFAULT_POOL_MAX_IDLE;
+    private int poolBorrowTimeout = DEFAULT_POOL_BORROW_TIMEOUT;
 
     /**
      * @param hostname Redis hostname to validate
@@ -63,6 +86,15 @@ public class Client {
         return getPortNumber(timeoutStr); // same logic for both
     }
 
+    /**
+     * @param value        pool setting as a String value
+     * @param defaultValue value to use if the setting is absent
+     * @return the pool setting
+     */
+    protected static int getPoolSetting(String value, int defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : getPortNumber(value);
+    }
+
     /**
      * @param sslStr SSL boolean value as a String
      * @return whether connection should use SSL
@@ -121,6 +153,7 @@ public class Client {
             return;
         }
         redisClient = RedisClient.create(produceURI(params));
+        configurePools(params);
     }
 
     /**
@@ -133,6 +166,7 @@ public class Client {
             return;
         }
         redisClusterClient = RedisClusterClient.create(produceURI(params));
+        configurePools(params);
         // Adaptive cluster topology refresh for redis cluster client
         ClusterTopologyRefreshOptions topologyRefreshOptions = ClusterTopologyRefreshOptions.builder()
             .enableAdaptiveRefreshTrigger(ClusterTopologyRefreshOptions.RefreshTrigger.MOVED_REDIRECT,
@@ -150,6 +184,45 @@ public class Client {
                                           .build());
     }
 
+    /**
+     * Read the connection pool sizing from the store params.
+     *
+     * @param params Store params holding the pool settings
+     */
+    protected void configurePools(StoreParams params) {
+        poolMaxTotal = getPoolSetting(params.get(DatabaseConstants.REDIS_POOL_MAX_TOTAL), DEFAULT_POOL_MAX_TOTAL);
+        poolMaxIdle = getPoolSetting(params.get(DatabaseConstants.REDIS_POOL_MAX_IDLE), DEFAULT_POOL_MAX_IDLE);
+        poolBorrowTimeout = getPoolSetting(params.get(DatabaseConstants.REDIS_POOL_BORROW_TIMEOUT), DEFAULT_POOL_BORROW_TIMEOUT);
+    }
+
+    /**
+     * Get the shared connection pool with the given name,
+     * creating it if it does not exist yet.
+     *
+     * @param name    name of the pool
+     * @param factory factory used by the pool to open connections
+     * @param <K>     pool primary type
+     * @return the connection pool
+     */
+    @SuppressWarnings("unchecked")
+    public <K> ConnectionPool<K> getConnectionPool(String name, Supplier<RedisConnection<K>> factory) {
+        return (ConnectionPool<K>) pools.computeIfAbsent(
+                name,
+                n -> new ConnectionPool<>(n, factory, poolMaxTotal, poolMaxIdle, poolBorrowTimeout)
+        );
+    }
+
+    /**
+     * @return metrics of every connection pool
+     */
+    public List<Map<String, Object>> getConnectionPoolStats() {
+        List<Map<String, Object>> stats = new ArrayList<>(pools.size());
+        for (ConnectionPool<?> pool : pools.values()) {
+            stats.add(pool.getStats());
+        }
+        return stats;
+    }
+
     /**
      * @return the RedisClient instance
      */
@@ -168,6 +241,10 @@ public class Client {
      * Shutdown the clients.
      */
     public void destroy() {
+        for (ConnectionPool<?> pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
         if (redisClient != null) {
             redisClient.shutdown();
             redisClient = null;
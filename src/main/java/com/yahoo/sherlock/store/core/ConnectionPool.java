@@ -0,0 +1,218 @@
+package com.yahoo.sherlock.store.core;
+
+import com.yahoo.sherlock.exception.StoreException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of long-lived {@code RedisConnection} instances. Connections
+ * are created lazily by the supplied factory, handed out exclusively to one
+ * caller at a time and returned to the pool when the borrowed connection is
+ * closed, so accessors can keep using {@code try (RedisConnection c = connect())}.
+ *
+ * @param <K> Redis primary type
+ */
+@Slf4j
+public class ConnectionPool<K> {
+
+    private final String name;
+    private final Supplier<RedisConnection<K>> factory;
+    private final BlockingQueue<RedisConnection<K>> idle;
+    private final Semaphore permits;
+    private final int maxTotal;
+    private final long borrowTimeoutMillis;
+    private volatile boolean closed;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong borrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+
+    /**
+     * @param name                name of the pool, used in logs and metrics
+     * @param factory             creates new physical connections
+     * @param maxTotal            maximum number of connections handed out at once
+     * @param maxIdle             maximum number of idle connections kept open
+     * @param borrowTimeoutMillis time to wait for a free connection
+     */
+    public ConnectionPool(
+            String name,
+            Supplier<RedisConnection<K>> factory,
+            int maxTotal,
+            int maxIdle,
+            long borrowTimeoutMillis
+    ) {
+        if (maxTotal < 1 || maxIdle < 1) {
+            throw new StoreException(String.format(
+                    "Invalid Redis pool size for [%s]: total %d, idle %d", name, maxTotal, maxIdle));
+        }
+        this.name = name;
+        this.factory = factory;
+        this.maxTotal = maxTotal;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(Math.min(maxIdle, maxTotal));
+        this.permits = new Semaphore(maxTotal, true);
+        this.closed = false;
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if
+     * there are no idle connections. The returned connection must
+     * be closed to give it back to the pool. A {@code StoreException}
+     * is thrown if no connection frees up in time, which accessors
+     * report to their callers as an {@code IOException}.
+     *
+     * @return a pooled connection
+     */
+    public RedisConnection<K> borrow() {
+        if (closed) {
+            throw new StoreException("Redis connection pool [" + name + "] is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new StoreException(String.format(
+                        "Timed out after %d ms waiting for a connection from pool [%s] (%d active)",
+                        borrowTimeoutMillis, name, active.get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StoreException("Interrupted while waiting for a connection from pool [" + name + "]", e);
+        }
+        RedisConnection<K> connection;
+        try {
+            connection = idle.poll();
+            while (connection != null && !connection.isOpen()) {
+                discard(connection);
+                connection = idle.poll();
+            }
+            if (connection == null) {
+                connection = factory.get();
+                open.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        active.incrementAndGet();
+        recordBorrow(System.nanoTime() - start);
+        return new PooledRedisConnection<>(this, connection);
+    }
+
+    /**
+     * Return a connection to the pool. Broken connections, or
+     * connections in excess of the idle limit, are closed.
+     *
+     * @param connection the physical connection to return
+     */
+    protected void release(RedisConnection<K> connection) {
+        active.decrementAndGet();
+        try {
+            if (!closed && connection.isOpen()) {
+                connection.restore();
+                if (idle.offer(connection)) {
+                    return;
+                }
+            }
+            discard(connection);
+        } catch (RuntimeException e) {
+            log.warn("Dropping Redis connection from pool [{}] that could not be restored", name, e);
+            discard(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close every idle connection and refuse further borrows.
+     * Connections still in use are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        RedisConnection<K> connection;
+        while ((connection = idle.poll()) != null) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * @param connection physical connection to close
+     */
+    private void discard(RedisConnection<K> connection) {
+        open.decrementAndGet();
+        try {
+            connection.close();
+        } catch (RuntimeException e) {
+            log.warn("Error while closing Redis connection from pool [{}]", name, e);
+        }
+    }
+
+    /**
+     * @param nanos time spent waiting for a connection
+     */
+    private void recordBorrow(long nanos) {
+        borrows.incrementAndGet();
+        borrowNanos.addAndGet(nanos);
+        maxBorrowNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return pool name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of connections currently borrowed
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return number of idle connections waiting in the pool
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * @return number of physical connections currently open
+     */
+    public int getOpen() {
+        return open.get();
+    }
+
+    /**
+     * @return a snapshot of the pool metrics, including borrow latency
+     * and the number of active connections
+     */
+    public Map<String, Object> getStats() {
+        long count = borrows.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("maxTotal", maxTotal);
+        stats.put("active", getActive());
+        stats.put("idle", getIdle());
+        stats.put("open", getOpen());
+        stats.put("borrows", count);
+        stats.put("borrowTimeouts", timeouts.get());
+        stats.put("meanBorrowMillis", count == 0 ? 0.0 : borrowNanos.get() / 1e6 / count);
+        stats.put("maxBorrowMillis", maxBorrowNanos.get() / 1e6);
+        return stats;
+    }
+
+}
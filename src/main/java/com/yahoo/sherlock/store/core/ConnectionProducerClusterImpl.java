@@ -4,10 +4,16 @@ import com.lambdaworks.redis.codec.RedisCodec;
 import com.yahoo.sherlock.store.StoreParams;
 
 /**
- * This class manages a cluster client to produce cluster-based connections.
+ * This class manages a cluster client to produce cluster-based connections,
+ * which are borrowed from a pool shared per codec.
  */
 public class ConnectionProducerClusterImpl implements ConnectionProducer {
 
+    /**
+     * Prefix of the names of the pools used by this producer.
+     */
+    private static final String POOL_PREFIX = "cluster:";
+
     /**
      * @param params Store parameters used to initialize the client
      */
@@ -17,6 +23,9 @@ public class ConnectionProducerClusterImpl implements ConnectionProducer {
 
     @Override
     public <K> RedisConnection<K> produce(RedisCodec<K, K> codec) {
-        return new RedisConnectionClusterImpl<>(Client.get().getRedisClusterClient().connect(codec));
+        return Client.get().<K>getConnectionPool(
+                POOL_PREFIX + codec.getClass().getSimpleName(),
+                () -> new RedisConnectionClusterImpl<>(Client.get().getRedisClusterClient().connect(codec))
+        ).borrow();
     }
 }
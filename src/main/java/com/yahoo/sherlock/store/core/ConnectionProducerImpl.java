@@ -4,10 +4,16 @@ import com.lambdaworks.redis.codec.RedisCodec;
 import com.yahoo.sherlock.store.StoreParams;
 
 /**
- * This class manages a standalone redis client instance to produce basic connections.
+ * This class manages a standalone redis client instance to produce basic connections,
+ * which are borrowed from a pool shared per codec.
  */
 public class ConnectionProducerImpl implements ConnectionProducer {
 
+    /**
+     * Prefix of the names of the pools used by this producer.
+     */
+    private static final String POOL_PREFIX = "standalone:";
+
     /**
      * @param params Store parameters to initialize the client
      */
@@ -17,6 +23,9 @@ public class ConnectionProducerImpl implements ConnectionProducer {
 
     @Override
     public <K> RedisConnection<K> produce(RedisCodec<K, K> codec) {
-        return new RedisConnectionImpl<>(Client.get().getRedisClient().connect(codec));
+        return Client.get().<K>getConnectionPool(
+                POOL_PREFIX + codec.getClass().getSimpleName(),
+                () -> new RedisConnectionImpl<>(Client.get().getRedisClient().connect(codec))
+        ).borrow();
     }
 }
@@ -0,0 +1,146 @@
+package com.yahoo.sherlock.store.core;
+
+import com.lambdaworks.redis.LettuceStrings;
+import com.lambdaworks.redis.RedisCommandExecutionException;
+import com.lambdaworks.redis.ScriptOutputType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Lua script which is executed by its SHA1 digest with {@code EVALSHA},
+ * so that the script body is not sent to Redis on every call. If the
+ * server answers {@code NOSCRIPT}, for instance after a restart or on a
+ * cluster node which has not seen the script, the script is sent once
+ * with {@code EVAL}, which also adds it to that server's script cache.
+ * Scripts are not sent ahead with {@code SCRIPT LOAD}: on a cluster it
+ * reaches an arbitrary node rather than the one owning the script's
+ * keys, while the {@code EVAL} fallback primes the node that runs it.
+ * Latency is recorded per script.
+ */
+@Slf4j
+public class LuaScript {
+
+    private static final Map<String, LuaScript> SCRIPTS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String source;
+    private final String digest;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param name   name of the script, used in logs and metrics
+     * @param source the Lua source
+     */
+    protected LuaScript(String name, String source) {
+        this.name = name;
+        this.source = source;
+        this.digest = LettuceStrings.digest(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the script registered under a name, registering
+     * it if this is the first time the name is used.
+     *
+     * @param name   name of the script
+     * @param source the Lua source
+     * @return the registered script
+     * @throws IllegalArgumentException if another source is
+     *                                  registered under the name
+     */
+    public static LuaScript of(String name, String source) {
+        LuaScript script = SCRIPTS.computeIfAbsent(name, n -> new LuaScript(n, source));
+        if (!script.source.equals(source)) {
+            throw new IllegalArgumentException(String.format(
+                "Script [%s] is already registered with digest %s", name, script.digest));
+        }
+        return script;
+    }
+
+    /**
+     * @return the SHA1 digest of the script
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Execute the script, sending its body only if
+     * the server does not have it cached.
+     *
+     * @param cmd    commands of the connection to use
+     * @param type   script return value type token
+     * @param keys   keys operated on by the script
+     * @param values script arguments
+     * @param <K>    Redis primary type
+     * @param <T>    script return type
+     * @return script results
+     */
+    public <K, T> T execute(SyncCommands<K> cmd, ScriptOutputType type, K[] keys, K[] values) {
+        long start = System.nanoTime();
+        try {
+            try {
+                return cmd.evalsha(digest, type, keys, values);
+            } catch (RedisCommandExecutionException e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                reloads.incrementAndGet();
+                log.info("Script [{}] is not cached by the server, sending it", name);
+                return cmd.eval(source, type, keys, values);
+            }
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            calls.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * @param e error returned by the server
+     * @return true if the error is a {@code NOSCRIPT} reply
+     */
+    private static boolean isNoScript(RedisCommandExecutionException e) {
+        return e.getMessage() != null && e.getMessage().startsWith("NOSCRIPT");
+    }
+
+    /**
+     * @return a snapshot of this script's metrics
+     */
+    public Map<String, Object> getStats() {
+        long count = calls.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("digest", digest);
+        stats.put("calls", count);
+        stats.put("errors", errors.get());
+        stats.put("reloads", reloads.get());
+        stats.put("meanMillis", count == 0 ? 0.0 : totalNanos.get() / 1e6 / count);
+        stats.put("maxMillis", maxNanos.get() / 1e6);
+        return stats;
+    }
+
+    /**
+     * @return metrics of every registered script, keyed on script name
+     */
+    public static Map<String, Object> getAllStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, LuaScript> script : SCRIPTS.entrySet()) {
+            stats.put(script.getKey(), script.getValue().getStats());
+        }
+        return stats;
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.yahoo.sherlock.store.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded in-process cache of values read from Redis. It is kept
+ * coherent with other instances through a version counter which every
+ * writer increments: the counter is polled at most once per check
+ * interval and the whole cache is dropped whenever it moved. Writes made
+ * through this instance invalidate their keys immediately.
+ *
+ * @param <V> cached value type, which must not be modified once cached
+ */
+public class NearCache<V> {
+
+    /**
+     * Cached values in access order, guarded by this cache.
+     */
+    private final LinkedHashMap<String, V> entries;
+    private final int maxSize;
+    private final long checkIntervalMillis;
+
+    /**
+     * Last version counter value seen, or -1 if not yet read.
+     */
+    private long version;
+    /**
+     * Time of the last version check in milliseconds.
+     */
+    private long checkedAt;
+    /**
+     * Incremented on every invalidation, so that values read
+     * before an invalidation are not cached after it.
+     */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * @param maxSize             maximum number of cached values, 0 to disable the cache
+     * @param checkIntervalMillis minimum time between version counter checks
+     */
+    public NearCache(int maxSize, long checkIntervalMillis) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxSize = maxSize;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.version = -1;
+    }
+
+    /**
+     * @return whether values are cached at all
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return whether the version counter should be read again
+     */
+    public synchronized boolean isCheckDue() {
+        return isEnabled() && (version < 0 || System.currentTimeMillis() - checkedAt >= checkIntervalMillis);
+    }
+
+    /**
+     * Record the current value of the version counter,
+     * dropping all values if another writer moved it.
+     *
+     * @param current the counter value
+     */
+    public synchronized void checked(long current) {
+        checkedAt = System.currentTimeMillis();
+        if (current != version) {
+            clear();
+            version = current;
+        }
+    }
+
+    /**
+     * Record a write made through this instance, which incremented
+     * the version counter to the given value. If other writers
+     * incremented it in the meantime, all values are dropped.
+     *
+     * @param current the counter value returned by the increment
+     * @param keys    keys which were written
+     */
+    public synchronized void written(long current, Collection<String> keys) {
+        if (current == version + 1) {
+            version = current;
+            invalidate(keys);
+        } else {
+            clear();
+            version = current;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the cached value, or null
+     */
+    public synchronized V get(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * @return the current generation, to be read before
+     * fetching a value which will be cached
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a value unless an invalidation happened since it
+     * was read, evicting the least recently used values.
+     *
+     * @param key              the key
+     * @param value            the value
+     * @param readAtGeneration generation at the time the value was read
+     */
+    public synchronized void put(String key, V value, long readAtGeneration) {
+        if (!isEnabled() || readAtGeneration != generation) {
+            return;
+        }
+        entries.put(key, value);
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @param keys keys to drop
+     */
+    public synchronized void invalidate(Collection<String> keys) {
+        generation++;
+        invalidations++;
+        for (String key : keys) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Drop all values.
+     */
+    public synchronized void clear() {
+        generation++;
+        invalidations++;
+        entries.clear();
+    }
+
+    /**
+     * @return a snapshot of the cache metrics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("version", version);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+}
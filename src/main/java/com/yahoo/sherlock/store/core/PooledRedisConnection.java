@@ -0,0 +1,54 @@
+package com.yahoo.sherlock.store.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class implements {@code RedisConnection} to wrap a connection
+ * borrowed from a {@code ConnectionPool}. Closing it returns the
+ * underlying connection to the pool instead of closing the socket.
+ *
+ * @param <K> Redis primary type
+ */
+public class PooledRedisConnection<K> implements RedisConnection<K> {
+
+    private final ConnectionPool<K> pool;
+    private final RedisConnection<K> connection;
+    private final AtomicBoolean released;
+
+    /**
+     * @param pool       the pool which owns the connection
+     * @param connection the borrowed connection
+     */
+    protected PooledRedisConnection(ConnectionPool<K> pool, RedisConnection<K> connection) {
+        this.pool = pool;
+        this.connection = connection;
+        this.released = new AtomicBoolean(false);
+    }
+
+    @Override
+    public AsyncCommands<K> async() {
+        return connection.async();
+    }
+
+    @Override
+    public SyncCommands<K> sync() {
+        return connection.sync();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !released.get() && connection.isOpen();
+    }
+
+    @Override
+    public void restore() {
+        connection.restore();
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(connection);
+        }
+    }
+}
@@ -18,6 +18,18 @@ public interface RedisConnection<K> extends AutoCloseable {
      */
     SyncCommands<K> sync();
 
+    /**
+     * @return whether the underlying connection is still open
+     */
+    boolean isOpen();
+
+    /**
+     * Restore the connection to its default state, re-enabling
+     * command auto-flushing and discarding any open transaction,
+     * so that it can be handed out again by a pool.
+     */
+    void restore();
+
     @Override
     void close();
 }
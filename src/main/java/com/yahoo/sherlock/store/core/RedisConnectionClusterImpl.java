@@ -28,6 +28,16 @@ public class RedisConnectionClusterImpl<K> implements RedisConnection<K> {
         return new SyncCommandsClusterImpl<>(connection.sync());
     }
 
+    @Override
+    public boolean isOpen() {
+        return connection.isOpen();
+    }
+
+    @Override
+    public void restore() {
+        connection.setAutoFlushCommands(true);
+    }
+
     @Override
     public void close() {
         connection.close();
@@ -28,6 +28,19 @@ public class RedisConnectionImpl<K> implements RedisConnection<K> {
         return  new SyncCommandsImpl<>(connection.sync());
     }
 
+    @Override
+    public boolean isOpen() {
+        return connection.isOpen();
+    }
+
+    @Override
+    public void restore() {
+        connection.setAutoFlushCommands(true);
+        if (connection.isMulti()) {
+            connection.sync().discard();
+        }
+    }
+
     @Override
     public void close() {
         connection.close();
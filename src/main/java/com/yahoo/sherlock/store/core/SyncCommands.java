@@ -22,6 +22,13 @@ public interface SyncCommands<K> extends AutoCloseable {
      */
     Long incr(K key);
 
+    /**
+     * @param key string key
+     * @return the value of the key
+     * @see com.lambdaworks.redis.api.sync.RedisCommands#get(Object)
+     */
+    K get(K key);
+
     /**
      * @param key set key
      * @return members in the set
@@ -101,6 +108,17 @@ public interface SyncCommands<K> extends AutoCloseable {
      */
     <T> T eval(String script, ScriptOutputType type, K[] keys, K... values);
 
+    /**
+     * @param digest SHA1 digest of a script in the server script cache
+     * @param type   script return value type token
+     * @param keys   keys operated on by the script
+     * @param values script arguments
+     * @param <T>    script return type
+     * @return script results
+     * @see com.lambdaworks.redis.api.sync.RedisCommands#evalsha(String, ScriptOutputType, Object[], Object[])
+     */
+    <T> T evalsha(String digest, ScriptOutputType type, K[] keys, K... values);
+
     /**
      * @param key key name
      * @param seconds time in seconds
@@ -30,6 +30,11 @@ public class SyncCommandsClusterImpl<K> implements SyncCommands<K> {
         return commands.incr(key);
     }
 
+    @Override
+    public K get(K key) {
+        return commands.get(key);
+    }
+
     @Override
     public Set<K> smembers(K key) {
         return commands.smembers(key);
@@ -80,6 +85,11 @@ public class SyncCommandsClusterImpl<K> implements SyncCommands<K> {
         return commands.eval(script, type, keys, values);
     }
 
+    @Override
+    public <T> T evalsha(String digest, ScriptOutputType type, K[] keys, K... values) {
+        return commands.evalsha(digest, type, keys, values);
+    }
+
     @Override
     public Boolean expire(K key, long seconds) {
         return commands.expire(key, seconds);
@@ -26,6 +26,13 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class AbstractLettuceAccessor extends BaseAccessor {
 
+    /**
+     * Member added to a tagged index once it has been filled with the
+     * contents of the untagged indices it replaces. Tagged indices
+     * without it may be missing entries written before they existed.
+     */
+    protected static final String INDEX_COMPLETE = "complete";
+
     private final String keyName;
     private final String idName;
     private final Mapper<String> mapper;
@@ -122,6 +129,28 @@ public class AbstractLettuceAccessor extends BaseAccessor {
         return joiner.toString();
     }
 
+    /**
+     * Produce a Redis Cluster hash tag. Indices which contain the
+     * same tag are stored in the same slot, so that they can be
+     * combined by multi-key commands such as {@code SINTER}.
+     *
+     * @param value tag value
+     * @return the hash tag
+     */
+    protected static String tag(Object value) {
+        return "{" + value + "}";
+    }
+
+    /**
+     * @param ids index members
+     * @return the members followed by {@link #INDEX_COMPLETE}
+     */
+    protected static String[] withComplete(Collection<String> ids) {
+        String[] members = ids.toArray(new String[ids.size() + 1]);
+        members[ids.size()] = INDEX_COMPLETE;
+        return members;
+    }
+
     /**
      * @return a new incremented ID
      * @throws IOException if an error generating the ID occurs
@@ -9,7 +9,6 @@ import spark.utils.IOUtils;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -107,16 +106,11 @@ public class ByteMapper extends Mapper<byte[]> {
 
     @Override
     protected Map<byte[], byte[]> performMap(Object obj) {
-        Map<byte[], byte[]> map = new HashMap<>((int) (1.8 * getFields().length));
-        for (Field field : getFields()) {
+        Map<byte[], byte[]> map = new HashMap<>((int) (1.8 * getFieldCodecs().length));
+        for (ObjectCodec.FieldCodec field : getFieldCodecs()) {
             try {
-                String name = field.getName();
-                Object data = field.get(obj);
-                Attribute.Type attrType = resolveType(field);
-                byte[] compressed = compress(data, attrType);
-                map.put(compressUTF8(name), compressed);
-            } catch (IllegalAccessException e) {
-                log.error("Cannot access field: {}", field.getName(), e);
+                byte[] compressed = compress(field.get(obj), field.getType());
+                map.put(compressUTF8(field.getName()), compressed);
             } catch (IOException e) {
                 log.error("Error while compressing UTF-8!", e);
             }
@@ -127,21 +121,16 @@ public class ByteMapper extends Mapper<byte[]> {
     @Override
     protected <C> C performUnmap(Class<C> cls, Map<byte[], byte[]> map) {
         C obj = construct(cls);
-        for (Field field : getFields()) {
-            String name = field.getName();
+        for (ObjectCodec.FieldCodec field : getFieldCodecs()) {
             try {
-                byte[] key = compressUTF8(name);
+                byte[] key = compressUTF8(field.getName());
                 byte[] compressed = map.get(key);
                 if (compressed == null) {
                     continue;
                 }
-                Attribute.Type attrType = resolveType(field);
-                String value = decompress(compressed, attrType);
-                field.set(obj, value);
+                field.setString(obj, decompress(compressed, field.getType()));
             } catch (IOException e) {
                 log.error("Error while decompressing UTF-8!", e);
-            } catch (IllegalAccessException e) {
-                log.error("Cannot access field: {}", field.getName(), e);
             }
         }
         return obj;
@@ -8,7 +8,6 @@ package com.yahoo.sherlock.store.redis;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,15 +30,10 @@ public class HashMapper extends Mapper<String> {
     @Override
     protected Map<String, String> performMap(Object obj) {
         // Grab the field values
-        Map<String, String> hash = new HashMap<>();
-        for (Field field : getFields()) {
-            try {
-                Object data = field.get(obj);
-                hash.put(field.getName(), data == null ? "" : data.toString());
-            } catch (IllegalAccessException e) {
-                // Inaccessible fields will not stop the method
-                log.error("Cannot access field {}", field.getName());
-            }
+        ObjectCodec.FieldCodec[] fields = getFieldCodecs();
+        Map<String, String> hash = new HashMap<>((int) (1.5 * fields.length));
+        for (ObjectCodec.FieldCodec field : fields) {
+            hash.put(field.getName(), field.getString(obj));
         }
         return hash;
     }
@@ -55,15 +49,9 @@ public class HashMapper extends Mapper<String> {
     @Override
     protected <C> C performUnmap(Class<C> cls, Map<String, String> hash) {
         C obj = construct(cls);
-        for (Field field : getFields()) {
-            // Get and set the field value
-            String value = hash.get(field.getName());
-            try {
-                field.set(obj, wrapType(field, value, field.get(obj)).get());
-            } catch (IllegalAccessException e) {
-                // Inaccessible fields will not stop the method
-                log.error("Could not set field {}, inaccessible", field.getName());
-            }
+        for (ObjectCodec.FieldCodec field : getFieldCodecs()) {
+            // Values which are missing or invalid leave the field unchanged
+            field.setString(obj, hash.get(field.getName()));
         }
         return obj;
     }
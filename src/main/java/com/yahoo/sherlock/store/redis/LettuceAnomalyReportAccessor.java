@@ -1,6 +1,8 @@
 package com.yahoo.sherlock.store.redis;
 
 import com.beust.jcommander.internal.Lists;
+import com.lambdaworks.redis.Limit;
+import com.lambdaworks.redis.Range;
 import com.lambdaworks.redis.RedisFuture;
 import com.lambdaworks.redis.ScoredValue;
 import com.yahoo.sherlock.model.AnomalyReport;
@@ -11,13 +13,20 @@ import com.yahoo.sherlock.store.StoreParams;
 import com.yahoo.sherlock.store.core.AsyncCommands;
 import com.yahoo.sherlock.store.core.RedisConnection;
 import com.yahoo.sherlock.utils.NumberUtils;
+import com.yahoo.sherlock.utils.Utils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.concurrent.ExecutionException;
 
 import static com.yahoo.sherlock.store.redis.Mapper.encode;
@@ -33,6 +42,9 @@ public class LettuceAnomalyReportAccessor
     private final String jobIdName;
     private final String timeName;
     private final String frequencyName;
+    private final String timelineName;
+    private final String reportFormat;
+    private final String indexFormat;
 
     /**
      * @param params store params
@@ -42,6 +54,58 @@ public class LettuceAnomalyReportAccessor
         this.jobIdName = params.get(DatabaseConstants.INDEX_REPORT_JOB_ID);
         this.timeName = params.get(DatabaseConstants.INDEX_TIMESTAMP);
         this.frequencyName = params.get(DatabaseConstants.INDEX_FREQUENCY);
+        this.timelineName = params.get(DatabaseConstants.INDEX_REPORT_TIMELINE);
+        this.reportFormat = params.get(DatabaseConstants.REPORT_FORMAT);
+        this.indexFormat = params.get(DatabaseConstants.REPORT_INDEX_FORMAT);
+    }
+
+    /**
+     * @return whether reports are written as binary records
+     */
+    private boolean writesRecords() {
+        return Constants.REPORT_FORMAT_BINARY.equals(reportFormat) || Constants.REPORT_FORMAT_DUAL.equals(reportFormat);
+    }
+
+    /**
+     * @return whether reports stored as hashes are read
+     */
+    private boolean readsHashes() {
+        return !Constants.REPORT_FORMAT_BINARY.equals(reportFormat);
+    }
+
+    /**
+     * @return whether the indices by time and frequency shared by all
+     * jobs are written, and read for reports which predate the job indices
+     */
+    private boolean keepsLegacyIndices() {
+        return !Constants.REPORT_INDEX_TAGGED.equals(indexFormat);
+    }
+
+    /**
+     * @param jobId     job ID
+     * @param frequency job frequency
+     * @return key of the report timeline of the job and frequency
+     */
+    private String timeline(Object jobId, String frequency) {
+        return index(timelineName, jobId, frequency);
+    }
+
+    /**
+     * @param jobId job ID
+     * @param time  report end time
+     * @return key of the set of reports of the job at the time, tagged by the job ID
+     */
+    private String jobTimeIndex(Object jobId, Object time) {
+        return index(jobIdName, tag(jobId), timeName, time);
+    }
+
+    /**
+     * @param jobId     job ID
+     * @param frequency job frequency
+     * @return key of the set of reports of the job and frequency, tagged by the job ID
+     */
+    private String jobFrequencyIndex(Object jobId, String frequency) {
+        return index(jobIdName, tag(jobId), frequencyName, frequency);
     }
 
     /**
@@ -81,22 +145,46 @@ public class LettuceAnomalyReportAccessor
                 ready.addAll(requireId);
                 requireId.clear();
             }
-            List<RedisFuture> arrFutures = new ArrayList<>(ready.size() + 1);
-            RedisFuture[] saddFutures = new RedisFuture[ready.size() * 6];
-            int i = 0;
-            long expirationTime = Constants.SECONDS_IN_DAY * (ready.get(0).getJobFrequency().equalsIgnoreCase(Constants.HOUR) ?
-                                                              Constants.REDIS_RETENTION_WEEKS_IN_DAYS : (ready.get(0).getJobFrequency().equalsIgnoreCase(Constants.MINUTE) ?
-                                                                                                         Constants.REDIS_RETENTION_ONE_DAY : Constants.REDIS_RETENTION_YEARS_IN_DAYS));
+            boolean legacy = keepsLegacyIndices();
+            List<RedisFuture> arrFutures = new ArrayList<>(ready.size() * (legacy ? 12 : 8));
+            long expirationTime = Utils.getReportRetentionSeconds(ready.get(0).getJobFrequency());
+            Map<String, Integer> latest = new HashMap<>();
             for (AnomalyReport report : ready) {
-                arrFutures.addAll(writeReport(bin, cmd, report, expirationTime, this));
-                saddFutures[i++] = cmd.sadd(index(jobIdName, report.getJobId()), report.getUniqueId());
-                saddFutures[i++] = cmd.expire(index(jobIdName, report.getJobId()), expirationTime);
-                saddFutures[i++] = cmd.sadd(index(frequencyName, report.getJobFrequency()), report.getUniqueId());
-                saddFutures[i++] = cmd.expire(index(frequencyName, report.getJobFrequency()), expirationTime);
-                saddFutures[i++] = cmd.sadd(index(timeName, report.getReportQueryEndTime()), report.getUniqueId());
-                saddFutures[i++] = cmd.expire(index(timeName, report.getReportQueryEndTime()), expirationTime);
+                if (writesRecords()) {
+                    byte[] record = encode(key(report.getUniqueId(), DatabaseConstants.REPORT_RECORD));
+                    arrFutures.add(bin.setex(record, expirationTime, ReportCodec.encode(report)));
+                } else {
+                    arrFutures.addAll(writeReport(bin, cmd, report, expirationTime, this));
+                }
+                arrFutures.add(cmd.sadd(index(jobIdName, report.getJobId()), report.getUniqueId()));
+                arrFutures.add(cmd.expire(index(jobIdName, report.getJobId()), expirationTime));
+                String jobTime = jobTimeIndex(report.getJobId(), report.getReportQueryEndTime());
+                String jobFrequency = jobFrequencyIndex(report.getJobId(), report.getJobFrequency());
+                if (legacy) {
+                    arrFutures.add(cmd.sadd(index(frequencyName, report.getJobFrequency()), report.getUniqueId()));
+                    arrFutures.add(cmd.expire(index(frequencyName, report.getJobFrequency()), expirationTime));
+                    arrFutures.add(cmd.sadd(index(timeName, report.getReportQueryEndTime()), report.getUniqueId()));
+                    arrFutures.add(cmd.expire(index(timeName, report.getReportQueryEndTime()), expirationTime));
+                    // Reads mark the job indices complete once legacy reports are merged in
+                    arrFutures.add(cmd.sadd(jobTime, report.getUniqueId()));
+                    arrFutures.add(cmd.sadd(jobFrequency, report.getUniqueId()));
+                } else {
+                    // Without legacy reports a set created by this write is complete
+                    arrFutures.add(cmd.sadd(jobTime, report.getUniqueId(), INDEX_COMPLETE));
+                    arrFutures.add(cmd.sadd(jobFrequency, report.getUniqueId(), INDEX_COMPLETE));
+                }
+                arrFutures.add(cmd.expire(jobTime, expirationTime));
+                arrFutures.add(cmd.expire(jobFrequency, expirationTime));
+                String timeline = timeline(report.getJobId(), report.getJobFrequency());
+                arrFutures.add(cmd.zadd(timeline, report.getReportQueryEndTime(), report.getUniqueId()));
+                latest.merge(timeline, report.getReportQueryEndTime(), Math::max);
+            }
+            // Drop timeline entries of reports which have expired
+            long retention = expirationTime / Constants.SECONDS_IN_MINUTE;
+            for (Map.Entry<String, Integer> timeline : latest.entrySet()) {
+                arrFutures.add(cmd.zremrangebyscore(timeline.getKey(), Range.create(0L, timeline.getValue() - retention)));
+                arrFutures.add(cmd.expire(timeline.getKey(), expirationTime));
             }
-            arrFutures.addAll(Lists.newArrayList(saddFutures));
             cmd.flushCommands();
             bin.flushCommands();
             awaitRaw(arrFutures);
@@ -107,43 +195,216 @@ public class LettuceAnomalyReportAccessor
     @Override
     public List<AnomalyReport> getAnomalyReportsForJob(String jobId, String frequency) throws IOException {
         log.info("Getting anomaly reports for job [{}] with frequency [{}]", jobId, frequency);
-        try (RedisConnection<String> conn = connect()) {
+        String jobFrequency = jobFrequencyIndex(jobId, frequency);
+        try (
+            RedisConnection<String> conn = connect();
+            RedisConnection<byte[]> binary = binary()
+        ) {
+            AsyncCommands<String> cmd = conn.async();
+            Set<String> reportIds = cmd.smembers(jobFrequency).get();
+            if (!reportIds.remove(INDEX_COMPLETE) && keepsLegacyIndices()) {
+                // Fill the index once from the untagged sets
+                reportIds.addAll(legacyReportIds(cmd, jobId, index(frequencyName, frequency)));
+                RedisFuture<Long> added = cmd.sadd(jobFrequency, withComplete(reportIds));
+                RedisFuture<Boolean> expired = cmd.expire(jobFrequency, Utils.getReportRetentionSeconds(frequency));
+                cmd.flushCommands();
+                await(added, expired);
+            }
+            return readReports(cmd, binary.async(), reportIds);
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("Error occurred while getting anomaly reports!", e);
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<AnomalyReport> getAnomalyReportsForJobInRange(
+        String jobId,
+        String frequency,
+        int start,
+        int end,
+        int offset,
+        int limit
+    ) throws IOException {
+        log.info("Getting anomaly reports for job [{}] with frequency [{}] between [{}] and [{}]", jobId, frequency, start, end);
+        String timeline = timeline(jobId, frequency);
+        try (
+            RedisConnection<String> conn = connect();
+            RedisConnection<byte[]> binary = binary()
+        ) {
             AsyncCommands<String> cmd = conn.async();
             cmd.setAutoFlushCommands(false);
-            RedisFuture<Set<String>> jobReportIds = cmd.smembers(index(jobIdName, jobId));
-            RedisFuture<Set<String>> freqReportIds = cmd.smembers(index(frequencyName, frequency));
+            RedisFuture<Double> complete = cmd.zscore(timeline, INDEX_COMPLETE);
+            RedisFuture<List<String>> reportIds = cmd.zrevrangebyscore(
+                timeline,
+                Range.create(start, end),
+                limit < 0 ? Limit.unlimited() : Limit.create(offset, limit)
+            );
             cmd.flushCommands();
-            await(jobReportIds, freqReportIds);
-            Set<String> reportIds = jobReportIds.get();
-            reportIds.retainAll(freqReportIds.get());
-            return getAnomalyReports(reportIds, this);
+            await(complete, reportIds);
+            if (complete.get() != null) {
+                Set<String> ids = new LinkedHashSet<>(reportIds.get());
+                ids.remove(INDEX_COMPLETE);
+                // Reports which expired since the timeline was last trimmed come back empty
+                return readReports(cmd, binary.async(), ids).stream()
+                    .filter(report -> report.getReportQueryEndTime() != null)
+                    .collect(Collectors.toList());
+            }
         } catch (InterruptedException | ExecutionException e) {
             log.error("Error occurred while getting anomaly reports!", e);
             throw new IOException(e.getMessage(), e);
         }
+        // The timeline was never filled, so build it from the set indices
+        List<AnomalyReport> reports = getAnomalyReportsForJob(jobId, frequency);
+        fillTimeline(timeline, frequency, reports);
+        return reports.stream()
+            .filter(report -> report.getReportQueryEndTime() != null)
+            .filter(report -> report.getReportQueryEndTime() >= start && report.getReportQueryEndTime() <= end)
+            .sorted(Comparator.comparing(AnomalyReport::getReportQueryEndTime).reversed())
+            .skip(limit < 0 ? 0 : offset)
+            .limit(limit < 0 ? Long.MAX_VALUE : limit)
+            .collect(Collectors.toList());
     }
 
-    @Override
-    public List<AnomalyReport> getAnomalyReportsForJobAtTime(String jobId, String time, String frequency) throws IOException {
-        log.info("Getting anomaly reports for job [{}] frequency [{}] at time [{}]", jobId, frequency, time);
+    /**
+     * Add reports to a timeline and mark it as complete.
+     *
+     * @param timeline  timeline key
+     * @param frequency job frequency
+     * @param reports   all reports of the job and frequency
+     * @throws IOException if an error occurs
+     */
+    @SuppressWarnings("unchecked")
+    protected void fillTimeline(String timeline, String frequency, List<AnomalyReport> reports) throws IOException {
+        List<ScoredValue<String>> values = new ArrayList<>(reports.size() + 1);
+        values.add(new ScoredValue<>(-1, INDEX_COMPLETE));
+        for (AnomalyReport report : reports) {
+            if (report.getReportQueryEndTime() != null) {
+                values.add(new ScoredValue<>(report.getReportQueryEndTime(), report.getUniqueId()));
+            }
+        }
+        log.info("Filling timeline [{}] with [{}] reports", timeline, reports.size());
         try (RedisConnection<String> conn = connect()) {
             AsyncCommands<String> cmd = conn.async();
             cmd.setAutoFlushCommands(false);
-            RedisFuture<Set<String>> jobRepIds = cmd.smembers(index(jobIdName, jobId));
-            RedisFuture<Set<String>> jobTimeIds = cmd.smembers(index(timeName, time));
-            RedisFuture<Set<String>> jobFreqIds = cmd.smembers(index(frequencyName, frequency));
+            RedisFuture<Long> added = cmd.zadd(timeline, values.toArray(new ScoredValue[values.size()]));
+            RedisFuture<Boolean> expired = cmd.expire(timeline, Utils.getReportRetentionSeconds(frequency));
             cmd.flushCommands();
-            await(jobRepIds, jobTimeIds, jobFreqIds);
-            Set<String> reportIds = jobRepIds.get();
-            reportIds.retainAll(jobTimeIds.get());
-            reportIds.retainAll(jobFreqIds.get());
-            return getAnomalyReports(reportIds, this);
+            await(added, expired);
+        }
+    }
+
+    @Override
+    public List<AnomalyReport> getAnomalyReportsForJobAtTime(String jobId, String time, String frequency) throws IOException {
+        log.info("Getting anomaly reports for job [{}] frequency [{}] at time [{}]", jobId, frequency, time);
+        try (
+            RedisConnection<String> conn = connect();
+            RedisConnection<byte[]> binary = binary()
+        ) {
+            AsyncCommands<String> cmd = conn.async();
+            return readReports(cmd, binary.async(), getReportIdsForJobAtTime(cmd, jobId, time, frequency));
         } catch (InterruptedException | ExecutionException e) {
             log.error("Error occurred while getting anomaly reports!", e);
             throw new IOException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Get the IDs of the reports of a job and frequency at a time.
+     * The sets are intersected by Redis, which returns only the
+     * matching IDs. Until the tagged set of the time is marked as
+     * complete, reports written before the tagged sets existed are
+     * merged in from the untagged sets and copied to the tagged sets.
+     *
+     * @param cmd       string commands
+     * @param jobId     job ID
+     * @param time      report end time
+     * @param frequency job frequency
+     * @return the report IDs
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException   if a command fails
+     */
+    private Set<String> getReportIdsForJobAtTime(
+        AsyncCommands<String> cmd,
+        String jobId,
+        String time,
+        String frequency
+    ) throws InterruptedException, ExecutionException {
+        String jobTime = jobTimeIndex(jobId, time);
+        String jobFrequency = jobFrequencyIndex(jobId, frequency);
+        cmd.setAutoFlushCommands(false);
+        RedisFuture<Set<String>> reportIds = cmd.sinter(jobTime, jobFrequency);
+        RedisFuture<Boolean> complete = cmd.sismember(jobTime, INDEX_COMPLETE);
+        cmd.flushCommands();
+        await(reportIds, complete);
+        Set<String> taggedIds = reportIds.get();
+        taggedIds.remove(INDEX_COMPLETE);
+        if (complete.get() || !keepsLegacyIndices()) {
+            return taggedIds;
+        }
+        Set<String> legacyIds = legacyReportIds(cmd, jobId, index(timeName, time), index(frequencyName, frequency));
+        legacyIds.addAll(taggedIds);
+        // Copy the IDs to the tagged sets and mark the time as complete
+        long expirationTime = Utils.getReportRetentionSeconds(frequency);
+        List<RedisFuture> futures = new ArrayList<>(4);
+        futures.add(cmd.sadd(jobTime, withComplete(legacyIds)));
+        futures.add(cmd.expire(jobTime, expirationTime));
+        if (!legacyIds.isEmpty()) {
+            futures.add(cmd.sadd(jobFrequency, legacyIds.toArray(new String[legacyIds.size()])));
+            futures.add(cmd.expire(jobFrequency, expirationTime));
+        }
+        cmd.flushCommands();
+        awaitRaw(futures);
+        return legacyIds;
+    }
+
+    /**
+     * Get the IDs of the reports of a job which are in each of
+     * the given untagged sets. The sets are shared by all jobs,
+     * so instead of reading them whole each report of the job
+     * is checked for membership.
+     *
+     * @param cmd  string commands
+     * @param jobId job ID
+     * @param sets keys of the untagged sets
+     * @return the report IDs
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException   if a command fails
+     */
+    private Set<String> legacyReportIds(
+        AsyncCommands<String> cmd,
+        String jobId,
+        String... sets
+    ) throws InterruptedException, ExecutionException {
+        cmd.setAutoFlushCommands(false);
+        RedisFuture<Set<String>> jobReportIds = cmd.smembers(index(jobIdName, jobId));
+        cmd.flushCommands();
+        await(jobReportIds);
+        Map<String, List<RedisFuture<Boolean>>> members = new LinkedHashMap<>();
+        List<RedisFuture<Boolean>> futures = new ArrayList<>();
+        for (String id : jobReportIds.get()) {
+            List<RedisFuture<Boolean>> checks = new ArrayList<>(sets.length);
+            for (String set : sets) {
+                checks.add(cmd.sismember(set, id));
+            }
+            members.put(id, checks);
+            futures.addAll(checks);
+        }
+        cmd.flushCommands();
+        await(futures);
+        Set<String> reportIds = new LinkedHashSet<>();
+        for (Map.Entry<String, List<RedisFuture<Boolean>>> member : members.entrySet()) {
+            boolean inAll = true;
+            for (RedisFuture<Boolean> check : member.getValue()) {
+                inAll &= check.get();
+            }
+            if (inAll) {
+                reportIds.add(member.getKey());
+            }
+        }
+        return reportIds;
+    }
+
     @Override
     public void deleteAnomalyReportsForJob(String jobId) throws IOException {
         log.info("Deleting all anomaly reports for job [{}]", jobId);
@@ -156,20 +417,27 @@ public class LettuceAnomalyReportAccessor
             Set<String> reportIds = cmd.smembers(index(jobIdName, jobId)).get();
             cmd.setAutoFlushCommands(false);
             bin.setAutoFlushCommands(false);
-            List<AnomalyReport> reports = getAnomalyReports(reportIds, this);
-            RedisFuture[] futures = new RedisFuture[5 * reports.size() + 1];
-            int i = 0;
+            List<AnomalyReport> reports = readReports(cmd, bin, reportIds);
+            boolean legacy = keepsLegacyIndices();
+            List<RedisFuture> futures = new ArrayList<>(5 * reports.size() + 1);
+            Set<String> indices = new LinkedHashSet<>();
             for (AnomalyReport report : reports) {
-                futures[i++] = cmd.srem(index(timeName, report.getReportQueryEndTime()), report.getUniqueId());
-                futures[i++] = cmd.srem(index(frequencyName, report.getJobFrequency()), report.getUniqueId());
-                futures[i++] = cmd.del(key(report.getUniqueId()));
-                futures[i++] = bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "start")));
-                futures[i++] = bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "end")));
+                indices.add(timeline(jobId, report.getJobFrequency()));
+                indices.add(jobTimeIndex(jobId, report.getReportQueryEndTime()));
+                indices.add(jobFrequencyIndex(jobId, report.getJobFrequency()));
+                if (legacy) {
+                    futures.add(cmd.srem(index(timeName, report.getReportQueryEndTime()), report.getUniqueId()));
+                    futures.add(cmd.srem(index(frequencyName, report.getJobFrequency()), report.getUniqueId()));
+                }
+                futures.add(cmd.del(key(report.getUniqueId()), key(report.getUniqueId(), DatabaseConstants.REPORT_RECORD)));
+                futures.add(bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "start"))));
+                futures.add(bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "end"))));
             }
-            futures[i] = cmd.del(index(jobIdName, jobId));
+            indices.add(index(jobIdName, jobId));
+            futures.add(cmd.del(indices.toArray(new String[indices.size()])));
             cmd.flushCommands();
             bin.flushCommands();
-            await(futures);
+            awaitRaw(futures);
         } catch (InterruptedException | ExecutionException e) {
             log.error("Error while deleting anomaly reports!", e);
             throw new IOException(e.getMessage(), e);
@@ -186,38 +454,85 @@ public class LettuceAnomalyReportAccessor
             // Get all report IDs
             AsyncCommands<String> cmd = conn.async();
             AsyncCommands<byte[]> bin = binary.async();
-            cmd.setAutoFlushCommands(false);
-            RedisFuture<Set<String>> jobRepIds = cmd.smembers(index(jobIdName, jobId));
-            RedisFuture<Set<String>> jobTimeIds = cmd.smembers(index(timeName, time));
-            RedisFuture<Set<String>> jobFreqIds = cmd.smembers(index(frequencyName, frequency));
-            cmd.flushCommands();
-            await(jobRepIds, jobTimeIds, jobFreqIds);
-            Set<String> reportIds = jobRepIds.get();
-            reportIds.retainAll(jobTimeIds.get());
-            reportIds.retainAll(jobFreqIds.get());
+            Set<String> reportIds = getReportIdsForJobAtTime(cmd, jobId, time, frequency);
             // Delete the reports
             cmd.setAutoFlushCommands(false);
             bin.setAutoFlushCommands(false);
-            List<AnomalyReport> reports = getAnomalyReports(reportIds, this);
-            RedisFuture[] futures = new RedisFuture[6 * reports.size()];
-            int i = 0;
+            List<AnomalyReport> reports = readReports(cmd, bin, reportIds);
+            boolean legacy = keepsLegacyIndices();
+            List<RedisFuture> futures = new ArrayList<>(9 * reports.size());
             for (AnomalyReport report : reports) {
-                futures[i++] = cmd.srem(index(jobIdName, report.getJobId()), report.getUniqueId());
-                futures[i++] = cmd.srem(index(timeName, report.getReportQueryEndTime()), report.getUniqueId());
-                futures[i++] = cmd.srem(index(frequencyName, report.getJobFrequency()), report.getUniqueId());
-                futures[i++] = cmd.del(key(report.getUniqueId()));
-                futures[i++] = bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "start")));
-                futures[i++] = bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "end")));
+                futures.add(cmd.srem(index(jobIdName, report.getJobId()), report.getUniqueId()));
+                futures.add(cmd.srem(jobTimeIndex(report.getJobId(), report.getReportQueryEndTime()), report.getUniqueId()));
+                futures.add(cmd.srem(jobFrequencyIndex(report.getJobId(), report.getJobFrequency()), report.getUniqueId()));
+                futures.add(cmd.zrem(timeline(report.getJobId(), report.getJobFrequency()), report.getUniqueId()));
+                if (legacy) {
+                    futures.add(cmd.srem(index(timeName, report.getReportQueryEndTime()), report.getUniqueId()));
+                    futures.add(cmd.srem(index(frequencyName, report.getJobFrequency()), report.getUniqueId()));
+                }
+                futures.add(cmd.del(key(report.getUniqueId()), key(report.getUniqueId(), DatabaseConstants.REPORT_RECORD)));
+                futures.add(bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "start"))));
+                futures.add(bin.del(encode(key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "end"))));
             }
             cmd.flushCommands();
             bin.flushCommands();
-            await(futures);
+            awaitRaw(futures);
         } catch (InterruptedException | ExecutionException e) {
             log.error("Error occurred while deleting anomaly reports!", e);
             throw new IOException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Read reports in the configured storage format. Reports
+     * stored as binary records are read first, and in the dual
+     * format the remaining reports are read from their hashes.
+     *
+     * @param cmd       string commands of the caller's connection
+     * @param bin       binary commands of the caller's connection
+     * @param reportIds set of report IDs
+     * @return list of anomaly reports in the order of the IDs
+     * @throws IOException if an error occurs
+     */
+    private List<AnomalyReport> readReports(
+        AsyncCommands<String> cmd,
+        AsyncCommands<byte[]> bin,
+        Set<String> reportIds
+    ) throws IOException {
+        if (!writesRecords()) {
+            return getAnomalyReports(reportIds, this, cmd, bin);
+        }
+        try {
+            bin.setAutoFlushCommands(false);
+            Map<String, RedisFuture<byte[]>> records = new LinkedHashMap<>();
+            for (String id : reportIds) {
+                records.put(id, bin.get(encode(key(id, DatabaseConstants.REPORT_RECORD))));
+            }
+            bin.flushCommands();
+            await(records.values());
+            Map<String, AnomalyReport> reports = new LinkedHashMap<>();
+            Set<String> missing = new LinkedHashSet<>();
+            for (Map.Entry<String, RedisFuture<byte[]>> record : records.entrySet()) {
+                byte[] value = record.getValue().get();
+                if (value == null) {
+                    missing.add(record.getKey());
+                    reports.put(record.getKey(), null);
+                } else {
+                    reports.put(record.getKey(), ReportCodec.decode(value));
+                }
+            }
+            if (!missing.isEmpty() && readsHashes()) {
+                for (AnomalyReport report : getAnomalyReports(missing, this, cmd, bin)) {
+                    reports.put(report.getUniqueId(), report);
+                }
+            }
+            return reports.values().stream().filter(Objects::nonNull).collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("Error while getting anomaly reports!", e);
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Write a report to the store, exacting the timestamps and
      * encoding them as bytes.
@@ -237,18 +552,19 @@ public class LettuceAnomalyReportAccessor
         long expirationTime,
         AbstractLettuceAccessor acc
     ) {
-        List<int[]> timestamps = report.getAnomalyTimestampsHours();
+        int[] starts = report.getAnomalyStarts();
+        int[] ends = report.getAnomalyEnds();
         Map<String, String> reportMap = acc.map(report);
-        reportMap.remove(DatabaseConstants.ANOMALY_TIMESTAMP);
+        reportMap.put(DatabaseConstants.DEVIATION_STRING, report.getDeviationString() == null ? "" : report.getDeviationString());
         byte[] keyStart = encode(acc.key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "start"));
         byte[] keyEnd = encode(acc.key(report.getUniqueId(), DatabaseConstants.ANOMALY_TIMESTAMP, "end"));
-        List<ScoredValue<byte[]>> valuesStart = new ArrayList<>(timestamps.size());
-        List<ScoredValue<byte[]>> valuesEnd = new ArrayList<>(timestamps.size());
-        for (int i = 0; i < timestamps.size(); i++) {
-            int[] timestamp = timestamps.get(i);
-            valuesStart.add(new ScoredValue<>((double) i, NumberUtils.toBytesCompressed(timestamp[0])));
-            if (timestamp[1] != 0 && timestamp[1] != timestamp[0]) {
-                valuesEnd.add(new ScoredValue<>((double) i, NumberUtils.toBytesCompressed(timestamp[1])));
+        int count = report.getAnomalyCount();
+        List<ScoredValue<byte[]>> valuesStart = new ArrayList<>(count);
+        List<ScoredValue<byte[]>> valuesEnd = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            valuesStart.add(new ScoredValue<>((double) i, NumberUtils.toBytesCompressed(starts[i])));
+            if (ends[i] != 0) {
+                valuesEnd.add(new ScoredValue<>((double) i, NumberUtils.toBytesCompressed(ends[i])));
             }
         }
         List<RedisFuture> futures = new ArrayList<>(3);
@@ -272,22 +588,21 @@ public class LettuceAnomalyReportAccessor
      *
      * @param reportIds set of report IDs
      * @param acc       accessor instance
+     * @param cmd       string commands of the caller's connection
+     * @param bin       binary commands of the caller's connection
      * @return list of anomaly reports
      * @throws IOException if an error occurs
      */
     protected static List<AnomalyReport> getAnomalyReports(
         Set<String> reportIds,
-        AbstractLettuceAccessor acc
+        AbstractLettuceAccessor acc,
+        AsyncCommands<String> cmd,
+        AsyncCommands<byte[]> bin
     ) throws IOException {
-        try (
-            RedisConnection<String> conn = acc.connect();
-            RedisConnection<byte[]> binary = acc.binary()
-        ) {
+        try {
             List<RedisFuture<Map<String, String>>> values = new ArrayList<>(reportIds.size());
             List<RedisFuture<List<ScoredValue<byte[]>>>> timeStart = new ArrayList<>(reportIds.size());
             List<RedisFuture<List<ScoredValue<byte[]>>>> timeEnd = new ArrayList<>(reportIds.size());
-            AsyncCommands<String> cmd = conn.async();
-            AsyncCommands<byte[]> bin = binary.async();
             cmd.setAutoFlushCommands(false);
             bin.setAutoFlushCommands(false);
             for (String id : reportIds) {
@@ -307,7 +622,9 @@ public class LettuceAnomalyReportAccessor
             acc.awaitCollection(combine);
             List<AnomalyReport> reports = new ArrayList<>(values.size());
             for (int i = 0; i < values.size(); i++) {
-                AnomalyReport report = acc.unmap(AnomalyReport.class, values.get(i).get());
+                Map<String, String> hash = values.get(i).get();
+                AnomalyReport report = acc.unmap(AnomalyReport.class, hash);
+                report.setDeviationString(hash.get(DatabaseConstants.DEVIATION_STRING));
                 decodeAndSetTimestamp(report, timeStart.get(i).get(), timeEnd.get(i).get());
                 reports.add(report);
             }
@@ -11,12 +11,16 @@ import com.yahoo.sherlock.store.JobMetadataAccessor;
 import com.yahoo.sherlock.store.Store;
 import com.yahoo.sherlock.store.StoreParams;
 import com.yahoo.sherlock.store.core.AsyncCommands;
+import com.yahoo.sherlock.store.core.NearCache;
 import com.yahoo.sherlock.store.core.RedisConnection;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +40,19 @@ public class LettuceJobMetadataAccessor
 
     private final DeletedJobMetadataAccessor deletedAccessor;
 
+    /**
+     * Job hashes read from Redis, keyed on job ID.
+     */
+    private final NearCache<Map<String, String>> cache;
+
+    /**
+     * Key of the counter incremented on every job write,
+     * used to invalidate the caches of other instances.
+     * It is kept outside the job keyspace, whose keys
+     * are read as job hashes.
+     */
+    private final String versionName;
+
     /**
      * @param params store parameters
      */
@@ -44,9 +61,78 @@ public class LettuceJobMetadataAccessor
         this.jobIdName = params.get(DatabaseConstants.INDEX_JOB_ID);
         this.jobStatusName = params.get(DatabaseConstants.INDEX_JOB_STATUS);
         this.clusterIdName = params.get(DatabaseConstants.INDEX_JOB_CLUSTER_ID);
+        this.versionName = params.get(DatabaseConstants.DB_NAME) + "Version";
+        this.cache = new NearCache<>(
+                getIntParam(params, DatabaseConstants.JOB_CACHE_SIZE, 0),
+                getIntParam(params, DatabaseConstants.JOB_CACHE_CHECK_INTERVAL, 1000));
         deletedAccessor = Store.getDeletedJobMetadataAccessor();
     }
 
+    /**
+     * @param params       store parameters
+     * @param name         parameter name
+     * @param defaultValue value used if the parameter is not set
+     * @return the integer parameter value
+     */
+    private static int getIntParam(StoreParams params, String name, int defaultValue) {
+        String value = params.get(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * @param status job status
+     * @return key of the set of jobs with the status, in the slot of the job indices
+     */
+    private String statusIndex(String status) {
+        return index(jobStatusName, tag(jobIdName), status);
+    }
+
+    /**
+     * @param clusterId cluster ID
+     * @return key of the set of jobs of the cluster, in the slot of the job indices
+     */
+    private String clusterIndex(Object clusterId) {
+        return index(clusterIdName, tag(jobIdName), clusterId);
+    }
+
+    @Override
+    public Map<String, Object> getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Read the version counter if it is due for a check, so that
+     * jobs changed by other instances are not served from the cache.
+     *
+     * @param conn the connection to use
+     */
+    protected void checkCacheVersion(RedisConnection<String> conn) {
+        if (cache.isCheckDue()) {
+            String version = conn.sync().get(versionName);
+            cache.checked(version == null ? 0L : Long.parseLong(version));
+        }
+    }
+
+    /**
+     * Record that jobs were written, once the write has completed.
+     * If the version counter could not be incremented, the whole
+     * cache is dropped.
+     *
+     * @param version result of incrementing the version counter
+     * @param jobIds  IDs of the written jobs
+     */
+    protected void written(RedisFuture<Long> version, Collection<String> jobIds) {
+        try {
+            cache.written(version.get(), jobIds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cache.clear();
+        } catch (ExecutionException e) {
+            log.error("Error while incrementing the job version!", e);
+            cache.clear();
+        }
+    }
+
     /**
      * @param job job to check ID
      * @return whether the job has an assigned ID
@@ -78,9 +164,13 @@ public class LettuceJobMetadataAccessor
             JobMetadata job = unmap(JobMetadata.class, value.get());
             RedisFuture<Long> delStatus = cmd.srem(index(jobStatusName, job.getJobStatus()), jobId);
             RedisFuture<Long> delCluster = cmd.srem(index(clusterIdName, job.getClusterId()), jobId);
+            RedisFuture<Long> delTaggedStatus = cmd.srem(statusIndex(job.getJobStatus()), jobId);
+            RedisFuture<Long> delTaggedCluster = cmd.srem(clusterIndex(job.getClusterId()), jobId);
             RedisFuture<Long> delValue = cmd.del(key(jobId));
+            RedisFuture<Long> version = cmd.incr(versionName);
             cmd.flushCommands();
-            await(delStatus, delCluster, delValue);
+            await(delStatus, delCluster, delTaggedStatus, delTaggedCluster, delValue, version);
+            written(version, Collections.singleton(jobId));
             log.info("Successfully deleted job [{}]", jobId);
             return job;
         } catch (InterruptedException | ExecutionException e) {
@@ -114,17 +204,22 @@ public class LettuceJobMetadataAccessor
             );
             awaitCollection(futures);
             Set<JobMetadata> jobs = new HashSet<>((int) (1.5 * values.size()));
-            RedisFuture[] futureArr = new RedisFuture[3 * values.size()];
+            RedisFuture[] futureArr = new RedisFuture[5 * values.size() + 1];
             int i = 0;
             for (RedisFuture<Map<String, String>> value : values) {
                 JobMetadata job = unmap(JobMetadata.class, value.get());
                 jobs.add(job);
                 futureArr[i++] = cmd.srem(index(jobStatusName, job.getJobStatus()), job.getJobId().toString());
                 futureArr[i++] = cmd.srem(index(clusterIdName, job.getClusterId()), job.getJobId().toString());
+                futureArr[i++] = cmd.srem(statusIndex(job.getJobStatus()), job.getJobId().toString());
+                futureArr[i++] = cmd.srem(clusterIndex(job.getClusterId()), job.getJobId().toString());
                 futureArr[i++] = cmd.del(key(job.getJobId()));
             }
+            RedisFuture<Long> version = cmd.incr(versionName);
+            futureArr[i] = version;
             cmd.flushCommands();
             await(futureArr);
+            written(version, jobIds);
             log.info("Successfully delete [{}] jobs", jobs.size());
             return jobs;
         } catch (InterruptedException | ExecutionException e) {
@@ -137,23 +232,31 @@ public class LettuceJobMetadataAccessor
      * Delete a set of jobs where the jobs are given.
      *
      * @param jobs jobs to delete
+     * @throws IOException if an error occurs
      */
-    public void deleteGivenJobs(Set<JobMetadata> jobs) {
+    public void deleteGivenJobs(Set<JobMetadata> jobs) throws IOException {
         log.info("Deleting [{}] given jobs", jobs.size());
         try (RedisConnection<String> conn = connect()) {
             AsyncCommands<String> cmd = conn.async();
-            RedisFuture[] futures = new RedisFuture[4 * jobs.size()];
+            RedisFuture[] futures = new RedisFuture[6 * jobs.size() + 1];
+            List<String> ids = new ArrayList<>(jobs.size());
             cmd.setAutoFlushCommands(false);
             int i = 0;
             for (JobMetadata job : jobs) {
                 String id = job.getJobId().toString();
+                ids.add(id);
                 futures[i++] = cmd.srem(index(jobIdName, "all"), id);
                 futures[i++] = cmd.srem(index(jobStatusName, job.getJobStatus()), id);
                 futures[i++] = cmd.srem(index(clusterIdName, job.getClusterId()), id);
+                futures[i++] = cmd.srem(statusIndex(job.getJobStatus()), id);
+                futures[i++] = cmd.srem(clusterIndex(job.getClusterId()), id);
                 futures[i++] = cmd.del(key(id));
             }
+            RedisFuture<Long> version = cmd.incr(versionName);
+            futures[i] = version;
             cmd.flushCommands();
             await(futures);
+            written(version, ids);
         }
     }
 
@@ -161,17 +264,32 @@ public class LettuceJobMetadataAccessor
     public List<JobMetadata> getJobMetadata(Set<String> jobIds) throws IOException {
         log.info("Getting list of [{}] jobs", jobIds.size());
         try (RedisConnection<String> conn = connect()) {
+            checkCacheVersion(conn);
+            long generation = cache.generation();
+            // Jobs missing from the cache are fetched in one pipelined batch
+            Map<String, Map<String, String>> hashes = new LinkedHashMap<>();
+            Map<String, RedisFuture<Map<String, String>>> values = new LinkedHashMap<>();
             AsyncCommands<String> cmd = conn.async();
-            List<RedisFuture<Map<String, String>>> values = new ArrayList<>(jobIds.size());
             cmd.setAutoFlushCommands(false);
             for (String id : jobIds) {
-                values.add(cmd.hgetall(key(id)));
+                Map<String, String> hash = cache.get(id);
+                hashes.put(id, hash);
+                if (hash == null) {
+                    values.put(id, cmd.hgetall(key(id)));
+                }
             }
             cmd.flushCommands();
-            await(values);
-            List<JobMetadata> jobs = new ArrayList<>(values.size());
-            for (RedisFuture<Map<String, String>> value : values) {
-                jobs.add(unmap(JobMetadata.class, value.get()));
+            await(values.values());
+            for (Map.Entry<String, RedisFuture<Map<String, String>>> value : values.entrySet()) {
+                Map<String, String> hash = value.getValue().get();
+                hashes.put(value.getKey(), hash);
+                if (!hash.isEmpty()) {
+                    cache.put(value.getKey(), Collections.unmodifiableMap(hash), generation);
+                }
+            }
+            List<JobMetadata> jobs = new ArrayList<>(hashes.size());
+            for (Map<String, String> hash : hashes.values()) {
+                jobs.add(unmap(JobMetadata.class, hash));
             }
             return jobs;
         } catch (InterruptedException | ExecutionException e) {
@@ -184,9 +302,15 @@ public class LettuceJobMetadataAccessor
     public JobMetadata getJobMetadata(String jobId) throws IOException, JobNotFoundException {
         log.info("Getting job metadata [{}]", jobId);
         try (RedisConnection<String> conn = connect()) {
-            Map<String, String> jobMap = conn.sync().hgetall(key(jobId));
-            if (jobMap.isEmpty()) {
-                throw new JobNotFoundException(jobId);
+            checkCacheVersion(conn);
+            Map<String, String> jobMap = cache.get(jobId);
+            if (jobMap == null) {
+                long generation = cache.generation();
+                jobMap = conn.sync().hgetall(key(jobId));
+                if (jobMap.isEmpty()) {
+                    throw new JobNotFoundException(jobId);
+                }
+                cache.put(jobId, Collections.unmodifiableMap(jobMap), generation);
             }
             return unmap(JobMetadata.class, jobMap);
         }
@@ -206,10 +330,15 @@ public class LettuceJobMetadataAccessor
                     cmd.hmset(key(job.getJobId()), map(job)),
                     cmd.sadd(index(jobIdName, "all"), jobId),
                     cmd.sadd(index(jobStatusName, job.getJobStatus()), jobId),
-                    cmd.sadd(index(clusterIdName, job.getClusterId()), jobId)
+                    cmd.sadd(index(clusterIdName, job.getClusterId()), jobId),
+                    cmd.sadd(statusIndex(job.getJobStatus()), jobId),
+                    cmd.sadd(clusterIndex(job.getClusterId()), jobId)
             };
+            RedisFuture<Long> version = cmd.incr(versionName);
             cmd.flushCommands();
             await(futures);
+            await(version);
+            written(version, Collections.singleton(jobId));
             log.info("Job metadata with ID [{}] is updated", job.getJobId());
             return String.valueOf(job.getJobId());
         }
@@ -232,18 +361,25 @@ public class LettuceJobMetadataAccessor
                 }
             }
             AsyncCommands<String> cmd = conn.async();
-            RedisFuture[] futures = new RedisFuture[4 * jobs.size()];
+            RedisFuture[] futures = new RedisFuture[6 * jobs.size() + 1];
+            List<String> ids = new ArrayList<>(jobs.size());
             cmd.setAutoFlushCommands(false);
             int i = 0;
             for (JobMetadata job : jobs) {
                 String jobId = job.getJobId().toString();
+                ids.add(jobId);
                 futures[i++] = cmd.hmset(key(job.getJobId()), map(job));
                 futures[i++] = cmd.sadd(index(jobIdName, "all"), jobId);
                 futures[i++] = cmd.sadd(index(jobStatusName, job.getJobStatus()), jobId);
                 futures[i++] = cmd.sadd(index(clusterIdName, job.getClusterId()), jobId);
+                futures[i++] = cmd.sadd(statusIndex(job.getJobStatus()), jobId);
+                futures[i++] = cmd.sadd(clusterIndex(job.getClusterId()), jobId);
             }
+            RedisFuture<Long> version = cmd.incr(versionName);
+            futures[i] = version;
             cmd.flushCommands();
             await(futures);
+            written(version, ids);
         }
     }
 
@@ -256,52 +392,55 @@ public class LettuceJobMetadataAccessor
     @Override
     public List<JobMetadata> getJobMetadataList() throws IOException {
         log.info("Getting job metadata list");
-        try (RedisConnection<String> conn = connect()) {
-            return getJobMetadata(conn.sync().smembers(index(jobIdName, "all")));
-        }
+        return getJobMetadata(members(index(jobIdName, "all")));
     }
 
     @Override
     public List<JobMetadata> getRunningJobs() throws IOException {
         log.info("Getting list of running jobs");
-        try (RedisConnection<String> conn = connect()) {
-            return getJobMetadata(conn.sync().smembers(index(jobStatusName, JobStatus.RUNNING.getValue())));
-        }
+        return getJobMetadata(members(index(jobStatusName, JobStatus.RUNNING.getValue())));
     }
 
     @Override
     public List<JobMetadata> getJobsAssociatedWithCluster(String clusterId) throws IOException {
         log.info("Getting jobs associated with cluster [{}]", clusterId);
-        try (RedisConnection<String> conn = connect()) {
-            return getJobMetadata(conn.sync().smembers(index(clusterIdName, clusterId)));
-        }
+        return getJobMetadata(members(index(clusterIdName, clusterId)));
     }
 
     @Override
     public List<JobMetadata> getRunningJobsAssociatedWithCluster(String clusterId) throws IOException {
         log.info("Getting running jobs associated with cluster [{}]", clusterId);
+        String runningIndex = statusIndex(JobStatus.RUNNING.getValue());
+        String clusterIndex = clusterIndex(clusterId);
+        Set<String> ids;
         try (RedisConnection<String> conn = connect()) {
             AsyncCommands<String> cmd = conn.async();
-            cmd.setAutoFlushCommands(false);
-            RedisFuture<Set<String>> running = cmd.smembers(index(jobStatusName, JobStatus.RUNNING.getValue()));
-            RedisFuture<Set<String>> cluster = cmd.smembers(index(clusterIdName, clusterId));
-            cmd.flushCommands();
-            await(running, cluster);
-            Set<String> ids = running.get();
-            ids.retainAll(cluster.get());
-            return getJobMetadata(ids);
+            ids = cmd.sinter(runningIndex, clusterIndex).get();
+            if (!ids.remove(INDEX_COMPLETE)) {
+                // Fill the tagged sets once from the untagged ones
+                cmd.setAutoFlushCommands(false);
+                RedisFuture<Set<String>> running = cmd.smembers(index(jobStatusName, JobStatus.RUNNING.getValue()));
+                RedisFuture<Set<String>> cluster = cmd.smembers(index(clusterIdName, clusterId));
+                cmd.flushCommands();
+                await(running, cluster);
+                RedisFuture<Long> addRunning = cmd.sadd(runningIndex, withComplete(running.get()));
+                RedisFuture<Long> addCluster = cmd.sadd(clusterIndex, withComplete(cluster.get()));
+                cmd.flushCommands();
+                await(addRunning, addCluster);
+                ids = running.get();
+                ids.retainAll(cluster.get());
+            }
         } catch (InterruptedException | ExecutionException e) {
             log.error("Error while getting jobs!", e);
             throw new IOException(e.getMessage(), e);
         }
+        return getJobMetadata(ids);
     }
 
     @Override
     public void deleteDebugJobs() throws IOException {
         log.info("Deleting all DEBUG jobs");
-        try (RedisConnection<String> conn = connect()) {
-            performDeleteJob(conn.sync().smembers(index(jobStatusName, "DEBUG")));
-        }
+        performDeleteJob(members(index(jobStatusName, "DEBUG")));
     }
 
     @Override
@@ -309,4 +448,19 @@ public class LettuceJobMetadataAccessor
         log.info("Performing bulk delete of [{}] jobs", jobIds);
         performDeleteJob(jobIds);
     }
+
+    /**
+     * Read the members of an index set. The connection is given back
+     * before the caller reads the jobs, so that a single call never
+     * holds more than one pooled connection.
+     *
+     * @param index index set key
+     * @return the job IDs in the set
+     * @throws IOException if an error occurs
+     */
+    private Set<String> members(String index) throws IOException {
+        try (RedisConnection<String> conn = connect()) {
+            return conn.sync().smembers(index);
+        }
+    }
 }
@@ -11,6 +11,7 @@ import com.yahoo.sherlock.store.JobMetadataAccessor;
 import com.yahoo.sherlock.store.JobScheduler;
 import com.yahoo.sherlock.store.Store;
 import com.yahoo.sherlock.store.StoreParams;
+import com.yahoo.sherlock.store.core.LuaScript;
 import com.yahoo.sherlock.store.core.RedisConnection;
 import com.yahoo.sherlock.store.core.SyncCommands;
 import com.yahoo.sherlock.utils.TimeUtils;
@@ -19,8 +20,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -35,7 +40,9 @@ public class LettuceJobScheduler
     /**
      * Redis command {@code ZREMRANGEBYSCORE} lacks {@code LIMIT}.
      * Modified from https://github.com/antirez/redis/issues/180.
-     * Scripts are executed atomically.
+     * Scripts are executed atomically. A popped job is scored in the
+     * pending queue by the time it was popped, and is returned to the
+     * job queue if it is still pending five minutes later.
      */
     public static final String SCRIPT_ZREMRANGEBYSCORE =
             "local entry = redis.call('zrangebyscore', KEYS[1], 0, tonumber(ARGV[1]), 'WITHSCORES', 'LIMIT', 0, 1);\n" +
@@ -50,9 +57,51 @@ public class LettuceJobScheduler
                     "local jobId = entry[1];\n" +
                     "local time = entry[2];\n" +
                     "redis.call('zrem', KEYS[1], jobId);\n" +
-                    "redis.call('zadd', KEYS[2], time, jobId);\n" +
+                    "redis.call('zadd', KEYS[2], tonumber(ARGV[1]), jobId);\n" +
                     "return {jobId, time};";
 
+    /**
+     * Batch version of {@link #SCRIPT_ZREMRANGEBYSCORE} which moves
+     * up to {@code ARGV[2]} due jobs to the pending queue at once.
+     */
+    public static final String SCRIPT_ZREMRANGEBYSCORE_BATCH =
+            "local entries = redis.call('zrangebyscore', KEYS[1], 0, tonumber(ARGV[1]), 'WITHSCORES', 'LIMIT', 0, tonumber(ARGV[2]));\n" +
+                    "local pending = redis.call('zrangebyscore', KEYS[2], 0, tonumber(ARGV[1]) - 5, 'WITHSCORES');\n" +
+                    "for i = 1, #pending, 2 do\n" +
+                    "\tredis.call('zrem', KEYS[2], pending[i]);\n" +
+                    "\tredis.call('zadd', KEYS[1], pending[i + 1], pending[i]);\n" +
+                    "end\n" +
+                    "for i = 1, #entries, 2 do\n" +
+                    "\tredis.call('zrem', KEYS[1], entries[i]);\n" +
+                    "\tredis.call('zadd', KEYS[2], tonumber(ARGV[1]), entries[i]);\n" +
+                    "end\n" +
+                    "return entries;";
+
+    /**
+     * Re-score jobs which are still in the pending queue
+     * to the time {@code ARGV[1]}.
+     */
+    public static final String SCRIPT_TOUCH_PENDING =
+            "for i = 2, #ARGV do\n" +
+                    "\tredis.call('zadd', KEYS[1], 'XX', tonumber(ARGV[1]), ARGV[i]);\n" +
+                    "end\n" +
+                    "return #ARGV - 1;";
+
+    /**
+     * Pop script, executed by digest.
+     */
+    private static final LuaScript POP_SCRIPT = LuaScript.of("popQueue", SCRIPT_ZREMRANGEBYSCORE);
+
+    /**
+     * Batch pop script, executed by digest.
+     */
+    private static final LuaScript POP_BATCH_SCRIPT = LuaScript.of("popQueueBatch", SCRIPT_ZREMRANGEBYSCORE_BATCH);
+
+    /**
+     * Pending queue touch script, executed by digest.
+     */
+    private static final LuaScript TOUCH_PENDING_SCRIPT = LuaScript.of("touchPending", SCRIPT_TOUCH_PENDING);
+
     private String queueName;
     private String pendingQueueName;
     private final JobMetadataAccessor jobAccessor;
@@ -126,14 +175,15 @@ public class LettuceJobScheduler
     @Override
     public List<JobMetadata> getAllQueue() throws IOException {
         log.info("Retrieving all jobs from the queue");
+        Set<String> ids;
         try (RedisConnection<String> conn = connect()) {
             List<ScoredValue<String>> jobs = conn.sync().zrangeWithScores(queueName, 0, -1);
-            Set<String> ids = new HashSet<>((int) (1.5 * jobs.size()));
+            ids = new HashSet<>((int) (1.5 * jobs.size()));
             for (ScoredValue<String> job : jobs) {
                 ids.add(job.value);
             }
-            return jobAccessor.getJobMetadata(ids);
         }
+        return jobAccessor.getJobMetadata(ids);
     }
 
     @Override
@@ -147,13 +197,16 @@ public class LettuceJobScheduler
     @Override
     public JobMetadata popQueue(long timestampMinutes) throws IOException {
         log.debug("Popping one job from the queue with time [{}]", timestampMinutes);
-        try (RedisConnection<String> conn = connect()) {
-            SyncCommands<String> syncCmd = conn.sync();
-            String[] keys = {queueName, pendingQueueName};
-            List<Object> result = syncCmd.eval(
-                    SCRIPT_ZREMRANGEBYSCORE,
-                    ScriptOutputType.MULTI,
-                    keys, String.valueOf(timestampMinutes));
+        // Jobs which no longer exist are skipped, so null means the queue is drained
+        while (true) {
+            List<Object> result;
+            try (RedisConnection<String> conn = connect()) {
+                String[] keys = {queueName, pendingQueueName};
+                result = POP_SCRIPT.execute(
+                        conn.sync(),
+                        ScriptOutputType.MULTI,
+                        keys, new String[] {String.valueOf(timestampMinutes)});
+            }
             if (result.isEmpty()) {
                 return null;
             }
@@ -163,10 +216,70 @@ public class LettuceJobScheduler
                     .getTimeFromSeconds(timestampMinutes * 60L, Constants.TIMESTAMP_FORMAT_NO_SECONDS));
                 return jobAccessor.getJobMetadata(jobId);
             } catch (JobNotFoundException e) {
-                syncCmd.zrem(pendingQueueName, jobId);
-                return null;
+                removePending(jobId);
+            }
+        }
+    }
+
+    @Override
+    public List<JobMetadata> popQueue(long timestampMinutes, int maxJobs) throws IOException {
+        if (maxJobs <= 0) {
+            return Collections.emptyList();
+        }
+        log.debug("Popping up to [{}] jobs from the queue with time [{}]", maxJobs, timestampMinutes);
+        // Batches of jobs which no longer exist are skipped, so an empty list means the queue is drained
+        List<JobMetadata> jobs;
+        do {
+            jobs = popBatch(timestampMinutes, maxJobs);
+        } while (jobs != null && jobs.isEmpty());
+        return jobs == null ? Collections.emptyList() : jobs;
+    }
+
+    /**
+     * Pop a batch of jobs and fetch their metadata, dropping
+     * jobs which no longer exist from the pending queue.
+     *
+     * @param timestampMinutes the current time in minutes
+     * @param maxJobs          the maximum number of jobs to pop
+     * @return the popped jobs which exist, or null if no job was popped
+     * @throws IOException if an error occurs
+     */
+    private List<JobMetadata> popBatch(long timestampMinutes, int maxJobs) throws IOException {
+        List<Object> result;
+        try (RedisConnection<String> conn = connect()) {
+            String[] keys = {queueName, pendingQueueName};
+            result = POP_BATCH_SCRIPT.execute(
+                    conn.sync(),
+                    ScriptOutputType.MULTI,
+                    keys, new String[] {String.valueOf(timestampMinutes), String.valueOf(maxJobs)});
+        }
+        if (result.isEmpty()) {
+            return null;
+        }
+        Set<String> jobIds = new LinkedHashSet<>();
+        for (int i = 0; i < result.size(); i += 2) {
+            jobIds.add((String) result.get(i));
+        }
+        log.info("Found [{}] jobs on queue for time [{}]", jobIds.size(), TimeUtils
+            .getTimeFromSeconds(timestampMinutes * 60L, Constants.TIMESTAMP_FORMAT_NO_SECONDS));
+        // Metadata of all popped jobs is fetched in one pipelined batch
+        List<JobMetadata> fetched = jobAccessor.getJobMetadata(jobIds);
+        List<JobMetadata> jobs = new ArrayList<>(fetched.size());
+        List<String> missing = new ArrayList<>(0);
+        Iterator<String> ids = jobIds.iterator();
+        for (JobMetadata job : fetched) {
+            String jobId = ids.next();
+            if (job == null || job.getJobId() == null) {
+                log.info("Job [{}] no longer exists, removing it from the pending queue", jobId);
+                missing.add(jobId);
+            } else {
+                jobs.add(job);
             }
         }
+        if (!missing.isEmpty()) {
+            removePending(missing);
+        }
+        return jobs;
     }
 
     @Override
@@ -176,4 +289,37 @@ public class LettuceJobScheduler
             conn.sync().zrem(pendingQueueName, jobId);
         }
     }
+
+    @Override
+    public void removePending(Collection<String> jobIds) throws IOException {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        log.info("Removing [{}] jobs from the pending queue", jobIds.size());
+        try (RedisConnection<String> conn = connect()) {
+            SyncCommands<String> syncCmd = conn.sync();
+            syncCmd.multi();
+            for (String id : jobIds) {
+                syncCmd.zrem(pendingQueueName, id);
+            }
+            syncCmd.exec();
+        }
+    }
+
+    @Override
+    public void touchPending(Collection<String> jobIds, long timestampMinutes) throws IOException {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        log.debug("Touching [{}] jobs in the pending queue", jobIds.size());
+        List<String> values = new ArrayList<>(jobIds.size() + 1);
+        values.add(String.valueOf(timestampMinutes));
+        values.addAll(jobIds);
+        try (RedisConnection<String> conn = connect()) {
+            TOUCH_PENDING_SCRIPT.execute(
+                    conn.sync(),
+                    ScriptOutputType.INTEGER,
+                    new String[] {pendingQueueName}, values.toArray(new String[0]));
+        }
+    }
 }
@@ -26,7 +26,9 @@ import java.util.concurrent.ExecutionException;
 import static com.yahoo.sherlock.store.redis.Mapper.encode;
 
 /**
- * Json dumper for a clustered redis instance.
+ * Json dumper for a clustered redis instance. Anomaly timestamp
+ * sets and compact report records are binary, and are dumped
+ * as arrays of bytes.
  */
 @Slf4j
 public class LettuceJsonDumper
@@ -53,6 +55,7 @@ public class LettuceJsonDumper
             Map<String, RedisFuture<Set<String>>> indices = new TreeMap<>();
             Map<String, RedisFuture<Map<String, String>>> hashes = new TreeMap<>();
             Map<String, RedisFuture<List<ScoredValue<byte[]>>>> binaries = new TreeMap<>();
+            Map<String, RedisFuture<byte[]>> records = new TreeMap<>();
             Map<String, RedisFuture<List<String>>> hashKeys = new TreeMap<>();
             Map<String, RedisFuture<List<String>>> indexKeys = new TreeMap<>();
             List<String> binaryKeys = new LinkedList<>();
@@ -94,6 +97,9 @@ public class LettuceJsonDumper
                 for (String hashKey : hashKeyList.get()) {
                     if (hashKey.contains(DatabaseConstants.ANOMALY_TIMESTAMP)) {
                         binaryKeys.add(hashKey);
+                    } else if (hashKey.endsWith(":" + DatabaseConstants.REPORT_RECORD)) {
+                        // Compact report records are binary strings rather than hashes
+                        records.put(hashKey, bin.get(encode(hashKey)));
                     } else {
                         hashes.put(hashKey, cmd.hgetall(hashKey));
                     }
@@ -106,6 +112,7 @@ public class LettuceJsonDumper
             cmd.flushCommands();
             bin.flushCommands();
             futures.addAll(binaries.values());
+            futures.addAll(records.values());
             futures.addAll(hashes.values());
             futures.addAll(indices.values());
             awaitRaw(futures);
@@ -128,6 +135,9 @@ public class LettuceJsonDumper
             for (Map.Entry<String, RedisFuture<List<ScoredValue<byte[]>>>> binEl : binaries.entrySet()) {
                 result.add(binEl.getKey(), gson.toJsonTree(binEl.getValue().get(), new TypeToken<List<ScoredValue<byte[]>>>() { }.getType()));
             }
+            for (Map.Entry<String, RedisFuture<byte[]>> record : records.entrySet()) {
+                result.add(record.getKey(), gson.toJsonTree(record.getValue().get(), byte[].class));
+            }
             return result;
         } catch (InterruptedException | ExecutionException e) {
             log.error("Error while retrieving Redis database!", e);
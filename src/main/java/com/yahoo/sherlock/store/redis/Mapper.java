@@ -2,14 +2,10 @@ package com.yahoo.sherlock.store.redis;
 
 import com.yahoo.sherlock.exception.StoreException;
 import com.yahoo.sherlock.store.Attribute;
-import com.yahoo.sherlock.utils.NumberUtils;
-import com.yahoo.sherlock.utils.Utils;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
@@ -30,10 +26,13 @@ public abstract class Mapper<T> {
      */
     private Class<?> objClass = null;
     /**
-     * Lazily initialized array of fields
-     * that are hashed and unhashed.
+     * Lazily initialized accessors of the
+     * fields that are hashed and unhashed.
+     * It is written last and read first, so
+     * that a mapper shared between threads
+     * only sees a fully initialized state.
      */
-    private Field[] fields = null;
+    private volatile ObjectCodec<?> codec = null;
 
     /**
      * Initialize the hash mapper.
@@ -42,10 +41,7 @@ public abstract class Mapper<T> {
      */
     private void init(Class<?> cls) {
         objClass = cls;
-        fields = Utils.findFields(objClass, Attribute.class);
-        for (Field field : fields) {
-            field.setAccessible(true);
-        }
+        codec = ObjectCodec.of(cls);
     }
 
     /**
@@ -58,7 +54,7 @@ public abstract class Mapper<T> {
      *                        the previous object class
      */
     private void checkReady(Object obj) {
-        if (objClass == null) {
+        if (codec == null) {
             init(obj.getClass());
         } else if (!objClass.equals(obj.getClass())) {
             throw new StoreException(String.format(
@@ -79,7 +75,7 @@ public abstract class Mapper<T> {
      *                        the previous object class
      */
     private void checkReady(Class<?> cls) {
-        if (objClass == null) {
+        if (codec == null) {
             init(cls);
         } else if (!objClass.equals(cls)) {
             throw new StoreException(String.format(
@@ -92,12 +88,12 @@ public abstract class Mapper<T> {
 
     /**
      * This method should be used by subclasses to
-     * retrieve the field array.
+     * access the serialized fields.
      *
-     * @return the object serialized fields
+     * @return accessors of the object serialized fields
      */
-    protected Field[] getFields() {
-        return fields;
+    protected ObjectCodec.FieldCodec[] getFieldCodecs() {
+        return codec.getFields();
     }
 
     /**
@@ -111,25 +107,12 @@ public abstract class Mapper<T> {
      */
     @NonNull
     protected <C> C construct(Class<C> cls) {
-        Constructor<C> ctor;
-        C obj;
         try {
-            ctor = cls.getConstructor();
-            obj = ctor.newInstance();
-        } catch (NoSuchMethodException e) {
-            log.error("Could not find default constructor: {}", cls);
-            throw new StoreException(String.format(
-                    "Class %s does not provide a default constructor",
-                    cls.getSimpleName()
-            ));
-        } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+            return ObjectCodec.of(cls).newInstance();
+        } catch (StoreException e) {
             log.error("Error while instantiating object: {}", cls, e);
-            throw new StoreException(String.format(
-                    "Failed to instantiate new object of type %s",
-                    cls.getSimpleName()
-            ));
+            throw e;
         }
-        return obj;
     }
 
     /**
@@ -190,77 +173,6 @@ public abstract class Mapper<T> {
         return str.getBytes(StandardCharsets.UTF_8);
     }
 
-    /**
-     * Container class for an arbitrary type.
-     *
-     * @param <T> contained type
-     */
-    public static abstract class Box<T> {
-        private final T t;
-
-        /**
-         * @param t type instance to contain
-         */
-        private Box(T t) {
-            this.t = t;
-        }
-
-        /**
-         * @return contained type instance
-         */
-        public T get() {
-            return t;
-        }
-    }
-
-    /**
-     * Container for an integer.
-     */
-    private static class IntBox extends Box<Integer> {
-        /**
-         * @param integer value to contain
-         */
-        private IntBox(Integer integer) {
-            super(integer);
-        }
-    }
-
-    /**
-     * Container for a long.
-     */
-    private static class LongBox extends Box<Long> {
-        /**
-         * @param aLong value to contain
-         */
-        private LongBox(Long aLong) {
-            super(aLong);
-        }
-    }
-
-    /**
-     * Container for a double.
-     */
-    private static class DoubleBox extends Box<Double> {
-        /**
-         * @param aDouble value to contain
-         */
-        private DoubleBox(Double aDouble) {
-            super(aDouble);
-        }
-    }
-
-    /**
-     * Container for a String.
-     */
-    private static class StringBox extends Box<String> {
-        /**
-         * @param string value to contain
-         */
-        private StringBox(String string) {
-            super(string);
-        }
-    }
-
     private static Class<?>[] CLASS_ARRAY = {
         Integer.class,
         Long.class,
@@ -294,28 +206,4 @@ public abstract class Mapper<T> {
         return Attribute.Type.STRING;
     }
 
-    /**
-     * Wrap the value of a field as the appropriate type.
-     *
-     * @param field  field whose value to wrap
-     * @param strVal the string value of the field
-     * @param <T>    the value type
-     * @param def    default value
-     * @return a container for the value
-     */
-    @SuppressWarnings("unchecked")
-    public static <T> Box<T> wrapType(Field field, String strVal, Object def) {
-        Attribute.Type type = resolveType(field);
-        switch (type) {
-            case INTEGER:
-                return (Box<T>) new IntBox(NumberUtils.parseInt(strVal, (Integer) def));
-            case LONG:
-                return (Box<T>) new LongBox(NumberUtils.parseLong(strVal, (Long) def));
-            case DOUBLE:
-                return (Box<T>) new DoubleBox(NumberUtils.parseDouble(strVal, (Double) def));
-            default:
-                return (Box<T>) new StringBox(strVal == null ? (String) def : strVal);
-        }
-    }
-
 }
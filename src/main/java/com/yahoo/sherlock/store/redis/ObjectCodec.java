@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.store.redis;
+
+import com.yahoo.sherlock.exception.StoreException;
+import com.yahoo.sherlock.store.Attribute;
+import com.yahoo.sherlock.utils.NumberUtils;
+import com.yahoo.sherlock.utils.Utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+/**
+ * Accessors for the {@code Attribute} fields of a class, built once
+ * per class from method handles. Mappers use a codec instead of looking
+ * up fields, annotations and constructors through reflection for every
+ * object. Numeric attributes are parsed directly to their type.
+ *
+ * @param <C> the object type
+ */
+public final class ObjectCodec<C> {
+
+    /**
+     * Codecs of each class, built on first use.
+     */
+    private static final ClassValue<ObjectCodec<?>> CODECS = new ClassValue<ObjectCodec<?>>() {
+        @Override
+        protected ObjectCodec<?> computeValue(Class<?> type) {
+            return new ObjectCodec<>(type);
+        }
+    };
+
+    /**
+     * Type of the constructor handles, {@code ()Object}.
+     */
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    /**
+     * Type of the getter handles, {@code (Object)Object}.
+     */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    /**
+     * Type of the setter handles, {@code (Object, Object)void}.
+     */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<C> type;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+
+    /**
+     * @param type the object class
+     */
+    private ObjectCodec(Class<C> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle ctor;
+        try {
+            Constructor<C> reflected = type.getConstructor();
+            reflected.setAccessible(true);
+            ctor = lookup.unreflectConstructor(reflected).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            ctor = null;
+        }
+        this.constructor = ctor;
+        Field[] attributes = Utils.findFields(type, Attribute.class);
+        this.fields = new FieldCodec[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            fields[i] = new FieldCodec(lookup, attributes[i]);
+        }
+    }
+
+    /**
+     * Get the codec of a class.
+     *
+     * @param type the object class
+     * @param <C>  the object type
+     * @return the codec for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> ObjectCodec<C> of(Class<C> type) {
+        return (ObjectCodec<C>) CODECS.get(type);
+    }
+
+    /**
+     * @return the object class
+     */
+    public Class<C> getType() {
+        return type;
+    }
+
+    /**
+     * @return the attribute fields of the class
+     */
+    public FieldCodec[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Create an object with the default constructor. A
+     * {@code StoreException} is thrown if the class has no
+     * public default constructor or the constructor fails.
+     *
+     * @return a new instance of the class
+     */
+    @SuppressWarnings("unchecked")
+    public C newInstance() {
+        if (constructor == null) {
+            throw new StoreException(String.format(
+                    "Class %s does not provide a default constructor",
+                    type.getSimpleName()
+            ));
+        }
+        try {
+            return (C) (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new StoreException(String.format(
+                    "Failed to instantiate new object of type %s",
+                    type.getSimpleName()
+            ));
+        }
+    }
+
+    /**
+     * Accessors and conversions for one attribute field.
+     */
+    public static final class FieldCodec {
+
+        private final String name;
+        private final Attribute.Type type;
+        /**
+         * Type to which string values are parsed, which is the
+         * attribute type unless the field holds a string.
+         */
+        private final Attribute.Type valueType;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        /**
+         * @param lookup lookup used to create the handles
+         * @param field  the attribute field
+         */
+        private FieldCodec(MethodHandles.Lookup lookup, Field field) {
+            this.name = field.getName();
+            this.type = Mapper.resolveType(field);
+            this.valueType = String.class.equals(field.getType()) ? Attribute.Type.STRING : type;
+            field.setAccessible(true);
+            try {
+                this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                this.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new StoreException(String.format("Cannot access field %s", name));
+            }
+        }
+
+        /**
+         * @return the field name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the attribute type of the field
+         */
+        public Attribute.Type getType() {
+            return type;
+        }
+
+        /**
+         * @param obj the object to read
+         * @return the field value
+         */
+        public Object get(Object obj) {
+            try {
+                return (Object) getter.invokeExact(obj);
+            } catch (Throwable e) {
+                throw new StoreException(String.format("Cannot access field %s", name));
+            }
+        }
+
+        /**
+         * @param obj   the object to modify
+         * @param value the field value
+         */
+        public void set(Object obj, Object value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable e) {
+                throw new StoreException(String.format("Could not set field %s", name));
+            }
+        }
+
+        /**
+         * @param obj the object to read
+         * @return the field value as a string, empty if it is {@code null}
+         */
+        public String getString(Object obj) {
+            Object value = get(obj);
+            return value == null ? "" : value.toString();
+        }
+
+        /**
+         * Set the field from its string value. Missing values, and
+         * numeric values which cannot be parsed, leave the field
+         * unchanged.
+         *
+         * @param obj   the object to modify
+         * @param value the string value, which may be {@code null}
+         */
+        public void setString(Object obj, String value) {
+            if (value == null) {
+                return;
+            }
+            Object parsed;
+            switch (valueType) {
+                case INTEGER:
+                    parsed = parseInt(value);
+                    break;
+                case LONG:
+                    parsed = parseLong(value);
+                    break;
+                case DOUBLE:
+                    parsed = parseDouble(value);
+                    break;
+                default:
+                    parsed = value;
+                    break;
+            }
+            if (parsed != null) {
+                set(obj, parsed);
+            }
+        }
+
+        /**
+         * @param value string to parse
+         * @return the integer, or null if the string is not one
+         */
+        private static Integer parseInt(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return NumberUtils.parseInt(value);
+            }
+        }
+
+        /**
+         * @param value string to parse
+         * @return the long, or null if the string is not one
+         */
+        private static Long parseLong(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return NumberUtils.parseLong(value);
+            }
+        }
+
+        /**
+         * @param value string to parse
+         * @return the double, or null if the string is not one
+         */
+        private static Double parseDouble(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return NumberUtils.parseDouble(value);
+            }
+        }
+    }
+
+}
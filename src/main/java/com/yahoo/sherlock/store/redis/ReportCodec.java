@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.store.redis;
+
+import com.yahoo.sherlock.exception.StoreException;
+import com.yahoo.sherlock.model.AnomalyReport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes a whole anomaly report, including its anomaly
+ * intervals and deviations, as a single compact binary value.
+ * Strings are length prefixed UTF-8, integers are zig-zag varints
+ * and interval start times are delta encoded from the previous
+ * interval, so that a typical interval takes two or three bytes.
+ */
+public final class ReportCodec {
+
+    /**
+     * Format version written as the first byte.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Utility class.
+     */
+    private ReportCodec() {
+    }
+
+    /**
+     * Encode a report. Deviations are stored as whole
+     * percentages, as they are in the report hashes.
+     *
+     * @param report report to encode
+     * @return the encoded report
+     */
+    public static byte[] encode(AnomalyReport report) {
+        int count = report.getAnomalyCount();
+        Writer out = new Writer(128 + 6 * count);
+        out.writeByte(VERSION);
+        out.writeString(report.getUniqueId());
+        out.writeString(report.getMetricName());
+        out.writeString(report.getGroupByFilters());
+        out.writeString(report.getQueryURL());
+        out.writeString(report.getJobFrequency());
+        out.writeString(report.getStatus());
+        out.writeString(report.getModelName());
+        out.writeString(report.getModelParam());
+        out.writeString(report.getTestName());
+        out.writeString(report.getErrorDescription());
+        out.writeOptionalInt(report.getReportQueryEndTime());
+        out.writeOptionalInt(report.getJobId());
+        out.writeVarint(count);
+        int[] starts = report.getAnomalyStarts();
+        int[] ends = report.getAnomalyEnds();
+        float[] deviations = report.getAnomalyDeviations();
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            out.writeVarint(zigZag(starts[i] - previous));
+            out.writeOptionalInt(ends[i] == 0 ? null : ends[i] - starts[i]);
+            out.writeOptionalInt(Float.isNaN(deviations[i]) ? null : (int) deviations[i]);
+            previous = starts[i];
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a report. A {@code StoreException} is thrown
+     * if the value is not an encoded report.
+     *
+     * @param bytes encoded report
+     * @return the report
+     */
+    public static AnomalyReport decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        if (bytes.length == 0 || in.readByte() != VERSION) {
+            throw new StoreException("Unknown anomaly report encoding");
+        }
+        AnomalyReport report = new AnomalyReport();
+        try {
+            report.setUniqueId(in.readString());
+            report.setMetricName(in.readString());
+            report.setGroupByFilters(in.readString());
+            report.setQueryURL(in.readString());
+            report.setJobFrequency(in.readString());
+            report.setStatus(in.readString());
+            report.setModelName(in.readString());
+            report.setModelParam(in.readString());
+            report.setTestName(in.readString());
+            report.setErrorDescription(in.readString());
+            report.setReportQueryEndTime(in.readOptionalInt());
+            report.setJobId(in.readOptionalInt());
+            int count = in.readVarint();
+            if (count > bytes.length) {
+                throw new ArrayIndexOutOfBoundsException(count);
+            }
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            float[] deviations = new float[count];
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                start += unZigZag(in.readVarint());
+                Integer length = in.readOptionalInt();
+                Integer deviation = in.readOptionalInt();
+                starts[i] = start;
+                ends[i] = length == null ? 0 : start + length;
+                deviations[i] = deviation == null ? Float.NaN : deviation;
+            }
+            report.setAnomalyIntervals(starts, ends, deviations);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new StoreException("Truncated anomaly report encoding");
+        }
+        return report;
+    }
+
+    /**
+     * @param n signed integer
+     * @return the integer mapped so that small magnitudes are small
+     */
+    private static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    /**
+     * @param n zig-zag encoded integer
+     * @return the signed integer
+     */
+    private static int unZigZag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    private static final class Writer {
+
+        private byte[] buf;
+        private int pos;
+
+        /**
+         * @param capacity initial capacity
+         */
+        private Writer(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        /**
+         * @param n number of bytes about to be written
+         */
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(2 * buf.length, pos + n));
+            }
+        }
+
+        /**
+         * @param b byte to write
+         */
+        private void writeByte(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        /**
+         * @param n unsigned integer to write in seven bit groups
+         */
+        private void writeVarint(int n) {
+            ensure(5);
+            int value = n;
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        /**
+         * @param n integer to write, or null
+         */
+        private void writeOptionalInt(Integer n) {
+            writeVarint(n == null ? 0 : zigZag(n) + 1);
+        }
+
+        /**
+         * @param str string to write, or null
+         */
+        private void writeString(String str) {
+            if (str == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        /**
+         * @return the written bytes
+         */
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /**
+     * Input buffer over an encoded report.
+     */
+    private static final class Reader {
+
+        private final byte[] buf;
+        private int pos;
+
+        /**
+         * @param buf bytes to read
+         */
+        private Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * @return the next byte
+         */
+        private byte readByte() {
+            return buf[pos++];
+        }
+
+        /**
+         * @return the next unsigned varint
+         */
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        /**
+         * @return the next integer, or null
+         */
+        private Integer readOptionalInt() {
+            int n = readVarint();
+            return n == 0 ? null : unZigZag(n - 1);
+        }
+
+        /**
+         * @return the next string, or null
+         */
+        private String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (pos + length > buf.length) {
+                throw new ArrayIndexOutOfBoundsException(pos + length);
+            }
+            String str = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return str;
+        }
+    }
+
+}
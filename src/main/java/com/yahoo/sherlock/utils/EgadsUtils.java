@@ -10,6 +10,7 @@ import com.yahoo.egads.control.DetectAnomalyProcessable;
 import com.yahoo.egads.control.ModelAdapter;
 import com.yahoo.egads.control.ProcessableObject;
 import com.yahoo.egads.data.TimeSeries;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.query.EgadsConfig;
 import lombok.extern.slf4j.Slf4j;
 
@@ -38,49 +39,68 @@ public class EgadsUtils {
      * @return processed time series
      */
     public static TimeSeries fillMissingData(TimeSeries timeseries, int aggr, int fillMissing) {
-        TimeSeries output = new TimeSeries();
-        Long interval = timeseries.mostFrequentPeriod();
-        output.meta = timeseries.meta;
-
+        long interval = timeseries.mostFrequentPeriod();
         // sanity check
-        if (interval != timeseries.minimumPeriod()) {
-            // throw exception
+        if (interval != timeseries.minimumPeriod() || fillMissing != 1) {
             return timeseries;
         }
+        return fillMissingData(ColumnarTimeSeries.of(timeseries), interval, aggr).toTimeSeries();
+    }
+
+    /**
+     * Fill in the missing data in a columnar time series.
+     *
+     * @param columns     the time series to fill
+     * @param aggr        the level of aggregation
+     * @param fillMissing whether the method should fill in missing data
+     * @return processed time series, which is the given one if it is not filled
+     */
+    public static ColumnarTimeSeries fillMissingData(ColumnarTimeSeries columns, int aggr, int fillMissing) {
+        long interval = columns.mostFrequentPeriod();
+        // sanity check
+        if (interval != columns.minimumPeriod() || fillMissing != 1) {
+            return columns;
+        }
+        return fillMissingData(columns, interval, aggr);
+    }
+
+    /**
+     * Fill in the missing points of a time series with the value
+     * of the point before them, and aggregate the result.
+     *
+     * @param columns  the time series to fill
+     * @param interval time in seconds between points
+     * @param aggr     the level of aggregation
+     * @return the filled time series
+     */
+    private static ColumnarTimeSeries fillMissingData(ColumnarTimeSeries columns, long interval, int aggr) {
         log.debug("starting filling...");
-        if (fillMissing == 1) {
-            for (int i = 1; i < timeseries.size(); i++) {
-                if (timeseries.data.get(i).time - timeseries.data.get(i - 1).time != interval) {
-                    int missingPoints = (int) ((timeseries.data.get(i).time - timeseries.data.get(i - 1).time) / interval);
-                    Long curTimestampToFill = timeseries.data.get(i - 1).time;
-                    for (int j = missingPoints; j > 0; j--) {
-                        try {
-                            output.append(curTimestampToFill, timeseries.value(i - 1));
-                        } catch (Exception e) {
-                            log.error("Error while filling missing data in timeseries!", e);
-                        }
-                        curTimestampToFill += interval;
-                    }
-                } else {
-                    try {
-                        output.append(timeseries.time(i - 1), timeseries.value(i - 1));
-                    } catch (Exception e) {
-                        log.error("Error while filling missing data in timeseries!", e);
-                    }
+        int size = columns.size();
+        if (size == 0) {
+            return new ColumnarTimeSeries(columns.getMeta(), 0);
+        }
+        int filledSize = size;
+        if (interval > 0) {
+            filledSize = (int) Math.min(Integer.MAX_VALUE - 8, (columns.time(size - 1) - columns.time(0)) / interval + 1);
+        }
+        ColumnarTimeSeries output = new ColumnarTimeSeries(columns.getMeta(), Math.max(size, filledSize));
+        for (int i = 1; i < size; i++) {
+            long gap = columns.time(i) - columns.time(i - 1);
+            if (gap != interval) {
+                int missingPoints = (int) (gap / interval);
+                long curTimestampToFill = columns.time(i - 1);
+                for (int j = missingPoints; j > 0; j--) {
+                    output.append(curTimestampToFill, columns.value(i - 1));
+                    curTimestampToFill += interval;
                 }
+            } else {
+                output.append(columns.time(i - 1), columns.value(i - 1));
             }
-            try {
-                output.append(timeseries.time(timeseries.size() - 1), timeseries.value(timeseries.size() - 1));
-            } catch (Exception e) {
-                log.error("Error while filling missing data in timeseries!", e);
-            }
-        } else {
-            return timeseries;
         }
-
+        output.append(columns.time(size - 1), columns.value(size - 1));
         // Handle aggregation.
         if (aggr > 1) {
-            output.data = sumAggregator(output, aggr);
+            return sumAggregator(output, aggr);
         }
         return output;
     }
@@ -92,15 +112,24 @@ public class EgadsUtils {
      * @return aggregated timeseries
      */
     public static TimeSeries.DataSequence sumAggregator(TimeSeries timeSeries, int frequency) {
-        TimeSeries.DataSequence output = new TimeSeries.DataSequence();
+        return sumAggregator(ColumnarTimeSeries.of(timeSeries), frequency).toTimeSeries().data;
+    }
 
-        for (int i = 0; i < timeSeries.data.size(); i += frequency) {
-            Float aggr = 0.0F;
-            Long time = (timeSeries.data.get(i)).time;
-            for (int j = i; j < Math.min(timeSeries.data.size(), i + frequency); ++j) {
-                aggr = aggr + (timeSeries.data.get(j)).value;
+    /**
+     * Sum aggregator for the points of a columnar time series.
+     * @param columns input timeseries
+     * @param frequency aggregation frequency
+     * @return aggregated timeseries, sharing the metadata of the input
+     */
+    public static ColumnarTimeSeries sumAggregator(ColumnarTimeSeries columns, int frequency) {
+        int size = columns.size();
+        ColumnarTimeSeries output = new ColumnarTimeSeries(columns.getMeta(), (size + frequency - 1) / frequency);
+        for (int i = 0; i < size; i += frequency) {
+            float aggr = 0.0F;
+            for (int j = i; j < Math.min(size, i + frequency); ++j) {
+                aggr = aggr + columns.value(j);
             }
-            output.add(new TimeSeries.Entry(time, aggr));
+            output.append(columns.time(i), aggr);
         }
         return output;
     }
@@ -113,19 +142,37 @@ public class EgadsUtils {
      * @return complete timeseries
      */
     public static TimeSeries fillMissingData(TimeSeries timeseries, EgadsConfig p) {
-        int aggr;
+        return fillMissingData(timeseries, getAggregation(p), getFillMissing(p));
+    }
+
+    /**
+     * Method to fill in missing datapoints in a columnar timeseries if any.
+     *
+     * @param columns input timeseries
+     * @param p       properties of egads
+     * @return complete timeseries, which is the given one if it is not filled
+     */
+    public static ColumnarTimeSeries fillMissingData(ColumnarTimeSeries columns, EgadsConfig p) {
+        return fillMissingData(columns, getAggregation(p), getFillMissing(p));
+    }
+
+    /**
+     * @param p properties of egads
+     * @return the configured level of aggregation
+     */
+    private static int getAggregation(EgadsConfig p) {
         if (!NumberUtils.isNonNegativeInt(p.getAggregation())) {
-            aggr = 1;
-        } else {
-            aggr = Integer.parseInt(p.getAggregation());
-        }
-        int fillMissing;
-        if (!NumberUtils.isNonNegativeInt(p.getFillMissing())) {
-            fillMissing = 0;
-        } else {
-            fillMissing = 1;
+            return 1;
         }
-        return fillMissingData(timeseries, aggr, fillMissing);
+        return Integer.parseInt(p.getAggregation());
+    }
+
+    /**
+     * @param p properties of egads
+     * @return 1 if missing data should be filled, otherwise 0
+     */
+    private static int getFillMissing(EgadsConfig p) {
+        return NumberUtils.isNonNegativeInt(p.getFillMissing()) ? 1 : 0;
     }
 
     /**
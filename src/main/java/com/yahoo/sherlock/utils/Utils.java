@@ -8,6 +8,7 @@ package com.yahoo.sherlock.utils;
 
 import com.yahoo.sherlock.model.AnomalyReport;
 import com.yahoo.sherlock.model.JsonTimeline;
+import com.yahoo.sherlock.settings.Constants;
 import lombok.extern.slf4j.Slf4j;
 import spark.QueryParamsMap;
 
@@ -19,6 +20,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * General utility class.
@@ -76,6 +79,25 @@ public class Utils {
         return timeline;
     }
 
+    /**
+     * Get the time for which anomaly reports are kept
+     * in the store, which depends on the job frequency.
+     *
+     * @param frequency job frequency
+     * @return retention time in seconds
+     */
+    public static long getReportRetentionSeconds(String frequency) {
+        int days;
+        if (Constants.HOUR.equalsIgnoreCase(frequency)) {
+            days = Constants.REDIS_RETENTION_WEEKS_IN_DAYS;
+        } else if (Constants.MINUTE.equalsIgnoreCase(frequency)) {
+            days = Constants.REDIS_RETENTION_ONE_DAY;
+        } else {
+            days = Constants.REDIS_RETENTION_YEARS_IN_DAYS;
+        }
+        return Constants.SECONDS_IN_DAY * days;
+    }
+
     /**
      * Remove all keys in a set from a map.
      *
@@ -155,4 +177,20 @@ public class Utils {
         return stringParams;
     }
 
+    /**
+     * Create a thread factory which names its daemon
+     * threads with the given prefix and a counter.
+     *
+     * @param prefix thread name prefix
+     * @return a thread factory
+     */
+    public static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
 }
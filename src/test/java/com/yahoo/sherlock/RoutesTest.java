@@ -7,7 +7,9 @@ package com.yahoo.sherlock;
 
 import com.beust.jcommander.internal.Lists;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import com.yahoo.egads.data.Anomaly;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.ClusterNotFoundException;
@@ -23,8 +25,11 @@ import com.yahoo.sherlock.query.Query;
 import com.yahoo.sherlock.scheduler.JobExecutionService;
 import com.yahoo.sherlock.scheduler.SchedulerService;
 import com.yahoo.sherlock.service.DetectorService;
+import com.yahoo.sherlock.service.DruidDatasourceCache;
 import com.yahoo.sherlock.service.DruidQueryService;
+import com.yahoo.sherlock.service.ModelStateCache;
 import com.yahoo.sherlock.service.ServiceFactory;
+import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.settings.CLISettingsTest;
 import com.yahoo.sherlock.settings.Constants;
 import com.yahoo.sherlock.settings.QueryConstants;
@@ -52,6 +57,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.anyInt;
@@ -67,6 +73,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class RoutesTest {
@@ -263,8 +270,10 @@ public class RoutesTest {
         when(req.params(Constants.ID)).thenReturn("1");
         inject("jobAccessor", jma);
         inject("schedulerService", ss);
+        ModelStateCache.getInstance().put(1, new ModelStateCache.JobState("sig", 60));
         assertEquals(Routes.deleteJob(req, fResponse), Constants.SUCCESS);
         verify(ss, times(1)).stopJob(1);
+        assertNull(ModelStateCache.getInstance().get(1));
     }
 
     @Test
@@ -503,7 +512,7 @@ public class RoutesTest {
         JobMetadataAccessor jma = mock(JobMetadataAccessor.class);
         JobMetadata jm = new JobMetadata();
         List<AnomalyReport> lar = Collections.emptyList();
-        when(ara.getAnomalyReportsForJob(anyString(), anyString())).thenReturn(lar);
+        when(ara.getAnomalyReportsForJobInRange(anyString(), anyString(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(lar);
         inject("reportAccessor", ara);
         inject("jobAccessor", jma);
         when(jma.getJobMetadata(anyString())).thenReturn(jm);
@@ -511,6 +520,10 @@ public class RoutesTest {
         assertEquals(mav.getViewName(), "report");
         assertEquals(params(mav).get(Constants.FREQUENCY), "day");
         assertTrue(params(mav).containsKey(Constants.TIMELINE_POINTS));
+        when(req.queryParams(Constants.START)).thenReturn("1000");
+        when(req.queryParams(Constants.END)).thenReturn("2000");
+        Routes.viewJobReport(req, fResponse);
+        verify(ara).getAnomalyReportsForJobInRange("1", "day", 1000, 2000, 0, CLISettings.REPORT_TIMELINE_LIMIT);
     }
 
     @Test
@@ -648,7 +661,7 @@ public class RoutesTest {
     }
 
     @Test
-    public void testDeleteDruidCluster() throws IOException, ClusterNotFoundException {
+    public void testDeleteDruidCluster() throws Exception {
         Request req = mock(Request.class);
         when(req.params(Constants.ID)).thenReturn("1");
         JobMetadataAccessor jma = mock(JobMetadataAccessor.class);
@@ -657,9 +670,22 @@ public class RoutesTest {
         DruidClusterAccessor dca = mock(DruidClusterAccessor.class);
         inject("clusterAccessor", dca);
         Response res = mock(Response.class);
+        DruidCluster cluster = new DruidCluster();
+        cluster.setClusterId(1);
+        JsonArray datasources = new JsonArray();
+        datasources.add("ds1");
+        AtomicInteger loads = new AtomicInteger();
+        DruidDatasourceCache.Loader loader = c -> {
+            loads.incrementAndGet();
+            return datasources;
+        };
+        DruidDatasourceCache.getInstance().contains(cluster, new JsonPrimitive("ds1"), loader);
         assertEquals(Routes.deleteDruidCluster(req, res), Constants.SUCCESS);
         verify(res, times(1)).status(200);
         verify(dca, times(1)).deleteDruidCluster("1");
+        // the cluster's cached datasources are dropped with it
+        DruidDatasourceCache.getInstance().contains(cluster, new JsonPrimitive("ds1"), loader);
+        assertEquals(loads.get(), 2);
     }
 
     @Test
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.yahoo.sherlock.enums.Granularity;
+import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
+import com.yahoo.sherlock.query.Query;
+import com.yahoo.sherlock.service.TimeSeriesParserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the points per second parsed from a groupBy response
+ * of {@value #ROWS} rows, over hourly buckets of two dimensions,
+ * both from the response tree and from the response stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DruidResponseBenchmark {
+
+    /**
+     * Number of rows in the response.
+     */
+    private static final int ROWS = 100000;
+
+    /**
+     * Number of dimension value pairs in each hourly bucket.
+     */
+    private static final int SERIES = 500;
+
+    private TimeSeriesParserService parser;
+    private Query query;
+    private JsonArray response;
+    private String responseText;
+
+    /**
+     * Build the query and the response.
+     */
+    @Setup
+    public void setUp() {
+        parser = new TimeSeriesParserService();
+        JsonObject queryJson = new JsonObject();
+        queryJson.addProperty("queryType", "groupBy");
+        JsonArray dimensions = new JsonArray();
+        dimensions.add("dim1");
+        dimensions.add("dim2");
+        queryJson.add("dimensions", dimensions);
+        JsonArray aggregations = new JsonArray();
+        JsonObject aggregation = new JsonObject();
+        aggregation.addProperty("type", "longSum");
+        aggregation.addProperty("name", "m1");
+        aggregation.addProperty("fieldName", "m1");
+        aggregations.add(aggregation);
+        queryJson.add("aggregations", aggregations);
+        queryJson.addProperty("granularity", "hour");
+        int hours = ROWS / SERIES;
+        query = new Query(queryJson, 420000, 420000 + hours * 60, Granularity.HOUR, 1);
+        response = new JsonArray();
+        for (int row = 0; row < ROWS; row++) {
+            long seconds = (420000 + row / SERIES * 60) * 60L;
+            JsonObject event = new JsonObject();
+            event.addProperty("dim1", "a" + row % SERIES / 20);
+            event.addProperty("dim2", "b" + row % 20);
+            event.addProperty("m1", row % 997);
+            JsonObject dataPoint = new JsonObject();
+            dataPoint.addProperty("version", "v1");
+            dataPoint.addProperty("timestamp", Instant.ofEpochSecond(seconds).toString().replace("Z", ".000Z"));
+            dataPoint.add("event", event);
+            response.add(dataPoint);
+        }
+        responseText = response.toString();
+    }
+
+    /**
+     * @return the parsed timeseries
+     * @throws SherlockException if the response cannot be parsed
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<ColumnarTimeSeries> parseTree() throws SherlockException {
+        return parser.parseTimeSeries(response, query);
+    }
+
+    /**
+     * @return the parsed timeseries
+     * @throws SherlockException if the response cannot be parsed
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<ColumnarTimeSeries> parseStream() throws SherlockException {
+        return parser.readTimeSeries(new StringReader(responseText), query);
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DruidResponseBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
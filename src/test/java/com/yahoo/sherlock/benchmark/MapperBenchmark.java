@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.benchmark;
+
+import com.yahoo.sherlock.model.AnomalyReport;
+import com.yahoo.sherlock.model.JobMetadata;
+import com.yahoo.sherlock.store.Attribute;
+import com.yahoo.sherlock.store.redis.HashMapper;
+import com.yahoo.sherlock.store.redis.Mapper;
+import com.yahoo.sherlock.utils.NumberUtils;
+import com.yahoo.sherlock.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HashMapper} against the per-call reflection it
+ * replaced, for the report and job objects loaded by the report and
+ * job pages. Run from the test classpath with
+ * {@code java -cp <test classpath> com.yahoo.sherlock.benchmark.MapperBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private HashMapper reportMapper;
+    private HashMapper jobMapper;
+    private Field[] reportFields;
+    private Field[] jobFields;
+    private AnomalyReport report;
+    private JobMetadata job;
+    private Map<String, String> reportHash;
+    private Map<String, String> jobHash;
+
+    /**
+     * Build the objects and hashes to map.
+     */
+    @Setup
+    public void setUp() {
+        reportMapper = new HashMapper();
+        jobMapper = new HashMapper();
+        reportFields = fields(AnomalyReport.class);
+        jobFields = fields(JobMetadata.class);
+        report = new AnomalyReport();
+        report.setUniqueId("1");
+        report.setMetricName("metric");
+        report.setGroupByFilters("dim1 = 'a', dim2 = 'b'");
+        report.setReportQueryEndTime(25000000);
+        report.setJobId(42);
+        report.setJobFrequency("hour");
+        report.setStatus("WARNING");
+        report.setModelName("OlympicModel");
+        report.setModelParam("");
+        report.setDeviationString("10.5,20.1");
+        report.setTestName("test");
+        job = new JobMetadata();
+        job.setJobId(42);
+        job.setOwner("owner");
+        job.setTestName("test");
+        job.setJobStatus("RUNNING");
+        job.setGranularity("hour");
+        job.setFrequency("hour");
+        job.setClusterId(3);
+        job.setSigmaThreshold(3.0);
+        job.setHoursOfLag(1);
+        reportHash = reportMapper.map(report);
+        jobHash = jobMapper.map(job);
+    }
+
+    /**
+     * @return the report hash
+     */
+    @Benchmark
+    public Map<String, String> mapReport() {
+        return reportMapper.map(report);
+    }
+
+    /**
+     * @return the report hash
+     */
+    @Benchmark
+    public Map<String, String> mapReportReflective() {
+        return reflectiveMap(reportFields, report);
+    }
+
+    /**
+     * @return the report
+     */
+    @Benchmark
+    public AnomalyReport unmapReport() {
+        return reportMapper.unmap(AnomalyReport.class, reportHash);
+    }
+
+    /**
+     * @return the report
+     */
+    @Benchmark
+    public AnomalyReport unmapReportReflective() throws Exception {
+        return reflectiveUnmap(AnomalyReport.class, reportFields, reportHash);
+    }
+
+    /**
+     * @return the job hash
+     */
+    @Benchmark
+    public Map<String, String> mapJob() {
+        return jobMapper.map(job);
+    }
+
+    /**
+     * @return the job hash
+     */
+    @Benchmark
+    public Map<String, String> mapJobReflective() {
+        return reflectiveMap(jobFields, job);
+    }
+
+    /**
+     * @return the job
+     */
+    @Benchmark
+    public JobMetadata unmapJob() {
+        return jobMapper.unmap(JobMetadata.class, jobHash);
+    }
+
+    /**
+     * @return the job
+     */
+    @Benchmark
+    public JobMetadata unmapJobReflective() throws Exception {
+        return reflectiveUnmap(JobMetadata.class, jobFields, jobHash);
+    }
+
+    /**
+     * @param cls class to map
+     * @return its accessible attribute fields
+     */
+    private static Field[] fields(Class<?> cls) {
+        Field[] fields = Utils.findFields(cls, Attribute.class);
+        for (Field field : fields) {
+            field.setAccessible(true);
+        }
+        return fields;
+    }
+
+    /**
+     * The previous {@code HashMapper.performMap}.
+     *
+     * @param fields attribute fields
+     * @param obj    object to map
+     * @return the hash
+     */
+    private static Map<String, String> reflectiveMap(Field[] fields, Object obj) {
+        Map<String, String> hash = new HashMap<>();
+        for (Field field : fields) {
+            try {
+                Object data = field.get(obj);
+                hash.put(field.getName(), data == null ? "" : data.toString());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The previous {@code HashMapper.performUnmap}.
+     *
+     * @param cls    class to create
+     * @param fields attribute fields
+     * @param hash   the hash
+     * @param <C>    object type
+     * @return the object
+     * @throws Exception if the object cannot be created
+     */
+    private static <C> C reflectiveUnmap(Class<C> cls, Field[] fields, Map<String, String> hash) throws Exception {
+        C obj = cls.getConstructor().newInstance();
+        for (Field field : fields) {
+            String value = hash.get(field.getName());
+            field.set(obj, parse(field, value, field.get(obj)));
+        }
+        return obj;
+    }
+
+    /**
+     * The previous {@code Mapper.wrapType}.
+     *
+     * @param field  field whose value to parse
+     * @param strVal the string value of the field
+     * @param def    default value
+     * @return the value of the field
+     */
+    private static Object parse(Field field, String strVal, Object def) {
+        switch (Mapper.resolveType(field)) {
+            case INTEGER:
+                return NumberUtils.parseInt(strVal, (Integer) def);
+            case LONG:
+                return NumberUtils.parseLong(strVal, (Long) def);
+            case DOUBLE:
+                return NumberUtils.parseDouble(strVal, (Double) def);
+            default:
+                return strVal == null ? def : strVal;
+        }
+    }
+
+    /**
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MapperBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
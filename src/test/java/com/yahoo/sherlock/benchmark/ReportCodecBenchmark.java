@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.benchmark;
+
+import com.yahoo.sherlock.model.AnomalyReport;
+import com.yahoo.sherlock.settings.DatabaseConstants;
+import com.yahoo.sherlock.store.redis.HashMapper;
+import com.yahoo.sherlock.store.redis.ReportCodec;
+import com.yahoo.sherlock.utils.NumberUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary report records written by {@link ReportCodec}
+ * against the report hash and anomaly timestamp sorted sets. The main
+ * method first prints the payload size of both layouts, which excludes
+ * the per-key overhead of the Redis server, and then runs the benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportCodecBenchmark {
+
+    /**
+     * Number of anomaly intervals in the report.
+     */
+    @Param({"1", "24", "168"})
+    public int intervals;
+
+    private HashMapper mapper;
+    private AnomalyReport report;
+    private byte[] record;
+    private Map<String, String> hash;
+    private byte[][] startBytes;
+    private byte[][] endBytes;
+
+    /**
+     * Build the report and its stored forms.
+     */
+    @Setup
+    public void setUp() {
+        mapper = new HashMapper();
+        report = report(intervals);
+        record = ReportCodec.encode(report);
+        hash = mapper.map(report);
+        startBytes = new byte[intervals][];
+        endBytes = new byte[intervals][];
+        List<int[]> timestamps = report.getAnomalyTimestampsHours();
+        for (int i = 0; i < intervals; i++) {
+            int[] interval = timestamps.get(i);
+            startBytes[i] = NumberUtils.toBytesCompressed(interval[0]);
+            endBytes[i] = interval[1] == 0 ? null : NumberUtils.toBytesCompressed(interval[1]);
+        }
+    }
+
+    /**
+     * @param intervals number of anomaly intervals
+     * @return a report of an hourly job
+     */
+    private static AnomalyReport report(int intervals) {
+        AnomalyReport report = new AnomalyReport();
+        report.setUniqueId("123456");
+        report.setMetricName("metric");
+        report.setGroupByFilters("dim1 = 'a', dim2 = 'b'");
+        report.setQueryURL("http://localhost:8080/druid/v2/?pretty");
+        report.setReportQueryEndTime(420000);
+        report.setJobId(42);
+        report.setJobFrequency("hour");
+        report.setStatus("WARNING");
+        report.setModelName("OlympicModel");
+        report.setModelParam("");
+        report.setTestName("test");
+        StringBuilder timestamps = new StringBuilder();
+        for (int i = 0; i < intervals; i++) {
+            if (i > 0) {
+                timestamps.append(',');
+            }
+            int start = 419800 + 3 * i;
+            timestamps.append(start);
+            if (i % 2 == 0) {
+                timestamps.append(':').append(start + 2);
+            }
+            timestamps.append('@').append(i % 50 - 25);
+        }
+        report.setAnomalyTimestamps(timestamps.toString());
+        report.getAnomalyTimestampsHours();
+        return report;
+    }
+
+    /**
+     * @return the report record
+     */
+    @Benchmark
+    public byte[] encodeRecord() {
+        return ReportCodec.encode(report);
+    }
+
+    /**
+     * @return the report
+     */
+    @Benchmark
+    public AnomalyReport decodeRecord() {
+        return ReportCodec.decode(record);
+    }
+
+    /**
+     * @return the report hash, along with the interval bytes
+     */
+    @Benchmark
+    public Object encodeHash() {
+        List<int[]> timestamps = report.getAnomalyTimestampsHours();
+        byte[][] values = new byte[2 * timestamps.size()][];
+        for (int i = 0; i < timestamps.size(); i++) {
+            values[2 * i] = NumberUtils.toBytesCompressed(timestamps.get(i)[0]);
+            values[2 * i + 1] = NumberUtils.toBytesCompressed(timestamps.get(i)[1]);
+        }
+        return new Object[] {mapper.map(report), values};
+    }
+
+    /**
+     * @return the report
+     */
+    @Benchmark
+    public AnomalyReport decodeHash() {
+        AnomalyReport copy = mapper.unmap(AnomalyReport.class, hash);
+        copy.setAnomalyTimestampsFromBytes(startBytes.clone(), endBytes.clone());
+        return copy;
+    }
+
+    /**
+     * @param hash report hash
+     * @return bytes of the hash field names and values
+     */
+    private static int hashBytes(Map<String, String> hash) {
+        int bytes = 0;
+        for (Map.Entry<String, String> field : hash.entrySet()) {
+            bytes += field.getKey().getBytes(StandardCharsets.UTF_8).length;
+            bytes += field.getValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Print the payload bytes of a report in each layout, where
+     * a sorted set entry is counted as its member and an eight
+     * byte score, and then run the benchmarks.
+     *
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int n : new int[] {1, 24, 168}) {
+            AnomalyReport report = report(n);
+            Map<String, String> hash = new HashMapper().map(report);
+            hash.remove(DatabaseConstants.ANOMALY_TIMESTAMP);
+            int sortedSets = 0;
+            for (int[] interval : report.getAnomalyTimestampsHours()) {
+                sortedSets += NumberUtils.toBytesCompressed(interval[0]).length + Double.BYTES;
+                if (interval[1] != 0) {
+                    sortedSets += NumberUtils.toBytesCompressed(interval[1]).length + Double.BYTES;
+                }
+            }
+            System.out.printf(
+                    "%d intervals: record %d bytes, hash %d bytes and sorted sets %d bytes%n",
+                    n, ReportCodec.encode(report).length, hashBytes(hash), sortedSets
+            );
+        }
+        new Runner(new OptionsBuilder().include(ReportCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
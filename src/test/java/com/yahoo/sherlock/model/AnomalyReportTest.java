@@ -140,7 +140,7 @@ public class AnomalyReportTest {
             "uniqueId",
             "metricName",
             "groupByFilters",
-            "anomalyTimestamps",
+            "1000:1002@-5",
             "queryUrl",
             12345,
             1,
@@ -153,7 +153,7 @@ public class AnomalyReportTest {
         assertEquals(rep.getUniqueId(), "uniqueId");
         assertEquals(rep.getMetricName(), "metricName");
         assertEquals(rep.getGroupByFilters(), "groupByFilters");
-        assertEquals(rep.getAnomalyTimestamps(), "anomalyTimestamps");
+        assertEquals(rep.getAnomalyTimestamps(), "1000:1002@-5");
         assertEquals(rep.getQueryURL(), "queryUrl");
         assertEquals(rep.getReportQueryEndTime(), (Integer) 12345);
         assertEquals(rep.getJobId(), (Integer) 1);
@@ -212,7 +212,27 @@ public class AnomalyReportTest {
         assertEquals(report1.getAnomalyTimestamps(), "1:2@23,0:2@56");
         report1.setDeviationString(null);
         report1.setAnomalyTimestampsFromBytes(new byte[timestamps.size()][], endTime);
-        assertEquals(report1.getAnomalyTimestamps(), "2@null,2@null");
+        assertEquals(report1.getAnomalyTimestamps(), "2,2");
+    }
+
+    @Test
+    public void testZeroExpectedValueDeviation() {
+        Anomaly.IntervalSequence seq = new Anomaly.IntervalSequence();
+        Anomaly.Interval interval = new Anomaly.Interval();
+        interval.startTime = 3600L;
+        interval.expectedVal = 0f;
+        interval.actualVal = 0f;
+        Anomaly.Interval interval2 = new Anomaly.Interval();
+        interval2.startTime = 7200L;
+        interval2.expectedVal = 0f;
+        interval2.actualVal = 5f;
+        seq.add(interval);
+        seq.add(interval2);
+        AnomalyReport report = new AnomalyReport();
+        report.setJobFrequency("hour");
+        report.setAnomalyTimestampsFromInterval(seq);
+        assertEquals(report.getDeviationString(), "0," + Integer.MAX_VALUE);
+        assertEquals(report.getAnomalyTimestamps(), "1@0,2@" + Integer.MAX_VALUE);
     }
 
     @Test
@@ -231,4 +251,26 @@ public class AnomalyReportTest {
         joiner.add("Params: " + "3.0");
         Assert.assertEquals(report.getModelInfo(), joiner.toString());
     }
+
+    @Test
+    public void testAnomalyIntervalsAreFormattedWhenRendered() {
+        AnomalyReport rep = new AnomalyReport();
+        rep.setJobFrequency("hour");
+        rep.setAnomalyIntervals(new int[] {337, 557}, new int[] {0, 560}, new float[] {-12.7f, Float.NaN});
+        assertEquals(rep.getAnomalyCount(), 2);
+        assertEquals(rep.getAnomalyTimestamps(), "337@-12,557:560");
+        assertEquals(rep.getDeviationString(), "-12,null");
+        assertEquals(rep.getFormattedAnomalyTimestamps(), String.format("%s%n%s to %s", formatHrs(337), formatHrs(557), formatHrs(560)));
+        assertTrue(rep.getFormattedDeviation().contains(">-12%<"));
+        assertFalse(rep.getFormattedDeviation().contains(Constants.HTML_LINEBREAK_DELIMITER));
+        rep.setAnomalyTimestamps("x,12:12@3.5,:4,13:oops@null");
+        assertEquals(rep.getAnomalyStarts(), new int[] {12, 13});
+        assertEquals(rep.getAnomalyEnds(), new int[] {0, 0});
+        assertEquals(rep.getAnomalyDeviations()[0], 3.5f);
+        assertTrue(Float.isNaN(rep.getAnomalyDeviations()[1]));
+        rep.setAnomalyTimestamps(null);
+        assertEquals(rep.getAnomalyCount(), 0);
+        assertEquals(rep.getAnomalyTimestamps(), null);
+        assertEquals(rep.getFormattedAnomalyTimestamps(), "");
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.model;
+
+import com.yahoo.egads.data.MetricMeta;
+import com.yahoo.egads.data.TimeSeries;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class ColumnarTimeSeriesTest {
+
+    @Test
+    public void testAppendAndConvert() throws Exception {
+        MetricMeta meta = new MetricMeta();
+        ColumnarTimeSeries columns = new ColumnarTimeSeries(meta, 1);
+        for (int i = 0; i < 100; i++) {
+            columns.append(i * 60L, i);
+        }
+        assertEquals(columns.size(), 100);
+        assertEquals(columns.time(99), 99 * 60L);
+        assertEquals(columns.value(99), 99.0f);
+        TimeSeries timeSeries = columns.toTimeSeries();
+        assertSame(timeSeries.meta, meta);
+        assertEquals(timeSeries.size(), 100);
+        assertEquals(timeSeries.time(42), 42 * 60L);
+        ColumnarTimeSeries copy = ColumnarTimeSeries.of(timeSeries);
+        assertEquals(copy.size(), 100);
+        assertEquals(copy.value(42), 42.0f);
+    }
+
+    @Test
+    public void testSortAndSearch() {
+        ColumnarTimeSeries columns = new ColumnarTimeSeries(new MetricMeta());
+        long[] times = {300, 100, 200, 100, 400};
+        for (int i = 0; i < times.length; i++) {
+            columns.append(times[i], i);
+        }
+        columns.sort();
+        assertEquals(columns.time(0), 100L);
+        assertEquals(columns.value(0), 1.0f);
+        assertEquals(columns.value(1), 3.0f);
+        assertEquals(columns.time(4), 400L);
+        assertEquals(columns.indexAfter(50), 0);
+        assertEquals(columns.indexAfter(100), 2);
+        assertEquals(columns.indexAfter(250), 3);
+        assertEquals(columns.indexAfter(400), 5);
+        ColumnarTimeSeries range = columns.copyRange(new MetricMeta(), columns.indexAfter(100), columns.indexAfter(300));
+        assertEquals(range.size(), 2);
+        assertEquals(range.time(0), 200L);
+        columns.dropBefore(300);
+        assertEquals(columns.size(), 2);
+        assertEquals(columns.time(0), 300L);
+    }
+
+    @Test
+    public void testViewCopiesOnAppend() {
+        ColumnarTimeSeries columns = new ColumnarTimeSeries(new MetricMeta());
+        for (int i = 0; i < 10; i++) {
+            columns.append(i * 60L, i);
+        }
+        ColumnarTimeSeries view = columns.view(new MetricMeta(), 2, 5);
+        assertEquals(view.size(), 3);
+        assertEquals(view.time(0), 120L);
+        assertEquals(view.indexAfter(180), 2);
+        assertEquals(view.toTimeSeries().size(), 3);
+        view.append(1000L, 42);
+        assertEquals(view.size(), 4);
+        assertEquals(view.value(3), 42.0f);
+        assertEquals(columns.value(5), 5.0f);
+        columns.dropBefore(300);
+        assertEquals(columns.size(), 5);
+        assertEquals(columns.time(0), 300L);
+        columns.append(600L, 10);
+        assertEquals(columns.size(), 6);
+        assertEquals(view.time(0), 120L);
+    }
+
+    @Test
+    public void testPeriods() {
+        ColumnarTimeSeries columns = new ColumnarTimeSeries(new MetricMeta());
+        assertEquals(columns.mostFrequentPeriod(), 0L);
+        assertEquals(columns.minimumPeriod(), 0L);
+        long[] times = {0, 60, 120, 240, 300, 330};
+        for (long time : times) {
+            columns.append(time, 1);
+        }
+        assertEquals(columns.mostFrequentPeriod(), 60L);
+        assertEquals(columns.minimumPeriod(), 30L);
+    }
+
+}
@@ -1,16 +1,21 @@
 package com.yahoo.sherlock.query;
 
+import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.settings.CLISettingsTest;
 import com.yahoo.sherlock.utils.Utils;
 
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.Properties;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
 import static org.testng.AssertJUnit.assertNull;
 
 public class EgadsConfigTest {
@@ -157,4 +162,61 @@ public class EgadsConfigTest {
         assertEquals(p.get("FILTERING_METHOD"), "GAP_RATIO");
     }
 
+    @Test
+    public void testCopy() {
+        EgadsConfig c = EgadsConfig.create().buildDefault();
+        c.setBaseWindows("24,168");
+        EgadsConfig copy = c.copy();
+        assertEquals(copy, c);
+        copy.setBaseWindows("1,7");
+        assertEquals(c.getBaseWindows(), "24,168");
+    }
+
+    @Test
+    public void testFromFileReturnsCopies() throws Exception {
+        String filename = CLISettings.EGADS_CONFIG_FILENAME;
+        File file = File.createTempFile("egads", ".ini");
+        try {
+            Files.write(file.toPath(), "PERIOD=24\n".getBytes(StandardCharsets.UTF_8));
+            CLISettings.EGADS_CONFIG_FILENAME = file.getPath();
+            EgadsConfig first = EgadsConfig.fromFile();
+            assertEquals("24", first.getPeriod());
+            first.setPeriod("168");
+            EgadsConfig second = EgadsConfig.fromFile();
+            assertNotSame(first, second);
+            assertEquals("24", second.getPeriod());
+            Files.write(file.toPath(), "PERIOD=12\n".getBytes(StandardCharsets.UTF_8));
+            long deadline = System.currentTimeMillis() + 20000L;
+            while (!"12".equals(EgadsConfig.fromFile().getPeriod()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals("12", EgadsConfig.fromFile().getPeriod());
+            CLISettings.EGADS_CONFIG_FILENAME = file.getPath() + ".missing";
+            assertEquals("0", EgadsConfig.fromFile().getPeriod());
+        } finally {
+            CLISettings.EGADS_CONFIG_FILENAME = filename;
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSharedProperties() {
+        EgadsConfig c = EgadsConfig.create().buildDefault();
+        Properties p1 = c.asSharedProperties();
+        assertEquals(c.asProperties(), propertiesOf(p1));
+        p1.setProperty("PERIOD", "7");
+        Properties p2 = c.copy().asSharedProperties();
+        assertEquals(c.getPeriod(), p2.getProperty("PERIOD"));
+        c.setPeriod("12");
+        assertEquals("12", c.asSharedProperties().getProperty("PERIOD"));
+    }
+
+    private static Properties propertiesOf(Properties layered) {
+        Properties flat = new Properties();
+        for (String name : layered.stringPropertyNames()) {
+            flat.setProperty(name, layered.getProperty(name));
+        }
+        return flat;
+    }
+
 }
@@ -13,15 +13,22 @@ import com.google.gson.JsonObject;
 
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Test class for JsonTimeSeries.
@@ -158,6 +165,31 @@ public class JsonTimeSeriesTest {
         }
     }
 
+    /**
+     * Test that the fast timestamp parser agrees with the date format and falls back on other layouts.
+     * @throws Throwable thrown exception
+     */
+    @Test
+    public void testParseIsoTimeStampMatchesDateFormat() throws Throwable {
+        Method method = JsonTimeSeries.class.getDeclaredMethod("parseTimeStampWithFormat", String.class);
+        method.setAccessible(true);
+        String[] timestamps = {
+            "1970-01-01T00:00:00.000Z", "2017-10-12T00:00:00.000Z", "2016-02-29T23:59:59.999Z",
+            "2000-03-01T12:30:45.000Z", "2100-12-31T01:02:03.004", "1969-12-31T00:00:00.000Z"
+        };
+        for (String timestamp : timestamps) {
+            Assert.assertEquals(JsonTimeSeries.parseIsoTimeStamp(timestamp), method.invoke(null, timestamp), timestamp);
+        }
+        Assert.assertNull(JsonTimeSeries.parseIsoTimeStamp("2017-10-12 00:00:00"));
+        Assert.assertNull(JsonTimeSeries.parseIsoTimeStamp("2017-02-29T00:00:00.000Z"));
+        Assert.assertNull(JsonTimeSeries.parseIsoTimeStamp("2017-10-12T00:00:00.000+01:00"));
+        Method parse = JsonTimeSeries.class.getDeclaredMethod("parseTimeStamp", String.class);
+        parse.setAccessible(true);
+        Assert.assertEquals(parse.invoke(jsonTimeSeriesWithResultJsonArray, "2017-10-12T00:00:00.000Z"), 1507766400L);
+        Assert.assertEquals(parse.invoke(jsonTimeSeriesWithResultJsonArray, "2017-10-12T00:00:00.000Z"), 1507766400L);
+        Assert.assertEquals(parse.invoke(jsonTimeSeriesWithResultJsonArray, "2017-10-13T00:00:00.000Z"), 1507852800L);
+    }
+
     /**
      * Test parseTimeStampValidInput() for null input.
      * @throws Exception exception
@@ -211,4 +243,183 @@ public class JsonTimeSeriesTest {
         }
     }
 
+    /**
+     * Test that a large 'result' array read in parallel gives every point, in response order.
+     * @throws Exception exception
+     */
+    @Test
+    public void testProcessLargeResultArrayIsOrdered() throws Exception {
+        String queryString = new String(Files.readAllBytes(Paths.get("src/test/resources/druid_query_2.json")));
+        Query topNQuery = new Query(gson.fromJson(queryString, JsonObject.class), 123, 1234, Granularity.HOUR, 1);
+        int blobs = 3000;
+        JsonTimeSeries jsonTimeSeries = new JsonTimeSeries(largeResultResponse(blobs), topNQuery);
+        for (int i = 0; i < jsonTimeSeries.getJsonDataSequence().size(); i++) {
+            jsonTimeSeries.processJsonDataPoint(jsonTimeSeries.getJsonDataSequence().get(i));
+        }
+        int metrics = (int) topNQuery.getMetricNames().stream().filter(Objects::nonNull).count();
+        List<ColumnarTimeSeries> series = new ArrayList<>(jsonTimeSeries.getUniqueTimeSeriesMap().values());
+        Assert.assertEquals(series.size(), blobs * metrics);
+        for (int i = 0; i < series.size(); i++) {
+            ColumnarTimeSeries timeSeries = series.get(i);
+            Assert.assertEquals(timeSeries.getMeta().source, "dim1 = 'v" + (i / metrics) + "'");
+            Assert.assertEquals(timeSeries.size(), 3);
+            Assert.assertEquals(timeSeries.time(0), 1506816000L);
+            Assert.assertEquals(timeSeries.value(2), (float) (i / metrics));
+        }
+    }
+
+    /**
+     * Test that a large streamed 'result' array is read in chunks into the same timeseries, in response order.
+     * @throws Exception exception
+     */
+    @Test
+    public void testParseStreamLargeResultArrayIsOrdered() throws Exception {
+        String queryString = new String(Files.readAllBytes(Paths.get("src/test/resources/druid_query_2.json")));
+        Query topNQuery = new Query(gson.fromJson(queryString, JsonObject.class), 123, 1234, Granularity.HOUR, 1);
+        JsonArray response = largeResultResponse(3000);
+        JsonTimeSeries expected = new JsonTimeSeries(response, topNQuery);
+        for (int i = 0; i < expected.getJsonDataSequence().size(); i++) {
+            expected.processJsonDataPoint(expected.getJsonDataSequence().get(i));
+        }
+        JsonTimeSeries streamed = new JsonTimeSeries(topNQuery);
+        streamed.parse(new StringReader(response.toString()));
+        List<ColumnarTimeSeries> streamedList = new ArrayList<>(streamed.getUniqueTimeSeriesMap().values());
+        List<ColumnarTimeSeries> expectedList = new ArrayList<>(expected.getUniqueTimeSeriesMap().values());
+        Assert.assertEquals(streamedList.size(), expectedList.size());
+        for (int i = 0; i < streamedList.size(); i++) {
+            Assert.assertEquals(streamedList.get(i).getMeta().source, expectedList.get(i).getMeta().source);
+            Assert.assertEquals(streamedList.get(i).getMeta().name, expectedList.get(i).getMeta().name);
+        }
+        assertSameSeries(streamed, expected);
+    }
+
+    /**
+     * Test that points are grouped on the tuple of dimension values and that null values are skipped.
+     * @throws Exception exception
+     */
+    @Test
+    public void testParseStreamGroupsOnDimensionTuple() throws Exception {
+        String queryString = new String(Files.readAllBytes(Paths.get("src/test/resources/druid_query_1.json")));
+        Query groupByQuery = new Query(gson.fromJson(queryString, JsonObject.class), 123, 1234, Granularity.HOUR, 1);
+        String druidResponse = "["
+            + "{\"timestamp\": \"2017-10-11T00:00:00.000Z\", \"event\": {\"dim1\": \"a\", \"dim2\": \"b\", \"m1\": 1}}, "
+            + "{\"timestamp\": \"2017-10-11T00:00:00.000Z\", \"event\": {\"dim1\": \"b\", \"dim2\": \"a\", \"m1\": 2}}, "
+            + "{\"timestamp\": \"2017-10-11T00:00:00.000Z\", \"event\": {\"dim1\": null, \"dim2\": \"a\", \"m1\": 5}}, "
+            + "{\"timestamp\": \"2017-10-11T00:00:00.000Z\", \"event\": {\"dim1\": \"a\", \"dim2\": \"null\", \"m1\": 6}}, "
+            + "{\"timestamp\": \"2017-10-12T00:00:00.000Z\", \"event\": {\"dim1\": \"a\", \"dim2\": \"b\", \"m1\": 3}}, "
+            + "{\"timestamp\": \"2017-10-12T00:00:00.000Z\", \"event\": {\"dim1\": \"b\", \"dim2\": \"a\", \"m1\": 4}}]";
+        JsonTimeSeries streamed = new JsonTimeSeries(groupByQuery);
+        streamed.parse(new StringReader(druidResponse));
+        List<ColumnarTimeSeries> series = new ArrayList<>(streamed.getUniqueTimeSeriesMap().values());
+        Assert.assertEquals(series.size(), 2);
+        Assert.assertEquals(series.get(0).getMeta().source, "dim1 = 'a'\ndim2 = 'b'");
+        Assert.assertEquals(series.get(1).getMeta().source, "dim1 = 'b'\ndim2 = 'a'");
+        Assert.assertEquals(series.get(0).getMeta().name, "m1");
+        Assert.assertEquals(series.get(0).size(), 2);
+        Assert.assertEquals(series.get(0).value(1), 3.0f);
+        Assert.assertEquals(series.get(1).size(), 2);
+        Assert.assertEquals(series.get(1).value(1), 4.0f);
+    }
+
+    /**
+     * Test that parsing a response stream gives the same timeseries as the JSON data sequence.
+     * @throws Exception exception
+     */
+    @Test
+    public void testParseStreamMatchesJsonDataSequence() throws Exception {
+        String[][] cases = {
+            {"druid_valid_response_1.json", "druid_query_1.json"},
+            {"druid_valid_response_2.json", "druid_query_2.json"},
+            {"druid_valid_response_3.json", "druid_query_3.json"}
+        };
+        for (String[] files : cases) {
+            String druidResponse = new String(Files.readAllBytes(Paths.get("src/test/resources/" + files[0])));
+            String queryString = new String(Files.readAllBytes(Paths.get("src/test/resources/" + files[1])));
+            Query streamQuery = new Query(gson.fromJson(queryString, JsonObject.class), 123, 1234, Granularity.HOUR, 1);
+            JsonTimeSeries expected = new JsonTimeSeries(gson.fromJson(druidResponse, JsonArray.class), streamQuery);
+            for (int i = 0; i < expected.getJsonDataSequence().size(); i++) {
+                expected.processJsonDataPoint(expected.getJsonDataSequence().get(i));
+            }
+            JsonTimeSeries streamed = new JsonTimeSeries(streamQuery);
+            streamed.parse(new StringReader(druidResponse));
+            Assert.assertTrue(streamed.getJsonDataSequence().isEmpty());
+            assertSameSeries(streamed, expected);
+        }
+    }
+
+    /**
+     * Test that parsing a stream tolerates field order and skips bad datapoints.
+     * @throws Exception exception
+     */
+    @Test
+    public void testParseStreamSkipsInvalidDatapoints() throws Exception {
+        String queryString = new String(Files.readAllBytes(Paths.get("src/test/resources/druid_query_3.json")));
+        Query streamQuery = new Query(gson.fromJson(queryString, JsonObject.class), 123, 1234, Granularity.HOUR, 1);
+        String druidResponse = "[null, "
+            + "{\"result\": {\"m1\": 1}, \"timestamp\": \"2017-10-11T00:00:00.000Z\"}, "
+            + "{\"timestamp\": \"bad\", \"result\": {\"m1\": 2}}, "
+            + "{\"timestamp\": \"2017-10-12T00:00:00.000Z\", \"result\": {}}, "
+            + "{\"timestamp\": \"2017-10-13T00:00:00.000Z\", \"result\": {\"m2\": 3}}, "
+            + "{\"timestamp\": \"2017-10-14T00:00:00.000Z\"}, "
+            + "{\"timestamp\": \"2017-10-15T00:00:00.000Z\", \"result\": {\"m1\": 5}}]";
+        JsonTimeSeries streamed = new JsonTimeSeries(streamQuery);
+        streamed.parse(new StringReader(druidResponse));
+        Assert.assertEquals(streamed.getUniqueTimeSeriesMap().size(), 1);
+        ColumnarTimeSeries timeSeries = streamed.getUniqueTimeSeriesMap().values().iterator().next();
+        Assert.assertEquals(timeSeries.size(), 2);
+        Assert.assertEquals(timeSeries.time(0), 1507680000L);
+        Assert.assertEquals(timeSeries.value(0), 1.0f);
+        Assert.assertEquals(timeSeries.time(1), 1508025600L);
+        Assert.assertEquals(timeSeries.value(1), 5.0f);
+    }
+
+    /**
+     * Test that a response which is not a JSON array is rejected.
+     * @throws Exception exception
+     */
+    @Test(expectedExceptions = SherlockException.class)
+    public void testParseStreamInvalidResponse() throws Exception {
+        new JsonTimeSeries(query).parse(new StringReader("{\"error\": \"Query timeout\"}"));
+    }
+
+    private static JsonArray largeResultResponse(int blobs) {
+        JsonArray response = new JsonArray();
+        for (int day = 1; day <= 3; day++) {
+            JsonArray result = new JsonArray();
+            for (int i = 0; i < blobs; i++) {
+                JsonObject blob = new JsonObject();
+                blob.addProperty("dim1", "v" + i);
+                blob.addProperty("m1", i);
+                blob.addProperty("m2", i);
+                blob.addProperty("m3", i);
+                blob.addProperty("n1", i);
+                result.add(blob);
+            }
+            JsonObject dataPoint = new JsonObject();
+            dataPoint.addProperty("timestamp", "2017-10-0" + day + "T00:00:00.000Z");
+            dataPoint.add("result", result);
+            response.add(dataPoint);
+        }
+        return response;
+    }
+
+    private static void assertSameSeries(JsonTimeSeries actual, JsonTimeSeries expected) {
+        Comparator<ColumnarTimeSeries> bySource = Comparator.comparing(ts -> ts.getMeta().name + "|" + ts.getMeta().source);
+        List<ColumnarTimeSeries> actualList = actual.getUniqueTimeSeriesMap().values().stream().sorted(bySource).collect(Collectors.toList());
+        List<ColumnarTimeSeries> expectedList = expected.getUniqueTimeSeriesMap().values().stream().sorted(bySource).collect(Collectors.toList());
+        Assert.assertEquals(actualList.size(), expectedList.size());
+        Assert.assertFalse(actualList.isEmpty());
+        for (int i = 0; i < actualList.size(); i++) {
+            ColumnarTimeSeries a = actualList.get(i);
+            ColumnarTimeSeries e = expectedList.get(i);
+            Assert.assertEquals(a.getMeta().name, e.getMeta().name);
+            Assert.assertEquals(a.getMeta().source, e.getMeta().source);
+            Assert.assertEquals(a.size(), e.size());
+            for (int j = 0; j < a.size(); j++) {
+                Assert.assertEquals(a.time(j), e.time(j));
+                Assert.assertEquals(a.value(j), e.value(j));
+            }
+        }
+    }
+
 }
@@ -1,10 +1,10 @@
 package com.yahoo.sherlock.scheduler;
 
 import com.beust.jcommander.internal.Lists;
-import com.yahoo.egads.data.TimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.SherlockException;
 import com.yahoo.sherlock.model.AnomalyReport;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.JobMetadata;
 import com.yahoo.sherlock.service.DetectorService;
 import com.yahoo.sherlock.settings.Constants;
@@ -32,7 +32,7 @@ public class EgadsTaskTest {
         AnomalyReport ar = new AnomalyReport();
         ar.setStatus(Constants.ERROR);
         int runtime = 1234;
-        List<TimeSeries> tslist = Collections.emptyList();
+        List<ColumnarTimeSeries> tslist = Collections.emptyList();
         DetectorService ds = mock(DetectorService.class);
         JobExecutionService jes = mock(JobExecutionService.class);
         EgadsTask et = new EgadsTask(j, runtime, tslist, ds, jes);
@@ -50,7 +50,7 @@ public class EgadsTaskTest {
         j.setGranularity(Granularity.HOUR.toString());
         j.setEffectiveQueryTime(123456);
         int runtime = 1234;
-        List<TimeSeries> tslist = Collections.emptyList();
+        List<ColumnarTimeSeries> tslist = Collections.emptyList();
         DetectorService ds = mock(DetectorService.class);
         JobExecutionService jes = mock(JobExecutionService.class);
         EgadsTask et = new EgadsTask(j, runtime, tslist, ds, jes);
@@ -9,8 +9,12 @@ import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.enums.JobStatus;
 import com.yahoo.sherlock.exception.SchedulerException;
 import com.yahoo.sherlock.model.JobMetadata;
+import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.store.JobMetadataAccessor;
 import com.yahoo.sherlock.store.JobScheduler;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -19,12 +23,37 @@ import org.testng.annotations.Test;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 
 public class ExecutionTaskTest {
 
+    @SuppressWarnings("unchecked")
+    private static Set<String> removedPending(JobScheduler js) throws IOException {
+        ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass((Class) Collection.class);
+        Mockito.verify(js, Mockito.atLeastOnce()).removePending(ids.capture());
+        Set<String> removed = new HashSet<>();
+        for (Collection<String> batch : ids.getAllValues()) {
+            removed.addAll(batch);
+        }
+        return removed;
+    }
+
     @Test
     public void testExecutionTaskConsumeAndExecute() throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException,
                                                             SchedulerException {
@@ -58,8 +87,78 @@ public class ExecutionTaskTest {
         m.invoke(et, 12345);
         Mockito.verify(js, Mockito.times(5)).popQueue(12345);
         Mockito.verify(jes, Mockito.times(4)).execute(any(JobMetadata.class));
-        Mockito.verify(ss, Mockito.times(4)).rescheduleJob(any(JobMetadata.class));
-        Mockito.verify(jma, Mockito.times(4)).putJobMetadata(any(JobMetadata.class));
+        Mockito.verify(ss, Mockito.times(4)).nextQueueEntry(any(JobMetadata.class));
+        Mockito.verify(jma, Mockito.never()).putJobMetadata(any(JobMetadata.class));
+        Mockito.verify(jma, Mockito.times(1)).putJobMetadata(anyListOf(JobMetadata.class));
+        Mockito.verify(js, Mockito.times(1)).removePending(anyCollectionOf(String.class));
+        Mockito.verify(js, Mockito.never()).removePending(any(Integer.class));
+    }
+
+    @Test
+    public void testExecutedJobsWrittenInBatches() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma);
+        List<JobMetadata> jobs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            JobMetadata job = new JobMetadata();
+            job.setJobId(i + 1);
+            job.setEffectiveRunTime(12340);
+            job.setFrequency(Granularity.HOUR.toString());
+            job.setJobStatus(JobStatus.RUNNING.getValue());
+            jobs.add(job);
+        }
+        Mockito.when(js.popQueue(anyLong())).thenReturn(jobs.get(0), jobs.get(1), jobs.get(2), jobs.get(3), jobs.get(4), null);
+        Mockito.when(ss.nextQueueEntry(any(JobMetadata.class))).thenAnswer(iom -> {
+            JobMetadata job = (JobMetadata) iom.getArguments()[0];
+            return job.getJobId() == 3 ? null : new ImmutablePair<>(12400, job.getJobId().toString());
+        });
+        int batchSize = CLISettings.EXECUTION_STATE_BATCH_SIZE;
+        CLISettings.EXECUTION_STATE_BATCH_SIZE = 2;
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        try {
+            m.invoke(et, 12345);
+        } finally {
+            CLISettings.EXECUTION_STATE_BATCH_SIZE = batchSize;
+        }
+        Mockito.verify(jma, Mockito.times(3)).putJobMetadata(anyListOf(JobMetadata.class));
+        Mockito.verify(js, Mockito.times(3)).removePending(anyCollectionOf(String.class));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Pair<Integer, String>>> queue = ArgumentCaptor.forClass((Class) List.class);
+        Mockito.verify(js, Mockito.times(3)).pushQueue(queue.capture());
+        assertEquals(queue.getAllValues().get(1), Collections.singletonList(new ImmutablePair<>(12400, "4")));
+        assertEquals(removedPending(js), new HashSet<>(Arrays.asList("1", "2", "3", "4", "5")));
+    }
+
+    @Test
+    public void testFailedWriteLeavesJobsPending() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma);
+        JobMetadata job = new JobMetadata();
+        job.setJobId(1);
+        job.setEffectiveRunTime(12340);
+        job.setFrequency(Granularity.HOUR.toString());
+        job.setJobStatus(JobStatus.RUNNING.getValue());
+        Mockito.when(js.popQueue(anyLong())).thenReturn(job, (JobMetadata) null);
+        Mockito.when(ss.nextQueueEntry(any(JobMetadata.class))).thenReturn(new ImmutablePair<>(12400, "1"));
+        Mockito.doThrow(new IOException("error")).when(jma).putJobMetadata(anyListOf(JobMetadata.class));
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        try {
+            m.invoke(et, 12345);
+            fail();
+        } catch (InvocationTargetException e) {
+            assertEquals(e.getCause().getMessage(), "error");
+        }
+        Mockito.verify(jes).execute(job);
+        Mockito.verify(js, Mockito.never()).pushQueue(Mockito.anyList());
+        Mockito.verify(js, Mockito.never()).removePending(anyCollectionOf(String.class));
     }
 
     @Test
@@ -72,9 +171,232 @@ public class ExecutionTaskTest {
         Mockito.when(js.popQueue(anyLong())).thenThrow(new IOException());
         et.run();
         Mockito.verify(jes, Mockito.times(0)).execute(any(JobMetadata.class));
-        Mockito.verify(ss, Mockito.times(0)).rescheduleJob(any(JobMetadata.class));
+        Mockito.verify(ss, Mockito.times(0)).nextQueueEntry(any(JobMetadata.class));
         Mockito.verify(js, Mockito.times(1)).popQueue(anyLong());
         Mockito.verify(jma, Mockito.times(0)).putJobMetadata(any(JobMetadata.class));
     }
 
+    @Test
+    public void testConsumeAndExecuteOnWorkerPool() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        JobWorkerPool pool = new JobWorkerPool("test", 2, 1, 1);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma, pool);
+        JobMetadata[] jobs = new JobMetadata[4];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = new JobMetadata();
+            jobs[i].setJobId(i + 1);
+            jobs[i].setClusterId(i % 2);
+            jobs[i].setEffectiveRunTime(12340);
+            jobs[i].setFrequency(Granularity.HOUR.toString());
+            jobs[i].setJobStatus(JobStatus.RUNNING.getValue());
+        }
+        Mockito.when(js.popQueue(anyLong(), anyInt())).thenReturn(
+            Arrays.asList(jobs[0], jobs[1], jobs[2]), Collections.singletonList(jobs[3]), Collections.emptyList());
+        Mockito.doThrow(new IllegalStateException("error")).when(jes).execute(jobs[2]);
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        m.invoke(et, 12345);
+        pool.shutdown(5000);
+        Mockito.verify(jes, Mockito.times(4)).execute(any(JobMetadata.class));
+        Mockito.verify(ss, Mockito.times(3)).nextQueueEntry(any(JobMetadata.class));
+        // A failed job stays in the pending queue
+        assertEquals(removedPending(js), new HashSet<>(Arrays.asList("1", "2", "4")));
+    }
+
+    @Test(timeOut = 10000)
+    public void testWorkerPoolPopsBatchesOfFreeCapacity() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        JobWorkerPool pool = new JobWorkerPool("test", 2, 2, 0);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma, pool);
+        List<JobMetadata> jobs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            JobMetadata job = new JobMetadata();
+            job.setJobId(i + 1);
+            job.setEffectiveRunTime(12340);
+            job.setFrequency(Granularity.HOUR.toString());
+            job.setJobStatus(JobStatus.RUNNING.getValue());
+            jobs.add(job);
+        }
+        // Jobs 1 to 4 keep the pool full until the second pop and job 5 runs until the
+        // last pop, so the free capacity seen by each pop does not depend on thread timing
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch lastPop = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            JobMetadata job = (JobMetadata) invocation.getArguments()[0];
+            (job.getJobId() < 5 ? firstBatch : lastPop).await();
+            return null;
+        }).when(jes).execute(any(JobMetadata.class));
+        List<Integer> batchSizes = new ArrayList<>();
+        Mockito.when(js.popQueue(anyLong(), anyInt())).thenAnswer(invocation -> {
+            batchSizes.add((Integer) invocation.getArguments()[1]);
+            if (batchSizes.size() == 1) {
+                return jobs.subList(0, 4);
+            }
+            if (batchSizes.size() == 2) {
+                firstBatch.countDown();
+                while (pool.getAvailable() < 4) {
+                    Thread.sleep(1);
+                }
+                return jobs.subList(4, 5);
+            }
+            lastPop.countDown();
+            return Collections.emptyList();
+        });
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        m.invoke(et, 12345);
+        pool.shutdown(5000);
+        assertEquals(batchSizes, Arrays.asList(4, 1, 3));
+        Mockito.verify(js).popQueue(12345, 4);
+        Mockito.verify(js).popQueue(12345, 1);
+        Mockito.verify(js).popQueue(12345, 3);
+        Mockito.verify(js, Mockito.never()).popQueue(anyLong());
+        Mockito.verify(jes, Mockito.times(5)).execute(any(JobMetadata.class));
+        assertEquals(removedPending(js), new HashSet<>(Arrays.asList("1", "2", "3", "4", "5")));
+    }
+
+    @Test(timeOut = 10000)
+    public void testWorkerPoolSkipsRunningJobPoppedAgain() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        JobWorkerPool pool = new JobWorkerPool("test", 2, 2, 0);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma, pool);
+        JobMetadata job = new JobMetadata();
+        job.setJobId(1);
+        job.setEffectiveRunTime(12340);
+        job.setFrequency(Granularity.HOUR.toString());
+        job.setJobStatus(JobStatus.RUNNING.getValue());
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            running.countDown();
+            finish.await();
+            return null;
+        }).when(jes).execute(any(JobMetadata.class));
+        // The backend returns the running job to the queue, so the next ping pops it again
+        Mockito.when(js.popQueue(anyLong(), anyInt())).thenReturn(
+            Collections.singletonList(job), Collections.emptyList(), Collections.singletonList(job), Collections.emptyList());
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        m.invoke(et, 12345);
+        running.await();
+        et.refreshHeldJobs();
+        m.invoke(et, 12346);
+        finish.countDown();
+        pool.shutdown(5000);
+        Mockito.verify(jes, Mockito.times(1)).execute(any(JobMetadata.class));
+        Mockito.verify(js).touchPending(eq(Collections.singletonList("1")), anyLong());
+        assertEquals(removedPending(js), Collections.singleton("1"));
+        et.refreshHeldJobs();
+        Mockito.verify(js).touchPending(eq(Collections.emptyList()), anyLong());
+    }
+
+    @Test
+    public void testLaggingJobPoppedTwiceInOneTickIsBackfilledOnce() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma);
+        JobMetadata job = new JobMetadata();
+        job.setJobId(1);
+        job.setEffectiveRunTime(12000);
+        job.setFrequency(Granularity.HOUR.toString());
+        job.setJobStatus(JobStatus.RUNNING.getValue());
+        Mockito.when(ss.jobScheduleTime(any(JobMetadata.class))).thenReturn(new ImmutablePair<>(12360, 12400));
+        // The finished job is popped again before its state is written
+        Mockito.when(js.popQueue(anyLong())).thenReturn(job, job, null);
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        m.invoke(et, 12345);
+        Mockito.verify(js, Mockito.times(3)).popQueue(12345);
+        Mockito.verify(jes, Mockito.times(1)).backfillJobFromIntervalEnd(job);
+        Mockito.verify(jma, Mockito.times(1)).putJobMetadata(anyListOf(JobMetadata.class));
+        assertEquals(removedPending(js), Collections.singleton("1"));
+    }
+
+    @Test
+    public void testHeldExecutedJobsWrittenOnRefresh() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma);
+        JobMetadata job = new JobMetadata();
+        job.setJobId(1);
+        Method add = et.getClass().getDeclaredMethod("addExecutedJob", JobMetadata.class, Pair.class);
+        add.setAccessible(true);
+        add.invoke(et, job, new ImmutablePair<>(12400, "1"));
+        et.refreshHeldJobs();
+        Mockito.verify(jma, Mockito.never()).putJobMetadata(anyListOf(JobMetadata.class));
+        Method write = et.getClass().getDeclaredMethod("writeExecutedJobsOlderThan", long.class);
+        write.setAccessible(true);
+        write.invoke(et, 0L);
+        Mockito.verify(jma, Mockito.times(1)).putJobMetadata(Collections.singletonList(job));
+        assertEquals(removedPending(js), Collections.singleton("1"));
+    }
+
+    @Test
+    public void testDeletedJobInBatchIsNotWritten() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma);
+        JobMetadata job = new JobMetadata();
+        job.setJobId(1);
+        JobMetadata other = new JobMetadata();
+        other.setJobId(2);
+        Method add = et.getClass().getDeclaredMethod("addExecutedJob", JobMetadata.class, Pair.class);
+        add.setAccessible(true);
+        add.invoke(et, job, new ImmutablePair<>(12400, "1"));
+        add.invoke(et, other, new ImmutablePair<>(12400, "2"));
+        // The job is deleted while its state is held in the batch
+        et.forget("1");
+        et.flushExecutedJobs();
+        Mockito.verify(jma, Mockito.times(1)).putJobMetadata(Collections.singletonList(other));
+        Mockito.verify(js, Mockito.times(1)).pushQueue(Collections.singletonList(new ImmutablePair<>(12400, "2")));
+        assertEquals(removedPending(js), Collections.singleton("2"));
+    }
+
+    @Test
+    public void testStoppedRunningJobIsNotWritten() throws Exception {
+        JobExecutionService jes = Mockito.mock(JobExecutionService.class);
+        JobScheduler js = Mockito.mock(JobScheduler.class);
+        SchedulerService ss = Mockito.mock(SchedulerService.class);
+        JobMetadataAccessor jma = Mockito.mock(JobMetadataAccessor.class);
+        ExecutionTask et = new ExecutionTask(jes, ss, js, jma);
+        JobMetadata job = new JobMetadata();
+        job.setJobId(1);
+        job.setEffectiveRunTime(12340);
+        job.setFrequency(Granularity.HOUR.toString());
+        job.setJobStatus(JobStatus.RUNNING.getValue());
+        Mockito.when(ss.nextQueueEntry(job)).thenReturn(new ImmutablePair<>(12400, "1"));
+        // The job is stopped while it runs
+        Mockito.doAnswer(invocation -> {
+            et.forget("1");
+            return null;
+        }).when(jes).execute(job);
+        Mockito.when(js.popQueue(anyLong())).thenReturn(job, (JobMetadata) null);
+        Method m = et.getClass().getDeclaredMethod("consumeAndExecuteTasks", long.class);
+        m.setAccessible(true);
+        m.invoke(et, 12345);
+        Mockito.verify(jes, Mockito.times(1)).execute(job);
+        Mockito.verify(jma, Mockito.never()).putJobMetadata(anyListOf(JobMetadata.class));
+        Mockito.verify(js, Mockito.never()).pushQueue(Mockito.anyList());
+        // A later run of the job is written as usual
+        Mockito.doNothing().when(jes).execute(job);
+        Mockito.when(js.popQueue(anyLong())).thenReturn(job, (JobMetadata) null);
+        m.invoke(et, 12346);
+        Mockito.verify(jma, Mockito.times(1)).putJobMetadata(Collections.singletonList(job));
+    }
+
 }
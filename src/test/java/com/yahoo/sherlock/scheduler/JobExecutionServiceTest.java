@@ -9,12 +9,12 @@ package com.yahoo.sherlock.scheduler;
 import com.google.gson.JsonArray;
 import com.yahoo.egads.data.Anomaly;
 import com.yahoo.egads.data.MetricMeta;
-import com.yahoo.egads.data.TimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.enums.JobStatus;
 import com.yahoo.sherlock.exception.DruidException;
 import com.yahoo.sherlock.exception.SherlockException;
 import com.yahoo.sherlock.model.AnomalyReport;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.DruidCluster;
 import com.yahoo.sherlock.model.JobMetadata;
 import com.yahoo.sherlock.query.Query;
@@ -253,8 +253,8 @@ public class JobExecutionServiceTest {
         JsonArray response = new JsonArray();
         when(ds.queryDruid(any(), any())).thenReturn(response);
         @SuppressWarnings("unchecked")
-        List<TimeSeries>[] fillSeriesList = (List<TimeSeries>[]) new List[3];
-        when(ps.subseries(any(), anyLong(), anyLong(), any(), anyInt(), anyInt())).thenReturn(fillSeriesList);
+        List<ColumnarTimeSeries>[] fillSeriesList = (List<ColumnarTimeSeries>[]) new List[3];
+        when(ps.subseriesWindows(any(), anyLong(), anyLong(), any(), anyInt(), anyInt())).thenReturn(Arrays.asList(fillSeriesList));
         doCallRealMethod().when(jes).performBackfillJob(any(), any(), any(), anyInt(), anyInt(), any(), anyInt());
         EgadsTask ftask = mock(EgadsTask.class);
         when(ftask.getReports()).thenReturn(Collections.singletonList(new AnomalyReport()));
@@ -265,6 +265,30 @@ public class JobExecutionServiceTest {
         verify(ara, times(1)).putAnomalyReports(any());
     }
 
+    @Test
+    public void testPerformBackfillJobWritesReportsInBatches() throws Exception {
+        initMocks();
+        int batchSize = CLISettings.BACKFILL_REPORT_BATCH_SIZE;
+        CLISettings.BACKFILL_REPORT_BATCH_SIZE = 2;
+        Query query = mock(Query.class);
+        when(query.getGranularityRange()).thenReturn(1);
+        when(ds.queryDruid(any(), any())).thenReturn(new JsonArray());
+        @SuppressWarnings("unchecked")
+        List<ColumnarTimeSeries>[] fillSeriesList = (List<ColumnarTimeSeries>[]) new List[5];
+        when(ps.subseriesWindows(any(), anyLong(), anyLong(), any(), anyInt(), anyInt())).thenReturn(Arrays.asList(fillSeriesList));
+        doCallRealMethod().when(jes).performBackfillJob(any(), any(), any(), anyInt(), anyInt(), any(), anyInt());
+        EgadsTask ftask = mock(EgadsTask.class);
+        when(ftask.getReports()).thenReturn(Collections.singletonList(new AnomalyReport()));
+        when(jes.createTask(any(), anyInt(), any(), any())).thenReturn(ftask);
+        try {
+            jes.performBackfillJob(new JobMetadata(), new DruidCluster(), query, 123, 128, Granularity.HOUR, 10);
+        } finally {
+            CLISettings.BACKFILL_REPORT_BATCH_SIZE = batchSize;
+        }
+        verify(ftask, times(5)).run();
+        verify(ara, times(3)).putAnomalyReports(any());
+    }
+
     @Test
     public void testCreateEgadsTask() {
         initMocks();
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.scheduler;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class JobWorkerPoolTest {
+
+    private static void updateMax(AtomicInteger max, int value) {
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    @Test
+    public void testClusterConcurrencyIsCapped() throws InterruptedException {
+        JobWorkerPool pool = new JobWorkerPool("test", 4, 8, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            pool.submit(1, () -> {
+                updateMax(maxRunning, running.incrementAndGet());
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+        pool.shutdown(1000);
+        assertEquals(pool.getStats().get("completed"), 8L);
+        assertEquals(pool.getPending(), 0);
+    }
+
+    @Test
+    public void testSubmitBlocksWhenFull() throws InterruptedException {
+        JobWorkerPool pool = new JobWorkerPool("test", 1, 1, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        pool.submit(null, blocked);
+        pool.submit(null, blocked);
+        assertEquals(pool.getPending(), 2);
+        Thread submitter = new Thread(() -> {
+            try {
+                pool.submit(null, () -> { });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        submitter.start();
+        submitter.join(100);
+        assertTrue(submitter.isAlive());
+        release.countDown();
+        submitter.join(5000);
+        pool.shutdown(5000);
+        assertEquals(pool.getStats().get("completed"), 3L);
+    }
+
+    @Test
+    public void testJobErrorReleasesCapacity() throws InterruptedException {
+        JobWorkerPool pool = new JobWorkerPool("test", 1, 0, 1);
+        pool.submit(3, () -> {
+            throw new IllegalStateException("fail");
+        });
+        pool.submit(3, () -> { });
+        pool.shutdown(5000);
+        assertEquals(pool.getPending(), 0);
+        assertEquals(pool.getStats().get("completed"), 2L);
+    }
+
+    @Test
+    public void testSaturatedClusterDoesNotHoldThreads() throws InterruptedException {
+        JobWorkerPool pool = new JobWorkerPool("test", 2, 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherClusterRan = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        pool.submit(1, blocked);
+        pool.submit(1, blocked);
+        // The second job of cluster 1 waits for its cluster without taking the free thread
+        pool.submit(2, otherClusterRan::countDown);
+        assertTrue(otherClusterRan.await(5, TimeUnit.SECONDS));
+        assertEquals(pool.getClusterWaiting(), 1);
+        release.countDown();
+        pool.shutdown(5000);
+        assertEquals(pool.getPending(), 0);
+        assertEquals(pool.getClusterWaiting(), 0);
+        assertEquals(pool.getStats().get("completed"), 3L);
+    }
+
+}
@@ -81,6 +81,7 @@ public class SchedulerServiceTest {
     public void testRescheduleJob() throws SchedulerException, IOException {
         init();
         doCallRealMethod().when(ss).rescheduleJob(any());
+        doCallRealMethod().when(ss).nextQueueEntry(any());
         when(ss.jobRescheduleTime(any())).thenReturn(new ImmutablePair<>(5, 5));
         JobMetadata jobMetadata = mock(JobMetadata.class);
         when(jobMetadata.getJobStatus()).thenReturn("RUNNING");
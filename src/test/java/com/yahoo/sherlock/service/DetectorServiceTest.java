@@ -11,15 +11,19 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.yahoo.egads.data.Anomaly;
-import com.yahoo.egads.data.TimeSeries;
+import com.yahoo.egads.data.MetricMeta;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.model.DruidCluster;
 import com.yahoo.sherlock.model.EgadsResult;
 import com.yahoo.sherlock.model.JobMetadata;
+import com.yahoo.sherlock.model.SeriesModelState;
 import com.yahoo.sherlock.query.EgadsConfig;
 import com.yahoo.sherlock.query.Query;
+import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.store.DBTestHelper;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -31,6 +35,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyDouble;
@@ -41,6 +46,8 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
 
 /**
  * Test detector service.
@@ -62,10 +69,10 @@ public class DetectorServiceTest {
         Query query = new Query(queryJsonObject, 1, 1234, Granularity.HOUR, 1);
         String druidResponse = new String(Files.readAllBytes(Paths.get("src/test/resources/druid_valid_response_1.json")));
         JsonArray jsonArray = gson.fromJson(druidResponse, JsonArray.class);
-        TimeSeries timeseries = new TimeSeries();
-        timeseries.meta.id = "123zx23";
-        timeseries.meta.name = "metric";
-        timeseries.meta.source = "filter1, filter2";
+        ColumnarTimeSeries timeseries = new ColumnarTimeSeries(new MetricMeta());
+        timeseries.getMeta().id = "123zx23";
+        timeseries.getMeta().name = "metric";
+        timeseries.getMeta().source = "filter1, filter2";
         timeseries.append(3600L, 11.11f);
         timeseries.append(7200L, 22.22f);
         timeseries.append(10800L, 33.33f);
@@ -182,10 +189,9 @@ public class DetectorServiceTest {
     public void testRunDetectionWithConfig() throws Exception {
         initMocks();
         List<Anomaly> anomalies = Lists.newArrayList(new Anomaly(), new Anomaly());
-        TimeSeries endSeries = new TimeSeries();
-        endSeries.data = new TimeSeries.DataSequence();
-        endSeries.data.add(new TimeSeries.Entry(123 * 60, 1000));
-        List<TimeSeries> tslist = Lists.newArrayList(endSeries, new TimeSeries());
+        ColumnarTimeSeries endSeries = new ColumnarTimeSeries(new MetricMeta());
+        endSeries.append(123 * 60, 1000);
+        List<ColumnarTimeSeries> tslist = Lists.newArrayList(endSeries, new ColumnarTimeSeries(new MetricMeta()));
         when(egadsConfig.getAdModel()).thenReturn("model1");
         when(egads.getP()).thenReturn(egadsConfig);
         when(egads.runEGADS(any(), anyDouble())).thenReturn(anomalies);
@@ -203,15 +209,57 @@ public class DetectorServiceTest {
         verify(egads, times(2)).configureWith(any());
     }
 
+    @Test
+    public void testRunDetectionInParallelKeepsOrder() throws Exception {
+        initMocks();
+        EgadsConfig shared = EgadsConfig.create().buildDefault();
+        inject(ds, "egadsConfig", shared);
+        when(egads.getP()).thenReturn(new EgadsConfig());
+        when(egads.runEGADS(any(), anyDouble())).thenAnswer(iom -> {
+            ColumnarTimeSeries series = (ColumnarTimeSeries) iom.getArguments()[0];
+            Anomaly anomaly = new Anomaly();
+            anomaly.id = series.getMeta().id;
+            return Lists.newArrayList(anomaly);
+        });
+        when(ds.runDetection(any(), any(), anyInt(), any(Granularity.class))).thenCallRealMethod();
+        List<ColumnarTimeSeries> tslist = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ColumnarTimeSeries series = new ColumnarTimeSeries(new MetricMeta());
+            series.getMeta().id = String.valueOf(i);
+            series.append(123 * 60, i);
+            tslist.add(series);
+        }
+        JobMetadata job = mock(JobMetadata.class);
+        when(job.getSigmaThreshold()).thenReturn(3.0);
+        when(job.getGranularityRange()).thenReturn(1);
+        int parallelism = CLISettings.DETECTION_PARALLELISM;
+        CLISettings.DETECTION_PARALLELISM = 4;
+        List<Anomaly> result;
+        try {
+            result = ds.runDetection(tslist, job, 123, Granularity.DAY);
+        } finally {
+            CLISettings.DETECTION_PARALLELISM = parallelism;
+        }
+        assertEquals(result.size(), 20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(result.get(i).id, String.valueOf(i));
+        }
+        ArgumentCaptor<EgadsConfig> config = ArgumentCaptor.forClass(EgadsConfig.class);
+        verify(egads).configureWith(config.capture());
+        assertNotSame(config.getValue(), shared);
+        assertEquals(config.getValue(), shared);
+    }
+
     @Test
     public void testDetectWithResults() throws Exception {
         EgadsResult res = new EgadsResult();
         initMocks();
         when(egads.detectAnomaliesResult(any())).thenReturn(res);
-        List<TimeSeries> tslist = Lists.newArrayList(
-            new TimeSeries(), new TimeSeries(), new TimeSeries(), new TimeSeries(), new TimeSeries()
-        );
-        when(ps.parseTimeSeries(any(), any())).thenReturn(tslist);
+        List<ColumnarTimeSeries> tslist = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tslist.add(new ColumnarTimeSeries(new MetricMeta()));
+        }
+        when(ds.queryTimeSeries(any(), any())).thenReturn(tslist);
         when(ds.detectWithResults(any(), any(), any(), any(), any())).thenCallRealMethod();
         Query query = new Query(null, 150000000, 159999999, Granularity.DAY, 1);
         List<EgadsResult> reslist = ds.detectWithResults(query, 3.0, new DruidCluster(), 1, new EgadsConfig());
@@ -221,4 +269,136 @@ public class DetectorServiceTest {
         verify(egads, times(1)).configureDetectionWindow(query.getRunTime() / 60, query.getGranularity().toString(), 2);
         verify(egads, times(5)).detectAnomaliesResult(any());
     }
+
+    private static ColumnarTimeSeries seriesEndingAt(int... minutes) {
+        MetricMeta meta = new MetricMeta();
+        meta.id = UUID.randomUUID().toString();
+        meta.name = "metric";
+        meta.source = "dim = 'a'";
+        ColumnarTimeSeries series = new ColumnarTimeSeries(meta);
+        for (int minute : minutes) {
+            series.append(minute * 60L, 1);
+        }
+        return series;
+    }
+
+    @Test
+    public void testDetectIncrementally() throws Exception {
+        initMocks();
+        ModelStateCache cache = new ModelStateCache();
+        DruidQueryService qs = mock(DruidQueryService.class);
+        inject(ds, "modelStateCache", cache);
+        inject(ds, "queryService", qs);
+        inject(ds, "egadsConfig", EgadsConfig.create().buildDefault());
+        when(egads.getP()).thenReturn(new EgadsConfig());
+        when(egads.runEGADSAndTrain(any(), any(), anyInt())).thenAnswer(iom -> {
+            ((SeriesModelState) iom.getArguments()[1]).setForecast(new float[1]);
+            return new ArrayList<Anomaly>();
+        });
+        when(egads.scoreIncrementally(any(), any(), any())).thenReturn(new Anomaly());
+        when(ds.runDetection(any(), any(), anyInt(), any(Granularity.class))).thenCallRealMethod();
+        when(ds.detect(any(DruidCluster.class), any(JobMetadata.class))).thenCallRealMethod();
+        JobMetadata job = new JobMetadata();
+        job.setJobId(7);
+        job.setQuery(queryString);
+        job.setGranularity("hour");
+        job.setGranularityRange(1);
+        job.setFrequency("hour");
+        job.setTimeseriesRange(24);
+        job.setSigmaThreshold(3.0);
+        job.setEffectiveQueryTime(600);
+        Query full = mock(Query.class);
+        when(full.getRunTime()).thenReturn(600 * 60);
+        when(full.getGranularity()).thenReturn(Granularity.HOUR);
+        Query tail = mock(Query.class);
+        when(qs.build(anyString(), any(), any(), anyInt(), anyInt())).thenReturn(full);
+        when(qs.build(anyString(), any(), any(), Mockito.eq(660), Mockito.eq(1))).thenReturn(tail);
+        when(ds.queryTimeSeries(Mockito.eq(full), any())).thenReturn(Collections.singletonList(seriesEndingAt(540)));
+        when(ds.queryTimeSeries(Mockito.eq(tail), any())).thenReturn(Collections.singletonList(seriesEndingAt(600)));
+        boolean incremental = CLISettings.INCREMENTAL_DETECTION;
+        CLISettings.INCREMENTAL_DETECTION = true;
+        try {
+            assertEquals(ds.detect(new DruidCluster(), job).size(), 0);
+            assertEquals(cache.get(7).getLastEnd(), 540);
+            job.setEffectiveQueryTime(660);
+            assertEquals(ds.detect(new DruidCluster(), job).size(), 1);
+            assertEquals(cache.get(7).getLastEnd(), 600);
+            verify(egads, times(1)).runEGADSAndTrain(any(), any(), anyInt());
+            verify(egads, times(1)).scoreIncrementally(any(), any(), any());
+            // A series the job was not trained on triggers a full run
+            ColumnarTimeSeries other = seriesEndingAt(600);
+            other.getMeta().source = "dim = 'b'";
+            when(ds.queryTimeSeries(Mockito.eq(tail), any())).thenReturn(Collections.singletonList(other));
+            cache.get(7).setLastEnd(540);
+            ds.detect(new DruidCluster(), job);
+            verify(egads, times(2)).runEGADSAndTrain(any(), any(), anyInt());
+            // Changing the model configuration discards the state
+            job.setSigmaThreshold(2.0);
+            job.setEffectiveQueryTime(600);
+            ds.detect(new DruidCluster(), job);
+            verify(egads, times(3)).runEGADSAndTrain(any(), any(), anyInt());
+        } finally {
+            CLISettings.INCREMENTAL_DETECTION = incremental;
+        }
+        CLISettings.INCREMENTAL_DETECTION = false;
+        cache.clear();
+        ds.detect(new DruidCluster(), job);
+        assertNull(cache.get(7));
+        verify(egads, times(3)).runEGADSAndTrain(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testDetectQueriesWindowTail() throws Exception {
+        initMocks();
+        DruidQueryService qs = mock(DruidQueryService.class);
+        inject(ds, "windowCache", new SeriesWindowCache());
+        inject(ds, "queryService", qs);
+        inject(ds, "egadsConfig", EgadsConfig.create().buildDefault());
+        when(egads.getP()).thenReturn(new EgadsConfig());
+        List<ColumnarTimeSeries> scored = new ArrayList<>();
+        when(egads.runEGADS(any(), anyDouble())).thenAnswer(iom -> {
+            scored.add((ColumnarTimeSeries) iom.getArguments()[0]);
+            return new ArrayList<Anomaly>();
+        });
+        when(ds.runDetection(any(), any(), anyInt(), any(Granularity.class))).thenCallRealMethod();
+        when(ds.detect(any(DruidCluster.class), any(JobMetadata.class))).thenCallRealMethod();
+        JobMetadata job = new JobMetadata();
+        job.setJobId(8);
+        job.setQuery(queryString);
+        job.setGranularity("hour");
+        job.setGranularityRange(1);
+        job.setFrequency("hour");
+        job.setTimeseriesRange(4);
+        job.setSigmaThreshold(3.0);
+        job.setEffectiveQueryTime(600);
+        Query first = new Query(null, 360 * 60, 600 * 60, Granularity.HOUR, 1);
+        Query second = new Query(null, 420 * 60, 660 * 60, Granularity.HOUR, 1);
+        Query tail = new Query(null, 600 * 60, 660 * 60, Granularity.HOUR, 1);
+        when(qs.build(anyString(), any(), any(), Mockito.eq(600), Mockito.eq(4))).thenReturn(first);
+        when(qs.build(anyString(), any(), any(), Mockito.eq(660), Mockito.eq(4))).thenReturn(second);
+        when(qs.build(anyString(), any(), any(), Mockito.eq(660), Mockito.eq(1))).thenReturn(tail);
+        ColumnarTimeSeries window = seriesEndingAt(360, 420, 480, 540);
+        when(ds.queryTimeSeries(Mockito.eq(first), any())).thenReturn(Collections.singletonList(window));
+        when(ds.queryTimeSeries(Mockito.eq(tail), any())).thenReturn(Collections.singletonList(seriesEndingAt(600)));
+        boolean cached = CLISettings.DRUID_WINDOW_CACHE;
+        CLISettings.DRUID_WINDOW_CACHE = true;
+        try {
+            ds.detect(new DruidCluster(), job);
+            job.setEffectiveQueryTime(660);
+            ds.detect(new DruidCluster(), job);
+            // A changed query configuration fetches the full window
+            job.setGranularityRange(2);
+            job.setEffectiveQueryTime(600);
+            ds.detect(new DruidCluster(), job);
+        } finally {
+            CLISettings.DRUID_WINDOW_CACHE = cached;
+        }
+        verify(ds, times(2)).queryTimeSeries(Mockito.eq(first), any());
+        verify(ds, times(1)).queryTimeSeries(Mockito.eq(tail), any());
+        verify(ds, Mockito.never()).queryTimeSeries(Mockito.eq(second), any());
+        assertEquals(scored.size(), 2);
+        assertEquals(scored.get(1).size(), 4);
+        assertEquals(scored.get(1).time(0), 420 * 60L);
+        assertEquals(scored.get(1).time(3), 600 * 60L);
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonPrimitive;
+import com.yahoo.sherlock.model.DruidCluster;
+import com.yahoo.sherlock.settings.CLISettings;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class DruidDatasourceCacheTest {
+
+    private DruidDatasourceCache cache;
+    private DruidCluster cluster;
+    private JsonArray datasources;
+    private AtomicInteger loads;
+    private int ttl;
+
+    private boolean contains(String datasource) throws Exception {
+        return cache.contains(cluster, new JsonPrimitive(datasource), c -> {
+            loads.incrementAndGet();
+            JsonArray copy = new JsonArray();
+            copy.addAll(datasources);
+            return copy;
+        });
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        ttl = CLISettings.DRUID_DATASOURCE_CACHE_TTL;
+        CLISettings.DRUID_DATASOURCE_CACHE_TTL = 300;
+        cache = new DruidDatasourceCache();
+        cluster = new DruidCluster();
+        cluster.setClusterId(7);
+        datasources = new JsonArray();
+        datasources.add("ds1");
+        loads = new AtomicInteger();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        CLISettings.DRUID_DATASOURCE_CACHE_TTL = ttl;
+    }
+
+    @Test
+    public void testCachedUntilInvalidated() throws Exception {
+        assertTrue(contains("ds1"));
+        assertTrue(contains("ds1"));
+        assertEquals(loads.get(), 1);
+        cache.invalidate("7");
+        assertTrue(contains("ds1"));
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testUnknownDatasourceForcesOneRefresh() throws Exception {
+        assertTrue(contains("ds1"));
+        assertFalse(contains("ds2"));
+        assertEquals(loads.get(), 2);
+        datasources.add("ds2");
+        assertTrue(contains("ds2"));
+        assertEquals(loads.get(), 3);
+        assertTrue(contains("ds2"));
+        assertEquals(loads.get(), 3);
+    }
+
+    @Test
+    public void testBypassedWithoutClusterIdOrTtl() throws Exception {
+        cluster.setClusterId(null);
+        assertTrue(contains("ds1"));
+        assertTrue(contains("ds1"));
+        assertEquals(loads.get(), 2);
+        cluster.setClusterId(7);
+        CLISettings.DRUID_DATASOURCE_CACHE_TTL = 0;
+        assertTrue(contains("ds1"));
+        assertTrue(contains("ds1"));
+        assertEquals(loads.get(), 4);
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.yahoo.egads.data.MetricMeta;
+import com.yahoo.sherlock.enums.Granularity;
+import com.yahoo.sherlock.exception.DruidException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
+import com.yahoo.sherlock.model.DruidCluster;
+import com.yahoo.sherlock.query.Query;
+import com.yahoo.sherlock.settings.CLISettings;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class DruidQueryCacheTest {
+
+    private DruidQueryCache cache;
+    private DruidCluster cluster;
+    private AtomicInteger loads;
+    private int ttl;
+    private int size;
+    private long points;
+
+    private static Query query(String json, int start) {
+        return new Query(new Gson().fromJson(json, JsonObject.class), start, start + 3600, Granularity.HOUR, 1);
+    }
+
+    private List<ColumnarTimeSeries> load() {
+        loads.incrementAndGet();
+        MetricMeta meta = new MetricMeta();
+        meta.id = "1";
+        meta.name = "m1";
+        meta.source = "dim1 = 'v1'";
+        ColumnarTimeSeries series = new ColumnarTimeSeries(meta);
+        series.append(3600L, 1.5f);
+        List<ColumnarTimeSeries> list = new ArrayList<>();
+        list.add(series);
+        return list;
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        ttl = CLISettings.DRUID_QUERY_CACHE_TTL;
+        size = CLISettings.DRUID_QUERY_CACHE_SIZE;
+        points = CLISettings.DRUID_QUERY_CACHE_POINTS;
+        CLISettings.DRUID_QUERY_CACHE_TTL = 60;
+        CLISettings.DRUID_QUERY_CACHE_SIZE = 2;
+        CLISettings.DRUID_QUERY_CACHE_POINTS = 100;
+        cache = new DruidQueryCache();
+        cluster = new DruidCluster();
+        cluster.setClusterId(3);
+        loads = new AtomicInteger();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        CLISettings.DRUID_QUERY_CACHE_TTL = ttl;
+        CLISettings.DRUID_QUERY_CACHE_SIZE = size;
+        CLISettings.DRUID_QUERY_CACHE_POINTS = points;
+    }
+
+    @Test
+    public void testKeyIsCanonical() {
+        String a = DruidQueryCache.key(cluster, query("{\"a\": 1, \"b\": {\"x\": [1, 2], \"y\": \"z\"}}", 0));
+        String b = DruidQueryCache.key(cluster, query("{\"b\": {\"y\": \"z\", \"x\": [1, 2]}, \"a\": 1}", 0));
+        assertEquals(a, b);
+        assertNotEquals(a, DruidQueryCache.key(cluster, query("{\"a\": 1, \"b\": {\"x\": [2, 1], \"y\": \"z\"}}", 0)));
+        assertNotEquals(a, DruidQueryCache.key(cluster, query("{\"a\": 1, \"b\": {\"x\": [1, 2], \"y\": \"z\"}}", 60)));
+    }
+
+    @Test
+    public void testHitsReturnCopies() throws Exception {
+        Query query = query("{\"a\": 1}", 0);
+        List<ColumnarTimeSeries> first = cache.get(cluster, query, this::load);
+        first.get(0).append(7200L, 2.5f);
+        first.get(0).getMeta().source = "dim1 = 'v2'";
+        List<ColumnarTimeSeries> second = cache.get(cluster, query, this::load);
+        List<ColumnarTimeSeries> third = cache.get(cluster, query, this::load);
+        assertEquals(loads.get(), 1);
+        assertNotSame(second.get(0), third.get(0));
+        assertEquals(second.get(0).size(), 1);
+        assertEquals(second.get(0).getMeta().source, "dim1 = 'v1'");
+        assertNotEquals(second.get(0).getMeta().id, third.get(0).getMeta().id);
+        assertEquals(cache.getStats().get("hits"), 2L);
+        cache.invalidate("3");
+        cache.get(cluster, query, this::load);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        Query q1 = query("{\"a\": 1}", 0);
+        Query q2 = query("{\"a\": 2}", 0);
+        Query q3 = query("{\"a\": 3}", 0);
+        cache.get(cluster, q1, this::load);
+        cache.get(cluster, q2, this::load);
+        cache.get(cluster, q1, this::load);
+        cache.get(cluster, q3, this::load);
+        assertEquals(loads.get(), 3);
+        cache.get(cluster, q1, this::load);
+        assertEquals(loads.get(), 3);
+        cache.get(cluster, q2, this::load);
+        assertEquals(loads.get(), 4);
+    }
+
+    @Test
+    public void testPointBudgetEvictsLeastRecentlyUsed() throws Exception {
+        CLISettings.DRUID_QUERY_CACHE_SIZE = 0;
+        CLISettings.DRUID_QUERY_CACHE_POINTS = 2;
+        Query q1 = query("{\"a\": 1}", 0);
+        Query q2 = query("{\"a\": 2}", 0);
+        Query q3 = query("{\"a\": 3}", 0);
+        cache.get(cluster, q1, this::load);
+        cache.get(cluster, q2, this::load);
+        cache.get(cluster, q1, this::load);
+        cache.get(cluster, q3, this::load);
+        assertEquals(loads.get(), 3);
+        assertEquals(cache.getStats().get("points"), 2L);
+        cache.get(cluster, q2, this::load);
+        assertEquals(loads.get(), 4);
+        // A result larger than the budget is not cached
+        Query large = query("{\"a\": 4}", 0);
+        DruidQueryCache.Loader loader = () -> {
+            List<ColumnarTimeSeries> list = load();
+            list.get(0).append(7200L, 2f);
+            list.get(0).append(10800L, 3f);
+            return list;
+        };
+        cache.get(cluster, large, loader);
+        cache.get(cluster, large, loader);
+        assertEquals(loads.get(), 6);
+        assertEquals(cache.getStats().get("points"), 2L);
+    }
+
+    @Test
+    public void testInvalidatedWhileLoadingIsNotCached() throws Exception {
+        Query query = query("{\"a\": 1}", 0);
+        cache.get(cluster, query, () -> {
+            cache.invalidate("3");
+            return load();
+        });
+        cache.get(cluster, query, this::load);
+        assertEquals(loads.get(), 2);
+        cache.get(cluster, query, this::load);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testBypassedWithoutClusterIdOrTtl() throws Exception {
+        Query query = query("{\"a\": 1}", 0);
+        cluster.setClusterId(null);
+        cache.get(cluster, query, this::load);
+        cache.get(cluster, query, this::load);
+        cluster.setClusterId(3);
+        CLISettings.DRUID_QUERY_CACHE_TTL = 0;
+        cache.get(cluster, query, this::load);
+        cache.get(cluster, query, this::load);
+        assertEquals(loads.get(), 4);
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneRequest() throws Exception {
+        Query query = query("{\"a\": 1}", 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<ColumnarTimeSeries>> leader = executor.submit(() -> cache.get(cluster, query, () -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return load();
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            List<Future<List<ColumnarTimeSeries>>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> cache.get(cluster, query, this::load)));
+            }
+            while ((long) cache.getStats().get("joined") < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            assertEquals(leader.get(10, TimeUnit.SECONDS).size(), 1);
+            for (Future<List<ColumnarTimeSeries>> follower : followers) {
+                assertEquals(follower.get(10, TimeUnit.SECONDS).get(0).size(), 1);
+            }
+            assertEquals(loads.get(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        Query query = query("{\"a\": 1}", 0);
+        try {
+            cache.get(cluster, query, () -> {
+                throw new DruidException("broker unavailable");
+            });
+            fail();
+        } catch (DruidException e) {
+            assertEquals(e.getMessage(), "broker unavailable");
+        }
+        assertEquals(cache.get(cluster, query, Collections::emptyList).size(), 0);
+        assertEquals(cache.getStats().get("inFlight"), 0);
+    }
+
+}
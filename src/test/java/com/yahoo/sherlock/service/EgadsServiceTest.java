@@ -9,9 +9,12 @@ package com.yahoo.sherlock.service;
 import com.beust.jcommander.internal.Lists;
 import com.yahoo.egads.control.ProcessableObject;
 import com.yahoo.egads.data.Anomaly;
+import com.yahoo.egads.data.MetricMeta;
 import com.yahoo.egads.data.TimeSeries;
 import com.yahoo.sherlock.enums.Granularity;
 import com.yahoo.sherlock.exception.SherlockException;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
+import com.yahoo.sherlock.model.SeriesModelState;
 import com.yahoo.sherlock.query.EgadsConfig;
 import com.yahoo.sherlock.query.QueryBuilderTest;
 import com.yahoo.sherlock.settings.CLISettings;
@@ -29,6 +32,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.fail;
 
 /**
@@ -38,12 +42,12 @@ public class EgadsServiceTest {
 
     private static ProcessableObject processableObject;
     private static List<Anomaly> anomalies;
-    private static TimeSeries timeseries;
+    private static ColumnarTimeSeries timeseries;
     private static String tempConfig;
 
     private static class MockEgadsService extends EgadsService {
         @Override
-        protected ProcessableObject getEgadsProcessableObject(TimeSeries timeseries) {
+        protected ProcessableObject getEgadsProcessableObject(ColumnarTimeSeries timeseries) {
             return processableObject;
         }
     }
@@ -52,10 +56,10 @@ public class EgadsServiceTest {
     public void setUp() throws Exception {
         long start = 1508348470;
         long end = 1508349400;
-        timeseries = new TimeSeries();
-        timeseries.meta.id = "123zx23";
-        timeseries.meta.name = "metric";
-        timeseries.meta.source = "filter1, filter2";
+        timeseries = new ColumnarTimeSeries(new MetricMeta());
+        timeseries.getMeta().id = "123zx23";
+        timeseries.getMeta().name = "metric";
+        timeseries.getMeta().source = "filter1, filter2";
         timeseries.append(3600L, 11.11f);
         timeseries.append(7200L, 22.22f);
         timeseries.append(10800L, 33.33f);
@@ -88,15 +92,15 @@ public class EgadsServiceTest {
         EgadsService egadsService = new MockEgadsService();
         Assert.assertEquals(egadsService.runEGADS(timeseries, 3.0), anomalies);
         CLISettings.EGADS_CONFIG_FILENAME = "/xxxxx.con";
-        timeseries = new TimeSeries();
+        timeseries = new ColumnarTimeSeries(new MetricMeta());
         timeseries.append(3600L, 11.11f);
         timeseries.append(3600L * 24L, 22.22f);
         Assert.assertEquals(egadsService.runEGADS(timeseries, 3.0), anomalies);
-        timeseries = new TimeSeries();
+        timeseries = new ColumnarTimeSeries(new MetricMeta());
         timeseries.append(3600L, 11.11f);
         timeseries.append(3600L * 24L * 7L, 22.22f);
         Assert.assertEquals(egadsService.runEGADS(timeseries, 3.0), anomalies);
-        timeseries = new TimeSeries();
+        timeseries = new ColumnarTimeSeries(new MetricMeta());
         timeseries.append(3600L, 11.11f);
         timeseries.append(3600L * 24L * 100L, 22.22f);
         Assert.assertEquals(egadsService.runEGADS(timeseries, 3.0), anomalies);
@@ -142,7 +146,7 @@ public class EgadsServiceTest {
         when(po.result()).thenReturn(result);
         when(egads.detectAnomaliesResult(any())).thenCallRealMethod();
         try {
-            egads.detectAnomaliesResult(mock(TimeSeries.class));
+            egads.detectAnomaliesResult(mock(ColumnarTimeSeries.class));
         } catch (SherlockException e) {
             return;
         }
@@ -158,4 +162,41 @@ public class EgadsServiceTest {
         assertEquals(p.getDetectionWindowStartTime(), "60");
     }
 
+    @Test
+    public void testTrainAndScoreIncrementally() throws Exception {
+        MetricMeta meta = new MetricMeta();
+        meta.id = "id";
+        ColumnarTimeSeries series = new ColumnarTimeSeries(meta);
+        TimeSeries.DataSequence forecast = new TimeSeries.DataSequence();
+        for (int i = 1; i <= 4; i++) {
+            series.append(i * 3600L, 10 + (i % 2));
+            forecast.add(new TimeSeries.Entry(i * 3600L, 10.5f));
+        }
+        forecast.add(new TimeSeries.Entry(5 * 3600L, 20));
+        forecast.add(new TimeSeries.Entry(6 * 3600L, 30));
+        SeriesModelState state = new SeriesModelState();
+        EgadsService.trainState(series, forecast, 3600L, 3, state);
+        assertEquals(state.getLastTime(), 4 * 3600L);
+        assertEquals(state.getResidualCount(), 4);
+        assertEquals(state.getResidualMean(), 0.0, 1e-9);
+        assertEquals(state.expectedAt(5 * 3600L), 20f);
+        assertNull(state.expectedAt(7 * 3600L));
+
+        EgadsService egadsService = new EgadsService();
+        egadsService.configureWithDefault();
+        series.append(5 * 3600L, 20.5f);
+        series.append(6 * 3600L, 40f);
+        Anomaly anomaly = egadsService.scoreIncrementally(series, state, 3.0);
+        assertEquals(anomaly.id, "id");
+        assertEquals(anomaly.modelName, "IncrementalResidualModel(OlympicModel)");
+        assertEquals(anomaly.intervals.size(), 1);
+        assertEquals(anomaly.intervals.get(0).startTime, 6 * 3600L);
+        assertEquals(anomaly.intervals.get(0).expectedVal, 30f);
+        assertEquals(state.getLastTime(), 6 * 3600L);
+        assertEquals(state.getRunsSinceTraining(), 1);
+        assertEquals(state.getConsecutiveAnomalies(), 1);
+        series.append(7 * 3600L, 1f);
+        assertNull(egadsService.scoreIncrementally(series, state, 3.0));
+    }
+
 }
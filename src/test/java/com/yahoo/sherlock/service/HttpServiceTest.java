@@ -20,10 +20,13 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.testng.annotations.Test;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
@@ -34,7 +37,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertEqualsNoOrder;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 /**
@@ -60,19 +67,30 @@ public class HttpServiceTest {
         mocks();
         when(http.newHttpGet(anyString())).thenReturn(get);
         when(http.newHttpPost(anyString())).thenReturn(post);
-        when(http.newHttpClient()).thenReturn(client);
-        when(http.newHttpClient(anyInt(), anyInt())).thenReturn(client);
+        when(http.newEndpointClient(anyInt(), anyInt())).thenReturn(client);
+        when(http.newHttpClient(any(DruidCluster.class), anyInt(), anyInt())).thenReturn(client);
     }
 
     @Test
-    public void testNewHttpClientInstance() {
+    public void testNewHttpClientIsPooledPerCluster() {
         mocks();
-        when(http.newHttpClient(anyInt(), anyInt())).thenCallRealMethod();
-        when(http.newHttpClient()).thenCallRealMethod();
-        HttpClient client = http.newHttpClient(1000, 4);
-        assertNotNull(client);
-        client = http.newHttpClient();
+        when(http.newHttpClient(any(DruidCluster.class), anyInt(), anyInt())).thenCallRealMethod();
+        DruidCluster c1 = new DruidCluster();
+        c1.setClusterId(9001);
+        DruidCluster c2 = new DruidCluster();
+        c2.setClusterId(9002);
+        HttpClient client = http.newHttpClient(c1, 1000, 2);
         assertNotNull(client);
+        assertSame(http.newHttpClient(c1, 1000, 2), client);
+        assertNotSame(http.newHttpClient(c1, 2000, 2), client);
+        assertNotSame(http.newHttpClient(c2, 1000, 2), client);
+        List<Map<String, Object>> stats = HttpService.getClusterPoolStats();
+        assertTrue(stats.stream().anyMatch(s -> "druid-9001".equals(s.get("name"))));
+        HttpService.closeClusterPool("9001");
+        HttpService.closeClusterPool("9002");
+        assertFalse(HttpService.getClusterPoolStats().stream().anyMatch(s -> "druid-9001".equals(s.get("name"))));
+        assertNotSame(http.newHttpClient(c1, 1000, 2), client);
+        HttpService.closeClusterPool("9001");
     }
 
     @Test
@@ -128,6 +146,35 @@ public class HttpServiceTest {
         verify(post, times(1)).releaseConnection();
     }
 
+    @Test
+    public void testQueryDruidWithResponseReader() throws Exception {
+        mockGets();
+        when(http.queryDruid(any(DruidCluster.class), any(JsonObject.class), any())).thenCallRealMethod();
+        DruidCluster cluster = mock(DruidCluster.class);
+        when(cluster.getBrokerUrl()).thenReturn("localhost:9999/druid/v2");
+        StatusLine sl = mock(StatusLine.class);
+        when(res.getStatusLine()).thenReturn(sl);
+        when(sl.getStatusCode()).thenReturn(200);
+        when(client.execute(post)).thenReturn(res);
+        HttpEntity ent = mock(HttpEntity.class);
+        InputStream is = new ByteArrayInputStream("[5, 10, 15]".getBytes(StandardCharsets.UTF_8));
+        when(ent.getContent()).thenReturn(is);
+        when(res.getEntity()).thenReturn(ent);
+        String body = http.queryDruid(cluster, new JsonObject(), reader -> new BufferedReader(reader).readLine());
+        assertEquals(body, "[5, 10, 15]");
+        verify(post, times(1)).releaseConnection();
+        HttpService.ResponseReader<String> failing = reader -> {
+            throw new IOException("Unexpected end of stream");
+        };
+        try {
+            http.queryDruid(cluster, new JsonObject(), failing);
+            fail();
+        } catch (DruidException e) {
+            assertEquals(e.getMessage(), "Unexpected end of stream");
+        }
+        verify(post, times(2)).releaseConnection();
+    }
+
     @Test
     public void testQueryDruidBadResponse() throws DruidException, IOException {
         mockGets();
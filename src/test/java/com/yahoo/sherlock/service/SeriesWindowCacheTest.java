@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017, Yahoo Holdings Inc.
+ * Copyrights licensed under the GPL License.
+ * See the accompanying LICENSE file for terms.
+ */
+
+package com.yahoo.sherlock.service;
+
+import com.yahoo.egads.data.MetricMeta;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
+import com.yahoo.sherlock.settings.CLISettings;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class SeriesWindowCacheTest {
+
+    private static ColumnarTimeSeries series(String id, int fromHour, int toHour) {
+        MetricMeta meta = new MetricMeta();
+        meta.id = id;
+        meta.source = "dim = '" + id + "'";
+        ColumnarTimeSeries series = new ColumnarTimeSeries(meta);
+        for (int hour = fromHour; hour <= toHour; hour++) {
+            series.append(hour * 3600L, hour);
+        }
+        return series;
+    }
+
+    @Test
+    public void testAppendAndEvict() {
+        List<ColumnarTimeSeries> full = new ArrayList<>();
+        full.add(series("a", 1, 4));
+        full.add(series("b", 1, 2));
+        SeriesWindowCache.JobWindow window = new SeriesWindowCache.JobWindow("sig", 4 * 60, full);
+        full.get(0).append(5 * 3600L, -1);
+        List<ColumnarTimeSeries> tail = new ArrayList<>();
+        tail.add(series("a", 4, 6));
+        assertTrue(window.append(tail, 6 * 60));
+        assertEquals(window.getLastEnd(), 6 * 60);
+        List<ColumnarTimeSeries> snapshot = window.snapshot(3 * 3600L);
+        assertEquals(snapshot.size(), 1);
+        assertEquals(snapshot.get(0).getMeta().source, "dim = 'a'");
+        assertNotEquals(snapshot.get(0).getMeta().id, "a");
+        assertEquals(snapshot.get(0).size(), 4);
+        assertEquals(snapshot.get(0).time(0), 3 * 3600L);
+        assertEquals(snapshot.get(0).value(2), 5f);
+        assertEquals(snapshot.get(0).time(3), 6 * 3600L);
+        snapshot.get(0).append(7 * 3600L, 7);
+        assertTrue(window.append(Collections.singletonList(series("a", 7, 7)), 7 * 60));
+        assertEquals(snapshot.get(0).size(), 5);
+        assertEquals(window.getPointCount(), 5);
+    }
+
+    @Test
+    public void testUnknownSeriesLeavesWindowUnchanged() {
+        SeriesWindowCache.JobWindow window = new SeriesWindowCache.JobWindow("sig", 2 * 60, Collections.singletonList(series("a", 1, 2)));
+        List<ColumnarTimeSeries> tail = new ArrayList<>();
+        tail.add(series("a", 3, 3));
+        tail.add(series("c", 3, 3));
+        assertFalse(window.append(tail, 3 * 60));
+        assertEquals(window.getLastEnd(), 2 * 60);
+        assertEquals(window.getPointCount(), 2);
+    }
+
+    @Test
+    public void testCache() {
+        SeriesWindowCache cache = new SeriesWindowCache();
+        cache.put(1, new SeriesWindowCache.JobWindow("sig", 60, Collections.singletonList(series("a", 1, 1))));
+        cache.put(null, new SeriesWindowCache.JobWindow("sig", 60, Collections.emptyList()));
+        assertEquals(cache.getStats().get("jobs"), 1);
+        assertEquals(cache.getStats().get("points"), 1L);
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testPointBudgetDropsLeastRecentlyUsed() {
+        long budget = CLISettings.DRUID_WINDOW_CACHE_POINTS;
+        CLISettings.DRUID_WINDOW_CACHE_POINTS = 5;
+        try {
+            SeriesWindowCache cache = new SeriesWindowCache();
+            cache.put(1, new SeriesWindowCache.JobWindow("sig", 120, Collections.singletonList(series("a", 1, 2))));
+            cache.put(2, new SeriesWindowCache.JobWindow("sig", 120, Collections.singletonList(series("b", 1, 2))));
+            assertTrue(cache.get(1) != null);
+            SeriesWindowCache.JobWindow grown = cache.get(2);
+            assertTrue(grown.append(Collections.singletonList(series("b", 3, 3)), 180));
+            cache.put(2, grown);
+            assertEquals(cache.getStats().get("points"), 5L);
+            cache.put(3, new SeriesWindowCache.JobWindow("sig", 60, Collections.singletonList(series("c", 1, 1))));
+            assertNull(cache.get(1));
+            assertEquals(cache.getStats().get("points"), 4L);
+            assertEquals(cache.getStats().get("evictions"), 1L);
+        } finally {
+            CLISettings.DRUID_WINDOW_CACHE_POINTS = budget;
+        }
+    }
+
+}
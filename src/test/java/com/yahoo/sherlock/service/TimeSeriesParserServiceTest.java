@@ -13,6 +13,7 @@ import com.google.gson.JsonObject;
 
 import com.yahoo.sherlock.settings.CLISettings;
 import com.yahoo.sherlock.enums.Granularity;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.query.Query;
 import com.yahoo.egads.data.TimeSeries;
 
@@ -20,11 +21,13 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
 import java.util.List;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -52,13 +55,27 @@ public class TimeSeriesParserServiceTest {
         TimeSeriesParserService tsps = mock(TimeSeriesParserService.class);
         doCallRealMethod().when(tsps).parseTimeSeries(jsonArray, query);
         when(tsps.isValidTimeSeries(query)).thenReturn(timeSeries -> true);
-        List<TimeSeries> timeSeries = tsps.parseTimeSeries(jsonArray, query);
+        List<ColumnarTimeSeries> timeSeries = tsps.parseTimeSeries(jsonArray, query);
         Assert.assertEquals(timeSeries.size(), jsonArray.get(0).getAsJsonObject().getAsJsonArray("result").size());
         for (int i = 0; i < timeSeries.size(); i++) {
             Assert.assertEquals(timeSeries.get(i).size(), jsonArray.size());
         }
     }
 
+    @Test
+    public void testReadTimeSeries() throws Exception {
+        TimeSeriesParserService tsps = mock(TimeSeriesParserService.class);
+        doCallRealMethod().when(tsps).readTimeSeries(any(), any());
+        when(tsps.isValidTimeSeries(query)).thenReturn(timeSeries -> true);
+        List<ColumnarTimeSeries> timeSeries = tsps.readTimeSeries(new StringReader(jsonArray.toString()), query);
+        Assert.assertEquals(timeSeries.size(), jsonArray.get(0).getAsJsonObject().getAsJsonArray("result").size());
+        for (int i = 0; i < timeSeries.size(); i++) {
+            Assert.assertEquals(timeSeries.get(i).size(), jsonArray.size());
+        }
+        when(tsps.isValidTimeSeries(query)).thenReturn(timeSeries1 -> false);
+        Assert.assertTrue(tsps.readTimeSeries(new StringReader(jsonArray.toString()), query).isEmpty());
+    }
+
     @Test
     public void testExceptions() {
         // test null druid response
@@ -70,15 +87,15 @@ public class TimeSeriesParserServiceTest {
         }
     }
 
-    private static float[][] getValuesFor(List<TimeSeries>[] results, int k, int sourcesSize, int intervalSize) {
+    private static float[][] getValuesFor(List<ColumnarTimeSeries>[] results, int k, int sourcesSize, int intervalSize) {
         float[][] values = new float[sourcesSize][];
         for (int i = 0; i < sourcesSize; i++) {
             values[i] = new float[intervalSize];
         }
         for (int i = 0; i < sourcesSize; i++) {
             for (int j = 0; j < intervalSize; j++) {
-                Assert.assertEquals(intervalSize, results[k].get(i).data.size());
-                values[i][j] = results[k].get(i).data.get(j).value;
+                Assert.assertEquals(intervalSize, results[k].get(i).size());
+                values[i][j] = results[k].get(i).value(j);
             }
         }
         return values;
@@ -88,19 +105,19 @@ public class TimeSeriesParserServiceTest {
     public void testSubSeries() throws Exception {
         CLISettings.INTERVAL_HOURS = 7;
         int granularityRange = 1;
-        List<TimeSeries> sources = Lists.newArrayList(testSeries1(), testSeries2(), testSeries3());
+        List<ColumnarTimeSeries> sources = Lists.newArrayList(testSeries1(), testSeries2(), testSeries3());
         Assert.assertEquals(3, sources.size());
         Granularity granularity = Granularity.HOUR;
         long jobWindowStart = times[6];
         long end = times[times.length - 1];
         int fillIntervals = (int) ((end - jobWindowStart) / granularity.getMinutes());
-        List<TimeSeries>[] results = new TimeSeriesParserService().subseries(sources, jobWindowStart, end, granularity,
+        List<ColumnarTimeSeries>[] results = new TimeSeriesParserService().subseries(sources, jobWindowStart, end, granularity,
                                                                              granularityRange, CLISettings.INTERVAL_HOURS);
         Assert.assertEquals(fillIntervals, results.length);
-        for (List<TimeSeries> result : results) {
+        for (List<ColumnarTimeSeries> result : results) {
             Assert.assertEquals(result.size(), 3);
-            for (TimeSeries resultSeries : result) {
-                Assert.assertEquals(granularity.getIntervalsFromSettings(), resultSeries.data.size());
+            for (ColumnarTimeSeries resultSeries : result) {
+                Assert.assertEquals(granularity.getIntervalsFromSettings(), resultSeries.size());
             }
         }
         float[][] expectedFirst = { // 0
@@ -122,15 +139,15 @@ public class TimeSeriesParserServiceTest {
         checkEquals(getValuesFor(results, 17, sources.size(), granularity.getIntervalsFromSettings()), expectedLast);
         checkEquals(getValuesFor(results, 11, sources.size(), granularity.getIntervalsFromSettings()), expectedMiddle);
         granularityRange = 2;
-        List<TimeSeries>[] resultsForGranularityRange2 = new TimeSeriesParserService().subseries(sources, jobWindowStart, end, granularity,
+        List<ColumnarTimeSeries>[] resultsForGranularityRange2 = new TimeSeriesParserService().subseries(sources, jobWindowStart, end, granularity,
                                                                              granularityRange, CLISettings.INTERVAL_HOURS);
 
         Assert.assertEquals(fillIntervals, resultsForGranularityRange2.length);
         int intervals = granularity.getIntervalsFromSettings() - granularity.getIntervalsFromSettings() % granularityRange;
-        for (List<TimeSeries> result : resultsForGranularityRange2) {
+        for (List<ColumnarTimeSeries> result : resultsForGranularityRange2) {
             Assert.assertEquals(result.size(), 3);
-            for (TimeSeries resultSeries : result) {
-                Assert.assertEquals(intervals / granularityRange, resultSeries.data.size());
+            for (ColumnarTimeSeries resultSeries : result) {
+                Assert.assertEquals(intervals / granularityRange, resultSeries.size());
             }
         }
         float[][] expectedFirst2 = { // 0
@@ -154,6 +171,32 @@ public class TimeSeriesParserServiceTest {
         CLISettings.INTERVAL_HOURS = 672;
     }
 
+    @Test
+    public void testSubSeriesWindowsAreLazyViews() throws Exception {
+        List<ColumnarTimeSeries> sources = Lists.newArrayList(testSeries1(), testSeries2(), testSeries3());
+        Granularity granularity = Granularity.HOUR;
+        long jobWindowStart = times[6];
+        long end = times[times.length - 1];
+        TimeSeriesParserService parserService = new TimeSeriesParserService();
+        List<ColumnarTimeSeries>[] expected = parserService.subseries(sources, jobWindowStart, end, granularity, 1, 7);
+        List<List<ColumnarTimeSeries>> windows = parserService.subseriesWindows(sources, jobWindowStart, end, granularity, 1, 7);
+        Assert.assertEquals(windows.size(), expected.length);
+        for (int k = expected.length - 1; k >= 0; k--) {
+            List<ColumnarTimeSeries> window = windows.get(k);
+            Assert.assertEquals(window.size(), expected[k].size());
+            for (int i = 0; i < window.size(); i++) {
+                Assert.assertEquals(window.get(i).getMeta().source, expected[k].get(i).getMeta().source);
+                Assert.assertNotEquals(window.get(i).getMeta().id, sources.get(i).getMeta().id);
+                Assert.assertEquals(window.get(i).size(), expected[k].get(i).size());
+                for (int j = 0; j < window.get(i).size(); j++) {
+                    Assert.assertEquals(window.get(i).time(j), expected[k].get(i).time(j));
+                    Assert.assertEquals(window.get(i).value(j), expected[k].get(i).value(j));
+                }
+            }
+        }
+        Assert.assertTrue(parserService.subseriesWindows(Lists.newArrayList(), jobWindowStart, end, granularity, 1, 7).get(0).isEmpty());
+    }
+
     private static void checkEquals(float[][] result, float[][] expected) {
         for (int i = 0; i < result.length; i++) {
             for (int j = 0; j < result[i].length; j++) {
@@ -162,7 +205,7 @@ public class TimeSeriesParserServiceTest {
         }
     }
 
-    private static TimeSeries testSeries1() throws Exception {
+    private static ColumnarTimeSeries testSeries1() throws Exception {
         float[] values = {
             12.6f, 15.8f, 19.4f, 1.5f, 40.5f,
             16.8f, 19.4f, 11.4f, 12.5f, 22.5f,
@@ -170,7 +213,7 @@ public class TimeSeriesParserServiceTest {
             11.0f, 12.0f, 13.0f, 14.0f, 15.0f,
             3.21f, 4.32f, 5.43f, 6.54f, 7.65f
         };
-        return new TimeSeries(secTimes, values);
+        return ColumnarTimeSeries.of(new TimeSeries(secTimes, values));
     }
 
     private static long[] times = {25135320, 25135380, 25135440, 25135500, 25135560,
@@ -187,7 +230,7 @@ public class TimeSeriesParserServiceTest {
         }
     }
 
-    private static TimeSeries testSeries2() throws Exception {
+    private static ColumnarTimeSeries testSeries2() throws Exception {
         float[] values = {
             1, 2, 3, 4, 5,
             6, 7, 8, 9, 10,
@@ -195,10 +238,10 @@ public class TimeSeriesParserServiceTest {
             16, 17, 18, 19, 20,
             21, 22, 23, 24, 25
         };
-        return new TimeSeries(secTimes, values);
+        return ColumnarTimeSeries.of(new TimeSeries(secTimes, values));
     }
 
-    private static TimeSeries testSeries3() throws Exception {
+    private static ColumnarTimeSeries testSeries3() throws Exception {
         float[] values = {
             1.23f, -2.34f, 3.45f, -4.56f, 5.67f,
             -6.78f, 7.89f, -8.90f, 9.01f, -10.12f,
@@ -206,6 +249,6 @@ public class TimeSeriesParserServiceTest {
             1, 2, 3, 4, 5,
             11, -22, 33, -44, 55
         };
-        return new TimeSeries(secTimes, values);
+        return ColumnarTimeSeries.of(new TimeSeries(secTimes, values));
     }
 }
@@ -0,0 +1,113 @@
+package com.yahoo.sherlock.store.core;
+
+import com.yahoo.sherlock.exception.StoreException;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@SuppressWarnings("unchecked")
+public class ConnectionPoolTest {
+
+    private List<RedisConnection<String>> created;
+
+    private ConnectionPool<String> pool(int maxTotal, int maxIdle) {
+        created = new ArrayList<>();
+        return new ConnectionPool<>("test", () -> {
+            RedisConnection<String> conn = (RedisConnection<String>) mock(RedisConnection.class);
+            when(conn.isOpen()).thenReturn(true);
+            created.add(conn);
+            return conn;
+        }, maxTotal, maxIdle, 50);
+    }
+
+    @Test
+    public void testBorrowReusesReturnedConnection() {
+        ConnectionPool<String> pool = pool(2, 2);
+        RedisConnection<String> first = pool.borrow();
+        assertEquals(pool.getActive(), 1);
+        first.close();
+        first.close();
+        assertEquals(pool.getActive(), 0);
+        assertEquals(pool.getIdle(), 1);
+        pool.borrow().close();
+        assertEquals(created.size(), 1);
+        verify(created.get(0), never()).close();
+        verify(created.get(0), times(2)).restore();
+    }
+
+    @Test
+    public void testBorrowTimesOutWhenExhausted() {
+        ConnectionPool<String> pool = pool(1, 1);
+        RedisConnection<String> conn = pool.borrow();
+        try {
+            pool.borrow();
+            fail();
+        } catch (StoreException e) {
+            assertTrue(e.getMessage().contains("Timed out"));
+        }
+        conn.close();
+        pool.borrow().close();
+        assertEquals(pool.getStats().get("borrowTimeouts"), 1L);
+    }
+
+    @Test
+    public void testExcessAndBrokenConnectionsAreClosed() {
+        ConnectionPool<String> pool = pool(3, 1);
+        RedisConnection<String> c1 = pool.borrow();
+        RedisConnection<String> c2 = pool.borrow();
+        c1.close();
+        c2.close();
+        assertEquals(pool.getIdle(), 1);
+        assertEquals(pool.getOpen(), 1);
+        verify(created.get(1)).close();
+        when(created.get(0).isOpen()).thenReturn(false);
+        pool.borrow().close();
+        verify(created.get(0)).close();
+        assertEquals(created.size(), 3);
+    }
+
+    @Test
+    public void testCloseDrainsPool() {
+        ConnectionPool<String> pool = pool(2, 2);
+        RedisConnection<String> conn = pool.borrow();
+        pool.borrow().close();
+        pool.close();
+        assertEquals(pool.getIdle(), 0);
+        conn.close();
+        assertEquals(pool.getOpen(), 0);
+        assertFalse(conn.isOpen());
+        try {
+            pool.borrow();
+            fail();
+        } catch (StoreException e) {
+            assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+
+    @Test
+    public void testStats() {
+        ConnectionPool<String> pool = pool(4, 2);
+        pool.borrow();
+        pool.borrow().close();
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(stats.get("name"), "test");
+        assertEquals(stats.get("maxTotal"), 4);
+        assertEquals(stats.get("active"), 1);
+        assertEquals(stats.get("idle"), 1);
+        assertEquals(stats.get("borrows"), 2L);
+        assertTrue((Double) stats.get("meanBorrowMillis") >= 0.0);
+    }
+
+}
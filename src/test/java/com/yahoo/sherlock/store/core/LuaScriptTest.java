@@ -0,0 +1,84 @@
+package com.yahoo.sherlock.store.core;
+
+import com.lambdaworks.redis.RedisCommandExecutionException;
+import com.lambdaworks.redis.ScriptOutputType;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+@SuppressWarnings("unchecked")
+public class LuaScriptTest {
+
+    private static final String[] KEYS = {"k1", "k2"};
+
+    @Test
+    public void testDigestIsSha1OfSource() {
+        LuaScript script = new LuaScript("test", "return 1");
+        assertEquals(script.getDigest(), "e0e1f9fabfc9d4800c877a703b823ac0578ff8db");
+        assertSame(LuaScript.of("luaScriptTest", "return 1"), LuaScript.of("luaScriptTest", "return 1"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNameRegisteredWithAnotherSourceIsRejected() {
+        LuaScript.of("luaScriptMismatch", "return 1");
+        LuaScript.of("luaScriptMismatch", "return 2");
+    }
+
+    @Test
+    public void testExecutesByDigest() {
+        LuaScript script = new LuaScript("test", "return 1");
+        SyncCommands<String> cmd = (SyncCommands<String>) mock(SyncCommands.class);
+        List<Object> result = Collections.singletonList("1");
+        when(cmd.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(result);
+        assertSame(script.execute(cmd, ScriptOutputType.MULTI, KEYS, new String[] {"5"}), result);
+        verify(cmd).evalsha(script.getDigest(), ScriptOutputType.MULTI, KEYS, "5");
+        verify(cmd, never()).eval(anyString(), any(ScriptOutputType.class), any(), anyVararg());
+        Map<String, Object> stats = script.getStats();
+        assertEquals(stats.get("calls"), 1L);
+        assertEquals(stats.get("reloads"), 0L);
+    }
+
+    @Test
+    public void testFallsBackToEvalOnNoScript() {
+        LuaScript script = new LuaScript("test", "return 1");
+        SyncCommands<String> cmd = (SyncCommands<String>) mock(SyncCommands.class);
+        List<Object> result = Collections.singletonList("1");
+        when(cmd.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg()))
+            .thenThrow(new RedisCommandExecutionException("NOSCRIPT No matching script. Please use EVAL."));
+        when(cmd.eval(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(result);
+        assertSame(script.execute(cmd, ScriptOutputType.MULTI, KEYS, new String[] {"5"}), result);
+        verify(cmd).eval("return 1", ScriptOutputType.MULTI, KEYS, "5");
+        assertEquals(script.getStats().get("reloads"), 1L);
+        assertEquals(script.getStats().get("errors"), 0L);
+    }
+
+    @Test
+    public void testOtherErrorsAreRethrown() {
+        LuaScript script = new LuaScript("test", "return 1");
+        SyncCommands<String> cmd = (SyncCommands<String>) mock(SyncCommands.class);
+        when(cmd.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg()))
+            .thenThrow(new RedisCommandExecutionException("ERR Error running script"));
+        try {
+            script.execute(cmd, ScriptOutputType.MULTI, KEYS, new String[] {"5"});
+            fail();
+        } catch (RedisCommandExecutionException e) {
+            assertEquals(e.getMessage(), "ERR Error running script");
+        }
+        verify(cmd, never()).eval(anyString(), any(ScriptOutputType.class), any(), anyVararg());
+        assertEquals(script.getStats().get("errors"), 1L);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.yahoo.sherlock.store.core;
+
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class NearCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        NearCache<String> cache = new NearCache<>(2, 60000);
+        cache.put("1", "a", cache.generation());
+        cache.put("2", "b", cache.generation());
+        assertEquals(cache.get("1"), "a");
+        cache.put("3", "c", cache.generation());
+        assertNull(cache.get("2"));
+        assertEquals(cache.get("1"), "a");
+        assertEquals(cache.get("3"), "c");
+    }
+
+    @Test
+    public void testStaleReadsAreNotCached() {
+        NearCache<String> cache = new NearCache<>(2, 60000);
+        long generation = cache.generation();
+        cache.invalidate(Collections.singleton("1"));
+        cache.put("1", "a", generation);
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void testVersionCounter() {
+        NearCache<String> cache = new NearCache<>(2, 60000);
+        assertTrue(cache.isCheckDue());
+        cache.checked(4);
+        assertFalse(cache.isCheckDue());
+        cache.put("1", "a", cache.generation());
+        cache.put("2", "b", cache.generation());
+        cache.written(5, Collections.singleton("1"));
+        assertNull(cache.get("1"));
+        assertEquals(cache.get("2"), "b");
+        cache.written(7, Collections.singleton("1"));
+        assertNull(cache.get("2"));
+        cache.put("2", "b", cache.generation());
+        cache.checked(7);
+        assertEquals(cache.get("2"), "b");
+        cache.checked(8);
+        assertNull(cache.get("2"));
+    }
+
+    @Test
+    public void testDisabled() {
+        NearCache<String> cache = new NearCache<>(0, 0);
+        assertFalse(cache.isCheckDue());
+        cache.put("1", "a", cache.generation());
+        assertNull(cache.get("1"));
+    }
+
+}
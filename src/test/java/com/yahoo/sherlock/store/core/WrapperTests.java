@@ -1,5 +1,6 @@
 package com.yahoo.sherlock.store.core;
 
+import com.lambdaworks.redis.Limit;
 import com.lambdaworks.redis.Range;
 import com.lambdaworks.redis.ScoredValue;
 import com.lambdaworks.redis.ScriptOutputType;
@@ -17,6 +18,7 @@ import com.yahoo.sherlock.store.Store;
 import com.yahoo.sherlock.store.StoreParams;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.util.Map;
 
 import static com.yahoo.sherlock.TestUtilities.ONCE;
@@ -26,6 +28,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -47,6 +50,8 @@ public class WrapperTests {
         verify(wrapped).keys("pattern:*");
         cmd.get("key");
         verify(wrapped).get("key");
+        cmd.setex("key", 10, "value");
+        verify(wrapped).setex("key", 10, "value");
         cmd.incr("key");
         verify(wrapped).incr("key");
         cmd.sadd("key", "v1", "v2", "v3");
@@ -57,6 +62,10 @@ public class WrapperTests {
         verify(wrapped).del("key1", "key2");
         cmd.smembers("key");
         verify(wrapped).smembers("key");
+        cmd.sinter("key1", "key2");
+        verify(wrapped).sinter("key1", "key2");
+        cmd.sismember("key", "v1");
+        verify(wrapped).sismember("key", "v1");
         @SuppressWarnings("unchecked")
         Map<String, String> mockMap = (Map<String, String>) mock(Map.class);
         cmd.hmset("key", mockMap);
@@ -67,8 +76,19 @@ public class WrapperTests {
         ScoredValue<String> sv2 = new ScoredValue<>(1.2, "13");
         cmd.zadd("key", sv1, sv2);
         verify(wrapped).zadd("key", sv1, sv2);
+        cmd.zadd("key", 1.0, "12");
+        verify(wrapped).zadd("key", 1.0, "12");
         cmd.zrangeWithScores("key", 1, 100);
         verify(wrapped).zrangeWithScores("key", 1, 100);
+        cmd.zrem("key", "v1");
+        verify(wrapped).zrem("key", "v1");
+        cmd.zscore("key", "v1");
+        verify(wrapped).zscore("key", "v1");
+        Range<Integer> range = Range.create(1, 100);
+        cmd.zrevrangebyscore("key", range, Limit.create(0, 10));
+        verify(wrapped).zrevrangebyscore(eq("key"), eq(range), any(Limit.class));
+        cmd.zremrangebyscore("key", range);
+        verify(wrapped).zremrangebyscore("key", range);
         cmd.close();
         verify(wrapped).close();
     }
@@ -87,6 +107,8 @@ public class WrapperTests {
         verify(wrapped).keys("pattern:*");
         cmd.get("key");
         verify(wrapped).get("key");
+        cmd.setex("key", 10, "value");
+        verify(wrapped).setex("key", 10, "value");
         cmd.incr("key");
         verify(wrapped).incr("key");
         cmd.sadd("key", "v1", "v2", "v3");
@@ -97,6 +119,10 @@ public class WrapperTests {
         verify(wrapped).del("key1", "key2");
         cmd.smembers("key");
         verify(wrapped).smembers("key");
+        cmd.sinter("key1", "key2");
+        verify(wrapped).sinter("key1", "key2");
+        cmd.sismember("key", "v1");
+        verify(wrapped).sismember("key", "v1");
         @SuppressWarnings("unchecked")
         Map<String, String> mockMap = (Map<String, String>) mock(Map.class);
         cmd.hmset("key", mockMap);
@@ -107,8 +133,19 @@ public class WrapperTests {
         ScoredValue<String> sv2 = new ScoredValue<>(1.2, "13");
         cmd.zadd("key", sv1, sv2);
         verify(wrapped).zadd("key", sv1, sv2);
+        cmd.zadd("key", 1.0, "12");
+        verify(wrapped).zadd("key", 1.0, "12");
         cmd.zrangeWithScores("key", 1, 100);
         verify(wrapped).zrangeWithScores("key", 1, 100);
+        cmd.zrem("key", "v1");
+        verify(wrapped).zrem("key", "v1");
+        cmd.zscore("key", "v1");
+        verify(wrapped).zscore("key", "v1");
+        Range<Integer> range = Range.create(1, 100);
+        cmd.zrevrangebyscore("key", range, Limit.create(0, 10));
+        verify(wrapped).zrevrangebyscore(eq("key"), eq(range), any(Limit.class));
+        cmd.zremrangebyscore("key", range);
+        verify(wrapped).zremrangebyscore("key", range);
         cmd.close();
         verify(wrapped).close();
     }
@@ -121,6 +158,8 @@ public class WrapperTests {
         SyncCommands<String> cmd = new SyncCommandsClusterImpl<>(wrapped);
         cmd.incr("key");
         verify(wrapped).incr("key");
+        cmd.get("key");
+        verify(wrapped).get("key");
         cmd.smembers("key");
         verify(wrapped).smembers("key");
         cmd.hgetall("key");
@@ -143,6 +182,8 @@ public class WrapperTests {
         verify(wrapped).zcount("key", range);
         cmd.eval("script", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
         verify(wrapped).eval("script", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
+        cmd.evalsha("digest", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
+        verify(wrapped).evalsha("digest", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
         cmd.close();
         verify(wrapped).close();
     }
@@ -155,6 +196,8 @@ public class WrapperTests {
         SyncCommands<String> cmd = new SyncCommandsImpl<>(wrapped);
         cmd.incr("key");
         verify(wrapped).incr("key");
+        cmd.get("key");
+        verify(wrapped).get("key");
         cmd.smembers("key");
         verify(wrapped).smembers("key");
         cmd.hgetall("key");
@@ -177,6 +220,8 @@ public class WrapperTests {
         verify(wrapped).zcount("key", range);
         cmd.eval("script", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
         verify(wrapped).eval("script", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
+        cmd.evalsha("digest", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
+        verify(wrapped).evalsha("digest", ScriptOutputType.MULTI, new String[]{"key1", "key2"}, "v1", "v2");
         cmd.close();
         verify(wrapped).close();
     }
@@ -270,7 +315,7 @@ public class WrapperTests {
 
     @Test
     @SuppressWarnings("unchecked")
-    public void testBaseAccessorUsesProducer() {
+    public void testBaseAccessorUsesProducer() throws IOException {
         inject(Client.class, "client", null);
         ConnectionProducer stringProducer = mock(ConnectionProducer.class);
         ConnectionProducer byteProducer = mock(ConnectionProducer.class);
@@ -296,4 +341,26 @@ public class WrapperTests {
         inject(Client.class, "client", null);
     }
 
+    @Test
+    public void testBaseAccessorTranslatesPoolErrors() {
+        inject(Client.class, "client", null);
+        ConnectionProducer producer = mock(ConnectionProducer.class);
+        when(producer.produce(any())).thenThrow(new StoreException("Timed out"));
+        BaseAccessor acc = new BaseAccessorTestImpl();
+        inject(acc, BaseAccessor.class, "producer", producer);
+        try {
+            acc.connect();
+            fail();
+        } catch (IOException e) {
+            assertEquals("Timed out", e.getMessage());
+        }
+        try {
+            acc.binary();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof StoreException);
+        }
+        inject(Client.class, "client", null);
+    }
+
 }
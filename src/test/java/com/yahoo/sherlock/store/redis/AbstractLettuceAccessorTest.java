@@ -74,7 +74,7 @@ public class AbstractLettuceAccessorTest {
     private AsyncCommands<String> async;
     private SyncCommands<String> sync;
 
-    private void mocks() {
+    private void mocks() throws IOException {
         ala = mock(AbstractLettuceAccessor.class);
         conn = (RedisConnection<String>) mock(RedisConnection.class);
         bin = (RedisConnection<byte[]>) mock(RedisConnection.class);
@@ -103,7 +103,7 @@ public class AbstractLettuceAccessorTest {
     }
 
     @Test
-    public void testAwaitCollectionReordersArrays() {
+    public void testAwaitCollectionReordersArrays() throws IOException {
         RedisFuture[] arr1 = {mockFuture(), mockFuture(), mockFuture()};
         RedisFuture[] arr2 = {mockFuture()};
         RedisFuture[] arr3 = {mockFuture(), mockFuture()};
@@ -119,7 +119,7 @@ public class AbstractLettuceAccessorTest {
     }
 
     @Test
-    public void testKey() {
+    public void testKey() throws IOException {
         mocks();
         when(ala.key(anyVararg())).thenCallRealMethod();
         inject(ala, AbstractLettuceAccessor.class, "keyName", "key");
@@ -128,7 +128,7 @@ public class AbstractLettuceAccessorTest {
     }
 
     @Test
-    public void testIndex() {
+    public void testIndex() throws IOException {
         mocks();
         String index = AbstractLettuceAccessor.index("abc", "123", "asdf");
         assertEquals("abc:123:asdf", index);
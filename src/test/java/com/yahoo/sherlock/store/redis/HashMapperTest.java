@@ -51,11 +51,9 @@ public class HashMapperTest {
             init.setAccessible(true);
             init.invoke(hm, TestData.class);
             Field objClass = Mapper.class.getDeclaredField("objClass");
-            Field fields = Mapper.class.getDeclaredField("fields");
             objClass.setAccessible(true);
-            fields.setAccessible(true);
             Class<?> objClassVal = (Class<?>) objClass.get(hm);
-            Field[] fieldsVal = (Field[]) fields.get(hm);
+            ObjectCodec.FieldCodec[] fieldsVal = hm.getFieldCodecs();
             assertEquals(objClassVal, TestData.class);
             assertEquals(3, fieldsVal.length);
             String[] expectedFieldNames = {"attribute1", "attribute2", "attribute3"};
@@ -2,6 +2,8 @@ package com.yahoo.sherlock.store.redis;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.lambdaworks.redis.Limit;
+import com.lambdaworks.redis.Range;
 import com.lambdaworks.redis.ScoredValue;
 import com.yahoo.sherlock.model.AnomalyReport;
 import com.yahoo.sherlock.settings.DatabaseConstants;
@@ -13,6 +15,7 @@ import com.yahoo.sherlock.store.core.SyncCommands;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +28,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -66,11 +71,18 @@ public class LettuceAnomalyReportAccessorTest {
         };
     }
 
-    private void mocks() {
+    private void legacySets(Map<String, Set<String>> sets) {
+        when(async.sismember(anyString(), anyString())).thenAnswer(iom -> fakeFuture(
+            sets.getOrDefault(iom.getArguments()[0], Sets.newHashSet()).contains(iom.getArguments()[1])
+        ));
+    }
+
+    private void mocks() throws IOException {
         ara = mock(LettuceAnomalyReportAccessor.class);
         inject(ara, LettuceAnomalyReportAccessor.class, "jobIdName", "jobId");
         inject(ara, LettuceAnomalyReportAccessor.class, "frequencyName", "freq");
         inject(ara, LettuceAnomalyReportAccessor.class, "timeName", "time");
+        inject(ara, LettuceAnomalyReportAccessor.class, "timelineName", "timeline");
         inject(ara, AbstractLettuceAccessor.class, "keyName", "key");
         inject(ara, AbstractLettuceAccessor.class, "mapper", new HashMapper());
         RedisConnection<String> conn = (RedisConnection<String>) mock(RedisConnection.class);
@@ -120,15 +132,21 @@ public class LettuceAnomalyReportAccessorTest {
         doCallRealMethod().when(ara).putAnomalyReports(anyList());
         ara.putAnomalyReports(reports);
         verify(ara).newIds(2);
-        verify(async, times(12)).sadd(anyString(), anyString());
+        verify(async, times(20)).sadd(anyString(), anyString());
+        verify(async).sadd("jobId:{1}:time:1234", "1");
+        verify(async).sadd("jobId:{1}:freq:day", "1");
         verify(async, times(4)).hmset(anyString(), anyMap());
         verify(binAsync, times(4)).zadd(any(), any());
         verify(ara).awaitRaw(anyCollection());
+        verify(async).zadd("timeline:1:day", 1234.0, "1");
+        verify(async).zremrangebyscore(eq("timeline:1:day"), any(Range.class));
+        verify(async, times(3)).zremrangebyscore(anyString(), any(Range.class));
+        verify(async, times(4)).zadd(anyString(), anyDouble(), anyString());
         // verify reports with no anomaly timestamps
         reports.get(0).setAnomalyTimestamps(null);
         ara.putAnomalyReports(reports);
         verify(ara).newIds(2);
-        verify(async, times(24)).sadd(anyString(), anyString());
+        verify(async, times(40)).sadd(anyString(), anyString());
         verify(async, times(8)).hmset(anyString(), anyMap());
         verify(binAsync, times(7)).zadd(any(), any());
     }
@@ -142,7 +160,12 @@ public class LettuceAnomalyReportAccessorTest {
         // 2, 3, 4, 5
         mocks();
         when(async.smembers(jobId)).thenReturn(fakeFuture(resId));
-        when(async.smembers(freq)).thenReturn(fakeFuture(resFreq));
+        Map<String, Set<String>> legacy = new HashMap<>();
+        legacy.put(freq, resFreq);
+        legacySets(legacy);
+        when(async.smembers("jobId:{2}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet()));
+        when(async.sinter("jobId:{2}:time:5000", "jobId:{2}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet()));
+        when(async.sismember("jobId:{2}:time:5000", AbstractLettuceAccessor.INDEX_COMPLETE)).thenReturn(fakeFuture(false));
         AnomalyReport a1 = make(2, "2", 5000, "day");
         AnomalyReport a2 = make(3, "2", 5000, "day");
         AnomalyReport a3 = make(4, "2", 5000, "day");
@@ -170,26 +193,154 @@ public class LettuceAnomalyReportAccessorTest {
         List<AnomalyReport> result = ara.getAnomalyReportsForJob("2", "day");
         assertEquals(4, result.size());
         assertEqualsNoOrder(aArr, result.toArray());
+        verify(async).sadd("jobId:{2}:freq:day", "2", "3", "4", "5", AbstractLettuceAccessor.INDEX_COMPLETE);
         Set<String> timeId = Sets.newHashSet("3", "4", "10", "12");
         // 3, 4
-        when(async.smembers("time:5000")).thenReturn(fakeFuture(timeId));
+        legacy.put("time:5000", timeId);
         when(ara.getAnomalyReportsForJobAtTime(anyString(), anyString(), anyString())).thenCallRealMethod();
         result = ara.getAnomalyReportsForJobAtTime("2", "5000", "day");
         assertEquals(2, result.size());
         assertEqualsNoOrder(result.toArray(), new AnomalyReport[]{a2, a3});
+        verify(async).sadd("jobId:{2}:time:5000", "3", "4", AbstractLettuceAccessor.INDEX_COMPLETE);
+        verify(async).sadd("jobId:{2}:freq:day", "3", "4");
+        // the copied frequency index expires like the one filled above
+        verify(async, times(2)).expire(eq("jobId:{2}:freq:day"), anyLong());
+        // a report written by a rerun is merged with the legacy reports until the time is complete
+        when(async.sinter("jobId:{2}:time:5000", "jobId:{2}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet("5")));
+        result = ara.getAnomalyReportsForJobAtTime("2", "5000", "day");
+        assertEqualsNoOrder(result.toArray(), new AnomalyReport[]{a2, a3, a4});
+        verify(async).sadd("jobId:{2}:time:5000", "3", "4", "5", AbstractLettuceAccessor.INDEX_COMPLETE);
+        // reports of a complete time are intersected by Redis
+        when(async.sinter("jobId:{2}:time:5000", "jobId:{2}:freq:day"))
+                .thenAnswer(iom -> fakeFuture(Sets.newHashSet("3", AbstractLettuceAccessor.INDEX_COMPLETE)));
+        when(async.sismember("jobId:{2}:time:5000", AbstractLettuceAccessor.INDEX_COMPLETE)).thenReturn(fakeFuture(true));
+        result = ara.getAnomalyReportsForJobAtTime("2", "5000", "day");
+        assertEquals(Lists.newArrayList(a2), result);
+        verify(async, times(10)).sismember(eq("time:5000"), anyString());
+        when(async.sinter("jobId:{2}:time:5000", "jobId:{2}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet()));
+        when(async.sismember("jobId:{2}:time:5000", AbstractLettuceAccessor.INDEX_COMPLETE)).thenReturn(fakeFuture(false));
         // delete 3,4
         doCallRealMethod().when(ara).deleteAnomalyReportsForJobAtTime(anyString(), anyString(), anyString());
         ara.deleteAnomalyReportsForJobAtTime("2", "5000", "day");
-        verify(async, times(6)).srem(anyString(), anyVararg());
+        verify(async, times(10)).srem(anyString(), anyVararg());
+        verify(async).srem("jobId:{3}:time:5000", "3");
+        verify(async).zrem("timeline:3:day", "3");
         verify(async, times(2)).del(anyVararg());
         verify(binAsync, times(4)).del(anyVararg());
         // delete all
         doCallRealMethod().when(ara).deleteAnomalyReportsForJob(anyString());
         when(async.smembers(jobId)).thenReturn(fakeFuture(Sets.newHashSet("2", "3", "4", "5")));
         ara.deleteAnomalyReportsForJob("2");
-        verify(async, times(14)).srem(anyString(), anyVararg());
+        verify(async, times(18)).srem(anyString(), anyVararg());
         verify(async, times(7)).del(anyVararg());
         verify(binAsync, times(12)).del(anyVararg());
+        verify(async).del("timeline:2:day", "jobId:{2}:time:5000", "jobId:{2}:freq:day", "jobId:2");
+    }
+
+    @Test
+    public void testGetAnomalyReportsForJobInRange() throws IOException {
+        mocks();
+        AnomalyReport a1 = make(1, "1", 1000, "day");
+        AnomalyReport a2 = make(2, "1", 2000, "day");
+        AnomalyReport a3 = make(3, "1", 3000, "day");
+        for (AnomalyReport a : new AnomalyReport[]{a1, a2, a3}) {
+            when(async.hgetall("key:" + a.getUniqueId())).thenReturn(fakeFuture(mapify(a)));
+        }
+        when(binAsync.zrangeWithScores(any(byte[].class), anyLong(), anyLong()))
+                .thenReturn(fakeFuture(Lists.newArrayList()));
+        when(ara.getAnomalyReportsForJobInRange(anyString(), anyString(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenCallRealMethod();
+        when(ara.getAnomalyReportsForJob(anyString(), anyString())).thenCallRealMethod();
+        when(ara.key(anyVararg())).thenCallRealMethod();
+        when(ara.unmap(any(Class.class), anyMap())).thenCallRealMethod();
+        // timeline which predates the index is filled from the sets
+        when(async.zscore("timeline:1:day", AbstractLettuceAccessor.INDEX_COMPLETE)).thenReturn(fakeFuture(null));
+        when(async.smembers("jobId:1")).thenReturn(fakeFuture(Sets.newHashSet("1", "2", "3")));
+        legacySets(Collections.singletonMap("freq:day", Sets.newHashSet("1", "2", "3")));
+        when(async.smembers("jobId:{1}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet()));
+        doCallRealMethod().when(ara).fillTimeline(anyString(), anyString(), anyList());
+        List<AnomalyReport> result = ara.getAnomalyReportsForJobInRange("1", "day", 1500, 3000, 0, 10);
+        assertEquals(Lists.newArrayList(a3, a2), result);
+        verify(async).zadd(anyString(), anyVararg());
+        result = ara.getAnomalyReportsForJobInRange("1", "day", 0, 3000, 1, 1);
+        assertEquals(Lists.newArrayList(a2), result);
+        // complete timeline is paged by Redis
+        when(async.zscore("timeline:1:day", AbstractLettuceAccessor.INDEX_COMPLETE)).thenReturn(fakeFuture(-1.0));
+        when(async.zrevrangebyscore(eq("timeline:1:day"), any(Range.class), any(Limit.class)))
+                .thenReturn(fakeFuture(Lists.newArrayList("3", "2")));
+        result = ara.getAnomalyReportsForJobInRange("1", "day", 1500, 3000, 0, 10);
+        assertEquals(Lists.newArrayList(a3, a2), result);
+        verify(async, times(6)).sismember(eq("freq:day"), anyString());
+    }
+
+    @Test
+    public void testBinaryReportFormat() throws IOException {
+        mocks();
+        inject(ara, LettuceAnomalyReportAccessor.class, "reportFormat", "binary");
+        AnomalyReport a1 = make(1, "1", 1000, "day");
+        AnomalyReport a2 = make(2, "1", 2000, "day");
+        doCallRealMethod().when(ara).putAnomalyReports(anyList());
+        when(ara.key(anyVararg())).thenCallRealMethod();
+        ara.putAnomalyReports(Lists.newArrayList(a1, a2));
+        verify(binAsync).setex(eq(Mapper.encode("key:1:record")), anyLong(), any(byte[].class));
+        verify(binAsync, times(2)).setex(any(byte[].class), anyLong(), any(byte[].class));
+        verify(async, times(0)).hmset(anyString(), anyMap());
+        verify(binAsync, times(0)).zadd(any(), any());
+        verify(async, times(10)).sadd(anyString(), anyString());
+        // reports which predate the records are read from their hashes in the dual format
+        inject(ara, LettuceAnomalyReportAccessor.class, "reportFormat", "dual");
+        when(binAsync.get(Mapper.encode("key:1:record"))).thenReturn(fakeFuture(ReportCodec.encode(a1)));
+        when(binAsync.get(Mapper.encode("key:2:record"))).thenReturn(fakeFuture(null));
+        when(async.hgetall("key:2")).thenReturn(fakeFuture(mapify(a2)));
+        when(binAsync.zrangeWithScores(any(byte[].class), anyLong(), anyLong()))
+                .thenReturn(fakeFuture(Lists.newArrayList()));
+        when(async.smembers("jobId:{1}:freq:day"))
+                .thenAnswer(iom -> fakeFuture(Sets.newLinkedHashSet(Lists.newArrayList("1", "2", "complete"))));
+        when(ara.getAnomalyReportsForJob(anyString(), anyString())).thenCallRealMethod();
+        when(ara.unmap(any(Class.class), anyMap())).thenCallRealMethod();
+        List<AnomalyReport> result = ara.getAnomalyReportsForJob("1", "day");
+        assertEquals(2, result.size());
+        assertEquals("1", result.get(0).getUniqueId());
+        assertEquals("1000:1100,1100,1200", result.get(0).getAnomalyTimestamps());
+        assertEquals(a2, result.get(1));
+        verify(async, times(1)).hgetall(anyString());
+        // reports without records are missing in the binary format
+        inject(ara, LettuceAnomalyReportAccessor.class, "reportFormat", "binary");
+        result = ara.getAnomalyReportsForJob("1", "day");
+        assertEquals(1, result.size());
+        verify(async, times(1)).hgetall(anyString());
+    }
+
+    @Test
+    public void testTaggedIndexFormat() throws IOException {
+        mocks();
+        inject(ara, LettuceAnomalyReportAccessor.class, "indexFormat", "tagged");
+        AnomalyReport a1 = make(1, "1", 1000, "day");
+        doCallRealMethod().when(ara).putAnomalyReports(anyList());
+        when(ara.key(anyVararg())).thenCallRealMethod();
+        ara.putAnomalyReports(Lists.newArrayList(a1));
+        // the job sets are marked complete and the shared sets are not written
+        verify(async).sadd("jobId:1", "1");
+        verify(async).sadd("jobId:{1}:time:1000", "1", AbstractLettuceAccessor.INDEX_COMPLETE);
+        verify(async).sadd("jobId:{1}:freq:day", "1", AbstractLettuceAccessor.INDEX_COMPLETE);
+        verify(async, times(3)).sadd(anyString(), anyVararg());
+        verify(async).expire(eq("jobId:{1}:time:1000"), anyLong());
+        verify(async).expire(eq("jobId:{1}:freq:day"), anyLong());
+        verify(async, times(0)).expire(eq("freq:day"), anyLong());
+        // reports are read from the job sets alone
+        when(async.hgetall("key:1")).thenReturn(fakeFuture(mapify(a1)));
+        when(binAsync.zrangeWithScores(any(byte[].class), anyLong(), anyLong()))
+                .thenReturn(fakeFuture(Lists.newArrayList()));
+        when(async.sinter("jobId:{1}:time:1000", "jobId:{1}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet("1")));
+        when(async.sismember("jobId:{1}:time:1000", AbstractLettuceAccessor.INDEX_COMPLETE)).thenReturn(fakeFuture(false));
+        when(async.smembers("jobId:{1}:freq:day")).thenReturn(fakeFuture(Sets.newHashSet("1")));
+        when(ara.getAnomalyReportsForJobAtTime(anyString(), anyString(), anyString())).thenCallRealMethod();
+        when(ara.getAnomalyReportsForJob(anyString(), anyString())).thenCallRealMethod();
+        when(ara.unmap(any(Class.class), anyMap())).thenCallRealMethod();
+        assertEquals(Lists.newArrayList(a1), ara.getAnomalyReportsForJobAtTime("1", "1000", "day"));
+        assertEquals(Lists.newArrayList(a1), ara.getAnomalyReportsForJob("1", "day"));
+        verify(async, times(0)).smembers("jobId:1");
+        verify(async, times(3)).sadd(anyString(), anyVararg());
     }
 
 }
@@ -47,7 +47,7 @@ public class LettuceDeletedJobMetadataAccessorTest {
     private AsyncCommands<String> async;
     private SyncCommands<String> sync;
 
-    private void mocks() {
+    private void mocks() throws IOException {
         ara = mock(LettuceDeletedJobMetadataAccessor.class);
         inject(ara, LettuceDeletedJobMetadataAccessor.class, "deletedName", "del");
         inject(ara, AbstractLettuceAccessor.class, "keyName", "key");
@@ -40,7 +40,7 @@ public class LettuceDruidClusterAccessorTest {
     private AsyncCommands<String> async;
     private SyncCommands<String> sync;
 
-    private void mocks() {
+    private void mocks() throws IOException {
         dca = mock(LettuceDruidClusterAccessor.class);
         inject(dca, LettuceDruidClusterAccessor.class, "clusterIdName", "id");
         inject(dca, AbstractLettuceAccessor.class, "keyName", "key");
@@ -10,6 +10,7 @@ import com.yahoo.sherlock.store.DeletedJobMetadataAccessor;
 import com.yahoo.sherlock.store.Store;
 import com.yahoo.sherlock.store.StoreParams;
 import com.yahoo.sherlock.store.core.AsyncCommands;
+import com.yahoo.sherlock.store.core.NearCache;
 import com.yahoo.sherlock.store.core.RedisConnection;
 import com.yahoo.sherlock.store.core.SyncCommands;
 import org.testng.annotations.Test;
@@ -25,12 +26,14 @@ import static com.yahoo.sherlock.TestUtilities.inject;
 import static com.yahoo.sherlock.TestUtilities.obtain;
 import static com.yahoo.sherlock.store.redis.AbstractLettuceAccessorTest.fakeFuture;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anySet;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -46,7 +49,7 @@ public class LettuceJobMetadataAccessorTest {
     private AsyncCommands<String> async;
     private SyncCommands<String> sync;
 
-    private void mocks() {
+    private void mocks() throws IOException {
         jma = mock(LettuceJobMetadataAccessor.class);
         djma = mock(DeletedJobMetadataAccessor.class);
         inject(jma, LettuceJobMetadataAccessor.class, "deletedAccessor", djma);
@@ -55,6 +58,8 @@ public class LettuceJobMetadataAccessorTest {
         inject(jma, LettuceJobMetadataAccessor.class, "clusterIdName", "cluster");
         inject(jma, AbstractLettuceAccessor.class, "keyName", "key");
         inject(jma, AbstractLettuceAccessor.class, "mapper", new HashMapper());
+        inject(jma, LettuceJobMetadataAccessor.class, "cache", new NearCache<>(0, 0));
+        inject(jma, LettuceJobMetadataAccessor.class, "versionName", "keyVersion");
         RedisConnection<String> conn = (RedisConnection<String>) mock(RedisConnection.class);
         RedisConnection<byte[]> bin = (RedisConnection<byte[]>) mock(RedisConnection.class);
         async = (AsyncCommands<String>) mock(AsyncCommands.class);
@@ -80,6 +85,9 @@ public class LettuceJobMetadataAccessorTest {
         assertEquals("id", obtain(jma, "jobIdName"));
         assertEquals("status", obtain(jma, "jobStatusName"));
         assertEquals("cluster", obtain(jma, "clusterIdName"));
+        // The version counter is not in the keyspace of job hashes
+        String keyspace = params.get(DatabaseConstants.DB_NAME) + ":";
+        assertFalse(((String) obtain(jma, "versionName")).startsWith(keyspace));
     }
 
     private static JobMetadata make(Integer id, String status, Integer cluster) {
@@ -101,7 +109,7 @@ public class LettuceJobMetadataAccessorTest {
         when(async.hgetall(anyString())).thenReturn(fakeFuture(map(make(1, "RUNNING", 2))));
         JobMetadata job = jma.performDeleteJob("1");
         verify(async).del(anyVararg());
-        verify(async, times(3)).srem(anyString(), anyVararg());
+        verify(async, times(5)).srem(anyString(), anyVararg());
         assertEquals((Integer) 1, job.getJobId());
         assertEquals("RUNNING", job.getJobStatus());
     }
@@ -121,7 +129,7 @@ public class LettuceJobMetadataAccessorTest {
             conIds.add(job.getJobId());
         }
         assertEquals(3, conIds.size());
-        verify(async, times(9)).srem(anyString(), anyVararg());
+        verify(async, times(15)).srem(anyString(), anyVararg());
         verify(async, times(3)).del(anyVararg());
     }
 
@@ -135,7 +143,7 @@ public class LettuceJobMetadataAccessorTest {
         mocks();
         doCallRealMethod().when(jma).deleteGivenJobs(anySet());
         jma.deleteGivenJobs(jobs);
-        verify(async, times(9)).srem(anyString(), anyVararg());
+        verify(async, times(15)).srem(anyString(), anyVararg());
         verify(async, times(3)).del(anyVararg());
     }
 
@@ -173,6 +181,41 @@ public class LettuceJobMetadataAccessorTest {
         fail();
     }
 
+    @Test
+    public void testGetJobMetadataUsesCache() throws IOException, JobNotFoundException {
+        mocks();
+        inject(jma, LettuceJobMetadataAccessor.class, "cache", new NearCache<>(10, 60000));
+        doCallRealMethod().when(jma).checkCacheVersion(any());
+        doCallRealMethod().when(jma).written(any(), any());
+        when(jma.getJobMetadata(anyString())).thenCallRealMethod();
+        when(jma.getJobMetadata(anySet())).thenCallRealMethod();
+        doCallRealMethod().when(jma).putJobMetadata(any(JobMetadata.class));
+        when(sync.get("keyVersion")).thenReturn("5");
+        when(sync.hgetall("key:1")).thenReturn(map(make(1, "CREATED", 2)));
+        when(async.hgetall("key:2")).thenReturn(fakeFuture(map(make(2, "RUNNING", 2))));
+        JobMetadata job = jma.getJobMetadata("1");
+        job.setJobStatus("RUNNING");
+        assertEquals("CREATED", jma.getJobMetadata("1").getJobStatus());
+        verify(sync, times(1)).hgetall("key:1");
+        verify(sync, times(1)).get("keyVersion");
+        List<JobMetadata> jobs = jma.getJobMetadata(Sets.newLinkedHashSet(Lists.newArrayList("2", "1")));
+        assertEquals((Integer) 2, jobs.get(0).getJobId());
+        assertEquals((Integer) 1, jobs.get(1).getJobId());
+        verify(async, times(1)).hgetall(anyString());
+        // a write through this accessor invalidates the job
+        when(async.incr("keyVersion")).thenReturn(fakeFuture(6L));
+        jma.putJobMetadata(job);
+        jma.getJobMetadata("1");
+        verify(sync, times(2)).hgetall("key:1");
+        jma.getJobMetadata(Sets.newHashSet("2"));
+        verify(async, times(1)).hgetall(anyString());
+        // a write by another instance drops the whole cache
+        when(async.incr("keyVersion")).thenReturn(fakeFuture(8L));
+        jma.putJobMetadata(job);
+        jma.getJobMetadata(Sets.newHashSet("2"));
+        verify(async, times(2)).hgetall(anyString());
+    }
+
     @Test
     public void testPutJobmetadata() throws IOException, JobNotFoundException {
         // missing ID
@@ -184,12 +227,12 @@ public class LettuceJobMetadataAccessorTest {
         assertEquals((Integer) 123, job.getJobId());
         verify(jma).newId();
         verify(async).hmset(anyString(), anyMap());
-        verify(async, times(3)).sadd(anyString(), anyVararg());
+        verify(async, times(5)).sadd(anyString(), anyVararg());
         // update
         job.setJobStatus("RUNNING");
         jma.putJobMetadata(job);
         verify(async, times(2)).hmset(anyString(), anyMap());
-        verify(async, times(6)).sadd(anyString(), anyVararg());
+        verify(async, times(10)).sadd(anyString(), anyVararg());
         verify(jma).newId();
     }
 
@@ -209,7 +252,7 @@ public class LettuceJobMetadataAccessorTest {
         assertEquals(jobs.get(2).getJobId(), (Integer) 3);
         assertEquals(jobs.get(3).getJobId(), (Integer) 4);
         verify(async, times(4)).hmset(anyString(), anyMap());
-        verify(async, times(12)).sadd(anyString(), anyVararg());
+        verify(async, times(20)).sadd(anyString(), anyVararg());
     }
 
     @Test
@@ -255,8 +298,17 @@ public class LettuceJobMetadataAccessorTest {
         when(jma.getRunningJobsAssociatedWithCluster(anyString())).thenCallRealMethod();
         when(async.smembers("status:RUNNING")).thenReturn(fakeFuture(Sets.newHashSet("1", "2", "3")));
         when(async.smembers("cluster:1")).thenReturn(fakeFuture(Sets.newHashSet("2", "3")));
+        when(async.sinter("status:{id}:RUNNING", "cluster:{id}:1")).thenReturn(fakeFuture(Sets.newHashSet()));
         jma.getRunningJobsAssociatedWithCluster("1");
-        verify(jma).getJobMetadata(anySet());
+        verify(jma).getJobMetadata(Sets.newHashSet("2", "3"));
+        verify(async).sadd(eq("status:{id}:RUNNING"), anyVararg());
+        verify(async).sadd(eq("cluster:{id}:1"), anyVararg());
+        // once filled, the tagged sets are intersected by Redis
+        when(async.sinter("status:{id}:RUNNING", "cluster:{id}:1"))
+                .thenReturn(fakeFuture(Sets.newHashSet("3", AbstractLettuceAccessor.INDEX_COMPLETE)));
+        jma.getRunningJobsAssociatedWithCluster("1");
+        verify(jma).getJobMetadata(Collections.singleton("3"));
+        verify(async, times(1)).smembers("status:RUNNING");
     }
 
     @Test
@@ -5,11 +5,13 @@ import com.lambdaworks.redis.Range;
 import com.lambdaworks.redis.ScoredValue;
 import com.lambdaworks.redis.ScriptOutputType;
 import com.yahoo.sherlock.exception.JobNotFoundException;
+import com.yahoo.sherlock.model.JobMetadata;
 import com.yahoo.sherlock.settings.DatabaseConstants;
 import com.yahoo.sherlock.store.JobMetadataAccessor;
 import com.yahoo.sherlock.store.Store;
 import com.yahoo.sherlock.store.StoreParams;
 import com.yahoo.sherlock.store.core.AsyncCommands;
+import com.yahoo.sherlock.store.core.LuaScript;
 import com.yahoo.sherlock.store.core.RedisConnection;
 import com.yahoo.sherlock.store.core.SyncCommands;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -17,7 +19,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import static com.yahoo.sherlock.TestUtilities.inject;
@@ -28,6 +32,7 @@ import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anySet;
@@ -46,7 +51,7 @@ public class LettuceJobSchedulerTest {
     private JobMetadataAccessor jma;
     private SyncCommands<String> sync;
 
-    private void mocks() {
+    private void mocks() throws IOException {
         sch = mock(LettuceJobScheduler.class);
         jma = mock(JobMetadataAccessor.class);
         inject(sch, LettuceJobScheduler.class, "jobAccessor", jma);
@@ -150,7 +155,7 @@ public class LettuceJobSchedulerTest {
     public void testPopQueueEmpty() throws IOException {
         mocks();
         when(sch.popQueue(anyLong())).thenCallRealMethod();
-        when(sync.eval(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(Collections.emptyList());
+        when(sync.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(Collections.emptyList());
         assertNull(sch.popQueue(123455));
     }
 
@@ -158,7 +163,7 @@ public class LettuceJobSchedulerTest {
     public void testPopQueue() throws IOException, JobNotFoundException {
         mocks();
         when(sch.popQueue(anyLong())).thenCallRealMethod();
-        when(sync.eval(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(Lists.newArrayList("1"));
+        when(sync.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(Lists.newArrayList("1"));
         sch.popQueue(1234);
         verify(jma).getJobMetadata("1");
     }
@@ -167,11 +172,67 @@ public class LettuceJobSchedulerTest {
     public void testPopQueueNotFound() throws IOException, JobNotFoundException {
         mocks();
         when(sch.popQueue(anyLong())).thenCallRealMethod();
-        when(sync.eval(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(Lists.newArrayList("1"));
-        when(jma.getJobMetadata(anyString())).thenThrow(new JobNotFoundException());
+        when(sync.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg()))
+            .thenReturn(Lists.newArrayList("1"), Lists.newArrayList("2"), Collections.emptyList());
+        when(jma.getJobMetadata("1")).thenThrow(new JobNotFoundException());
+        JobMetadata second = new JobMetadata();
+        second.setJobId(2);
+        when(jma.getJobMetadata("2")).thenReturn(second);
+        // A job which no longer exists is skipped
+        assertEquals(second, sch.popQueue(1234));
+        verify(sch).removePending("1");
         assertNull(sch.popQueue(1234));
     }
 
+    @Test
+    public void testPopQueueBatch() throws IOException {
+        mocks();
+        when(sch.popQueue(anyLong(), anyInt())).thenCallRealMethod();
+        doCallRealMethod().when(sch).removePending(anyCollection());
+        when(sync.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg()))
+            .thenReturn(Lists.newArrayList("1", "100", "2", "100", "3", "101"));
+        JobMetadata first = new JobMetadata();
+        first.setJobId(1);
+        JobMetadata third = new JobMetadata();
+        third.setJobId(3);
+        when(jma.getJobMetadata(anySet())).thenReturn(Lists.newArrayList(first, new JobMetadata(), third));
+        List<JobMetadata> jobs = sch.popQueue(1234, 3);
+        assertEquals(2, jobs.size());
+        assertEquals(first, jobs.get(0));
+        assertEquals(third, jobs.get(1));
+        verify(sync).evalsha(LuaScript.of("popQueueBatch", LettuceJobScheduler.SCRIPT_ZREMRANGEBYSCORE_BATCH).getDigest(), ScriptOutputType.MULTI,
+                          new String[] {"{queue}.job", "{queue}.pending"}, "1234", "3");
+        verify(jma, times(1)).getJobMetadata(new LinkedHashSet<>(Arrays.asList("1", "2", "3")));
+        // Jobs whose metadata is gone are dropped from the pending queue
+        verify(sync).zrem("{queue}.pending", "2");
+    }
+
+    @Test
+    public void testPopQueueBatchSkipsMissingJobs() throws IOException {
+        mocks();
+        when(sch.popQueue(anyLong(), anyInt())).thenCallRealMethod();
+        doCallRealMethod().when(sch).removePending(anyCollection());
+        when(sync.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg()))
+            .thenReturn(Lists.newArrayList("1", "100"), Lists.newArrayList("2", "100"), Collections.emptyList());
+        JobMetadata second = new JobMetadata();
+        second.setJobId(2);
+        when(jma.getJobMetadata(anySet())).thenReturn(Lists.newArrayList(new JobMetadata()), Lists.newArrayList(second));
+        // A batch of jobs which no longer exist does not look like a drained queue
+        assertEquals(Collections.singletonList(second), sch.popQueue(1234, 1));
+        verify(sync).zrem("{queue}.pending", "1");
+        assertEquals(0, sch.popQueue(1234, 1).size());
+    }
+
+    @Test
+    public void testPopQueueBatchEmpty() throws IOException {
+        mocks();
+        when(sch.popQueue(anyLong(), anyInt())).thenCallRealMethod();
+        when(sync.evalsha(anyString(), any(ScriptOutputType.class), any(), anyVararg())).thenReturn(Collections.emptyList());
+        assertEquals(0, sch.popQueue(1234, 5).size());
+        assertEquals(0, sch.popQueue(1234, 0).size());
+        verify(jma, times(0)).getJobMetadata(anySet());
+    }
+
     @Test
     public void testRemovePending() throws IOException {
         mocks();
@@ -180,4 +241,28 @@ public class LettuceJobSchedulerTest {
         verify(sync).zrem("{queue}.pending", "1");
     }
 
+    @Test
+    public void testBulkRemovePending() throws IOException {
+        mocks();
+        doCallRealMethod().when(sch).removePending(anyCollection());
+        sch.removePending(Lists.newArrayList("1", "2"));
+        verify(sync).multi();
+        verify(sync).zrem("{queue}.pending", "1");
+        verify(sync).zrem("{queue}.pending", "2");
+        verify(sync).exec();
+        sch.removePending(Collections.emptyList());
+        verify(sync, times(1)).multi();
+    }
+
+    @Test
+    public void testTouchPending() throws IOException {
+        mocks();
+        doCallRealMethod().when(sch).touchPending(anyCollection(), anyLong());
+        sch.touchPending(Collections.emptyList(), 1234);
+        verify(sch, times(0)).connect();
+        sch.touchPending(Arrays.asList("1", "2"), 1234);
+        verify(sync).evalsha(LuaScript.of("touchPending", LettuceJobScheduler.SCRIPT_TOUCH_PENDING).getDigest(), ScriptOutputType.INTEGER,
+                          new String[] {"{queue}.pending"}, "1234", "1", "2");
+    }
+
 }
@@ -0,0 +1,103 @@
+package com.yahoo.sherlock.store.redis;
+
+import com.yahoo.sherlock.exception.StoreException;
+import com.yahoo.sherlock.model.JobMetadata;
+import com.yahoo.sherlock.store.Attribute;
+import lombok.Data;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+public class ObjectCodecTest {
+
+    @Data
+    public static class TypedData {
+        @Attribute private Integer integer = 7;
+        @Attribute private Long aLong;
+        @Attribute private Double aDouble;
+        @Attribute(type = Attribute.Type.INTEGER) private String intString;
+        @Attribute private String string;
+        private String ignored;
+    }
+
+    private static class NoDefault {
+        @Attribute private String attribute;
+
+        NoDefault(String attribute) {
+            this.attribute = attribute;
+        }
+    }
+
+    @Test
+    public void testCodecIsBuiltOncePerClass() {
+        assertSame(ObjectCodec.of(TypedData.class), ObjectCodec.of(TypedData.class));
+        assertEquals(ObjectCodec.of(TypedData.class).getFields().length, 5);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        HashMapper mapper = new HashMapper();
+        TypedData data = new TypedData();
+        data.setInteger(-12);
+        data.setALong(1L << 40);
+        data.setADouble(2.5);
+        data.setIntString("3");
+        data.setIgnored("x");
+        Map<String, String> hash = mapper.map(data);
+        assertEquals(hash.get("aLong"), "1099511627776");
+        assertEquals(hash.get("string"), "");
+        TypedData copy = mapper.unmap(TypedData.class, hash);
+        assertEquals(copy.getInteger(), (Integer) (-12));
+        assertEquals(copy.getALong(), (Long) (1L << 40));
+        assertEquals(copy.getADouble(), 2.5);
+        assertEquals(copy.getIntString(), "3");
+        assertEquals(copy.getString(), "");
+        assertNull(copy.getIgnored());
+    }
+
+    @Test
+    public void testInvalidOrMissingValuesKeepDefaults() {
+        Map<String, String> hash = new HashMap<>();
+        hash.put("integer", "abc");
+        hash.put("aLong", "");
+        hash.put("aDouble", " 1.5");
+        TypedData data = new HashMapper().unmap(TypedData.class, hash);
+        assertEquals(data.getInteger(), (Integer) 7);
+        assertNull(data.getALong());
+        assertEquals(data.getADouble(), 1.5);
+        assertNull(data.getString());
+    }
+
+    @Test
+    public void testMatchesReflectiveMapping() throws Exception {
+        JobMetadata job = new JobMetadata();
+        job.setJobId(5);
+        job.setOwner("owner");
+        job.setSigmaThreshold(3.0);
+        job.setHoursOfLag(0);
+        HashMapper mapper = new HashMapper();
+        Map<String, String> hash = mapper.map(job);
+        for (ObjectCodec.FieldCodec field : ObjectCodec.of(JobMetadata.class).getFields()) {
+            Object value = field.get(job);
+            assertEquals(hash.get(field.getName()), value == null ? "" : value.toString());
+        }
+        assertEquals(new HashMapper().unmap(JobMetadata.class, hash), job);
+    }
+
+    @Test
+    public void testNoDefaultConstructor() {
+        try {
+            ObjectCodec.of(NoDefault.class).newInstance();
+            fail();
+        } catch (StoreException e) {
+            assertEquals(e.getMessage(), "Class NoDefault does not provide a default constructor");
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.yahoo.sherlock.store.redis;
+
+import com.yahoo.sherlock.exception.StoreException;
+import com.yahoo.sherlock.model.AnomalyReport;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ReportCodecTest {
+
+    private static AnomalyReport make() {
+        AnomalyReport a = new AnomalyReport();
+        a.setUniqueId("12");
+        a.setJobId(4);
+        a.setMetricName("metric");
+        a.setGroupByFilters("{\"country\":\"é\"}");
+        a.setJobFrequency("hour");
+        a.setStatus("WARNING");
+        a.setReportQueryEndTime(421000);
+        a.setAnomalyTimestamps("420990:420996@-25,420997@40,420980@null");
+        return a;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        AnomalyReport a = make();
+        AnomalyReport b = ReportCodec.decode(ReportCodec.encode(a));
+        assertEquals(b.getUniqueId(), "12");
+        assertEquals(b.getJobId(), (Integer) 4);
+        assertEquals(b.getMetricName(), "metric");
+        assertEquals(b.getGroupByFilters(), "{\"country\":\"é\"}");
+        assertEquals(b.getJobFrequency(), "hour");
+        assertEquals(b.getStatus(), "WARNING");
+        assertEquals(b.getReportQueryEndTime(), (Integer) 421000);
+        assertEquals(b.getAnomalyTimestamps(), "420990:420996@-25,420997@40,420980");
+        assertEquals(b.getDeviationString(), "-25,40,null");
+        assertNull(b.getQueryURL());
+        assertNull(b.getModelName());
+        assertNull(b.getErrorDescription());
+    }
+
+    @Test
+    public void testIntervalsWithoutDeviations() {
+        AnomalyReport a = make();
+        a.setAnomalyTimestamps("100:100,101:105");
+        AnomalyReport b = ReportCodec.decode(ReportCodec.encode(a));
+        assertEquals(b.getAnomalyTimestamps(), "100,101:105");
+        assertTrue(Float.isNaN(b.getAnomalyDeviations()[1]));
+        assertEquals(b.getAnomalyTimestampsHours().get(1), new int[] {101, 105});
+    }
+
+    @Test
+    public void testEmptyReport() {
+        AnomalyReport b = ReportCodec.decode(ReportCodec.encode(new AnomalyReport()));
+        assertNull(b.getUniqueId());
+        assertNull(b.getJobId());
+        assertEquals(b.getAnomalyTimestamps(), "");
+    }
+
+    @Test
+    public void testEncodingIsCompact() {
+        AnomalyReport a = make();
+        StringBuilder timestamps = new StringBuilder("420000@10");
+        for (int i = 1; i < 100; i++) {
+            timestamps.append(',').append(420000 + 3 * i).append(':').append(420001 + 3 * i).append("@-").append(i);
+        }
+        a.setAnomalyTimestamps(timestamps.toString());
+        byte[] bytes = ReportCodec.encode(a);
+        assertTrue(bytes.length < 100 * 4, String.valueOf(bytes.length));
+        assertEquals(ReportCodec.decode(bytes).getAnomalyTimestamps(), timestamps.toString());
+    }
+
+    @Test
+    public void testDecodeRejectsBadValues() {
+        byte[] bytes = ReportCodec.encode(make());
+        for (byte[] bad : new byte[][] {{}, {9}, Arrays.copyOf(bytes, bytes.length - 2)}) {
+            try {
+                ReportCodec.decode(bad);
+                fail();
+            } catch (StoreException e) {
+                assertTrue(e.getMessage().contains("anomaly report encoding"));
+            }
+        }
+    }
+
+}
@@ -6,7 +6,9 @@
 
 package com.yahoo.sherlock.utils;
 
+import com.yahoo.egads.data.MetricMeta;
 import com.yahoo.egads.data.TimeSeries;
+import com.yahoo.sherlock.model.ColumnarTimeSeries;
 import com.yahoo.sherlock.query.EgadsConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.testng.annotations.Test;
@@ -17,6 +19,7 @@ import java.util.Date;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 /**
  * Test class for missing data filling util in egads.
@@ -52,6 +55,28 @@ public class EgadsUtilsTest {
         );
     }
 
+    @Test
+    public void testFillMissingDataColumnsWithAggregation() {
+        ColumnarTimeSeries columns = new ColumnarTimeSeries(new MetricMeta());
+        columns.append(3600L, 1.0f);
+        columns.append(7200L, 2.0f);
+        columns.append(18000L, 4.0f);
+        columns.append(21600L, 5.0f);
+        ColumnarTimeSeries filled = EgadsUtils.fillMissingData(columns, 1, 1);
+        assertEquals(filled.size(), 6);
+        assertEquals(filled.time(2), 10800L);
+        assertEquals(filled.value(2), 2.0f);
+        assertEquals(filled.value(3), 2.0f);
+        assertEquals(filled.value(5), 5.0f);
+        ColumnarTimeSeries aggregated = EgadsUtils.fillMissingData(columns, 4, 1);
+        assertEquals(aggregated.size(), 2);
+        assertEquals(aggregated.time(1), 18000L);
+        assertEquals(aggregated.value(0), 7.0f);
+        assertEquals(aggregated.value(1), 9.0f);
+        assertSame(aggregated.getMeta(), columns.getMeta());
+        assertSame(EgadsUtils.fillMissingData(columns, 1, 0), columns);
+    }
+
     @Test
     public void testFillMissingDataUnequalPeriodFrequency() {
         TimeSeries ts = mock(TimeSeries.class);